@@ -0,0 +1,100 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import ast.EvaluationException;
+import ast.SyntaxTree;
+import ast.TypeAnnotator;
+import parser.MFLParser;
+import parser.ParseException;
+
+/**
+ * Counts the bytes allocated per evaluation of a large arithmetic program,
+ * with and without type annotations. A typed tree evaluates on unboxed
+ * primitive paths, so its operators should allocate nothing.
+ * <p>
+ * usage: {@code ant bench -Dbench=AllocationBenchmark -Dbench.args="<iterations>"}
+ */
+public class AllocationBenchmark
+{
+    private static final int RUNS = 5;     // Timed runs per case.
+
+    private static final String GLOBALS = "val a := 1000;\nval b := 37;\nval c := 2.5;\n";
+
+    private static final String TERM =
+        "((a * b + 7) * (a - b) mod 1013 + a / b) * 3 - (b * b - a) > (a + b) * (a - b) / 7"
+        + " and c * 4.0 - 1.5 / c < c * c * c + 2.0 or not (a = -b)";
+
+    /**
+     * The entry point.
+     *
+     * @param args optionally, the number of evaluations per run.
+     * @throws ParseException if the program fails to parse.
+     * @throws EvaluationException if the program fails to evaluate.
+     */
+    public static void main(String[] args) throws ParseException, EvaluationException
+    {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        String prog = GLOBALS + "(" + String.join(") and (", Collections.nCopies(8, TERM))
+            + ");";
+
+        System.out.println("8 x " + TERM);
+        measure("untyped", prog, false, iterations);
+        measure("typed", prog, true, iterations);
+    }
+
+    /**
+     * Evaluates a program repeatedly and reports the time and allocation
+     * per evaluation.
+     *
+     * @param name the name of the case.
+     * @param prog the program to evaluate.
+     * @param annotate true if the tree should be annotated with types.
+     * @param iterations the number of evaluations per run.
+     * @throws ParseException if the program fails to parse.
+     * @throws EvaluationException if the program fails to evaluate.
+     */
+    private static void measure(String name, String prog, boolean annotate,
+        int iterations) throws ParseException, EvaluationException
+    {
+        SyntaxTree ast = new MFLParser(prog).parse();
+        if (annotate)
+            TypeAnnotator.annotate(ast);
+
+        Object sink = null;
+        for (int i = 0; i < iterations; i++)
+            sink = ast.evaluate();
+
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long best = Long.MAX_VALUE;
+        long bytes = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++)
+        {
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+                sink = ast.evaluate();
+            best = Math.min(best, System.nanoTime() - start);
+            bytes = Math.min(bytes, threads.getCurrentThreadAllocatedBytes() - allocated);
+        }
+
+        System.out.printf("  %-10s %8.1f ns/eval %10.1f bytes/eval  (%s)%n", name,
+            (double) best / iterations, (double) bytes / iterations, sink);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.util.Map;
+import java.util.Random;
+
+import ast.EvaluationException;
+import ast.SyntaxTree;
+import closure.CompiledProgram;
+import environment.Environment;
+import parser.MFLParser;
+import parser.ParseException;
+
+/**
+ * Measures evaluating one program over millions of rows whose names are
+ * bound from columns: row by row on the tree with a fresh environment per
+ * row, row by row with a {@link CompiledProgram}, and as one batch with
+ * {@link CompiledProgram#evaluateBatch}, which evaluates the columns a
+ * block at a time across the common fork-join pool.
+ * <p>
+ * usage: {@code ant bench -Dbench=BatchBenchmark -Dbench.args="<rows>"}
+ */
+public class BatchBenchmark
+{
+    private static final int RUNS = 3;     // Timed runs per case.
+
+    private static final String[] PROGRAMS = {
+        "x * y + 3 * x - y;",
+        "r * 1.07 - r / 3.0 + 2.5;",
+        "let a := x * 2 + y in a * a mod 7 = 0 or r > 1.5;"
+    };
+
+    /**
+     * The entry point.
+     *
+     * @param args optionally, the number of rows.
+     * @throws ParseException if a program fails to parse.
+     * @throws EvaluationException if a program fails to evaluate.
+     */
+    public static void main(String[] args) throws ParseException, EvaluationException
+    {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+
+        Random rand = new Random(3120);
+        int[] x = new int[rows];
+        int[] y = new int[rows];
+        double[] r = new double[rows];
+        for (int i = 0; i < rows; i++)
+        {
+            x[i] = rand.nextInt(20001) - 10000;
+            y[i] = rand.nextInt(20001) - 10000;
+            r[i] = rand.nextDouble() * 4;
+        }
+        Map<String, Object> columns = Map.of("x", x, "y", y, "r", r);
+
+        for (String prog : PROGRAMS)
+        {
+            System.out.println(prog);
+            SyntaxTree ast = new MFLParser(prog).parse();
+            CompiledProgram program = new MFLParser(prog).compile();
+
+            measure("tree", rows, () -> {
+                Object sink = null;
+                for (int i = 0; i < rows; i++)
+                {
+                    Environment env = new Environment();
+                    env.updateEnvironment("x", x[i]);
+                    env.updateEnvironment("y", y[i]);
+                    env.updateEnvironment("r", r[i]);
+                    ast.setEnvironment(env);
+                    sink = ast.evaluate();
+                }
+                return sink;
+            });
+            measure("compiled", rows, () -> {
+                Object sink = null;
+                for (int i = 0; i < rows; i++)
+                    sink = program.evaluate(Map.of("x", x[i], "y", y[i], "r", r[i]));
+                return sink;
+            });
+            measure("batch", rows, () -> program.evaluateBatch(columns));
+        }
+    }
+
+    /**
+     * A pass over every row.
+     */
+    private interface Pass
+    {
+        Object run() throws EvaluationException;
+    }
+
+    /**
+     * Runs a pass repeatedly and reports the time per row.
+     *
+     * @param name the name of the case.
+     * @param rows the number of rows in a pass.
+     * @param pass the pass.
+     * @throws EvaluationException if a row fails to evaluate.
+     */
+    private static void measure(String name, int rows, Pass pass) throws EvaluationException
+    {
+        Object sink = pass.run();
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++)
+        {
+            long start = System.nanoTime();
+            sink = pass.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.printf("  %-12s %8.1f ns/row  %8.1f ms/pass  (%s)%n", name,
+            (double) best / rows, best / 1e6, sink.getClass().getSimpleName());
+    }
+}
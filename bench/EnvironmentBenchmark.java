@@ -0,0 +1,134 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import ast.EvaluationException;
+import ast.SyntaxTree;
+import environment.Environment;
+import parser.MFLParser;
+import parser.ParseException;
+
+/**
+ * Measures the cost of nested lets under many globals, where every let
+ * copies the environment. The persistent {@link Environment} is compared
+ * with a flat array that is cloned on every copy, as environments were
+ * before.
+ * <p>
+ * usage: {@code ant bench -Dbench=EnvironmentBenchmark -Dbench.args="<globals> <depth>"}
+ */
+public class EnvironmentBenchmark
+{
+    private static final int RUNS = 5;          // Timed runs per case.
+    private static final int ITERATIONS = 200;  // Evaluations per run.
+
+    /**
+     * The entry point.
+     *
+     * @param args optionally, the number of globals and the depth of the lets.
+     * @throws ParseException if a program fails to parse.
+     * @throws EvaluationException if a program fails to evaluate.
+     */
+    public static void main(String[] args) throws ParseException, EvaluationException
+    {
+        int globals = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        StringBuilder vals = new StringBuilder();
+        for (int i = 0; i < globals; i++)
+            vals.append("val g").append(i).append(" := ").append(i).append(";\n");
+        String lets = "let x := g0 in ".repeat(depth) + "x + g" + (globals - 1) + ";";
+
+        System.out.println(globals + " globals, lets " + depth + " deep");
+        measure("persistent", new Environment(), vals.toString(), lets);
+        measure("flat", new FlatEnvironment(), vals.toString(), lets);
+    }
+
+    /**
+     * Binds the globals in an environment, then evaluates the lets under
+     * them repeatedly and reports the time and allocation per evaluation.
+     *
+     * @param name the name of the case.
+     * @param env the environment to use.
+     * @param vals the program binding the globals.
+     * @param lets the program to time.
+     * @throws ParseException if a program fails to parse.
+     * @throws EvaluationException if a program fails to evaluate.
+     */
+    private static void measure(String name, Environment env, String vals, String lets)
+        throws ParseException, EvaluationException
+    {
+        SyntaxTree setup = new MFLParser(vals).parse();
+        setup.setEnvironment(env);
+        setup.evaluate();
+
+        SyntaxTree ast = new MFLParser(lets).parse();
+        ast.setEnvironment(env);
+
+        Object sink = null;
+        for (int i = 0; i < ITERATIONS; i++)
+            sink = ast.evaluate();
+
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long best = Long.MAX_VALUE;
+        long bytes = 0;
+        for (int run = 0; run < RUNS; run++)
+        {
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++)
+                sink = ast.evaluate();
+            best = Math.min(best, System.nanoTime() - start);
+            bytes = threads.getCurrentThreadAllocatedBytes() - allocated;
+        }
+
+        System.out.printf("  %-12s %10.1f us/eval %12d bytes/eval  (%s)%n", name,
+            best / 1e3 / ITERATIONS, bytes / ITERATIONS, sink);
+    }
+
+    /**
+     * An environment stored as a flat array indexed by symbol id, which is
+     * cloned whole on every copy.
+     */
+    private static class FlatEnvironment extends Environment
+    {
+        private Object[] env = new Object[16];
+
+        @Override
+        public Object lookup(int symbol)
+        {
+            return symbol >= 0 && symbol < env.length ? env[symbol] : null;
+        }
+
+        @Override
+        public void updateEnvironment(int symbol, Object value)
+        {
+            if (symbol >= env.length)
+                env = Arrays.copyOf(env, Math.max(symbol + 1, env.length * 2));
+            env[symbol] = value;
+        }
+
+        @Override
+        public Environment copy()
+        {
+            FlatEnvironment c = new FlatEnvironment();
+            c.env = env.clone();
+            return c;
+        }
+    }
+}
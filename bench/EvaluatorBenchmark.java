@@ -0,0 +1,111 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import ast.EvaluationException;
+import ast.Evaluator;
+import ast.FrameEvaluator;
+import ast.RecursiveEvaluator;
+import ast.StackEvaluator;
+import ast.SyntaxTree;
+import closure.ClosureEvaluator;
+import jit.TieredEvaluator;
+import parser.MFLParser;
+import parser.ParseException;
+import vm.VirtualMachine;
+
+/**
+ * Measures evaluation speed of each {@link Evaluator} on shallow
+ * expressions, the common case the stack-safe evaluator must not slow down,
+ * on nested lets, which the frame evaluator binds without copying, and on a
+ * long expression, where the bytecode VM's single dispatch loop replaces
+ * the tree walk. The closure evaluator runs each program as a tree of
+ * compiled closures, and the tiered evaluator compiles each program to a
+ * JVM class after its first thousand evaluations.
+ * <p>
+ * usage: {@code ant bench -Dbench=EvaluatorBenchmark -Dbench.args="<iterations>"}
+ */
+public class EvaluatorBenchmark
+{
+    private static final int RUNS = 5;     // Timed runs per case.
+
+    private static final String[] PROGRAMS = {
+        "1 + 2 * 3 - 4;",
+        "val a := 3;\nval b := 4;\n(a * b + 7) mod 5 < 3 and not (a = b);",
+        "let r := 0.0725 in let p := 1200.5 in r * p >= 86.5 or p / r < 2.0;",
+        "val g := 2;\nlet a := g in let b := a + 1 in let c := b * a in "
+            + "let d := c - b in let a := d + c in a * b + c * d;",
+        "val g := 3;\nlet a := g in let b := a * a - 1 in "
+            + "(a + 1 > 0 and b - 2 < 50 or a = b) and (a * b + 7) mod 5 < 3 and "
+            + "(b + 3) * (a - 1) > b + 1 and not (a + b = 9 or b - a < 0) and a * b - 4 >= a + 1;",
+        "val g := 2147483647;\nlet a := g * g in let b := a * a - g in b > a and b mod 97 < 97;"
+    };
+
+    /**
+     * The entry point.
+     *
+     * @param args optionally, the number of evaluations per run.
+     * @throws ParseException if a program fails to parse.
+     * @throws EvaluationException if a program fails to evaluate.
+     */
+    public static void main(String[] args) throws ParseException, EvaluationException
+    {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+
+        for (String prog : PROGRAMS)
+        {
+            System.out.println(prog.replace('\n', ' '));
+            measure("stack", prog, new StackEvaluator(), iterations);
+            measure("recursive", prog, new RecursiveEvaluator(), iterations);
+            measure("frame", prog, new FrameEvaluator(), iterations);
+            measure("vm", prog, new VirtualMachine(), iterations);
+            measure("closure", prog, new ClosureEvaluator(), iterations);
+            measure("jit", prog, new TieredEvaluator(), iterations);
+        }
+    }
+
+    /**
+     * Evaluates a program repeatedly and reports the time per evaluation.
+     *
+     * @param name the name of the case.
+     * @param prog the program to evaluate.
+     * @param evaluator the evaluator to use.
+     * @param iterations the number of evaluations per run.
+     * @throws ParseException if the program fails to parse.
+     * @throws EvaluationException if the program fails to evaluate.
+     */
+    private static void measure(String name, String prog, Evaluator evaluator,
+        int iterations) throws ParseException, EvaluationException
+    {
+        SyntaxTree ast = new MFLParser(prog).parse();
+        ast.setEvaluator(evaluator);
+
+        Object sink = null;
+        for (int i = 0; i < iterations; i++)
+            sink = ast.evaluate();
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++)
+        {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+                sink = ast.evaluate();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.printf("  %-12s %8.1f ns/eval  (%s)%n", name,
+            (double) best / iterations, sink);
+    }
+}
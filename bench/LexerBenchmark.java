@@ -0,0 +1,158 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import lexer.CharacterClass;
+import lexer.CharacterStream;
+import lexer.Lexer;
+import lexer.TableLexer;
+import lexer.TokenType;
+
+/**
+ * Measures lexing throughput on a generated MFL file. The reader-backed
+ * character stream is compared against the memory-mapped one, and the
+ * stream-driven and table-driven lexers are run over the mapped file.
+ * <p>
+ * usage: {@code ant bench -Dbench=LexerBenchmark -Dbench.args="<megabytes>"}
+ */
+public class LexerBenchmark
+{
+    private static final int WARMUP = 2;   // Untimed runs per case.
+    private static final int RUNS = 5;     // Timed runs per case.
+
+    private static final String LINE =
+        "val total42 := (price * 3 + 17) mod 11; (* running total *)\n"
+        + "let rate := 0.0725 in rate * 1200.50 >= 86.5 and not (flag != true);\n";
+
+    /**
+     * A single benchmark case.
+     */
+    private interface Case
+    {
+        long run(File file) throws IOException;
+    }
+
+    /**
+     * The entry point.
+     *
+     * @param args optionally, the size of the generated file in megabytes.
+     * @throws IOException if the input file can not be generated.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        File file = generate(megabytes);
+
+        try
+        {
+            System.out.println("input: " + file.length() + " bytes");
+            measure("CharacterStream (reader)", file,
+                f -> drain(new CharacterStream(new FileReader(f))));
+            measure("CharacterStream (mapped)", file,
+                f -> drain(new CharacterStream(f)));
+            measure("Lexer(File)", file, f -> lex(new Lexer(f)));
+            measure("TableLexer(File)", file, f -> lex(new TableLexer(f)));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * Runs a case and reports its throughput.
+     *
+     * @param name the name of the case.
+     * @param file the input file.
+     * @param c the case to run.
+     * @throws IOException if the input can not be read.
+     */
+    private static void measure(String name, File file, Case c) throws IOException
+    {
+        long count = 0;
+        for (int i = 0; i < WARMUP; i++)
+            count = c.run(file);
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++)
+        {
+            long start = System.nanoTime();
+            count = c.run(file);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        double mbPerSec = (file.length() / (1024.0 * 1024.0)) / (best / 1e9);
+        System.out.printf("%-28s %10.1f MB/s  (%d items, best of %d)%n",
+            name, mbPerSec, count, RUNS);
+    }
+
+    /**
+     * Advances a stream to its end.
+     *
+     * @param stream the stream to drain.
+     * @return the number of characters read.
+     */
+    private static long drain(CharacterStream stream)
+    {
+        long count = 0;
+        stream.advance();
+        while (stream.getCurrentClass() != CharacterClass.END)
+        {
+            count++;
+            stream.advance();
+        }
+        return count;
+    }
+
+    /**
+     * Lexes a source to the end.
+     *
+     * @param lex the lexer to drain.
+     * @return the number of tokens produced.
+     */
+    private static long lex(Lexer lex)
+    {
+        long count = 0;
+        while (lex.nextToken().getType() != TokenType.EOF)
+            count++;
+        return count;
+    }
+
+    /**
+     * Generates a temporary MFL file of roughly the given size.
+     *
+     * @param megabytes the size of the file in megabytes.
+     * @return the generated file.
+     * @throws IOException if the file can not be written.
+     */
+    private static File generate(int megabytes) throws IOException
+    {
+        File file = File.createTempFile("mfl-bench", ".mfl");
+        long target = megabytes * 1024L * 1024L;
+
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file)))
+        {
+            for (long written = 0; written < target; written += LINE.length())
+                out.write(LINE);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import lexer.TableLexer;
+import parser.MFLParser;
+import parser.ParseException;
+import parser.ParseMode;
+
+/**
+ * Measures parsing throughput for each {@link ParseMode}. Two generated
+ * files are parsed: a wide one with many short statements, and a long one
+ * with few statements, each a long chain of operators.
+ * <p>
+ * usage: {@code ant bench -Dbench=ParserBenchmark -Dbench.args="<megabytes>"}
+ */
+public class ParserBenchmark
+{
+    private static final int WARMUP = 3;   // Untimed runs per case.
+    private static final int RUNS = 5;     // Timed runs per case.
+
+    private static final String WIDE =
+        "val total42 := (price * 3 + 17) mod 11;\n"
+        + "let rate := 0.0725 in rate * 1200.50 >= 86.5 and not (flag != true);\n"
+        + "x;\n";
+
+    private static final String TERM = "a * 2 + (b - 1) / c mod 7 - -d ";
+
+    /**
+     * The entry point.
+     *
+     * @param args optionally, the size of each generated file in megabytes.
+     * @throws IOException if the input files can not be generated.
+     * @throws ParseException if a generated file fails to parse.
+     */
+    public static void main(String[] args) throws IOException, ParseException
+    {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        File wide = generate(megabytes, WIDE, "");
+        File chain = generate(megabytes, TERM, "+ ");
+
+        try
+        {
+            for (ParseMode mode : ParseMode.values())
+            {
+                measure("wide, " + mode, wide, mode);
+                measure("long, " + mode, chain, mode);
+            }
+        }
+        finally
+        {
+            wide.delete();
+            chain.delete();
+        }
+    }
+
+    /**
+     * Parses a file repeatedly and reports the throughput.
+     *
+     * @param name the name of the case.
+     * @param file the input file.
+     * @param mode the parsing mode to use.
+     * @throws IOException if the input can not be read.
+     * @throws ParseException if the input fails to parse.
+     */
+    private static void measure(String name, File file, ParseMode mode)
+        throws IOException, ParseException
+    {
+        for (int i = 0; i < WARMUP; i++)
+            parse(file, mode);
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++)
+        {
+            long start = System.nanoTime();
+            parse(file, mode);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        double mbPerSec = (file.length() / (1024.0 * 1024.0)) / (best / 1e9);
+        System.out.printf("%-24s %10.1f MB/s  (best of %d)%n", name, mbPerSec, RUNS);
+    }
+
+    /**
+     * Parses a file.
+     *
+     * @param file the file to parse.
+     * @param mode the parsing mode to use.
+     * @throws IOException if the input can not be read.
+     * @throws ParseException if the input fails to parse.
+     */
+    private static void parse(File file, ParseMode mode)
+        throws IOException, ParseException
+    {
+        MFLParser p = new MFLParser(new TableLexer(file));
+        p.setParseMode(mode);
+        p.parse();
+    }
+
+    /**
+     * Generates a temporary MFL file of roughly the given size.
+     *
+     * @param megabytes the size of the file in megabytes.
+     * @param unit the text to repeat.
+     * @param joiner the text placed between repetitions within a statement.
+     * @return the generated file.
+     * @throws IOException if the file can not be written.
+     */
+    private static File generate(int megabytes, String unit, String joiner)
+        throws IOException
+    {
+        File file = File.createTempFile("mfl-bench", ".mfl");
+        long target = megabytes * 1024L * 1024L;
+        int perStatement = joiner.isEmpty() ? 1 : 2000;
+
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file)))
+        {
+            long written = 0;
+            while (written < target)
+            {
+                for (int i = 0; i < perStatement; i++)
+                {
+                    if (i > 0)
+                        out.write(joiner);
+                    out.write(unit);
+                    written += unit.length() + joiner.length();
+                }
+                if (!joiner.isEmpty())
+                    out.write(";\n");
+            }
+        }
+        return file;
+    }
+}
@@ -17,15 +17,26 @@
  */
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Scanner;
 
 import ast.EvaluationException;
+import ast.LazyEvaluator;
+import ast.Optimizer;
+import ast.StackEvaluator;
 import ast.SyntaxTree;
+import ast.TypeChecker;
+import ast.TypeAnnotator;
+import closure.ClosureEvaluator;
+import diagnostics.AsyncDiagnostics;
+import diagnostics.Diagnostics;
 import merrimackutil.cli.LongOption;
 import merrimackutil.cli.OptionParser;
 import merrimackutil.util.Tuple;
 import parser.ParseException;
 import parser.MFLParser;
+import parser.ParseMode;
+import vm.VirtualMachine;
 
 /**
  * This provides a simple front end to a recursive descent parser for the 
@@ -40,6 +51,14 @@ public class Interpreter
     private static boolean doFile = false;       // Run program in the file.
     private static String fileName = null;       // File containing the program.
     private static boolean displayAST = false;   // Display the AST resulting from parsing.
+    private static boolean stackSafe = false;    // Parse and evaluate without recursion.
+    private static boolean optimize = false;     // Simplify the AST before evaluating.
+    private static boolean typeCheck = false;    // Check types before evaluating.
+    private static boolean useVM = false;        // Evaluate with the bytecode VM.
+    private static boolean useClosures = false;  // Evaluate with compiled closures.
+    private static boolean useLazy = false;      // Evaluate bindings call-by-need.
+    private static String logName = null;        // File tracing and trees are written to.
+    private static Diagnostics diagnostics = Diagnostics.CONSOLE; // Where tracing goes.
 
     /**
      * Show the license message to the screen.
@@ -59,13 +78,19 @@ public class Interpreter
     public static void usage()
     {
         System.err.println("usage:");
-        System.err.println("   mfl [--trace] [--ast] --file <filename>");
-        System.err.println("   mfl [--trace] [--ast]");
+        System.err.println("   mfl [--trace] [--ast] [--log <file>] [--stack-safe | [--optimize] [--check] [--engine <engine>]] --file <filename>");
+        System.err.println("   mfl [--trace] [--ast] [--log <file>] [--stack-safe | [--optimize] [--check] [--engine <engine>]]");
         System.err.println("   mfl --help");
         System.err.println("options:");
         System.err.println("--trace, -t \t\tTurn on interpreter tracing.");
         System.err.println("--file, -f \t\tInterpret the file.");
         System.err.println("--ast,-a \t\tDisplay the abstract syntax tree.");
+        System.err.println("--log, -l \t\tWrite tracing, trees, and errors to the file.");
+        System.err.println("--stack-safe, -s \tAllow arbitrarily deep nesting.");
+        System.err.println("--optimize, -O \t\tSimplify and type the program before running it.");
+        System.err.println("--check, -c \t\tReport type errors before running the program.");
+        System.err.println("--engine, -e \t\tRun the program with engine tree (default), vm, closure,");
+        System.err.println("\t\t\tor lazy (bindings evaluated when first used).");
         System.err.println("--help, -h \t\tDisplay this message");
         System.exit(1);
     }
@@ -78,48 +103,20 @@ public class Interpreter
         String line = "";
         Scanner scan = new Scanner(System.in);
         boolean exit = false;
-        MFLParser parse; // The MFL parser which builds the AST.
-        SyntaxTree ast; // The AST we will use to evealuate the file.
         
         showLicense();
         System.out.println();
         System.out.println("MFL interactive mode. Enter .quit to exit.");
         while (!exit)
         {
+            diagnostics.flush();
             System.out.print("mfl> ");
             line = scan.nextLine();
 
             // Interpret the line if needed.
             line.trim();
             if (!line.isEmpty() && !line.equals(".quit"))
-            {
-                // Try to interpret the program.
-                parse = new MFLParser(line);
-
-                // Determine if we should turn on tracing.
-                if (doTracing)
-                    parse.toggleTracing();
-
-                try {
-                    ast = parse.parse();
-                } catch (ParseException e) {
-                    System.out.println(e.getMessage());
-                    continue;
-                }
-                
-                if (displayAST)
-                    ast.printTree();
-
-                try {
-                    Object res = ast.evaluate();
-                    System.out.println(res);
-                }
-                catch (EvaluationException ex)
-                {
-                    System.out.println(ex.getMessage());
-                }
-
-            }       
+                interpret(new MFLParser(line));
             else if (line.equals(".quit"))
                 exit = true;
         }
@@ -131,27 +128,9 @@ public class Interpreter
      */
     public static void interpretFile()
     {
-        MFLParser parse; // The MFL parser which builds the AST.
-        SyntaxTree ast; // The AST we will use to evealuate the file.
-
-        // Try to interpret the program.
         try
         {
-            parse = new MFLParser(new File(fileName));
-
-            // Determine if we should turn on tracing.
-            if (doTracing)
-                parse.toggleTracing();
-
-            try {
-                ast = parse.parse();
-            } catch (ParseException e) {
-                System.out.println(e.getMessage());
-                return;
-            }
-           
-            if (displayAST)
-                ast.printTree(); 
+            interpret(new MFLParser(new File(fileName)));
         }
         catch (FileNotFoundException ex)
         {
@@ -160,6 +139,62 @@ public class Interpreter
         }
     }
 
+    /**
+     * Parses, checks and evaluates a program with the selected options,
+     * printing its value or the error it fails with.
+     *
+     * @param parse the MFL parser over the program.
+     */
+    private static void interpret(MFLParser parse)
+    {
+        SyntaxTree ast; // The AST we will use to evealuate the program.
+
+        // Determine if we should turn on tracing.
+        parse.setDiagnostics(diagnostics);
+        if (doTracing)
+            parse.toggleTracing();
+        if (stackSafe)
+            parse.setParseMode(ParseMode.ITERATIVE);
+
+        try {
+            ast = parse.parse();
+        } catch (ParseException e) {
+            diagnostics.flush();
+            System.out.println(e.getMessage());
+            return;
+        }
+        ast.setDiagnostics(diagnostics);
+        if (stackSafe)
+            ast.setEvaluator(new StackEvaluator());
+        if (useVM)
+            ast.setEvaluator(new VirtualMachine());
+        if (useClosures)
+            ast.setEvaluator(new ClosureEvaluator());
+        if (useLazy)
+            ast.setEvaluator(new LazyEvaluator());
+        if (optimize)
+        {
+            Optimizer.optimize(ast);
+            TypeAnnotator.annotate(ast);
+        }
+        if (typeCheck && !TypeChecker.check(ast))
+            return;
+        
+        if (displayAST)
+            ast.printTree();
+
+        try {
+            Object res = ast.evaluate();
+            diagnostics.flush();
+            System.out.println(res);
+        }
+        catch (EvaluationException ex)
+        {
+            diagnostics.flush();
+            System.out.println(ex.getMessage());
+        }
+    }
+
     /**
      * Process the command line arguments.
      * 
@@ -169,17 +204,22 @@ public class Interpreter
     {
         OptionParser parser;
 
-        LongOption[] opts = new LongOption[4];
+        LongOption[] opts = new LongOption[9];
         opts[0] = new LongOption("help", false, 'h');
         opts[1] = new LongOption("file", true, 'f');
         opts[2] = new LongOption("trace", false, 't');
         opts[3] = new LongOption("ast", false, 'a');
+        opts[4] = new LongOption("stack-safe", false, 's');
+        opts[5] = new LongOption("optimize", false, 'O');
+        opts[6] = new LongOption("check", false, 'c');
+        opts[7] = new LongOption("engine", true, 'e');
+        opts[8] = new LongOption("log", true, 'l');
 
         Tuple<Character, String> currOpt;
 
         parser = new OptionParser(args);
         parser.setLongOpts(opts);
-        parser.setOptString("hf:ta");
+        parser.setOptString("hf:tasOce:l:");
 
         while (parser.getOptIdx() != args.length)
         {
@@ -200,6 +240,28 @@ public class Interpreter
             case 'a':
                 displayAST = true;
                 break;
+            case 'l':
+                logName = currOpt.getSecond();
+                break;
+            case 's':
+                stackSafe = true;
+                break;
+            case 'O':
+                optimize = true;
+                break;
+            case 'c':
+                typeCheck = true;
+                break;
+            case 'e':
+                if (currOpt.getSecond().equals("vm"))
+                    useVM = true;
+                else if (currOpt.getSecond().equals("closure"))
+                    useClosures = true;
+                else if (currOpt.getSecond().equals("lazy"))
+                    useLazy = true;
+                else if (!currOpt.getSecond().equals("tree"))
+                    usage();
+                break;
             case '?':
                 usage();
                 break;
@@ -207,7 +269,13 @@ public class Interpreter
         }
 
         // Verify the options are not conflicting.
-        if (doFile && doHelp || doTracing && doHelp || displayAST && doHelp)
+        if (doFile && doHelp || doTracing && doHelp || displayAST && doHelp
+                || stackSafe && doHelp || optimize && doHelp
+                || typeCheck && doHelp || optimize && stackSafe
+                || typeCheck && stackSafe || useVM && doHelp
+                || useVM && stackSafe || useClosures && doHelp
+                || useClosures && stackSafe || useLazy && doHelp
+                || useLazy && stackSafe || logName != null && doHelp)
             usage();
     }
 
@@ -219,19 +287,37 @@ public class Interpreter
      */
     public static void main(String[] args)
     {
-        // Determine if we are looking at file or command line.
-        if (args.length > 4)
-            usage();
-
         // Determine what the user requested.
         processArgs(args);
+        if (doHelp)
+            usage();
+
+        // Tracing and trees go through a background writer, so printing
+        // them does not hold up the parser.
+        try
+        {
+            if (logName != null)
+                diagnostics = new AsyncDiagnostics(new File(logName));
+            else if (doTracing || displayAST)
+                diagnostics = new AsyncDiagnostics(System.out);
+        }
+        catch (IOException ex)
+        {
+            System.err.println("Cannot open " + logName + ": " + ex.getMessage());
+            System.exit(1);
+        }
 
         // Perform the correct action.
-        if (doFile)
-            interpretFile();
-        else if (doHelp)
-            usage();
-        else
-            runInteractive();
+        try
+        {
+            if (doFile)
+                interpretFile();
+            else
+                runInteractive();
+        }
+        finally
+        {
+            diagnostics.close();
+        }
     }
 }
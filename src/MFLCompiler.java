@@ -0,0 +1,192 @@
+
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import aot.AheadOfTimeCompiler;
+import ast.Optimizer;
+import ast.SyntaxTree;
+import ast.TypeChecker;
+import merrimackutil.cli.LongOption;
+import merrimackutil.cli.OptionParser;
+import merrimackutil.util.Tuple;
+import parser.MFLParser;
+import parser.ParseException;
+
+/**
+ * The mflc entry point: compiles an MFL program ahead of time to a class
+ * with a {@code main} method, or to a runnable jar.
+ *
+ * @author Zach Kissel
+ */
+public class MFLCompiler
+{
+    private static boolean doHelp = false;     // Perform the help option.
+    private static String fileName = null;     // File containing the program.
+    private static String outDir = ".";        // Directory to write the class to.
+    private static String jarName = null;      // Jar to write, if any.
+    private static String className = null;    // Name of the class to generate.
+    private static boolean optimize = false;   // Simplify the AST before compiling.
+    private static boolean typeCheck = false;  // Check types before compiling.
+
+    /**
+     * Prints a usage message to the screen and exits.
+     */
+    public static void usage()
+    {
+        System.err.println("usage:");
+        System.err.println("   mflc [--optimize] [--check] [--name <class>] [--output <dir> | --jar <jarfile>] <filename>");
+        System.err.println("   mflc --help");
+        System.err.println("options:");
+        System.err.println("--output, -d \t\tWrite the class to the directory (default .).");
+        System.err.println("--jar, -j \t\tWrite a runnable jar instead.");
+        System.err.println("--name, -n \t\tName the class (default: from the file name).");
+        System.err.println("--optimize, -O \t\tSimplify the program before compiling it.");
+        System.err.println("--check, -c \t\tReport type errors instead of compiling.");
+        System.err.println("--help, -h \t\tDisplay this message");
+        System.exit(1);
+    }
+
+    /**
+     * Compiles the file.
+     */
+    public static void compileFile()
+    {
+        SyntaxTree ast;
+        try
+        {
+            ast = new MFLParser(new File(fileName)).parse();
+        }
+        catch (FileNotFoundException ex)
+        {
+            System.err.println(ex);
+            System.exit(1);
+            return;
+        }
+        catch (ParseException ex)
+        {
+            System.out.println(ex.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        if (optimize)
+            Optimizer.optimize(ast);
+        if (typeCheck && !TypeChecker.check(ast))
+            System.exit(1);
+        if (ast.getRootNode() == null)
+        {
+            System.err.println(fileName + ": nothing to compile");
+            System.exit(1);
+        }
+
+        try
+        {
+            AheadOfTimeCompiler compiler = new AheadOfTimeCompiler(ast.getRootNode(),
+                className != null ? className : AheadOfTimeCompiler.classNameOf(fileName));
+            if (jarName != null)
+                compiler.writeJar(new File(jarName));
+            else
+                compiler.writeTo(new File(outDir));
+        }
+        catch (IOException ex)
+        {
+            System.err.println(fileName + ": " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Process the command line arguments.
+     * 
+     * @param args the array of command line arguments.
+     */
+    public static void processArgs(String[] args)
+    {
+        OptionParser parser;
+
+        LongOption[] opts = new LongOption[6];
+        opts[0] = new LongOption("help", false, 'h');
+        opts[1] = new LongOption("output", true, 'd');
+        opts[2] = new LongOption("jar", true, 'j');
+        opts[3] = new LongOption("name", true, 'n');
+        opts[4] = new LongOption("optimize", false, 'O');
+        opts[5] = new LongOption("check", false, 'c');
+
+        Tuple<Character, String> currOpt;
+
+        parser = new OptionParser(args);
+        parser.setLongOpts(opts);
+        parser.setOptString("hd:j:n:Oc");
+
+        while (parser.getOptIdx() != args.length)
+        {
+            // The program is the one argument that is not an option.
+            if (!args[parser.getOptIdx()].startsWith("-"))
+            {
+                if (fileName != null)
+                    usage();
+                fileName = args[parser.getOptIdx()];
+                parser.setOptIdx(parser.getOptIdx() + 1);
+                continue;
+            }
+
+            currOpt = parser.getLongOpt(false);
+            switch (currOpt.getFirst())
+            {
+            case 'h':
+                doHelp = true;
+                break;
+            case 'd':
+                outDir = currOpt.getSecond();
+                break;
+            case 'j':
+                jarName = currOpt.getSecond();
+                break;
+            case 'n':
+                className = currOpt.getSecond();
+                break;
+            case 'O':
+                optimize = true;
+                break;
+            case 'c':
+                typeCheck = true;
+                break;
+            case '?':
+                usage();
+                break;
+            }
+        }
+
+        if (doHelp || fileName == null)
+            usage();
+    }
+
+    /**
+     * The entry point.
+     * 
+     * @param args the array of strings that represnt the command line
+     *             arguments.
+     */
+    public static void main(String[] args)
+    {
+        processArgs(args);
+        compileFile();
+    }
+}
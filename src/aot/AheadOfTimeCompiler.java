@@ -0,0 +1,272 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package aot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+import ast.nodes.SyntaxNode;
+import jit.CodeGenerator;
+
+/**
+ * Compiles a program ahead of time to a class with a {@code main} method,
+ * so running it costs no lexing, parsing, or warm-up of the tree walker.
+ * The class is generated by the {@link CodeGenerator} and is accompanied by
+ * a resource holding its constants, read by the {@link Launcher} when the
+ * program starts. The pair can be written to a directory, to be run with
+ * the interpreter's classes on the class path, or to a runnable jar that
+ * also holds the small runtime they need, which excludes the lexer and the
+ * parser.
+ *
+ * @author Zach Kissel
+ */
+public final class AheadOfTimeCompiler
+{
+    /**
+     * The classes and packages a compiled program needs at run time.
+     * Package names end in a slash.
+     */
+    private static final String[] RUNTIME = { "aot/Launcher", "aot/ProgramImage",
+        "ast/ErrorKind", "ast/EvaluationException", "ast/nodes/", "environment/", "jit/GeneratedProgram",
+        "jit/Operations", "lexer/SymbolTable", "lexer/Token", "lexer/TokenType" };
+
+    private static final String LAUNCHER = "aot/Launcher";
+
+    private final String name;        // The name of the program's class.
+    private final byte[] classFile;   // The program's class.
+    private final byte[] constants;   // The program's constants.
+
+    /**
+     * Compiles a program. The tree is annotated with types as a side effect.
+     *
+     * @param root the root of the program's tree.
+     * @param name the name of the class to compile it to, in the default
+     *        package.
+     * @throws IOException if the program cannot be compiled.
+     */
+    public AheadOfTimeCompiler(SyntaxNode root, String name) throws IOException
+    {
+        this.name = name;
+        List<Object> k = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        try
+        {
+            classFile = CodeGenerator.generate(root, name, LAUNCHER, k, names);
+        }
+        catch (IllegalStateException ex)
+        {
+            throw new IOException(ex.getMessage(), ex);
+        }
+
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buf);
+        ProgramImage.write(out, root, k, names);
+        out.flush();
+        constants = buf.toByteArray();
+    }
+
+    /**
+     * Makes a class name from the name of a program's file, by dropping its
+     * directory and extension and replacing characters a class name cannot
+     * hold.
+     *
+     * @param fileName the name of the file.
+     * @return the class name.
+     */
+    public static String classNameOf(String fileName)
+    {
+        String base = new File(fileName).getName();
+        int dot = base.lastIndexOf('.');
+        if (dot > 0)
+            base = base.substring(0, dot);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < base.length(); i++)
+        {
+            char c = base.charAt(i);
+            sb.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        if (sb.length() == 0 || !Character.isJavaIdentifierStart(sb.charAt(0)))
+            sb.insert(0, '_');
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        return sb.toString();
+    }
+
+    /**
+     * Gets the name of the compiled class.
+     *
+     * @return the class name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Writes the compiled class and its constants to a directory.
+     *
+     * @param dir the directory.
+     * @throws IOException if the files cannot be written.
+     */
+    public void writeTo(File dir) throws IOException
+    {
+        Files.createDirectories(dir.toPath());
+        Files.write(new File(dir, name + ".class").toPath(), classFile);
+        Files.write(new File(dir, name + Launcher.CONSTANTS).toPath(), constants);
+    }
+
+    /**
+     * Writes a runnable jar holding the compiled class, its constants, and
+     * the runtime.
+     *
+     * @param jar the jar file.
+     * @throws IOException if the jar cannot be written or the runtime
+     *         cannot be found.
+     */
+    public void writeJar(File jar) throws IOException
+    {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, name);
+
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest))
+        {
+            entry(out, name + ".class", classFile);
+            entry(out, name + Launcher.CONSTANTS, constants);
+            for (Map.Entry<String, byte[]> runtimeClass : runtime().entrySet())
+                entry(out, runtimeClass.getKey(), runtimeClass.getValue());
+        }
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Writes an entry to a jar.
+     *
+     * @param out the jar.
+     * @param path the path of the entry.
+     * @param bytes the contents of the entry.
+     * @throws IOException if the entry cannot be written.
+     */
+    private static void entry(JarOutputStream out, String path, byte[] bytes) throws IOException
+    {
+        out.putNextEntry(new JarEntry(path));
+        out.write(bytes);
+        out.closeEntry();
+    }
+
+    /**
+     * Reads the runtime's class files from wherever this class was loaded
+     * from, a directory or a jar.
+     *
+     * @return the class files, keyed on their paths.
+     * @throws IOException if the class files cannot be read.
+     */
+    private static TreeMap<String, byte[]> runtime() throws IOException
+    {
+        TreeMap<String, byte[]> classes = new TreeMap<>();
+        Path home;
+        try
+        {
+            home = Paths.get(AheadOfTimeCompiler.class.getProtectionDomain().getCodeSource()
+                .getLocation().toURI());
+        }
+        catch (URISyntaxException | NullPointerException ex)
+        {
+            throw new IOException("Cannot find the runtime classes", ex);
+        }
+
+        if (Files.isDirectory(home))
+        {
+            try (Stream<Path> files = Files.walk(home))
+            {
+                for (Path file : (Iterable<Path>) files::iterator)
+                {
+                    String path = home.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (isRuntime(path))
+                        classes.put(path, Files.readAllBytes(file));
+                }
+            }
+        }
+        else
+        {
+            try (JarFile jar = new JarFile(home.toFile()))
+            {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements())
+                {
+                    JarEntry e = entries.nextElement();
+                    if (isRuntime(e.getName()))
+                        try (InputStream in = jar.getInputStream(e))
+                        {
+                            classes.put(e.getName(), in.readAllBytes());
+                        }
+                }
+            }
+        }
+
+        if (!classes.containsKey(LAUNCHER + ".class"))
+            throw new IOException("Cannot find the runtime classes in " + home);
+        return classes;
+    }
+
+    /**
+     * Determines if a class file belongs to the runtime.
+     *
+     * @param path the path of the class file.
+     * @return true if it is one of the runtime's classes, or a class nested
+     *         in one, or a class directly in one of its packages.
+     */
+    private static boolean isRuntime(String path)
+    {
+        if (!path.endsWith(".class"))
+            return false;
+        String cls = path.substring(0, path.length() - ".class".length());
+        for (String r : RUNTIME)
+        {
+            if (r.endsWith("/"))
+            {
+                if (cls.startsWith(r) && cls.indexOf('/', r.length()) < 0)
+                    return true;
+            }
+            else if (cls.equals(r) || cls.startsWith(r + "$"))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package aot;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import ast.EvaluationException;
+import environment.Environment;
+import jit.GeneratedProgram;
+
+/**
+ * Runs a program compiled by the {@link AheadOfTimeCompiler}. The
+ * {@code main} method of a compiled program calls
+ * {@link #launch(String[], Class)}, which reads the program's constants
+ * from the resource beside its class, runs it in an empty environment, and
+ * prints its value, or its error as the interpreter does.
+ * <p>
+ * The launcher and everything it uses make up the runtime of a compiled
+ * program; none of it depends on the lexer or the parser.
+ *
+ * @author Zach Kissel
+ */
+public final class Launcher
+{
+    /**
+     * The extension of the resource holding a compiled program's constants.
+     */
+    public static final String CONSTANTS = ".mflk";
+
+    /**
+     * Runs a compiled program, exiting with status 1 if it fails.
+     *
+     * @param args the command line arguments, which are ignored.
+     * @param program the class of the compiled program.
+     */
+    public static void launch(String[] args, Class<?> program)
+    {
+        int status = run(program);
+        if (status != 0)
+            System.exit(status);
+    }
+
+    /**
+     * Runs a compiled program, printing its value or its error.
+     *
+     * @param program the class of the compiled program.
+     * @return 0 if the program ran, and 1 if it failed.
+     */
+    public static int run(Class<?> program)
+    {
+        GeneratedProgram prog;
+        try
+        {
+            prog = load(program);
+        }
+        catch (IOException ex)
+        {
+            System.err.println("Cannot load " + program.getName() + ": " + ex.getMessage());
+            return 1;
+        }
+
+        try
+        {
+            System.out.println(prog.run(new Environment()));
+            return 0;
+        }
+        catch (EvaluationException ex)
+        {
+            System.out.println(ex.getReport());
+            System.out.println(ex.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Loads a compiled program.
+     *
+     * @param program the class of the compiled program.
+     * @return an instance of the program.
+     * @throws IOException if the program or its constants cannot be loaded.
+     */
+    public static GeneratedProgram load(Class<?> program) throws IOException
+    {
+        ProgramImage image;
+        try (InputStream res = program.getResourceAsStream(program.getSimpleName() + CONSTANTS))
+        {
+            if (res == null)
+                throw new IOException("missing " + program.getSimpleName() + CONSTANTS);
+            image = ProgramImage.read(new DataInputStream(new BufferedInputStream(res)));
+        }
+
+        try
+        {
+            return (GeneratedProgram) program.getConstructor(Object[].class, String[].class)
+                .newInstance(image.getConstants(), image.getNames());
+        }
+        catch (ReflectiveOperationException | ClassCastException ex)
+        {
+            throw new IOException("not a compiled MFL program", ex);
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package aot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import ast.nodes.BinOpNode;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import lexer.Token;
+import lexer.TokenType;
+
+/**
+ * Reads and writes the constants of a compiled program. The constants are
+ * the literals and names the program's code uses, and the syntax nodes its
+ * code passes values to when they need checking or an error must be
+ * reported. The free names the program looks up are written with them. The nodes are written as the tree they belong to, in preorder,
+ * and a node constant refers to its position in the tree, so a tree is
+ * rebuilt without the lexer or parser.
+ *
+ * @author Zach Kissel
+ */
+public final class ProgramImage
+{
+    private static final int MAGIC = 0x4D464C4B;   // "MFLK"
+
+    private static final byte TOKEN = 0;   // The kinds of node.
+    private static final byte BINARY = 1;
+    private static final byte RELATION = 2;
+    private static final byte UNARY = 3;
+    private static final byte LET = 4;
+    private static final byte VAL = 5;
+    private static final byte PROGRAM = 6;
+
+    private static final byte NODE = 0;    // The kinds of constant.
+    private static final byte INT = 1;
+    private static final byte REAL = 2;
+    private static final byte BOOL = 3;
+    private static final byte STRING = 4;
+    private static final byte BIG = 5;
+
+    private final Object[] constants;   // The program's constants.
+    private final String[] names;       // The free names it looks up.
+
+    /**
+     * Writes the constants of a program.
+     *
+     * @param out the stream to write to.
+     * @param root the root of the program's tree; every node constant is a
+     *        node of this tree.
+     * @param constants the constants.
+     * @param names the free names.
+     * @throws IOException if the constants cannot be written.
+     */
+    public static void write(DataOutputStream out, SyntaxNode root, List<Object> constants,
+        List<String> names) throws IOException
+    {
+        IdentityHashMap<SyntaxNode, Integer> positions = new IdentityHashMap<>();
+        out.writeInt(MAGIC);
+        writeNode(out, root, positions);
+        out.writeInt(constants.size());
+        for (Object k : constants)
+        {
+            if (k instanceof SyntaxNode)
+            {
+                out.writeByte(NODE);
+                out.writeInt(positions.get(k));
+            }
+            else if (k instanceof Integer)
+            {
+                out.writeByte(INT);
+                out.writeInt((Integer) k);
+            }
+            else if (k instanceof Double)
+            {
+                out.writeByte(REAL);
+                out.writeDouble((Double) k);
+            }
+            else if (k instanceof Boolean)
+            {
+                out.writeByte(BOOL);
+                out.writeBoolean((Boolean) k);
+            }
+            else if (k instanceof BigInteger)
+            {
+                out.writeByte(BIG);
+                out.writeUTF(k.toString());
+            }
+            else
+            {
+                out.writeByte(STRING);
+                out.writeUTF((String) k);
+            }
+        }
+        out.writeInt(names.size());
+        for (String name : names)
+            out.writeUTF(name);
+    }
+
+    /**
+     * Reads the constants of a program.
+     *
+     * @param in the stream to read from.
+     * @return the constants and names, in the order they were written.
+     * @throws IOException if the constants cannot be read or are malformed.
+     */
+    public static ProgramImage read(DataInputStream in) throws IOException
+    {
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a compiled MFL program");
+        List<SyntaxNode> nodes = new ArrayList<>();
+        readNode(in, nodes);
+
+        Object[] constants = new Object[in.readInt()];
+        for (int i = 0; i < constants.length; i++)
+        {
+            byte kind = in.readByte();
+            switch (kind)
+            {
+            case NODE:
+                constants[i] = nodes.get(in.readInt());
+                break;
+            case INT:
+                constants[i] = in.readInt();
+                break;
+            case REAL:
+                constants[i] = in.readDouble();
+                break;
+            case BOOL:
+                constants[i] = in.readBoolean();
+                break;
+            case STRING:
+                constants[i] = in.readUTF();
+                break;
+            case BIG:
+                constants[i] = new BigInteger(in.readUTF());
+                break;
+            default:
+                throw new IOException("Unknown constant kind " + kind);
+            }
+        }
+
+        String[] names = new String[in.readInt()];
+        for (int i = 0; i < names.length; i++)
+            names[i] = in.readUTF();
+        return new ProgramImage(constants, names);
+    }
+
+    /**
+     * Gets the constants.
+     *
+     * @return the constants, in the order they were written.
+     */
+    public Object[] getConstants()
+    {
+        return constants;
+    }
+
+    /**
+     * Gets the free names.
+     *
+     * @return the names, in the order they were written.
+     */
+    public String[] getNames()
+    {
+        return names;
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Constructs an image that has been read.
+     *
+     * @param constants the constants.
+     * @param names the free names.
+     */
+    private ProgramImage(Object[] constants, String[] names)
+    {
+        this.constants = constants;
+        this.names = names;
+    }
+
+    /**
+     * Writes a subtree in preorder, numbering its nodes.
+     *
+     * @param out the stream to write to.
+     * @param node the root of the subtree.
+     * @param positions the position of each node written so far.
+     * @throws IOException if the subtree cannot be written.
+     */
+    private static void writeNode(DataOutputStream out, SyntaxNode node,
+        IdentityHashMap<SyntaxNode, Integer> positions) throws IOException
+    {
+        positions.put(node, positions.size());
+        if (node instanceof TokenNode)
+        {
+            out.writeByte(TOKEN);
+            out.writeLong(node.getLineNumber());
+            writeToken(out, ((TokenNode) node).getToken());
+        }
+        else if (node instanceof BinOpNode)
+        {
+            BinOpNode bin = (BinOpNode) node;
+            out.writeByte(BINARY);
+            out.writeLong(node.getLineNumber());
+            out.writeUTF(bin.getOp());
+            writeNode(out, bin.getLeft(), positions);
+            writeNode(out, bin.getRight(), positions);
+        }
+        else if (node instanceof RelOpNode)
+        {
+            RelOpNode rel = (RelOpNode) node;
+            out.writeByte(RELATION);
+            out.writeLong(node.getLineNumber());
+            out.writeUTF(rel.getOp());
+            writeNode(out, rel.getLeft(), positions);
+            writeNode(out, rel.getRight(), positions);
+        }
+        else if (node instanceof UnaryOpNode)
+        {
+            UnaryOpNode un = (UnaryOpNode) node;
+            out.writeByte(UNARY);
+            out.writeLong(node.getLineNumber());
+            out.writeUTF(un.getOp());
+            writeNode(out, un.getOperand(), positions);
+        }
+        else if (node instanceof LetNode)
+        {
+            LetNode let = (LetNode) node;
+            out.writeByte(LET);
+            out.writeLong(node.getLineNumber());
+            writeToken(out, let.getIdToken());
+            writeNode(out, let.getBoundExpr(), positions);
+            writeNode(out, let.getBody(), positions);
+        }
+        else if (node instanceof ValNode)
+        {
+            ValNode val = (ValNode) node;
+            out.writeByte(VAL);
+            out.writeLong(node.getLineNumber());
+            writeToken(out, val.getIdToken());
+            writeNode(out, val.getExpr(), positions);
+        }
+        else if (node instanceof ProgNode)
+        {
+            List<SyntaxNode> stmts = ((ProgNode) node).getStatements();
+            out.writeByte(PROGRAM);
+            out.writeLong(node.getLineNumber());
+            out.writeInt(stmts.size());
+            for (SyntaxNode stmt : stmts)
+                writeNode(out, stmt, positions);
+        }
+        else
+            throw new IOException("Cannot write a " + node.getClass().getSimpleName());
+    }
+
+    /**
+     * Reads a subtree written in preorder.
+     *
+     * @param in the stream to read from.
+     * @param nodes the nodes read so far, in preorder.
+     * @return the root of the subtree.
+     * @throws IOException if the subtree cannot be read.
+     */
+    private static SyntaxNode readNode(DataInputStream in, List<SyntaxNode> nodes)
+        throws IOException
+    {
+        // Reserve the node's position before reading its children.
+        int position = nodes.size();
+        nodes.add(null);
+
+        SyntaxNode node;
+        byte kind = in.readByte();
+        long line = in.readLong();
+        switch (kind)
+        {
+        case TOKEN:
+            node = new TokenNode(readToken(in), line);
+            break;
+        case BINARY:
+        {
+            String op = in.readUTF();
+            SyntaxNode left = readNode(in, nodes);
+            node = new BinOpNode(op, left, readNode(in, nodes), line);
+            break;
+        }
+        case RELATION:
+        {
+            String op = in.readUTF();
+            SyntaxNode left = readNode(in, nodes);
+            node = new RelOpNode(op, left, readNode(in, nodes), line);
+            break;
+        }
+        case UNARY:
+        {
+            String op = in.readUTF();
+            node = new UnaryOpNode(op, readNode(in, nodes), line);
+            break;
+        }
+        case LET:
+        {
+            Token id = readToken(in);
+            SyntaxNode bound = readNode(in, nodes);
+            node = new LetNode(id, bound, readNode(in, nodes), line);
+            break;
+        }
+        case VAL:
+        {
+            Token id = readToken(in);
+            node = new ValNode(id, readNode(in, nodes), line);
+            break;
+        }
+        case PROGRAM:
+        {
+            int count = in.readInt();
+            List<SyntaxNode> stmts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                stmts.add(readNode(in, nodes));
+            node = new ProgNode(stmts, line);
+            break;
+        }
+        default:
+            throw new IOException("Unknown node kind " + kind);
+        }
+        nodes.set(position, node);
+        return node;
+    }
+
+    /**
+     * Writes a token.
+     *
+     * @param out the stream to write to.
+     * @param tok the token.
+     * @throws IOException if the token cannot be written.
+     */
+    private static void writeToken(DataOutputStream out, Token tok) throws IOException
+    {
+        out.writeUTF(tok.getType().name());
+        out.writeUTF(tok.getValue());
+    }
+
+    /**
+     * Reads a token.
+     *
+     * @param in the stream to read from.
+     * @return the token.
+     * @throws IOException if the token cannot be read.
+     */
+    private static Token readToken(DataInputStream in) throws IOException
+    {
+        try
+        {
+            TokenType type = TokenType.valueOf(in.readUTF());
+            return new Token(type, in.readUTF());
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new IOException("Unknown token type", ex);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast;
+
+/**
+ * The kinds of error a program can fail with, carried by an
+ * {@link EvaluationException} or a {@code ParseException} so that callers
+ * can sort failures without reading their messages.
+ *
+ * @author Zach Kissel
+ */
+public enum ErrorKind
+{
+    /**
+     * The program is not well formed.
+     */
+    SYNTAX,
+
+    /**
+     * A name has no binding.
+     */
+    UNBOUND,
+
+    /**
+     * An operator was applied to values of the wrong types.
+     */
+    TYPE,
+
+    /**
+     * An arithmetic operation failed, as in division by zero.
+     */
+    ARITHMETIC,
+
+    /**
+     * The tree holds an operator, token, or literal no evaluator knows.
+     */
+    INVALID
+}
@@ -10,18 +10,52 @@ package ast;
 
 public class EvaluationException extends Exception {
 
+    // This is the kind of error, so callers need not parse the message
+    private final ErrorKind kind;
+
+    // This is the line the error happened on (or -1 if not known)
+    private final long line;
+
     // This is the constructor with a default message
     public EvaluationException() {
-        super("Interpretation failed.");
+        this("Interpretation failed.");
     }
 
     // This is the constructor that takes a custom message
     public EvaluationException(String message) {
         super(message);
+        this.kind = ErrorKind.INVALID;
+        this.line = -1;
     }
 
     // This is the constructor that lets you pass a cause (optional)
     public EvaluationException(String message, Throwable cause) {
         super(message, cause);
+        this.kind = ErrorKind.INVALID;
+        this.line = -1;
+    }
+
+    // This is the constructor the nodes use. Failing programs are routine,
+    // so no stack trace is filled in: it would cost more than the
+    // evaluation and nobody reads it.
+    public EvaluationException(ErrorKind kind, long line, String message) {
+        super(message, null, false, false);
+        this.kind = kind;
+        this.line = line;
+    }
+
+    // This is a helper to get the kind of error
+    public ErrorKind getKind() {
+        return kind;
+    }
+
+    // This is a helper to get the line the error happened on
+    public long getLine() {
+        return line;
+    }
+
+    // This is the error as the interpreter prints it, with its line number
+    public String getReport() {
+        return "Error (line " + line + "): " + getMessage();
     }
 }
@@ -0,0 +1,39 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast;
+
+import ast.nodes.SyntaxNode;
+import environment.Environment;
+
+/**
+ * A strategy for evaluating a syntax tree. Every evaluator produces the
+ * same results and raises the same {@link EvaluationException}s.
+ *
+ * @author Zach Kissel
+ */
+public interface Evaluator
+{
+    /**
+     * Evaluates the tree rooted at {@code root}.
+     *
+     * @param root the root of the tree to evaluate.
+     * @param env the environment to evaluate the tree in.
+     * @return the value of the tree.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    Object evaluate(SyntaxNode root, Environment env) throws EvaluationException;
+}
@@ -0,0 +1,78 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast;
+
+import ast.nodes.ProgNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.ValNode;
+import environment.Environment;
+
+/**
+ * Evaluates a syntax tree whose let-bound names have been given frame slots
+ * by the {@link Resolver}. Reading a let-bound name is an array index and
+ * binding one is a single store, where {@link RecursiveEvaluator} copies the
+ * whole environment for every let. Only vals and other free names go
+ * through the environment. Like {@link RecursiveEvaluator}, the depth of the
+ * tree is limited by the size of the Java stack.
+ * <p>
+ * A tree is resolved the first time it is evaluated.
+ *
+ * @author Zach Kissel
+ */
+public class FrameEvaluator implements Evaluator
+{
+    private SyntaxNode resolved;  // The root of the last tree resolved.
+    private int frameSize;        // The frame size of the resolved tree.
+
+    /**
+     * Evaluates the tree rooted at {@code root}.
+     *
+     * @param root the root of the tree to evaluate.
+     * @param env the environment to evaluate the tree in.
+     * @return the value of the tree.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    @Override
+    public Object evaluate(SyntaxNode root, Environment env) throws EvaluationException
+    {
+        if (root != resolved)
+        {
+            frameSize = Resolver.resolve(root);
+            resolved = root;
+        }
+
+        // Every statement starts with the frame empty, so one serves them all.
+        Object[] frame = new Object[frameSize];
+        if (!(root instanceof ProgNode))
+            return root.evaluate(env, frame);
+
+        // Statements run in order; a val binds its value globally.
+        Object last = null;
+        for (SyntaxNode stmt : ((ProgNode) root).getStatements())
+        {
+            if (stmt instanceof ValNode)
+            {
+                ValNode v = (ValNode) stmt;
+                env.updateEnvironment(v.getIdToken(), v.getExpr().evaluate(env, frame));
+                last = v.evaluate(env);
+            }
+            else
+                last = stmt.evaluate(env, frame);
+        }
+        return last;
+    }
+}
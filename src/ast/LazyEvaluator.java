@@ -0,0 +1,138 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast;
+
+import ast.nodes.BinOpNode;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import environment.Environment;
+
+/**
+ * Evaluates a syntax tree call-by-need. A let or a val binds its name to
+ * a {@link Thunk} rather than to a value, and the bound expression is
+ * evaluated the first time the name is used, then remembered. Operators
+ * are applied by the nodes, and {@code and} and {@code or} skip their
+ * right operand when the left one decides the result, as in every
+ * evaluator.
+ * <p>
+ * Which errors surface follows from what is evaluated:
+ * <ul>
+ * <li>An error in a bound expression surfaces at the first use of the
+ * name, and never if the name is not used.</li>
+ * <li>An error in the right operand of an {@code and} or an {@code or}
+ * surfaces only if the left operand does not decide the result.</li>
+ * <li>Any other error surfaces as it does under {@link RecursiveEvaluator},
+ * with the same message.</li>
+ * </ul>
+ * A program with no errors has the same value as under any other
+ * evaluator. A val's expression is evaluated in the environment as it was
+ * when the val was reached, so later vals do not change it.
+ * <p>
+ * The evaluator recurses over the tree, so the depth of the tree is
+ * limited by the size of the Java stack.
+ *
+ * @author Zach Kissel
+ */
+public class LazyEvaluator implements Evaluator
+{
+    /**
+     * Evaluates the tree rooted at {@code root}.
+     *
+     * @param root the root of the tree to evaluate.
+     * @param env the environment to evaluate the tree in.
+     * @return the value of the tree.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    @Override
+    public Object evaluate(SyntaxNode root, Environment env) throws EvaluationException
+    {
+        if (!(root instanceof ProgNode))
+            return eval(root, env);
+
+        Object last = null;
+        for (SyntaxNode stmt : ((ProgNode) root).getStatements())
+        {
+            if (stmt instanceof ValNode)
+            {
+                ValNode v = (ValNode) stmt;
+                env.updateEnvironment(v.getIdToken(), new Thunk(v.getExpr(), env.copy()));
+                last = v.evaluate(env);
+            }
+            else
+                last = eval(stmt, env);
+        }
+        return last;
+    }
+
+    /**
+     * Evaluates an expression.
+     *
+     * @param node the expression.
+     * @param env the environment to evaluate it in.
+     * @return the value of the expression, never a thunk.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    Object eval(SyntaxNode node, Environment env) throws EvaluationException
+    {
+        if (node instanceof TokenNode)
+        {
+            TokenNode leaf = (TokenNode) node;
+            if (leaf.getLiteral() != null)
+                return leaf.getLiteral();
+            Object value = env.lookup(leaf.getToken());
+            if (value instanceof Thunk)
+                return ((Thunk) value).force(this);
+            if (value == null)
+                return leaf.evaluate(env);  // Reports the unbound name.
+            return value;
+        }
+        if (node instanceof BinOpNode)
+        {
+            BinOpNode bin = (BinOpNode) node;
+            Object lv = eval(bin.getLeft(), env);
+            if (bin.isShortCircuit())
+            {
+                Boolean decided = bin.shortCircuit(lv);
+                if (decided != null)
+                    return decided;
+            }
+            return bin.apply(lv, eval(bin.getRight(), env));
+        }
+        if (node instanceof RelOpNode)
+        {
+            RelOpNode rel = (RelOpNode) node;
+            Object lv = eval(rel.getLeft(), env);
+            return rel.apply(lv, eval(rel.getRight(), env));
+        }
+        if (node instanceof UnaryOpNode)
+        {
+            UnaryOpNode un = (UnaryOpNode) node;
+            return un.apply(eval(un.getOperand(), env));
+        }
+        if (node instanceof LetNode)
+        {
+            LetNode let = (LetNode) node;
+            return eval(let.getBody(), let.bind(env, new Thunk(let.getBoundExpr(), env)));
+        }
+        return node.evaluate(env);
+    }
+}
@@ -0,0 +1,686 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import ast.nodes.BinOpNode;
+import ast.nodes.Integers;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import lexer.Token;
+import lexer.TokenType;
+
+/**
+ * Simplifies a syntax tree before it is evaluated. Operators whose operands
+ * are all constants are replaced by their value, identities such as
+ * {@code x * 1}, {@code x + 0}, {@code not not b}, and {@code true and b}
+ * are reduced to their operand, {@code false and b} and {@code true or b}
+ * are reduced to their constant left operand, since {@code b} is never
+ * evaluated, and the constant values of top-level vals are substituted
+ * into the statements after them.
+ * <p>
+ * Lets are removed where the binding does no work: a let bound to a literal
+ * is inlined into its body, a let bound to another name that is known to be
+ * bound ({@code let x := y in ...}) is collapsed by renaming, and a let
+ * whose name its body never reads is dropped if its bound expression can
+ * not fail. Each removed let saves evaluating the bound expression and
+ * copying the environment.
+ * <p>
+ * Evaluating the simplified tree gives the same result, and fails with the
+ * same error, as evaluating the original:
+ * <ul>
+ * <li>an operator is folded only if applying it to its constant operands
+ * cannot fail, so {@code 1 / 0}, {@code true + 3}, {@code 2.5 mod 2.0},
+ * and {@code 1 + 2.0} are left in place to fail when evaluated;</li>
+ * <li>an identity is applied only if its other operand is known to have the
+ * type the identity needs whenever it has a value at all, so {@code x * 1}
+ * is kept unless {@code x} is known to be an int;</li>
+ * <li>a name is only known to be bound inside a let binding it or after a
+ * val binding it, so {@code let x := y in 1} is kept when {@code y} may be
+ * unbound, and an alias is only collapsed if no let in its body rebinds
+ * the aliased name.</li>
+ * </ul>
+ * The tree is walked recursively, so like {@link RecursiveEvaluator} its
+ * depth is limited by the size of the Java stack.
+ *
+ * @author Zach Kissel
+ */
+public final class Optimizer
+{
+    private static final Integer ZERO = 0;
+    private static final Integer ONE = 1;
+    private static final Double REAL_ZERO = 0.0;
+    private static final Double REAL_ONE = 1.0;
+
+    // The constant values of the vals and lets visible at this point,
+    // keyed on symbol id.
+    private final HashMap<Integer, Object> constants = new HashMap<>();
+
+    // The names that collapsed lets have made aliases of, keyed on the
+    // symbol id of the alias.
+    private final HashMap<Integer, Token> aliases = new HashMap<>();
+
+    // The symbol ids of the names known to be bound at this point.
+    private final HashSet<Integer> known = new HashSet<>();
+
+    // The type each simplified node has whenever it has a value at all.
+    private final IdentityHashMap<SyntaxNode, Class<?>> types = new IdentityHashMap<>();
+
+    /**
+     * Simplifies the tree in {@code tree}, replacing its root.
+     *
+     * @param tree the tree to simplify.
+     */
+    public static void optimize(SyntaxTree tree)
+    {
+        if (tree.getRootNode() != null)
+            tree.setRootNode(optimize(tree.getRootNode()));
+    }
+
+    /**
+     * Simplifies the tree rooted at {@code root}. Subtrees that can not be
+     * simplified are shared with the original tree, which is not changed.
+     *
+     * @param root the root of the tree to simplify.
+     * @return the root of the simplified tree.
+     */
+    public static SyntaxNode optimize(SyntaxNode root)
+    {
+        return new Optimizer().visit(root);
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Simplifies a subtree.
+     *
+     * @param node the root of the subtree.
+     * @return the root of the simplified subtree.
+     */
+    private SyntaxNode visit(SyntaxNode node)
+    {
+        if (node instanceof TokenNode)
+            return visitToken((TokenNode) node);
+        if (node instanceof BinOpNode)
+            return visitBinOp((BinOpNode) node);
+        if (node instanceof RelOpNode)
+            return visitRelOp((RelOpNode) node);
+        if (node instanceof UnaryOpNode)
+            return visitUnaryOp((UnaryOpNode) node);
+        if (node instanceof LetNode)
+            return visitLet((LetNode) node);
+        if (node instanceof ValNode)
+            return visitVal((ValNode) node);
+        if (node instanceof ProgNode)
+            return visitProg((ProgNode) node);
+        return node;
+    }
+
+    /**
+     * Replaces a reference to a constant with its value, and a reference to
+     * an alias with the name it stands for.
+     *
+     * @param leaf the leaf to simplify.
+     * @return the simplified leaf.
+     */
+    private SyntaxNode visitToken(TokenNode leaf)
+    {
+        Token tok = leaf.getToken();
+        if (tok.getType() == TokenType.ID)
+        {
+            Object value = constants.get(tok.getSymbol());
+            if (value != null)
+                return constant(value, leaf.getLineNumber());
+            Token target = aliases.get(tok.getSymbol());
+            if (target != null)
+                return new TokenNode(target, leaf.getLineNumber());
+        }
+        return leaf;
+    }
+
+    /**
+     * Simplifies a binary operator.
+     *
+     * @param bin the operator to simplify.
+     * @return the simplified operator.
+     */
+    private SyntaxNode visitBinOp(BinOpNode bin)
+    {
+        SyntaxNode left = visit(bin.getLeft());
+        SyntaxNode right = visit(bin.getRight());
+        String op = bin.getOp();
+        Object lv = valueOf(left);
+        Object rv = valueOf(right);
+
+        if (lv != null && rv != null && binaryFolds(op, lv, rv))
+            return constant(apply(bin, lv, rv), bin.getLineNumber());
+
+        // A constant left operand that decides and/or means the right one
+        // is never evaluated.
+        if (op.equals("and") && Boolean.FALSE.equals(lv)
+            || op.equals("or") && Boolean.TRUE.equals(lv))
+            return left;
+
+        // The operand an identity reduces to, if any.
+        SyntaxNode kept = null;
+        switch (op)
+        {
+        case "+":
+            kept = identity(left, right, ZERO, Integer.class, true);
+            break;
+        case "-":
+            kept = identity(left, right, ZERO, Integer.class, false);
+            if (kept == null)
+                kept = identity(left, right, REAL_ZERO, Double.class, false);
+            break;
+        case "*":
+            kept = identity(left, right, ONE, Integer.class, true);
+            if (kept == null)
+                kept = identity(left, right, REAL_ONE, Double.class, true);
+            break;
+        case "/":
+            kept = identity(left, right, ONE, Integer.class, false);
+            if (kept == null)
+                kept = identity(left, right, REAL_ONE, Double.class, false);
+            break;
+        case "and":
+            kept = identity(left, right, Boolean.TRUE, Boolean.class, true);
+            break;
+        case "or":
+            kept = identity(left, right, Boolean.FALSE, Boolean.class, true);
+            break;
+        default:
+            break;
+        }
+        if (kept != null)
+            return kept;
+
+        if (left == bin.getLeft() && right == bin.getRight())
+            return typed(bin, binaryType(op, left, right));
+        return typed(new BinOpNode(op, left, right, bin.getLineNumber()),
+            binaryType(op, left, right));
+    }
+
+    /**
+     * Simplifies a relational operator.
+     *
+     * @param rel the operator to simplify.
+     * @return the simplified operator.
+     */
+    private SyntaxNode visitRelOp(RelOpNode rel)
+    {
+        SyntaxNode left = visit(rel.getLeft());
+        SyntaxNode right = visit(rel.getRight());
+        Object lv = valueOf(left);
+        Object rv = valueOf(right);
+
+        if (lv != null && rv != null && relationFolds(rel.getOp(), lv, rv))
+            return constant(apply(rel, lv, rv), rel.getLineNumber());
+
+        if (left == rel.getLeft() && right == rel.getRight())
+            return typed(rel, Boolean.class);
+        return typed(new RelOpNode(rel.getOp(), left, right, rel.getLineNumber()),
+            Boolean.class);
+    }
+
+    /**
+     * Simplifies a unary operator.
+     *
+     * @param unary the operator to simplify.
+     * @return the simplified operator.
+     */
+    private SyntaxNode visitUnaryOp(UnaryOpNode unary)
+    {
+        SyntaxNode operand = visit(unary.getOperand());
+        String op = unary.getOp();
+        Object value = valueOf(operand);
+
+        if (value != null && unaryFolds(op, value))
+            return constant(apply(unary, value), unary.getLineNumber());
+
+        // An operator applied twice to an operand of the right type cancels.
+        Class<?> type = typeOf(operand);
+        if (operand instanceof UnaryOpNode && ((UnaryOpNode) operand).getOp().equals(op))
+        {
+            SyntaxNode inner = ((UnaryOpNode) operand).getOperand();
+            Class<?> innerType = typeOf(inner);
+            if (op.equals("not") ? innerType == Boolean.class : isNumeric(innerType))
+                return inner;
+        }
+
+        Class<?> result = op.equals("not") ? Boolean.class
+            : isNumeric(type) ? type : null;
+        if (operand == unary.getOperand())
+            return typed(unary, result);
+        return typed(new UnaryOpNode(op, operand, unary.getLineNumber()), result);
+    }
+
+    /**
+     * Simplifies a let, removing it if the binding does no work. A let
+     * hides any constant or alias of the same name in its body.
+     *
+     * @param let the let to simplify.
+     * @return the simplified let, or its simplified body.
+     */
+    private SyntaxNode visitLet(LetNode let)
+    {
+        SyntaxNode bound = visit(let.getBoundExpr());
+        Object value = valueOf(bound);
+        Token target = nameOf(bound);
+        boolean pure = value != null || target != null && known.contains(target.getSymbol());
+        boolean alias = pure && target != null && !binds(let.getBody(), target.getSymbol());
+
+        Integer symbol = let.getIdToken().getSymbol();
+        Object hiddenValue = constants.remove(symbol);
+        Token hiddenAlias = aliases.remove(symbol);
+        boolean added = known.add(symbol);
+
+        SyntaxNode result;
+        if (value != null)
+        {
+            // Inline the literal; the let has nothing left to bind.
+            constants.put(symbol, value);
+            result = visit(let.getBody());
+            constants.remove(symbol);
+        }
+        else if (alias)
+        {
+            // Read the aliased name wherever the alias is read.
+            aliases.put(symbol, target);
+            result = visit(let.getBody());
+            aliases.remove(symbol);
+        }
+        else
+        {
+            SyntaxNode body = visit(let.getBody());
+            if (pure && !reads(body, symbol))
+                result = body;
+            else if (bound == let.getBoundExpr() && body == let.getBody())
+                result = typed(let, typeOf(body));
+            else
+                result = typed(new LetNode(let.getIdToken(), bound, body,
+                    let.getLineNumber()), typeOf(body));
+        }
+
+        if (added)
+            known.remove(symbol);
+        if (hiddenValue != null)
+            constants.put(symbol, hiddenValue);
+        if (hiddenAlias != null)
+            aliases.put(symbol, hiddenAlias);
+        return result;
+    }
+
+    /**
+     * Simplifies a val, remembering its value if it is a constant.
+     *
+     * @param val the val to simplify.
+     * @return the simplified val.
+     */
+    private SyntaxNode visitVal(ValNode val)
+    {
+        SyntaxNode expr = visit(val.getExpr());
+        Object value = valueOf(expr);
+        if (value != null)
+            constants.put(val.getIdToken().getSymbol(), value);
+        else
+            constants.remove(val.getIdToken().getSymbol());
+
+        // Later statements only run if the val succeeded.
+        known.add(val.getIdToken().getSymbol());
+
+        if (expr == val.getExpr())
+            return val;
+        return new ValNode(val.getIdToken(), expr, val.getLineNumber());
+    }
+
+    /**
+     * Simplifies each statement of a program in turn.
+     *
+     * @param prog the program to simplify.
+     * @return the simplified program.
+     */
+    private SyntaxNode visitProg(ProgNode prog)
+    {
+        List<SyntaxNode> statements = new ArrayList<>(prog.getStatements().size());
+        boolean changed = false;
+        for (SyntaxNode stmt : prog.getStatements())
+        {
+            SyntaxNode simplified = visit(stmt);
+            changed |= simplified != stmt;
+            statements.add(simplified);
+        }
+        return changed ? new ProgNode(statements, prog.getLineNumber()) : prog;
+    }
+
+    /**
+     * Determines if a subtree reads a name anywhere it is not rebound.
+     *
+     * @param node the root of the subtree.
+     * @param symbol the symbol id of the name.
+     * @return true if the subtree reads the name.
+     */
+    private static boolean reads(SyntaxNode node, int symbol)
+    {
+        if (node instanceof TokenNode)
+        {
+            Token tok = ((TokenNode) node).getToken();
+            return tok.getType() == TokenType.ID && tok.getSymbol() == symbol;
+        }
+        if (node instanceof BinOpNode)
+            return reads(((BinOpNode) node).getLeft(), symbol)
+                || reads(((BinOpNode) node).getRight(), symbol);
+        if (node instanceof RelOpNode)
+            return reads(((RelOpNode) node).getLeft(), symbol)
+                || reads(((RelOpNode) node).getRight(), symbol);
+        if (node instanceof UnaryOpNode)
+            return reads(((UnaryOpNode) node).getOperand(), symbol);
+        if (node instanceof LetNode)
+        {
+            LetNode let = (LetNode) node;
+            return reads(let.getBoundExpr(), symbol)
+                || let.getIdToken().getSymbol() != symbol && reads(let.getBody(), symbol);
+        }
+        return true;
+    }
+
+    /**
+     * Determines if a subtree contains a let binding a name.
+     *
+     * @param node the root of the subtree.
+     * @param symbol the symbol id of the name.
+     * @return true if the subtree binds the name.
+     */
+    private static boolean binds(SyntaxNode node, int symbol)
+    {
+        if (node instanceof BinOpNode)
+            return binds(((BinOpNode) node).getLeft(), symbol)
+                || binds(((BinOpNode) node).getRight(), symbol);
+        if (node instanceof RelOpNode)
+            return binds(((RelOpNode) node).getLeft(), symbol)
+                || binds(((RelOpNode) node).getRight(), symbol);
+        if (node instanceof UnaryOpNode)
+            return binds(((UnaryOpNode) node).getOperand(), symbol);
+        if (node instanceof LetNode)
+        {
+            LetNode let = (LetNode) node;
+            return let.getIdToken().getSymbol() == symbol
+                || binds(let.getBoundExpr(), symbol) || binds(let.getBody(), symbol);
+        }
+        return false;
+    }
+
+    /**
+     * Finds the operand an identity reduces an operator to. The identity
+     * holds when one operand is {@code unit} and the other has type
+     * {@code type} whenever it has a value.
+     *
+     * @param left the left operand.
+     * @param right the right operand.
+     * @param unit the identity element.
+     * @param type the type the other operand must have.
+     * @param either true if the unit may be on the left as well as the right.
+     * @return the operand the operator reduces to, or null if none.
+     */
+    private SyntaxNode identity(SyntaxNode left, SyntaxNode right, Object unit,
+        Class<?> type, boolean either)
+    {
+        if (unit.equals(valueOf(right)) && typeOf(left) == type)
+            return left;
+        if (either && unit.equals(valueOf(left)) && typeOf(right) == type)
+            return right;
+        return null;
+    }
+
+    /**
+     * Computes the type of a binary operator whenever it has a value.
+     * Arithmetic requires both operands to have the same type, so either
+     * one determines it.
+     *
+     * @param op the operator.
+     * @param left the left operand.
+     * @param right the right operand.
+     * @return the type of the result, or null if it is not known.
+     */
+    private Class<?> binaryType(String op, SyntaxNode left, SyntaxNode right)
+    {
+        if (op.equals("and") || op.equals("or"))
+            return Boolean.class;
+        Class<?> type = typeOf(left);
+        if (type == null)
+            type = typeOf(right);
+        return isNumeric(type) ? type : null;
+    }
+
+    /**
+     * Records the type of a node whenever it has a value.
+     *
+     * @param node the node.
+     * @param type the type, or null if it is not known.
+     * @return {@code node}.
+     */
+    private SyntaxNode typed(SyntaxNode node, Class<?> type)
+    {
+        if (type != null)
+            types.put(node, type);
+        return node;
+    }
+
+    /**
+     * Gets the type a simplified node has whenever it has a value.
+     *
+     * @param node the node.
+     * @return the type, or null if it is not known.
+     */
+    private Class<?> typeOf(SyntaxNode node)
+    {
+        Object value = valueOf(node);
+        if (value != null)
+            return value.getClass();
+        return types.get(node);
+    }
+
+    /**
+     * Gets the value of a constant.
+     *
+     * @param node the node.
+     * @return the value of the node if it is a literal, otherwise null.
+     */
+    private static Object valueOf(SyntaxNode node)
+    {
+        return node instanceof TokenNode ? ((TokenNode) node).getLiteral() : null;
+    }
+
+    /**
+     * Gets the name a node reads.
+     *
+     * @param node the node.
+     * @return the identifier token if the node is an identifier, otherwise null.
+     */
+    private static Token nameOf(SyntaxNode node)
+    {
+        if (node instanceof TokenNode
+            && ((TokenNode) node).getToken().getType() == TokenType.ID)
+            return ((TokenNode) node).getToken();
+        return null;
+    }
+
+    /**
+     * Determines if a type is a numeric type.
+     *
+     * @param type the type.
+     * @return true if {@code type} is int or real.
+     */
+    private static boolean isNumeric(Class<?> type)
+    {
+        return type == Integer.class || type == Double.class;
+    }
+
+    /**
+     * Determines if a binary operator can be applied to two values without
+     * failing.
+     *
+     * @param op the operator.
+     * @param lv the left value.
+     * @param rv the right value.
+     * @return true if applying the operator succeeds.
+     */
+    private static boolean binaryFolds(String op, Object lv, Object rv)
+    {
+        switch (op)
+        {
+        case "and":
+        case "or":
+            return lv instanceof Boolean && rv instanceof Boolean;
+        case "+":
+        case "-":
+        case "*":
+            return Integers.isInteger(lv) && Integers.isInteger(rv)
+                || lv instanceof Double && rv instanceof Double;
+        case "/":
+            return Integers.isInteger(lv) && Integers.isInteger(rv) && !ZERO.equals(rv)
+                || lv instanceof Double && rv instanceof Double;
+        case "mod":
+            return Integers.isInteger(lv) && Integers.isInteger(rv) && !ZERO.equals(rv);
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Determines if a relational operator can be applied to two values
+     * without failing.
+     *
+     * @param op the operator.
+     * @param lv the left value.
+     * @param rv the right value.
+     * @return true if applying the operator succeeds.
+     */
+    private static boolean relationFolds(String op, Object lv, Object rv)
+    {
+        if (Integers.isInteger(lv) && Integers.isInteger(rv)
+            || lv instanceof Double && rv instanceof Double)
+            return true;
+        return lv instanceof Boolean && rv instanceof Boolean
+            && (op.equals("=") || op.equals("!="));
+    }
+
+    /**
+     * Determines if a unary operator can be applied to a value without
+     * failing.
+     *
+     * @param op the operator.
+     * @param value the value.
+     * @return true if applying the operator succeeds.
+     */
+    private static boolean unaryFolds(String op, Object value)
+    {
+        if (op.equals("not"))
+            return value instanceof Boolean;
+        return op.equals("-") && (Integers.isInteger(value) || value instanceof Double);
+    }
+
+    /**
+     * Applies a binary operator that is known not to fail.
+     *
+     * @param bin the operator.
+     * @param lv the left value.
+     * @param rv the right value.
+     * @return the result.
+     */
+    private static Object apply(BinOpNode bin, Object lv, Object rv)
+    {
+        try
+        {
+            return bin.apply(lv, rv);
+        }
+        catch (EvaluationException ex)
+        {
+            throw new IllegalStateException("folded an operator that fails", ex);
+        }
+    }
+
+    /**
+     * Applies a relational operator that is known not to fail.
+     *
+     * @param rel the operator.
+     * @param lv the left value.
+     * @param rv the right value.
+     * @return the result.
+     */
+    private static Object apply(RelOpNode rel, Object lv, Object rv)
+    {
+        try
+        {
+            return rel.apply(lv, rv);
+        }
+        catch (EvaluationException ex)
+        {
+            throw new IllegalStateException("folded an operator that fails", ex);
+        }
+    }
+
+    /**
+     * Applies a unary operator that is known not to fail.
+     *
+     * @param unary the operator.
+     * @param value the operand.
+     * @return the result.
+     */
+    private static Object apply(UnaryOpNode unary, Object value)
+    {
+        try
+        {
+            return unary.apply(value);
+        }
+        catch (EvaluationException ex)
+        {
+            throw new IllegalStateException("folded an operator that fails", ex);
+        }
+    }
+
+    /**
+     * Makes a literal node holding a value.
+     *
+     * @param value an integer, real, or boolean value.
+     * @param line the line the literal is attributed to.
+     * @return the literal node.
+     */
+    private static TokenNode constant(Object value, long line)
+    {
+        Token tok;
+        if (value instanceof Boolean)
+            tok = Token.of((Boolean) value ? TokenType.TRUE : TokenType.FALSE);
+        else if (Integers.isInteger(value))
+            tok = new Token(TokenType.INT, value.toString());
+        else
+            tok = new Token(TokenType.REAL, value.toString());
+        return new TokenNode(tok, line);
+    }
+}
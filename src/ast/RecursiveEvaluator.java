@@ -0,0 +1,43 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast;
+
+import ast.nodes.SyntaxNode;
+import environment.Environment;
+
+/**
+ * Evaluates a syntax tree by having each node evaluate its children. The
+ * depth of the tree is limited by the size of the Java stack.
+ *
+ * @author Zach Kissel
+ */
+public class RecursiveEvaluator implements Evaluator
+{
+    /**
+     * Evaluates the tree rooted at {@code root}.
+     *
+     * @param root the root of the tree to evaluate.
+     * @param env the environment to evaluate the tree in.
+     * @return the value of the tree.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    @Override
+    public Object evaluate(SyntaxNode root, Environment env) throws EvaluationException
+    {
+        return root.evaluate(env);
+    }
+}
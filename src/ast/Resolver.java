@@ -0,0 +1,146 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast;
+
+import java.util.Arrays;
+
+import ast.nodes.BinOpNode;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import lexer.TokenType;
+
+/**
+ * Assigns every let-bound name in a syntax tree a slot in an evaluation
+ * frame. MFL has no functions, so a let can only ever be seen from inside
+ * its own body, and the lets in scope at any point form a single chain. A
+ * let nested {@code n} lets deep therefore gets slot {@code n}, and one
+ * frame as large as the deepest chain serves the whole tree. Identifiers
+ * bound by a let are given the slot of the nearest enclosing binding of
+ * their name; all others are free and keep slot -1, to be looked up in the
+ * environment.
+ *
+ * @author Zach Kissel
+ */
+public final class Resolver
+{
+    private int[] slotOf = new int[64];  // The slot of each symbol in scope.
+    private int frameSize;               // The largest frame needed so far.
+
+    /**
+     * Resolves the names in the tree rooted at {@code root}. A tree may be
+     * resolved more than once; each pass overwrites the slots of the last.
+     *
+     * @param root the root of the tree to resolve.
+     * @return the number of slots a frame for the tree needs.
+     */
+    public static int resolve(SyntaxNode root)
+    {
+        Resolver r = new Resolver();
+        Arrays.fill(r.slotOf, -1);
+        r.visit(root, 0);
+        return r.frameSize;
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Resolves the names in a subtree.
+     *
+     * @param node the root of the subtree.
+     * @param depth the number of lets the subtree is nested in.
+     */
+    private void visit(SyntaxNode node, int depth)
+    {
+        if (node instanceof TokenNode)
+        {
+            TokenNode leaf = (TokenNode) node;
+            if (leaf.getToken().getType() == TokenType.ID)
+                leaf.setSlot(slotOf(leaf.getToken().getSymbol()));
+        }
+        else if (node instanceof BinOpNode)
+        {
+            visit(((BinOpNode) node).getLeft(), depth);
+            visit(((BinOpNode) node).getRight(), depth);
+        }
+        else if (node instanceof RelOpNode)
+        {
+            visit(((RelOpNode) node).getLeft(), depth);
+            visit(((RelOpNode) node).getRight(), depth);
+        }
+        else if (node instanceof UnaryOpNode)
+            visit(((UnaryOpNode) node).getOperand(), depth);
+        else if (node instanceof LetNode)
+        {
+            // The bound expression is outside the scope of its own name.
+            LetNode let = (LetNode) node;
+            visit(let.getBoundExpr(), depth);
+
+            int symbol = let.getIdToken().getSymbol();
+            let.setSlot(depth);
+            frameSize = Math.max(frameSize, depth + 1);
+
+            int shadowed = slotOf(symbol);
+            bind(symbol, depth);
+            visit(let.getBody(), depth + 1);
+            bind(symbol, shadowed);
+        }
+        else if (node instanceof ValNode)
+            visit(((ValNode) node).getExpr(), depth);
+        else if (node instanceof ProgNode)
+        {
+            for (SyntaxNode stmt : ((ProgNode) node).getStatements())
+                visit(stmt, depth);
+        }
+    }
+
+    /**
+     * Gets the slot a symbol is bound to.
+     *
+     * @param symbol the id of the symbol.
+     * @return the slot of the symbol, or -1 if it is free.
+     */
+    private int slotOf(int symbol)
+    {
+        return symbol >= 0 && symbol < slotOf.length ? slotOf[symbol] : -1;
+    }
+
+    /**
+     * Binds a symbol to a slot.
+     *
+     * @param symbol the id of the symbol.
+     * @param slot the slot, or -1 to make the symbol free.
+     */
+    private void bind(int symbol, int slot)
+    {
+        if (symbol < 0)
+            return;
+        if (symbol >= slotOf.length)
+        {
+            int old = slotOf.length;
+            slotOf = Arrays.copyOf(slotOf, Math.max(old * 2, symbol + 1));
+            Arrays.fill(slotOf, old, slotOf.length, -1);
+        }
+        slotOf[symbol] = slot;
+    }
+}
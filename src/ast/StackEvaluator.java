@@ -0,0 +1,292 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast;
+
+import java.util.Arrays;
+
+import ast.nodes.BinOpNode;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import environment.Environment;
+
+/**
+ * Evaluates a syntax tree of any depth. Subtrees no taller than a depth
+ * limit, {@link #DEPTH_LIMIT} by default, are evaluated by the nodes
+ * themselves, which is fastest. Everything above them is evaluated without
+ * recursion: nodes still to be evaluated and operators still to be applied
+ * are kept on an explicit work stack, and intermediate values on an operand
+ * stack, so the depth of the tree is limited only by the heap. Operators are
+ * always applied by the nodes, so results and errors are identical to
+ * {@link RecursiveEvaluator}.
+ * <p>
+ * The stacks are reused from one evaluation to the next, so an instance
+ * must not be shared between threads.
+ *
+ * @author Zach Kissel
+ */
+public class StackEvaluator implements Evaluator
+{
+    /**
+     * The default height of the tallest subtree evaluated by recursion.
+     */
+    public static final int DEPTH_LIMIT = 512;
+
+    private static final byte EVAL = 0;   // Evaluate a node, pushing its value.
+    private static final byte APPLY = 1;  // Apply an operator to its operands.
+    private static final byte BIND = 2;   // Bind a let's value, then run its body.
+    private static final byte DECIDE = 3; // Decide and/or from its left operand,
+                                          // or evaluate its right operand.
+
+    private final int depthLimit;  // The tallest subtree evaluated by recursion.
+
+    private byte[] kinds = new byte[32];               // The kind of each work item.
+    private SyntaxNode[] nodes = new SyntaxNode[32];   // The node of each work item.
+    private Environment[] envs = new Environment[32];  // The environment of each item.
+    private int top;                                   // The number of work items.
+
+    private Object[] values = new Object[32];  // The operand stack.
+    private int count;                         // The number of operands.
+
+    /**
+     * Constructs an evaluator that recurses over subtrees no taller than
+     * {@link #DEPTH_LIMIT}.
+     */
+    public StackEvaluator()
+    {
+        this(DEPTH_LIMIT);
+    }
+
+    /**
+     * Constructs an evaluator that recurses over subtrees no taller than
+     * {@code depthLimit}. A limit of 0 evaluates every node on the explicit
+     * stacks.
+     *
+     * @param depthLimit the height of the tallest subtree to recurse over.
+     */
+    public StackEvaluator(int depthLimit)
+    {
+        this.depthLimit = depthLimit;
+    }
+
+    /**
+     * Evaluates the tree rooted at {@code root}.
+     *
+     * @param root the root of the tree to evaluate.
+     * @param env the environment to evaluate the tree in.
+     * @return the value of the tree.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    @Override
+    public Object evaluate(SyntaxNode root, Environment env) throws EvaluationException
+    {
+        if (!(root instanceof ProgNode))
+            return eval(root, env);
+
+        // Statements run in order; a val binds its value globally.
+        Object last = null;
+        for (SyntaxNode stmt : ((ProgNode) root).getStatements())
+        {
+            if (stmt instanceof ValNode)
+            {
+                ValNode v = (ValNode) stmt;
+                env.updateEnvironment(v.getIdToken(), eval(v.getExpr(), env));
+                last = v.evaluate(env);
+            }
+            else
+                last = eval(stmt, env);
+        }
+        return last;
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Evaluates an expression, by recursion if it is shallow enough and with
+     * the explicit stacks otherwise.
+     *
+     * @param node the expression to evaluate.
+     * @param env the environment to evaluate it in.
+     * @return the value of the expression.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    private Object eval(SyntaxNode node, Environment env) throws EvaluationException
+    {
+        if (node.getHeight() <= depthLimit)
+            return node.evaluate(env);
+        return run(node, env);
+    }
+
+    /**
+     * Evaluates an expression using the work and operand stacks.
+     *
+     * @param root the expression to evaluate.
+     * @param env the environment to evaluate it in.
+     * @return the value of the expression.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    private Object run(SyntaxNode root, Environment env) throws EvaluationException
+    {
+        top = 0;
+        count = 0;
+        try
+        {
+            push(EVAL, root, env);
+            while (top > 0)
+            {
+                top--;
+                byte kind = kinds[top];
+                SyntaxNode node = nodes[top];
+                Environment e = envs[top];
+                nodes[top] = null;
+                envs[top] = null;
+
+                if (kind == EVAL)
+                    expand(node, e);
+                else if (kind == APPLY)
+                {
+                    if (node instanceof UnaryOpNode)
+                        values[count - 1] = ((UnaryOpNode) node).apply(values[count - 1]);
+                    else
+                    {
+                        count--;
+                        Object rv = values[count];
+                        Object lv = values[count - 1];
+                        values[count] = null;
+                        if (node instanceof BinOpNode)
+                            values[count - 1] = ((BinOpNode) node).apply(lv, rv);
+                        else
+                            values[count - 1] = ((RelOpNode) node).apply(lv, rv);
+                    }
+                }
+                else if (kind == DECIDE)
+                {
+                    // A left operand that decides the result replaces it.
+                    BinOpNode bin = (BinOpNode) node;
+                    Boolean decided = bin.shortCircuit(values[count - 1]);
+                    if (decided != null)
+                        values[count - 1] = decided;
+                    else
+                    {
+                        push(APPLY, bin, null);
+                        push(EVAL, bin.getRight(), e);
+                    }
+                }
+                else
+                {
+                    // The let's body is evaluated in place of the let.
+                    LetNode let = (LetNode) node;
+                    Object value = values[--count];
+                    values[count] = null;
+                    push(EVAL, let.getBody(), let.bind(e, value));
+                }
+            }
+            return values[0];
+        }
+        finally
+        {
+            // Don't hold on to the tree or its values between evaluations.
+            Arrays.fill(nodes, 0, top, null);
+            Arrays.fill(envs, 0, top, null);
+            Arrays.fill(values, 0, count, null);
+        }
+    }
+
+    /**
+     * Begins evaluating a node. Subtrees shallow enough to recurse over are
+     * evaluated at once; anything else pushes the work needed to finish it,
+     * children last so that they are evaluated first and from left to right.
+     *
+     * @param node the node to evaluate.
+     * @param env the environment to evaluate it in.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    private void expand(SyntaxNode node, Environment env) throws EvaluationException
+    {
+        if (node.getHeight() <= depthLimit)
+            pushValue(node.evaluate(env));
+        else if (node instanceof BinOpNode)
+        {
+            BinOpNode bin = (BinOpNode) node;
+            if (bin.isShortCircuit())
+                push(DECIDE, bin, env);
+            else
+            {
+                push(APPLY, bin, null);
+                push(EVAL, bin.getRight(), env);
+            }
+            push(EVAL, bin.getLeft(), env);
+        }
+        else if (node instanceof RelOpNode)
+        {
+            RelOpNode rel = (RelOpNode) node;
+            push(APPLY, rel, null);
+            push(EVAL, rel.getRight(), env);
+            push(EVAL, rel.getLeft(), env);
+        }
+        else if (node instanceof UnaryOpNode)
+        {
+            push(APPLY, node, null);
+            push(EVAL, ((UnaryOpNode) node).getOperand(), env);
+        }
+        else if (node instanceof LetNode)
+        {
+            push(BIND, node, env);
+            push(EVAL, ((LetNode) node).getBoundExpr(), env);
+        }
+        else
+            pushValue(node.evaluate(env));
+    }
+
+    /**
+     * Pushes a work item.
+     *
+     * @param kind what to do.
+     * @param node the node to do it to.
+     * @param env the environment to do it in.
+     */
+    private void push(byte kind, SyntaxNode node, Environment env)
+    {
+        if (top == kinds.length)
+        {
+            kinds = Arrays.copyOf(kinds, top * 2);
+            nodes = Arrays.copyOf(nodes, top * 2);
+            envs = Arrays.copyOf(envs, top * 2);
+        }
+        kinds[top] = kind;
+        nodes[top] = node;
+        envs[top] = env;
+        top++;
+    }
+
+    /**
+     * Pushes an operand.
+     *
+     * @param value the value to push.
+     */
+    private void pushValue(Object value)
+    {
+        if (count == values.length)
+            values = Arrays.copyOf(values, count * 2);
+        values[count++] = value;
+    }
+}
@@ -17,6 +17,7 @@
 package ast;
 
 import ast.nodes.SyntaxNode;
+import diagnostics.Diagnostics;
 import environment.Environment;
 
 /**
@@ -28,6 +29,9 @@ public class SyntaxTree
 {
     private SyntaxNode root; // The root of the syntax tree.
     private Environment env; // The executional environment.
+    private Evaluator evaluator; // How the tree is evaluated.
+    private boolean logErrors;   // Print evaluation errors as they happen.
+    private Diagnostics diagnostics; // Where the tree and errors are printed.
    
     /**
      * Constructs a new syntax tree with root {@code root}.
@@ -38,6 +42,9 @@ public class SyntaxTree
     {
         this.root = root;
         this.env = new Environment();
+        this.evaluator = new RecursiveEvaluator();
+        this.logErrors = true;
+        this.diagnostics = Diagnostics.CONSOLE;
     }
 
     /**
@@ -59,14 +66,70 @@ public class SyntaxTree
     }
 
     /**
-     * Evaluate the syntax tree.
+     * Evaluate the syntax tree. If the evaluation fails, the error is
+     * printed with its line number, unless error logging is off.
      * 
      * @return the object representing the result of the evaluation.
      * @throws EvaluationException if the evaluation fails.
      */
     public Object evaluate() throws EvaluationException
     {
-         return root.evaluate(env);
+        try
+        {
+            return evaluator.evaluate(root, env);
+        }
+        catch (EvaluationException ex)
+        {
+            logError(ex.getReport());
+            throw ex;
+        }
+    }
+
+    /**
+     * Prints an error report to the diagnostics, unless error logging is
+     * off.
+     *
+     * @param report the error report.
+     */
+    void logError(String report)
+    {
+        if (logErrors)
+            diagnostics.println(report);
+    }
+
+    /**
+     * Sets where the tree and its errors are printed, which is
+     * {@link Diagnostics#CONSOLE} by default.
+     * 
+     * @param diagnostics where to print.
+     */
+    public void setDiagnostics(Diagnostics diagnostics)
+    {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Turns the printing of evaluation and type errors on or off. With it off, a
+     * failing evaluation costs no more than a successful one, and the
+     * error is available only from the exception, through
+     * {@link EvaluationException#getKind()},
+     * {@link EvaluationException#getLine()}, and its message.
+     * 
+     * @param logErrors true to print errors, which is the default.
+     */
+    public void setErrorLogging(boolean logErrors)
+    {
+        this.logErrors = logErrors;
+    }
+
+    /**
+     * Sets the strategy used to evaluate the tree.
+     * 
+     * @param evaluator the evaluator to use.
+     */
+    public void setEvaluator(Evaluator evaluator)
+    {
+        this.evaluator = evaluator;
     }
 
     /**
@@ -101,13 +164,13 @@ public class SyntaxTree
     }
    
     /**
-     * Displays the syntax tree to the screen in a nicely formatted manner.
+     * Displays the syntax tree in a nicely formatted manner.
      */
     public void printTree()
     {
         if (root != null)
-            root.displaySubtree(0);
+            root.displaySubtree(0, diagnostics);
         else 
-            System.out.println("EMPTY TREE");
+            diagnostics.println("EMPTY TREE");
     }
 }
@@ -0,0 +1,66 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast;
+
+import ast.nodes.SyntaxNode;
+import environment.Environment;
+
+/**
+ * A binding whose value is computed the first time it is needed. The value
+ * is remembered, so the bound expression is evaluated at most once. If the
+ * evaluation fails, nothing is remembered and the next use fails again.
+ *
+ * @author Zach Kissel
+ */
+final class Thunk
+{
+    private SyntaxNode expr;  // The bound expression, or null once forced.
+    private Environment env;  // The environment to evaluate it in.
+    private Object value;     // The value, once forced.
+
+    /**
+     * Constructs a binding of an expression that is not yet evaluated.
+     *
+     * @param expr the bound expression.
+     * @param env the environment the expression is evaluated in.
+     */
+    Thunk(SyntaxNode expr, Environment env)
+    {
+        this.expr = expr;
+        this.env = env;
+    }
+
+    /**
+     * Gets the value of the binding, evaluating it if this is its first use.
+     *
+     * @param evaluator the evaluator to evaluate the expression with.
+     * @return the value.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    Object force(LazyEvaluator evaluator) throws EvaluationException
+    {
+        if (expr != null)
+        {
+            value = evaluator.eval(expr, env);
+
+            // The expression and its environment are no longer needed.
+            expr = null;
+            env = null;
+        }
+        return value;
+    }
+}
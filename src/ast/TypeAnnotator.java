@@ -0,0 +1,341 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast;
+
+import java.util.HashMap;
+
+import ast.nodes.BinOpNode;
+import ast.nodes.Integers;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import ast.nodes.ValueType;
+import lexer.TokenType;
+
+/**
+ * Annotates each node of a syntax tree with its static type wherever the
+ * type is certain, so that the node evaluates on an unboxed primitive path
+ * (see {@link SyntaxNode#evaluateInt}). A node is given a type only if it
+ * can not fail with a type error: its operands all have types, and the
+ * types suit the operator. Literals have their own type, and a name has the
+ * type of the let or val that binds it, if that is known. Anything else,
+ * including names bound only in the environment, is left untyped and
+ * evaluated as before, so annotating never changes a result or an error.
+ * An integer too big for an int still has type {@link ValueType#INT}; the
+ * primitive path gives way to the boxed one when it meets such a value
+ * (see {@link SyntaxNode#evaluateInt}).
+ * <p>
+ * The tree is walked recursively, so like {@link RecursiveEvaluator} its
+ * depth is limited by the size of the Java stack.
+ *
+ * @author Zach Kissel
+ */
+public class TypeAnnotator
+{
+    // The types of the names bound by lets and vals at this point, keyed on
+    // symbol id; a name whose type is not known maps to null.
+    private final HashMap<Integer, ValueType> scope = new HashMap<>();
+
+    /**
+     * Constructs an annotator with nothing in scope.
+     */
+    protected TypeAnnotator()
+    {
+    }
+
+    /**
+     * Annotates the tree in {@code tree}.
+     *
+     * @param tree the tree to annotate.
+     */
+    public static void annotate(SyntaxTree tree)
+    {
+        if (tree.getRootNode() != null)
+            annotate(tree.getRootNode());
+    }
+
+    /**
+     * Annotates the tree rooted at {@code root}, replacing any earlier
+     * annotations.
+     *
+     * @param root the root of the tree to annotate.
+     */
+    public static void annotate(SyntaxNode root)
+    {
+        new TypeAnnotator().visit(root);
+    }
+
+    /**
+     * Gets the type of a name that no let or val in the tree binds.
+     *
+     * @param leaf the leaf naming it.
+     * @return the type of the name, or null if it is not known.
+     */
+    protected ValueType freeName(TokenNode leaf)
+    {
+        return null;
+    }
+
+    /**
+     * Called for each node that would fail with a type error. Its operands
+     * have known types, so the error is not a consequence of another.
+     *
+     * @param node the node.
+     * @param msg the message evaluating the node would fail with.
+     */
+    protected void error(SyntaxNode node, String msg)
+    {
+    }
+
+    /**
+     * Annotates a subtree.
+     *
+     * @param node the root of the subtree.
+     * @return the type of the subtree, or null if it is not known.
+     */
+    protected ValueType visit(SyntaxNode node)
+    {
+        ValueType type = null;
+        if (node instanceof TokenNode)
+            type = typeOf((TokenNode) node);
+        else if (node instanceof BinOpNode)
+        {
+            BinOpNode bin = (BinOpNode) node;
+            ValueType left = visit(bin.getLeft());
+            ValueType right = visit(bin.getRight());
+            type = binaryType(bin.getOp(), left, right);
+
+            // An and or an or checks its left operand before evaluating its
+            // right one, so a non-boolean left operand is an error alone.
+            if (type == null && left != null && (right != null
+                    || bin.isShortCircuit() && left != ValueType.BOOL))
+                error(node, binaryError(bin.getOp(), left, right));
+        }
+        else if (node instanceof RelOpNode)
+        {
+            RelOpNode rel = (RelOpNode) node;
+            ValueType left = visit(rel.getLeft());
+            ValueType right = visit(rel.getRight());
+            type = relationType(rel.getOp(), left, right);
+            if (type == null && left != null && right != null)
+                error(node, relationError(rel.getOp(), left, right));
+        }
+        else if (node instanceof UnaryOpNode)
+        {
+            UnaryOpNode unary = (UnaryOpNode) node;
+            ValueType operand = visit(unary.getOperand());
+            type = unaryType(unary.getOp(), operand);
+            if (type == null && operand != null)
+                error(node, unaryError(unary.getOp()));
+        }
+        else if (node instanceof LetNode)
+        {
+            // The bound expression is outside the scope of its own name.
+            LetNode let = (LetNode) node;
+            ValueType bound = visit(let.getBoundExpr());
+            Integer symbol = let.getIdToken().getSymbol();
+            boolean shadows = scope.containsKey(symbol);
+            ValueType hidden = scope.put(symbol, bound);
+            type = visit(let.getBody());
+            if (shadows)
+                scope.put(symbol, hidden);
+            else
+                scope.remove(symbol);
+        }
+        else if (node instanceof ValNode)
+        {
+            ValNode val = (ValNode) node;
+            scope.put(val.getIdToken().getSymbol(), visit(val.getExpr()));
+        }
+        else if (node instanceof ProgNode)
+        {
+            for (SyntaxNode stmt : ((ProgNode) node).getStatements())
+                visit(stmt);
+        }
+
+        node.setType(type);
+        return type;
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Gets the type of a literal or name.
+     *
+     * @param leaf the leaf.
+     * @return the type of the leaf, or null if it is not known.
+     */
+    private ValueType typeOf(TokenNode leaf)
+    {
+        if (leaf.getToken().getType() == TokenType.ID)
+        {
+            Integer symbol = leaf.getToken().getSymbol();
+            return scope.containsKey(symbol) ? scope.get(symbol) : freeName(leaf);
+        }
+
+        Object value = leaf.getLiteral();
+        if (value == null)
+            error(leaf, "Invalid numeric literal: " + leaf.getToken().getValue());
+        return typeOfValue(value);
+    }
+
+    /**
+     * Gets the type of a value.
+     *
+     * @param value the value.
+     * @return the type of the value, or null if it is not an MFL value.
+     */
+    public static ValueType typeOfValue(Object value)
+    {
+        if (Integers.isInteger(value))
+            return ValueType.INT;
+        if (value instanceof Double)
+            return ValueType.REAL;
+        if (value instanceof Boolean)
+            return ValueType.BOOL;
+        return null;
+    }
+
+    /**
+     * Computes the type of a binary operator that can not fail with a type
+     * error.
+     *
+     * @param op the operator.
+     * @param left the type of the left operand.
+     * @param right the type of the right operand.
+     * @return the type of the result, or null if it is not known.
+     */
+    public static ValueType binaryType(String op, ValueType left, ValueType right)
+    {
+        if (left == null || left != right)
+            return null;
+        switch (op)
+        {
+        case "and":
+        case "or":
+            return left == ValueType.BOOL ? left : null;
+        case "+":
+        case "-":
+        case "*":
+        case "/":
+            return left == ValueType.BOOL ? null : left;
+        case "mod":
+            return left == ValueType.INT ? left : null;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Gets the error a binary operator fails with, checking the operand
+     * types in the same order as {@link BinOpNode#apply}.
+     *
+     * @param op the operator.
+     * @param left the type of the left operand.
+     * @param right the type of the right operand.
+     * @return the error message.
+     */
+    private static String binaryError(String op, ValueType left, ValueType right)
+    {
+        if (op.equals("and") || op.equals("or"))
+            return "This is a boolean operator used with non-boolean operands.";
+        if (left == ValueType.BOOL || right == ValueType.BOOL)
+            return "This is an arithmetic operator used with non-numeric operands.";
+        if (left != right)
+            return "This is a mixed numeric type expression, which is not allowed.";
+        if (op.equals("mod"))
+            return "This is an invalid use of 'mod' with real numbers.";
+        return "This is an unknown " + (left == ValueType.INT ? "integer" : "real")
+            + " operator: " + op;
+    }
+
+    /**
+     * Computes the type of a relational operator that can not fail with a
+     * type error.
+     *
+     * @param op the operator.
+     * @param left the type of the left operand.
+     * @param right the type of the right operand.
+     * @return the type of the result, or null if it is not known.
+     */
+    public static ValueType relationType(String op, ValueType left, ValueType right)
+    {
+        if (left == null || left != right)
+            return null;
+        if (left != ValueType.BOOL || op.equals("=") || op.equals("!="))
+            return ValueType.BOOL;
+        return null;
+    }
+
+    /**
+     * Gets the error a relational operator fails with, checking the operand
+     * types in the same order as {@link RelOpNode#apply}.
+     *
+     * @param op the operator.
+     * @param left the type of the left operand.
+     * @param right the type of the right operand.
+     * @return the error message.
+     */
+    private static String relationError(String op, ValueType left, ValueType right)
+    {
+        if (left != ValueType.BOOL && right != ValueType.BOOL)
+            return "This is a mixed numeric type comparison, which is not allowed.";
+        if (left == right)
+            return "This is an invalid boolean comparison; only '=' and '!=' are allowed.";
+        return "This is a relational comparison with incompatible operand types.";
+    }
+
+    /**
+     * Computes the type of a unary operator that can not fail with a type
+     * error.
+     *
+     * @param op the operator.
+     * @param operand the type of the operand.
+     * @return the type of the result, or null if it is not known.
+     */
+    public static ValueType unaryType(String op, ValueType operand)
+    {
+        if (operand == null)
+            return null;
+        if (op.equals("not"))
+            return operand == ValueType.BOOL ? operand : null;
+        if (op.equals("-"))
+            return operand == ValueType.BOOL ? null : operand;
+        return null;
+    }
+
+    /**
+     * Gets the error a unary operator fails with.
+     *
+     * @param op the operator.
+     * @return the error message.
+     */
+    private static String unaryError(String op)
+    {
+        if (op.equals("not"))
+            return "This is an invalid 'not' operation on a non-boolean value.";
+        if (op.equals("-"))
+            return "This is an invalid '-' operation on a non-numeric value.";
+        return "This is an unknown unary operator: " + op;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.ValueType;
+import environment.Environment;
+
+/**
+ * Checks the types of a whole program before it is evaluated. MFL forbids
+ * mixed int and real arithmetic, {@code mod} on reals, boolean ordering,
+ * and operators applied to values of the wrong kind; evaluation enforces
+ * these rules as it reaches each operator, while the checker finds every
+ * violation in the program at once, along with unbound names and invalid
+ * literals. Each error is reported with the message evaluation would fail
+ * with.
+ * <p>
+ * Names bound by lets and vals are scoped as in evaluation. Names bound
+ * only in the environment have the types of their current values, so a
+ * checked tree must be evaluated in an environment whose names keep those
+ * types. If there are no errors, every expression in the tree is annotated
+ * with its type and evaluates on the primitive paths, with no type checks
+ * left to do at run time.
+ *
+ * @author Zach Kissel
+ */
+public final class TypeChecker extends TypeAnnotator
+{
+    private final Environment env;       // Binds the free names.
+    private final List<String> errors;   // The errors found, in order.
+
+    /**
+     * Constructs a checker whose free names are bound in {@code env}.
+     *
+     * @param env the environment the tree will be evaluated in.
+     */
+    public TypeChecker(Environment env)
+    {
+        this.env = env;
+        this.errors = new ArrayList<>();
+    }
+
+    /**
+     * Checks the tree in {@code tree} against its environment, reporting
+     * each error where the tree reports its evaluation errors (see
+     * {@link SyntaxTree#setDiagnostics} and
+     * {@link SyntaxTree#setErrorLogging}).
+     *
+     * @param tree the tree to check.
+     * @return true if the tree is free of type errors.
+     */
+    public static boolean check(SyntaxTree tree)
+    {
+        TypeChecker checker = new TypeChecker(tree.getEnvironment());
+        checker.check(tree.getRootNode());
+        for (String err : checker.getErrors())
+            tree.logError(err);
+        return !checker.hasError();
+    }
+
+    /**
+     * Checks the tree rooted at {@code root}. If it has errors, its nodes
+     * are annotated only where their types are certain, as by
+     * {@link TypeAnnotator}.
+     *
+     * @param root the root of the tree to check.
+     */
+    public void check(SyntaxNode root)
+    {
+        if (root != null)
+            visit(root);
+    }
+
+    /**
+     * Determines if the checker has found any errors.
+     *
+     * @return true if there were errors; otherwise, false.
+     */
+    public boolean hasError()
+    {
+        return !errors.isEmpty();
+    }
+
+    /**
+     * Gets the errors found so far, in the order they occur in the program.
+     *
+     * @return the error messages.
+     */
+    public List<String> getErrors()
+    {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Gets the type of a name bound only in the environment.
+     *
+     * @param leaf the leaf naming it.
+     * @return the type of its value, or null if it is unbound.
+     */
+    @Override
+    protected ValueType freeName(TokenNode leaf)
+    {
+        Object value = env.lookup(leaf.getToken());
+        if (value == null)
+            error(leaf, "Unbound identifier: " + leaf.getToken().getValue());
+        return typeOfValue(value);
+    }
+
+    /**
+     * Records a type error.
+     *
+     * @param node the node with the error.
+     * @param msg the error message.
+     */
+    @Override
+    protected void error(SyntaxNode node, String msg)
+    {
+        errors.add("Type Error (line " + node.getLineNumber() + "): " + msg);
+    }
+}
@@ -2,52 +2,289 @@
  *  This is the BinOpNode class.
  *  This is responsible for evaluating binary operators in MFL.
  *  This is where we handle: +, -, *, /, mod, and, or.
+ *  "and" and "or" short-circuit: the right operand is evaluated (and can fail)
+ *  only when the left operand, which must be a boolean, does not decide the result.
+ *  Integer arithmetic never overflows: a result too big for an int becomes a BigInteger.
  *  Author: David Hamilton
  */
 
 package ast.nodes;
 
+import java.math.BigInteger;
+
+import ast.ErrorKind;
 import ast.EvaluationException;
+import diagnostics.Diagnostics;
 import environment.Environment;
 
 public final class BinOpNode extends SyntaxNode {
 
+    // This is the state of a node that has not been evaluated yet
+    private static final byte UNINITIALIZED = 0;
+
+    // This is the state of a node that has seen more than one operand type
+    private static final byte GENERIC = 1;
+
+    // These are the states of a node specialized to the one operand type it has seen
+    private static final byte INT_ADD = 2;
+    private static final byte INT_SUB = 3;
+    private static final byte INT_MUL = 4;
+    private static final byte INT_DIV = 5;
+    private static final byte INT_MOD = 6;
+    private static final byte REAL_ADD = 7;
+    private static final byte REAL_SUB = 8;
+    private static final byte REAL_MUL = 9;
+    private static final byte REAL_DIV = 10;
+    private static final byte BOOL_AND = 11;
+    private static final byte BOOL_OR = 12;
+
+    // These are the operator codes the primitive paths switch on
+    private static final byte ADD = 0;
+    private static final byte SUB = 1;
+    private static final byte MUL = 2;
+    private static final byte DIV = 3;
+    private static final byte MOD = 4;
+    private static final byte AND = 5;
+    private static final byte OR = 6;
+
+    // This is the name of each state, indexed by state
+    private static final String[] STATES = { "Uninitialized", "Generic",
+        "IntAdd", "IntSub", "IntMul", "IntDiv", "IntMod",
+        "RealAdd", "RealSub", "RealMul", "RealDiv", "BoolAnd", "BoolOr" };
+
     // This is the operator string (e.g., "+", "-", "*", "/", "mod", "and", "or")
     private final String op;
 
+    // This is the operator code (or -1 for an unknown operator)
+    private final byte code;
+
     // This is the left-hand side expression
     private final SyntaxNode left;
 
     // This is the right-hand side expression
     private final SyntaxNode right;
 
+    // This is how the node currently applies its operator (rewritten as operand types are seen)
+    private byte state = UNINITIALIZED;
+
     // This is the constructor that wires up the children and the operator
     public BinOpNode(String op, SyntaxNode left, SyntaxNode right, long line) {
-        super(line);
+        super(line, heightOver(left, right));
         this.op = op;
         this.left = left;
         this.right = right;
+        this.code = switch (op) {
+            case "+" -> ADD;
+            case "-" -> SUB;
+            case "*" -> MUL;
+            case "/" -> DIV;
+            case "mod" -> MOD;
+            case "and" -> AND;
+            case "or" -> OR;
+            default -> -1;
+        };
     }
 
     // This is for pretty-printing the AST (used by --ast)
     @Override
-    public void displaySubtree(int indentAmt) {
-        printIndented("BinOp(" + op + ")", indentAmt);
-        left.displaySubtree(indentAmt + 1);
-        right.displaySubtree(indentAmt + 1);
+    public void displaySubtree(int indentAmt, Diagnostics out) {
+        printIndented("BinOp(" + op + ")", indentAmt, out);
+        left.displaySubtree(indentAmt + 1, out);
+        right.displaySubtree(indentAmt + 1, out);
     }
 
     // This is where we actually evaluate the binary operation
     @Override
     public Object evaluate(Environment env) throws EvaluationException {
+        // This is taking the primitive path when the type pass knows our type
+        if (getType() != null)
+            return evaluateTyped(env);
+
         Object lv = left.evaluate(env);
+
+        // This is skipping the right operand when the left one decides and/or
+        if (isShortCircuit()) {
+            Boolean decided = shortCircuit(lv);
+            if (decided != null)
+                return decided;
+        }
+
         Object rv = right.evaluate(env);
+        return apply(lv, rv);
+    }
+
+    // This is the unboxed int path (both operands are known to be ints); a result
+    // that does not fit in an int throws ArithmeticException, and evaluateTyped
+    // falls back to the boxed path, which promotes it
+    @Override
+    public int evaluateInt(Environment env) throws EvaluationException {
+        int L = left.evaluateInt(env);
+        int R = right.evaluateInt(env);
+        switch (code) {
+            case ADD:
+                return Math.addExact(L, R);
+            case SUB:
+                return Math.subtractExact(L, R);
+            case MUL:
+                return Math.multiplyExact(L, R);
+            default:
+                if (R == 0) {
+                    throw error(ErrorKind.ARITHMETIC, "This is an arithmetic error: / by zero");
+                }
+                return code == DIV ? Integers.divideExact(L, R) : L % R;
+        }
+    }
+
+    // This is the unboxed real path (both operands are known to be reals)
+    @Override
+    public double evaluateDouble(Environment env) throws EvaluationException {
+        double L = left.evaluateDouble(env);
+        double R = right.evaluateDouble(env);
+        switch (code) {
+            case ADD:
+                return L + R;
+            case SUB:
+                return L - R;
+            case MUL:
+                return L * R;
+            default:
+                return L / R;
+        }
+    }
+
+    // This is the unboxed boolean path (both operands are known to be booleans)
+    @Override
+    public boolean evaluateBoolean(Environment env) throws EvaluationException {
+        // This is short-circuiting, so the right operand runs only when it is needed
+        if (code == AND)
+            return left.evaluateBoolean(env) && right.evaluateBoolean(env);
+        return left.evaluateBoolean(env) || right.evaluateBoolean(env);
+    }
+
+    // This is evaluating the binary operation with let-bound names in a frame
+    @Override
+    public Object evaluate(Environment env, Object[] frame) throws EvaluationException {
+        Object lv = left.evaluate(env, frame);
+        if (isShortCircuit()) {
+            Boolean decided = shortCircuit(lv);
+            if (decided != null)
+                return decided;
+        }
 
+        Object rv = right.evaluate(env, frame);
+        return apply(lv, rv);
+    }
+
+    // This is checking if the operator is "and" or "or", which skip their right operand
+    // when the left one decides the result
+    public boolean isShortCircuit() {
+        return code == AND || code == OR;
+    }
+
+    // This is deciding "and"/"or" from the left operand alone: the result if the left
+    // operand decides it (false for "and", true for "or"), or null if the right operand
+    // is needed. A non-boolean left operand is an error whatever the right operand is.
+    public Boolean shortCircuit(Object lv) throws EvaluationException {
+        if (!(lv instanceof Boolean)) {
+            throw error(ErrorKind.TYPE, "This is a boolean operator used with non-boolean operands.");
+        }
+        boolean L = (Boolean) lv;
+        if (code == AND ? !L : L)
+            return L;
+        return null;
+    }
+
+    // This is applying the operator to operand values that are already evaluated
+    public Object apply(Object lv, Object rv) throws EvaluationException {
+        // This is the fast path for the one operand type the node has seen so far
+        switch (state) {
+            case INT_ADD:
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return Integers.add((Integer) lv, (Integer) rv);
+                break;
+            case INT_SUB:
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return Integers.subtract((Integer) lv, (Integer) rv);
+                break;
+            case INT_MUL:
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return Integers.multiply((Integer) lv, (Integer) rv);
+                break;
+            case INT_DIV:
+                // This is leaving division by zero to the generic path, which reports it
+                if (lv instanceof Integer && rv instanceof Integer && (Integer) rv != 0)
+                    return Integers.divide((Integer) lv, (Integer) rv);
+                break;
+            case INT_MOD:
+                if (lv instanceof Integer && rv instanceof Integer && (Integer) rv != 0)
+                    return (Integer) lv % (Integer) rv;
+                break;
+            case REAL_ADD:
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv + (Double) rv;
+                break;
+            case REAL_SUB:
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv - (Double) rv;
+                break;
+            case REAL_MUL:
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv * (Double) rv;
+                break;
+            case REAL_DIV:
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv / (Double) rv;
+                break;
+            case BOOL_AND:
+                if (lv instanceof Boolean && rv instanceof Boolean)
+                    return (Boolean) lv && (Boolean) rv;
+                break;
+            case BOOL_OR:
+                if (lv instanceof Boolean && rv instanceof Boolean)
+                    return (Boolean) lv || (Boolean) rv;
+                break;
+            default:
+                break;
+        }
+
+        // This is the generic path, taken when the node is new or a guard failed
+        Object result = applyGeneric(lv, rv);
+        state = state == UNINITIALIZED ? specialize(lv) : GENERIC;
+        return result;
+    }
+
+    // This is picking the specialized state for operands that the generic path accepted
+    private byte specialize(Object lv) {
+        if (lv instanceof Boolean)
+            return "and".equals(op) ? BOOL_AND : BOOL_OR;
+
+        boolean ints = Integers.isInteger(lv);
+        switch (op) {
+            case "+":
+                return ints ? INT_ADD : REAL_ADD;
+            case "-":
+                return ints ? INT_SUB : REAL_SUB;
+            case "*":
+                return ints ? INT_MUL : REAL_MUL;
+            case "/":
+                return ints ? INT_DIV : REAL_DIV;
+            default:
+                return INT_MOD;
+        }
+    }
+
+    // This is a helper to get the name of the node's current specialization (e.g., "IntAdd")
+    public String getSpecialization() {
+        return STATES[state];
+    }
+
+    // This is the full operator semantics, including every type check and error; it
+    // leaves the node's state alone, so code shared between threads can call it
+    public Object applyGeneric(Object lv, Object rv) throws EvaluationException {
         // This is handling boolean operators first (and / or)
         if ("and".equals(op) || "or".equals(op)) {
             if (!(lv instanceof Boolean) || !(rv instanceof Boolean)) {
-                logError("This is a boolean operator used with non-boolean operands.");
-                throw new EvaluationException("This is a boolean operator used with non-boolean operands.");
+                throw error(ErrorKind.TYPE, "This is a boolean operator used with non-boolean operands.");
             }
             boolean L = (Boolean) lv;
             boolean R = (Boolean) rv;
@@ -56,46 +293,64 @@ public final class BinOpNode extends SyntaxNode {
 
         // This is ensuring we have numbers for arithmetic and relational-style math ops
         if (!(lv instanceof Number) || !(rv instanceof Number)) {
-            logError("This is an arithmetic operator used with non-numeric operands.");
-            throw new EvaluationException("This is an arithmetic operator used with non-numeric operands.");
+            throw error(ErrorKind.TYPE, "This is an arithmetic operator used with non-numeric operands.");
         }
 
         // This is enforcing the no mixed-type rule (ints with ints, reals with reals)
-        boolean bothInts = (lv instanceof Integer) && (rv instanceof Integer);
+        boolean bothInts = Integers.isInteger(lv) && Integers.isInteger(rv);
         boolean bothReals = (lv instanceof Double) && (rv instanceof Double);
 
         if (!(bothInts || bothReals)) {
-            logError("This is a mixed numeric type expression, which is not allowed.");
-            throw new EvaluationException("This is a mixed numeric type expression, which is not allowed.");
+            throw error(ErrorKind.TYPE, "This is a mixed numeric type expression, which is not allowed.");
         }
 
         // This is the integer arithmetic branch
         if (bothInts) {
-            int L = (Integer) lv;
-            int R = (Integer) rv;
+            // This is reporting division by zero ourselves, since a hot JIT-compiled
+            // division may throw its ArithmeticException without a message
+            if (Integers.compare(rv, 0) == 0 && ("/".equals(op) || "mod".equals(op))) {
+                throw error(ErrorKind.ARITHMETIC, "This is an arithmetic error: / by zero");
+            }
 
-            try {
+            // This is the int case, which promotes only a result that overflows
+            if (lv instanceof Integer && rv instanceof Integer) {
+                int L = (Integer) lv;
+                int R = (Integer) rv;
                 switch (op) {
                     case "+":
-                        return L + R;
+                        return Integers.add(L, R);
                     case "-":
-                        return L - R;
+                        return Integers.subtract(L, R);
                     case "*":
-                        return L * R;
+                        return Integers.multiply(L, R);
                     case "/":
-                        // This is integer division (Java will throw on divide by zero)
-                        return L / R;
+                        // This is integer division, truncating toward zero
+                        return Integers.divide(L, R);
                     case "mod":
                         // This is modulus (allowed only for integers)
                         return L % R;
                     default:
-                        logError("This is an unknown integer operator: " + op);
-                        throw new EvaluationException("This is an unknown integer operator: " + op);
+                        throw error(ErrorKind.INVALID, "This is an unknown integer operator: " + op);
                 }
-            } catch (ArithmeticException ae) {
-                // This is wrapping runtime arithmetic errors (like divide by zero)
-                logError("This is an arithmetic error: " + ae.getMessage());
-                throw new EvaluationException("This is an arithmetic error: " + ae.getMessage());
+            }
+
+            // This is the BigInteger case, whose results are narrowed back to ints when they fit
+            BigInteger L = Integers.big(lv);
+            BigInteger R = Integers.big(rv);
+            switch (op) {
+                case "+":
+                    return Integers.valueOf(L.add(R));
+                case "-":
+                    return Integers.valueOf(L.subtract(R));
+                case "*":
+                    return Integers.valueOf(L.multiply(R));
+                case "/":
+                    return Integers.valueOf(L.divide(R));
+                case "mod":
+                    // This is the remainder, which takes the sign of the dividend like %
+                    return Integers.valueOf(L.remainder(R));
+                default:
+                    throw error(ErrorKind.INVALID, "This is an unknown integer operator: " + op);
             }
         }
 
@@ -105,8 +360,7 @@ public final class BinOpNode extends SyntaxNode {
 
         if ("mod".equals(op)) {
             // This is rejecting mod on reals per the spec
-            logError("This is an invalid use of 'mod' with real numbers.");
-            throw new EvaluationException("This is an invalid use of 'mod' with real numbers.");
+            throw error(ErrorKind.TYPE, "This is an invalid use of 'mod' with real numbers.");
         }
 
         switch (op) {
@@ -119,8 +373,22 @@ public final class BinOpNode extends SyntaxNode {
             case "/":
                 return L / R;
             default:
-                logError("This is an unknown real operator: " + op);
-                throw new EvaluationException("This is an unknown real operator: " + op);
+                throw error(ErrorKind.INVALID, "This is an unknown real operator: " + op);
         }
     }
+
+    // This is a helper to get the operator
+    public String getOp() {
+        return op;
+    }
+
+    // This is a helper to get the left-hand side expression
+    public SyntaxNode getLeft() {
+        return left;
+    }
+
+    // This is a helper to get the right-hand side expression
+    public SyntaxNode getRight() {
+        return right;
+    }
 }
@@ -0,0 +1,220 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast.nodes;
+
+import java.math.BigInteger;
+
+/**
+ * Arithmetic on MFL integers. An MFL integer is an {@link Integer} when
+ * its value fits in an int and a {@link BigInteger} otherwise, so the
+ * common case stays a small boxed int and nothing ever overflows. Every
+ * result is normalized, so a value that fits in an int is always an
+ * {@link Integer}, and two equal integers are always of the same class.
+ * <p>
+ * The boxed operations on ints compute in a long, which can not overflow,
+ * and promote only when the result does not fit in an int. The primitive
+ * paths that must produce an int instead use {@link Math#addExact} and its
+ * relatives, and {@link #intValue} and {@link #divideExact}, which throw an
+ * {@link ArithmeticException} when the result does not fit; the node or
+ * compiled code that catches it evaluates the expression again on its
+ * boxed path.
+ *
+ * @author Zach Kissel
+ */
+public final class Integers
+{
+    private static final BigInteger MIN_INT = BigInteger.valueOf(Integer.MIN_VALUE);
+    private static final BigInteger MAX_INT = BigInteger.valueOf(Integer.MAX_VALUE);
+
+    /**
+     * This class is not meant to be instantiated.
+     */
+    private Integers()
+    {
+    }
+
+    /**
+     * Determines if a value is an MFL integer.
+     *
+     * @param value the value.
+     * @return true if {@code value} is an {@link Integer} or a
+     *         {@link BigInteger}.
+     */
+    public static boolean isInteger(Object value)
+    {
+        return value instanceof Integer || value instanceof BigInteger;
+    }
+
+    /**
+     * Adds two ints.
+     *
+     * @param l the left operand.
+     * @param r the right operand.
+     * @return the sum, promoted if it does not fit in an int.
+     */
+    public static Object add(int l, int r)
+    {
+        return valueOf((long) l + r);
+    }
+
+    /**
+     * Subtracts two ints.
+     *
+     * @param l the left operand.
+     * @param r the right operand.
+     * @return the difference, promoted if it does not fit in an int.
+     */
+    public static Object subtract(int l, int r)
+    {
+        return valueOf((long) l - r);
+    }
+
+    /**
+     * Multiplies two ints.
+     *
+     * @param l the left operand.
+     * @param r the right operand.
+     * @return the product, promoted if it does not fit in an int.
+     */
+    public static Object multiply(int l, int r)
+    {
+        return valueOf((long) l * r);
+    }
+
+    /**
+     * Divides two ints, truncating toward zero. The only quotient that does
+     * not fit in an int is {@code Integer.MIN_VALUE / -1}.
+     *
+     * @param l the left operand.
+     * @param r the right operand, which must not be zero.
+     * @return the quotient, promoted if it does not fit in an int.
+     */
+    public static Object divide(int l, int r)
+    {
+        return valueOf((long) l / r);
+    }
+
+    /**
+     * Negates an int. The only negation that does not fit in an int is
+     * that of {@code Integer.MIN_VALUE}.
+     *
+     * @param value the operand.
+     * @return the negation, promoted if it does not fit in an int.
+     */
+    public static Object negate(int value)
+    {
+        return valueOf(-(long) value);
+    }
+
+    /**
+     * Divides two ints, truncating toward zero, when the quotient must be
+     * an int.
+     *
+     * @param l the left operand.
+     * @param r the right operand, which must not be zero.
+     * @return the quotient.
+     * @throws ArithmeticException if the quotient does not fit in an int.
+     */
+    public static int divideExact(int l, int r)
+    {
+        if (l == Integer.MIN_VALUE && r == -1)
+            throw new ArithmeticException("integer overflow");
+        return l / r;
+    }
+
+    /**
+     * Gets the value of an MFL integer that must be an int.
+     *
+     * @param value the integer.
+     * @return its value.
+     * @throws ArithmeticException if the value does not fit in an int.
+     */
+    public static int intValue(Object value)
+    {
+        if (value instanceof Integer)
+            return (Integer) value;
+        throw new ArithmeticException("integer overflow");
+    }
+
+    /**
+     * Gets the value of an MFL integer as a {@link BigInteger}.
+     *
+     * @param value the integer.
+     * @return its value.
+     */
+    public static BigInteger big(Object value)
+    {
+        if (value instanceof Integer)
+            return BigInteger.valueOf((Integer) value);
+        return (BigInteger) value;
+    }
+
+    /**
+     * Makes the MFL integer with a value.
+     *
+     * @param value the value.
+     * @return an {@link Integer} if the value fits in an int, otherwise a
+     *         {@link BigInteger}.
+     */
+    public static Object valueOf(long value)
+    {
+        if ((int) value == value)
+            return (int) value;
+        return BigInteger.valueOf(value);
+    }
+
+    /**
+     * Makes the MFL integer with a value.
+     *
+     * @param value the value.
+     * @return an {@link Integer} if the value fits in an int, otherwise
+     *         {@code value}.
+     */
+    public static Object valueOf(BigInteger value)
+    {
+        if (value.compareTo(MIN_INT) >= 0 && value.compareTo(MAX_INT) <= 0)
+            return value.intValue();
+        return value;
+    }
+
+    /**
+     * Compares two MFL integers.
+     *
+     * @param l the left operand.
+     * @param r the right operand.
+     * @return a negative number, zero, or a positive number as {@code l} is
+     *         less than, equal to, or greater than {@code r}.
+     */
+    public static int compare(Object l, Object r)
+    {
+        if (l instanceof Integer && r instanceof Integer)
+            return Integer.compare((Integer) l, (Integer) r);
+        return big(l).compareTo(big(r));
+    }
+
+    /**
+     * Decodes an integer literal of any size.
+     *
+     * @param lexeme the decimal digits of the literal.
+     * @return the value of the literal.
+     * @throws NumberFormatException if the lexeme is not an integer.
+     */
+    public static Object parse(String lexeme)
+    {
+        return valueOf(new BigInteger(lexeme));
+    }
+}
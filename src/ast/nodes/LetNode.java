@@ -8,6 +8,7 @@
 package ast.nodes;
 
 import ast.EvaluationException;
+import diagnostics.Diagnostics;
 import environment.Environment;
 import lexer.Token;
 
@@ -22,9 +23,12 @@ public final class LetNode extends SyntaxNode {
     // This is the body expression that runs with the new binding in scope
     private final SyntaxNode body;
 
+    // This is the frame slot the resolver gave the identifier (or -1 if unresolved)
+    private int slot = -1;
+
     // This is the constructor wiring up id, bound expression, body, and line number
     public LetNode(Token id, SyntaxNode boundExpr, SyntaxNode body, long line) {
-        super(line);
+        super(line, heightOver(boundExpr, body));
         this.id = id;
         this.boundExpr = boundExpr;
         this.body = body;
@@ -32,12 +36,12 @@ public final class LetNode extends SyntaxNode {
 
     // This is for AST visualization (used by --ast)
     @Override
-    public void displaySubtree(int indentAmt) {
-        printIndented("Let(" + id.getValue() + " := ... in ...)", indentAmt);
-        printIndented("This is the bound expression:", indentAmt + 1);
-        boundExpr.displaySubtree(indentAmt + 2);
-        printIndented("This is the body:", indentAmt + 1);
-        body.displaySubtree(indentAmt + 2);
+    public void displaySubtree(int indentAmt, Diagnostics out) {
+        printIndented("Let(" + id.getValue() + " := ... in ...)", indentAmt, out);
+        printIndented("This is the bound expression:", indentAmt + 1, out);
+        boundExpr.displaySubtree(indentAmt + 2, out);
+        printIndented("This is the body:", indentAmt + 1, out);
+        body.displaySubtree(indentAmt + 2, out);
     }
 
     // This is the evaluate method that enforces lexical scoping
@@ -46,13 +50,67 @@ public final class LetNode extends SyntaxNode {
         // This is evaluating the bound expression in the current environment
         Object value = boundExpr.evaluate(env);
 
+        // This is evaluating the body in the new (child) environment
+        return body.evaluate(bind(env, value));
+    }
+
+    // This is the unboxed int path (the body is known to be an int)
+    @Override
+    public int evaluateInt(Environment env) throws EvaluationException {
+        return body.evaluateInt(bind(env, boundExpr.evaluate(env)));
+    }
+
+    // This is the unboxed real path (the body is known to be a real)
+    @Override
+    public double evaluateDouble(Environment env) throws EvaluationException {
+        return body.evaluateDouble(bind(env, boundExpr.evaluate(env)));
+    }
+
+    // This is the unboxed boolean path (the body is known to be a boolean)
+    @Override
+    public boolean evaluateBoolean(Environment env) throws EvaluationException {
+        return body.evaluateBoolean(bind(env, boundExpr.evaluate(env)));
+    }
+
+    // This is evaluating with a frame: binding is a single store into our slot
+    @Override
+    public Object evaluate(Environment env, Object[] frame) throws EvaluationException {
+        frame[slot] = boundExpr.evaluate(env, frame);
+        return body.evaluate(env, frame);
+    }
+
+    // This is making the environment the body runs in from the bound value
+    public Environment bind(Environment env, Object value) {
         // This is making a new environment (copy) for the body so we get proper shadowing
         Environment child = env.copy();
 
         // This is binding the identifier in the new environment
-        child.updateEnvironment(id.getValue(), value);
+        child.updateEnvironment(id, value);
+        return child;
+    }
 
-        // This is evaluating the body in the new (child) environment
-        return body.evaluate(child);
+    // This is a helper to get the frame slot of the identifier
+    public int getSlot() {
+        return slot;
+    }
+
+    // This is a helper the resolver uses to assign the frame slot
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    // This is a helper to get the identifier token
+    public Token getIdToken() {
+        return id;
+    }
+
+    // This is a helper to get the bound expression
+    public SyntaxNode getBoundExpr() {
+        return boundExpr;
+    }
+
+    // This is a helper to get the body expression
+    public SyntaxNode getBody() {
+        return body;
     }
 }
@@ -10,6 +10,7 @@ package ast.nodes;
 import java.util.List;
 
 import ast.EvaluationException;
+import diagnostics.Diagnostics;
 import environment.Environment;
 
 public final class ProgNode extends SyntaxNode {
@@ -19,16 +20,16 @@ public final class ProgNode extends SyntaxNode {
 
     // This is the constructor that sets the statement list and line number
     public ProgNode(List<SyntaxNode> statements, long line) {
-        super(line);
+        super(line, heightOver(statements.toArray(new SyntaxNode[0])));
         this.statements = statements;
     }
 
     // This is for AST printing (used by --ast)
     @Override
-    public void displaySubtree(int indentAmt) {
-        printIndented("Prog", indentAmt);
+    public void displaySubtree(int indentAmt, Diagnostics out) {
+        printIndented("Prog", indentAmt, out);
         for (SyntaxNode s : statements) {
-            s.displaySubtree(indentAmt + 1);
+            s.displaySubtree(indentAmt + 1, out);
         }
     }
 
@@ -62,4 +63,9 @@ public final class ProgNode extends SyntaxNode {
         // This is returning the value of the last statement evaluated (null if program was empty)
         return last;
     }
+
+    // This is a helper to get the top-level statements
+    public List<SyntaxNode> getStatements() {
+        return statements;
+    }
 }
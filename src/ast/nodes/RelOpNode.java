@@ -2,60 +2,262 @@
  *  This is the RelOpNode class.
  *  This is responsible for evaluating relational operators in MFL.
  *  This is where we handle: <, >, <=, >=, =, !=
+ *  Ints are compared exactly, including those promoted to BigInteger.
  *  Author: David Hamilton
  */
 
 package ast.nodes;
 
+import ast.ErrorKind;
 import ast.EvaluationException;
+import diagnostics.Diagnostics;
 import environment.Environment;
 
 public final class RelOpNode extends SyntaxNode {
 
+    // This is the state of a node that has not been evaluated yet
+    private static final byte UNINITIALIZED = 0;
+
+    // This is the state of a node that has seen more than one operand type
+    private static final byte GENERIC = 1;
+
+    // These are the states of a node specialized to the one operand type it has seen
+    private static final byte INT_LT = 2;
+    private static final byte INT_GT = 3;
+    private static final byte INT_LE = 4;
+    private static final byte INT_GE = 5;
+    private static final byte INT_EQ = 6;
+    private static final byte INT_NE = 7;
+    private static final byte REAL_LT = 8;
+    private static final byte REAL_GT = 9;
+    private static final byte REAL_LE = 10;
+    private static final byte REAL_GE = 11;
+    private static final byte REAL_EQ = 12;
+    private static final byte REAL_NE = 13;
+    private static final byte BOOL_EQ = 14;
+    private static final byte BOOL_NE = 15;
+
+    // These are the operator codes the primitive paths switch on
+    private static final byte LT = 0;
+    private static final byte GT = 1;
+    private static final byte LE = 2;
+    private static final byte GE = 3;
+    private static final byte EQ = 4;
+    private static final byte NE = 5;
+
+    // This is the name of each state, indexed by state
+    private static final String[] STATES = { "Uninitialized", "Generic",
+        "IntLessThan", "IntGreaterThan", "IntLessEqual", "IntGreaterEqual",
+        "IntEqual", "IntNotEqual", "RealLessThan", "RealGreaterThan",
+        "RealLessEqual", "RealGreaterEqual", "RealEqual", "RealNotEqual",
+        "BoolEqual", "BoolNotEqual" };
+
     // This is the operator string (e.g., "<", ">", "<=", ">=", "=", "!=")
     private final String op;
 
+    // This is the operator code (or -1 for an unknown operator)
+    private final byte code;
+
     // This is the left-hand side expression
     private final SyntaxNode left;
 
     // This is the right-hand side expression
     private final SyntaxNode right;
 
+    // This is how the node currently compares its operands (rewritten as operand types are seen)
+    private byte state = UNINITIALIZED;
+
     // This is the constructor wiring up operator and children
     public RelOpNode(String op, SyntaxNode left, SyntaxNode right, long line) {
-        super(line);
+        super(line, heightOver(left, right));
         this.op = op;
         this.left = left;
         this.right = right;
+        this.code = switch (op) {
+            case "<" -> LT;
+            case ">" -> GT;
+            case "<=" -> LE;
+            case ">=" -> GE;
+            case "=" -> EQ;
+            case "!=" -> NE;
+            default -> -1;
+        };
     }
 
     // This is for AST printing (used by --ast)
     @Override
-    public void displaySubtree(int indentAmt) {
-        printIndented("RelOp(" + op + ")", indentAmt);
-        left.displaySubtree(indentAmt + 1);
-        right.displaySubtree(indentAmt + 1);
+    public void displaySubtree(int indentAmt, Diagnostics out) {
+        printIndented("RelOp(" + op + ")", indentAmt, out);
+        left.displaySubtree(indentAmt + 1, out);
+        right.displaySubtree(indentAmt + 1, out);
     }
 
     // This is where we actually evaluate the relational expression
     @Override
     public Object evaluate(Environment env) throws EvaluationException {
+        // This is taking the primitive path when the type pass knows our type
+        if (getType() != null)
+            return evaluateTyped(env);
+
         Object lv = left.evaluate(env);
         Object rv = right.evaluate(env);
+        return apply(lv, rv);
+    }
+
+    // This is the unboxed path (the operands are known to have the same comparable type)
+    @Override
+    public boolean evaluateBoolean(Environment env) throws EvaluationException {
+        switch (left.getType()) {
+            case INT: {
+                int L = left.evaluateInt(env);
+                int R = right.evaluateInt(env);
+                switch (code) {
+                    case LT: return L < R;
+                    case GT: return L > R;
+                    case LE: return L <= R;
+                    case GE: return L >= R;
+                    case EQ: return L == R;
+                    default: return L != R;
+                }
+            }
+            case REAL: {
+                double L = left.evaluateDouble(env);
+                double R = right.evaluateDouble(env);
+                switch (code) {
+                    case LT: return L < R;
+                    case GT: return L > R;
+                    case LE: return L <= R;
+                    case GE: return L >= R;
+                    case EQ: return L == R;
+                    default: return L != R;
+                }
+            }
+            default: {
+                boolean L = left.evaluateBoolean(env);
+                boolean R = right.evaluateBoolean(env);
+                return code == EQ ? L == R : L != R;
+            }
+        }
+    }
 
+    // This is evaluating the comparison with let-bound names in a frame
+    @Override
+    public Object evaluate(Environment env, Object[] frame) throws EvaluationException {
+        Object lv = left.evaluate(env, frame);
+        Object rv = right.evaluate(env, frame);
+        return apply(lv, rv);
+    }
+
+    // This is applying the comparison to operand values that are already evaluated
+    public Object apply(Object lv, Object rv) throws EvaluationException {
+        // This is the fast path for the one operand type the node has seen so far
+        // (ints are compared as ints, which agrees with comparing them as doubles)
+        switch (state) {
+            case INT_LT:
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return (int) (Integer) lv < (Integer) rv;
+                break;
+            case INT_GT:
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return (int) (Integer) lv > (Integer) rv;
+                break;
+            case INT_LE:
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return (int) (Integer) lv <= (Integer) rv;
+                break;
+            case INT_GE:
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return (int) (Integer) lv >= (Integer) rv;
+                break;
+            case INT_EQ:
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return (int) (Integer) lv == (Integer) rv;
+                break;
+            case INT_NE:
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return (int) (Integer) lv != (Integer) rv;
+                break;
+            case REAL_LT:
+                if (lv instanceof Double && rv instanceof Double)
+                    return (double) (Double) lv < (Double) rv;
+                break;
+            case REAL_GT:
+                if (lv instanceof Double && rv instanceof Double)
+                    return (double) (Double) lv > (Double) rv;
+                break;
+            case REAL_LE:
+                if (lv instanceof Double && rv instanceof Double)
+                    return (double) (Double) lv <= (Double) rv;
+                break;
+            case REAL_GE:
+                if (lv instanceof Double && rv instanceof Double)
+                    return (double) (Double) lv >= (Double) rv;
+                break;
+            case REAL_EQ:
+                if (lv instanceof Double && rv instanceof Double)
+                    return (double) (Double) lv == (Double) rv;
+                break;
+            case REAL_NE:
+                if (lv instanceof Double && rv instanceof Double)
+                    return (double) (Double) lv != (Double) rv;
+                break;
+            case BOOL_EQ:
+                if (lv instanceof Boolean && rv instanceof Boolean)
+                    return (boolean) (Boolean) lv == (Boolean) rv;
+                break;
+            case BOOL_NE:
+                if (lv instanceof Boolean && rv instanceof Boolean)
+                    return (boolean) (Boolean) lv != (Boolean) rv;
+                break;
+            default:
+                break;
+        }
+
+        // This is the generic path, taken when the node is new or a guard failed
+        Object result = applyGeneric(lv, rv);
+        state = state == UNINITIALIZED ? specialize(lv) : GENERIC;
+        return result;
+    }
+
+    // This is picking the specialized state for operands that the generic path accepted
+    private byte specialize(Object lv) {
+        // This is the offset of the operator within each group of states
+        int index = switch (op) {
+            case "<" -> 0;
+            case ">" -> 1;
+            case "<=" -> 2;
+            case ">=" -> 3;
+            case "=" -> 4;
+            default -> 5;
+        };
+        if (Integers.isInteger(lv))
+            return (byte) (INT_LT + index);
+        if (lv instanceof Double)
+            return (byte) (REAL_LT + index);
+        return index == 4 ? BOOL_EQ : BOOL_NE;
+    }
+
+    // This is a helper to get the name of the node's current specialization (e.g., "IntLessThan")
+    public String getSpecialization() {
+        return STATES[state];
+    }
+
+    // This is the full comparison semantics, including every type check and error; it
+    // leaves the node's state alone, so code shared between threads can call it
+    public Object applyGeneric(Object lv, Object rv) throws EvaluationException {
         // This is the numeric comparison path
         if (lv instanceof Number && rv instanceof Number) {
             // This is enforcing the same-type rule (no mixed int/real)
-            boolean bothInts = (lv instanceof Integer) && (rv instanceof Integer);
+            boolean bothInts = Integers.isInteger(lv) && Integers.isInteger(rv);
             boolean bothReals = (lv instanceof Double) && (rv instanceof Double);
             if (!(bothInts || bothReals)) {
-                logError("This is a mixed numeric type comparison, which is not allowed.");
-                throw new EvaluationException("This is a mixed numeric type comparison, which is not allowed.");
+                throw error(ErrorKind.TYPE, "This is a mixed numeric type comparison, which is not allowed.");
             }
 
-            // This is converting to double for comparison (safe because types match)
-            double L = ((Number) lv).doubleValue();
-            double R = ((Number) rv).doubleValue();
+            // This is comparing ints exactly (a BigInteger may not fit in a double), and
+            // reals as doubles; an int comparison is turned into one of -1, 0 or 1 against 0
+            double L = bothInts ? Integers.compare(lv, rv) : ((Number) lv).doubleValue();
+            double R = bothInts ? 0 : ((Number) rv).doubleValue();
 
             // This is returning a boolean result for numeric comparisons
             return switch (op) {
@@ -66,8 +268,7 @@ public final class RelOpNode extends SyntaxNode {
                 case "="  -> L == R;
                 case "!=" -> L != R;
                 default -> {
-                    logError("This is an unknown relational operator: " + op);
-                    throw new EvaluationException("This is an unknown relational operator: " + op);
+                    throw error(ErrorKind.INVALID, "This is an unknown relational operator: " + op);
                 }
             };
         }
@@ -82,14 +283,27 @@ public final class RelOpNode extends SyntaxNode {
                 case "="  -> L == R;
                 case "!=" -> L != R;
                 default -> {
-                    logError("This is an invalid boolean comparison; only '=' and '!=' are allowed.");
-                    throw new EvaluationException("This is an invalid boolean comparison; only '=' and '!=' are allowed.");
+                    throw error(ErrorKind.TYPE, "This is an invalid boolean comparison; only '=' and '!=' are allowed.");
                 }
             };
         }
 
         // This is rejecting cross-type comparisons outright
-        logError("This is a relational comparison with incompatible operand types.");
-        throw new EvaluationException("This is a relational comparison with incompatible operand types.");
+        throw error(ErrorKind.TYPE, "This is a relational comparison with incompatible operand types.");
+    }
+
+    // This is a helper to get the operator
+    public String getOp() {
+        return op;
+    }
+
+    // This is a helper to get the left-hand side expression
+    public SyntaxNode getLeft() {
+        return left;
+    }
+
+    // This is a helper to get the right-hand side expression
+    public SyntaxNode getRight() {
+        return right;
     }
 }
@@ -16,7 +16,9 @@
  */
 package ast.nodes;
 
+import ast.ErrorKind;
 import ast.EvaluationException;
+import diagnostics.Diagnostics;
 import environment.Environment;
 
 /**
@@ -30,25 +32,102 @@ public abstract class SyntaxNode
 {
     private long lineNumber; // The line numbe the syntax node is associated
                              // with.
+    private final int height; // The number of nodes on the longest path
+                              // from this node to a leaf.
+    private ValueType type;   // The static type of the node, if known.
 
     /**
-     * Constructs a new syntax node with the given line number.
+     * Constructs a new leaf syntax node with the given line number.
      * 
      * @param lineNumber the line number the syntax node occurs on.
      */
     public SyntaxNode(long lineNumber)
+    {
+        this(lineNumber, 1);
+    }
+
+    /**
+     * Constructs a new syntax node with the given line number and height.
+     * 
+     * @param lineNumber the line number the syntax node occurs on.
+     * @param height the height of the subtree rooted at this node.
+     */
+    protected SyntaxNode(long lineNumber, int height)
     {
         this.lineNumber = lineNumber;
+        this.height = height;
+    }
+
+    /**
+     * Get the line number the syntax node is associated with.
+     * 
+     * @return the line number the node occurs on.
+     */
+    public long getLineNumber()
+    {
+        return lineNumber;
+    }
+
+    /**
+     * Get the height of the subtree rooted at this node, which bounds how
+     * deeply evaluating it recurses.
+     * 
+     * @return the number of nodes on the longest path to a leaf.
+     */
+    public int getHeight()
+    {
+        return height;
     }
 
     /**
-     * Logs an error to the screen
+     * Get the static type of the node. A node has a type only if a type pass
+     * has shown that it evaluates to a value of that type without a type
+     * error; it may still fail for other reasons, such as division by zero.
      * 
-     * @param msg the error message to display.
+     * @return the type of the node, or null if it is not known.
      */
-    protected void logError(String msg)
+    public ValueType getType()
     {
-        System.out.println("Error (line " + lineNumber + "): " + msg);
+        return type;
+    }
+
+    /**
+     * Set the static type of the node. Once set, the node evaluates itself
+     * on the primitive path for the type.
+     * 
+     * @param type the type of the node, or null if it is not known.
+     */
+    public void setType(ValueType type)
+    {
+        this.type = type;
+    }
+
+    /**
+     * Computes the height of a node with the given children.
+     * 
+     * @param children the children of the node; null children are ignored.
+     * @return one more than the greatest height of the children.
+     */
+    protected static int heightOver(SyntaxNode... children)
+    {
+        int max = 0;
+        for (SyntaxNode child : children)
+            if (child != null && child.height > max)
+                max = child.height;
+        return max + 1;
+    }
+
+    /**
+     * Makes the exception for an error at this node. Nothing is printed;
+     * {@link ast.SyntaxTree#evaluate()} reports the error if asked to.
+     * 
+     * @param kind the kind of error.
+     * @param msg the error message.
+     * @return the exception to throw.
+     */
+    protected EvaluationException error(ErrorKind kind, String msg)
+    {
+        return new EvaluationException(kind, lineNumber, msg);
     }
 
     /**
@@ -63,16 +142,16 @@ public abstract class SyntaxNode
     }
 
     /**
-     * Prints and indented message to the screen followed by a new line.
+     * Prints and indented message followed by a new line.
      * 
      * @param msg       the message to print.
      * @param indentAmt the amount to indent the message by.
+     * @param out       where to print the message.
      */
-    protected void printIndented(String msg, int indentAmt)
+    protected void printIndented(String msg, int indentAmt, Diagnostics out)
     {
-        for (int i = 0; i < indentAmt; i++)
-            System.out.print(" ");
-        System.out.println(msg);
+        if (out.isEnabled())
+            out.println(" ".repeat(indentAmt) + msg);
     }
 
     /**
@@ -84,10 +163,111 @@ public abstract class SyntaxNode
      */
     public abstract Object evaluate(Environment env) throws EvaluationException;
 
+    /**
+     * Evaluate the node once it has been resolved by {@link ast.Resolver}.
+     * Let-bound names live in the slots of {@code frame}; only free names are
+     * looked up in {@code env}. Nodes that bind and read no names need not
+     * override this.
+     * 
+     * @param env the executional environment holding the free names.
+     * @param frame the values of the let-bound names, indexed by slot.
+     * @return the object representing the result of the evaluation.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    public Object evaluate(Environment env, Object[] frame) throws EvaluationException
+    {
+        return evaluate(env);
+    }
+
+    /**
+     * Evaluate a node whose type is {@link ValueType#INT} without boxing the
+     * result. Typed nodes evaluate their typed children this way, so a typed
+     * arithmetic subtree allocates nothing. Must only be called on nodes of
+     * that type.
+     * 
+     * @param env the executional environment we should evaluate the node under.
+     * @return the value of the node.
+     * @throws EvaluationException if the evaluation fails.
+     * @throws ArithmeticException if the value does not fit in an int.
+     */
+    public int evaluateInt(Environment env) throws EvaluationException
+    {
+        return Integers.intValue(evaluate(env));
+    }
+
+    /**
+     * Evaluate a node whose type is {@link ValueType#REAL} without boxing
+     * the result. Must only be called on nodes of that type.
+     * 
+     * @param env the executional environment we should evaluate the node under.
+     * @return the value of the node.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    public double evaluateDouble(Environment env) throws EvaluationException
+    {
+        return (Double) evaluate(env);
+    }
+
+    /**
+     * Evaluate a node whose type is {@link ValueType#BOOL} without boxing
+     * the result. Must only be called on nodes of that type.
+     * 
+     * @param env the executional environment we should evaluate the node under.
+     * @return the value of the node.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    public boolean evaluateBoolean(Environment env) throws EvaluationException
+    {
+        return (Boolean) evaluate(env);
+    }
+
+    /**
+     * Evaluate a typed node on its primitive path, boxing only the result.
+     * If an int on that path does not fit in an int, the node drops its type
+     * and is evaluated again on the boxed path, which promotes the int to a
+     * {@link java.math.BigInteger}. Only typed subtrees are retried, and
+     * they are pure expressions: a {@code val} is never typed, and a
+     * {@code let} binds only in its own copy of the environment, so the
+     * retry sees the environment the first attempt did. Each retry costs one
+     * more evaluation of the subtree, and a node that overflows once stays
+     * boxed.
+     * The type is read once, since another thread evaluating the same tree
+     * may drop it at any time.
+     *
+     * @param env the executional environment we should evaluate the node under.
+     * @return the value of the node.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    protected Object evaluateTyped(Environment env) throws EvaluationException
+    {
+        ValueType known = type;
+        if (known == null)
+            return evaluate(env);
+
+        try
+        {
+            switch (known)
+            {
+            case INT:
+                return evaluateInt(env);
+            case REAL:
+                return evaluateDouble(env);
+            default:
+                return evaluateBoolean(env);
+            }
+        }
+        catch (ArithmeticException ex)
+        {
+            type = null;
+            return evaluate(env);
+        }
+    }
+
     /**
      * Display a AST inferencertree with the indentation specified.
      * 
      * @param indentAmt the amout of indentation to perform.
+     * @param out where to display the tree.
      */
-    public abstract void displaySubtree(int indentAmt);
+    public abstract void displaySubtree(int indentAmt, Diagnostics out);
 }
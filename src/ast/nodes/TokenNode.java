@@ -17,7 +17,9 @@
 
 package ast.nodes;
 
+import ast.ErrorKind;
 import ast.EvaluationException;
+import diagnostics.Diagnostics;
 import environment.Environment;
 import lexer.Token;
 import lexer.TokenType;
@@ -36,6 +38,15 @@ public final class TokenNode extends SyntaxNode {
     /** This is the token represented by this node. */
     private final Token tok;
 
+    /** This is the symbol id of an identifier (or -1 for literals). */
+    private final int symbol;
+
+    /** This is the frame slot of a let-bound identifier (or -1 for a free name). */
+    private int slot = -1;
+
+    /** This is the pre-boxed value of a literal (or null if there is none). */
+    private final Object literal;
+
     /**
      * This is the constructor that creates a new TokenNode.
      * 
@@ -45,6 +56,90 @@ public final class TokenNode extends SyntaxNode {
     public TokenNode(Token tok, long line) {
         super(line);
         this.tok = tok;
+        this.symbol = tok.getType() == TokenType.ID ? tok.getSymbol() : -1;
+        this.literal = literalOf(tok);
+    }
+
+    /**
+     * This is a method that gets the value of a literal token once, so that
+     * evaluating the node does not parse or box it again.
+     *
+     * @param tok This is the token to decode.
+     * @return This is the boxed value, or null if the token is not a valid literal.
+     */
+    private static Object literalOf(Token tok) {
+        try {
+            switch (tok.getType()) {
+                case INT:
+                    return intLiteralOf(tok);
+                case REAL:
+                    return Double.valueOf(tok.getRealValue());
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                default:
+                    return null;
+            }
+        }
+        catch (NumberFormatException nfe) {
+            // This is reported when the node is evaluated.
+            return null;
+        }
+    }
+
+    /**
+     * This is a method that decodes an integer literal, which is an Integer
+     * if it fits in an int and a BigInteger otherwise.
+     *
+     * @param tok This is the integer token to decode.
+     * @return This is the boxed value.
+     * @throws NumberFormatException This is thrown if the token is not a valid integer.
+     */
+    private static Object intLiteralOf(Token tok) {
+        try {
+            return Integer.valueOf(tok.getIntValue());
+        }
+        catch (NumberFormatException nfe) {
+            // This is a literal too big for an int, which the lexer leaves undecoded.
+            return Integers.parse(tok.getValue());
+        }
+    }
+
+    /**
+     * This is a method that gets the value of this node if it is a literal.
+     *
+     * @return This is the literal's value, or null if this node is not a literal.
+     */
+    public Object getLiteral() {
+        return literal;
+    }
+
+    /**
+     * This is a method that gets the token this node represents.
+     *
+     * @return This is the token.
+     */
+    public Token getToken() {
+        return tok;
+    }
+
+    /**
+     * This is a method that gets the frame slot of a let-bound identifier.
+     *
+     * @return This is the slot, or -1 if the name is free or unresolved.
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * This is a method the resolver uses to assign an identifier's frame slot.
+     *
+     * @param slot This is the slot, or -1 to look the name up in the environment.
+     */
+    public void setSlot(int slot) {
+        this.slot = slot;
     }
 
     /**
@@ -54,8 +149,8 @@ public final class TokenNode extends SyntaxNode {
      * @param indentAmt This is the indentation level to print with.
      */
     @Override
-    public void displaySubtree(int indentAmt) {
-        printIndented("Token(" + tok + ")", indentAmt);
+    public void displaySubtree(int indentAmt, Diagnostics out) {
+        printIndented("Token(" + tok + ")", indentAmt, out);
     }
 
     /**
@@ -70,14 +165,18 @@ public final class TokenNode extends SyntaxNode {
      */
     @Override
     public Object evaluate(Environment env) throws EvaluationException {
+        // This is the fast path for literals decoded when the node was built.
+        if (literal != null)
+            return literal;
+
         final TokenType type = tok.getType();
         final String lex = tok.getValue();
 
         try {
             switch (type) {
-                // This is an integer literal.
+                // This is an integer literal, which may be too big for an int.
                 case INT:
-                    return Integer.valueOf(lex);
+                    return Integers.parse(lex);
 
                 // This is a real (floating point) literal.
                 case REAL:
@@ -93,25 +192,75 @@ public final class TokenNode extends SyntaxNode {
 
                 // This is an identifier (variable name).
                 case ID: {
-                    // This is where we look up the variable name in the environment.
-                    Object val = env.lookup(tok);
+                    // This is where we look up the variable's symbol in the environment.
+                    Object val = env.lookup(symbol);
                     if (val == null) {
-                        logError("Unbound identifier: " + lex);
-                        throw new EvaluationException("Unbound identifier: " + lex);
+                        throw error(ErrorKind.UNBOUND, "Unbound identifier: " + lex);
                     }
                     return val;
                 }
 
                 // This is an unexpected token case.
                 default:
-                    logError("Unexpected token type in TokenNode: " + type);
-                    throw new EvaluationException("Unexpected token type in TokenNode: " + type);
+                    throw error(ErrorKind.INVALID, "Unexpected token type in TokenNode: " + type);
             }
         } 
         catch (NumberFormatException nfe) {
             // This is for catching invalid numeric literals.
-            logError("Invalid numeric literal: " + lex);
-            throw new EvaluationException("Invalid numeric literal: " + lex);
+            throw error(ErrorKind.INVALID, "Invalid numeric literal: " + lex);
         }
     }
+
+    /**
+     * This is a method that evaluates an int literal or int-typed identifier
+     * without boxing (the value is already boxed in the literal or the environment).
+     *
+     * @param env This is the environment holding the identifier's value.
+     * @return This is the value.
+     * @throws ArithmeticException This is thrown if the value does not fit in an int.
+     */
+    @Override
+    public int evaluateInt(Environment env) {
+        return Integers.intValue(literal != null ? literal : env.lookup(symbol));
+    }
+
+    /**
+     * This is a method that evaluates a real literal or real-typed identifier
+     * without boxing.
+     *
+     * @param env This is the environment holding the identifier's value.
+     * @return This is the value.
+     */
+    @Override
+    public double evaluateDouble(Environment env) {
+        return (Double) (literal != null ? literal : env.lookup(symbol));
+    }
+
+    /**
+     * This is a method that evaluates a boolean literal or boolean-typed
+     * identifier without boxing.
+     *
+     * @param env This is the environment holding the identifier's value.
+     * @return This is the value.
+     */
+    @Override
+    public boolean evaluateBoolean(Environment env) {
+        return (Boolean) (literal != null ? literal : env.lookup(symbol));
+    }
+
+    /**
+     * This is a method that evaluates this token node once it has been resolved.
+     * A let-bound identifier is read straight from its frame slot.
+     * 
+     * @param env This is the environment holding the free names.
+     * @param frame This is the frame holding the let-bound names.
+     * @return This is the evaluated value.
+     * @throws EvaluationException This is thrown if the token is invalid or unbound.
+     */
+    @Override
+    public Object evaluate(Environment env, Object[] frame) throws EvaluationException {
+        if (slot >= 0)
+            return frame[slot];
+        return evaluate(env);
+    }
 }
@@ -1,65 +1,166 @@
 /*
  *  This is the UnaryOpNode class.
  *  It handles unary operators like "not" and "-" in MFL.
+ *  Negating an int never overflows: -2147483648 negates to a BigInteger.
  *  Author: David Hamilton
  */
 
 package ast.nodes;
 
+import java.math.BigInteger;
+
+import ast.ErrorKind;
 import ast.EvaluationException;
+import diagnostics.Diagnostics;
 import environment.Environment;
 
 public final class UnaryOpNode extends SyntaxNode {
 
+    // This is the state of a node that has not been evaluated yet
+    private static final byte UNINITIALIZED = 0;
+
+    // This is the state of a node that has seen more than one operand type
+    private static final byte GENERIC = 1;
+
+    // These are the states of a node specialized to the one operand type it has seen
+    private static final byte INT_NEG = 2;
+    private static final byte REAL_NEG = 3;
+    private static final byte BOOL_NOT = 4;
+
+    // This is the name of each state, indexed by state
+    private static final String[] STATES = { "Uninitialized", "Generic",
+        "IntNegate", "RealNegate", "BoolNot" };
+
     // This is the operator (either "not" or "-")
     private final String op;
 
     // This is the right-hand side expression (the value we apply the operator to)
     private final SyntaxNode rhs;
 
+    // This is how the node currently applies its operator (rewritten as operand types are seen)
+    private byte state = UNINITIALIZED;
+
     // This is the constructor that sets the operator, operand, and line number
     public UnaryOpNode(String op, SyntaxNode rhs, long line) {
-        super(line);
+        super(line, heightOver(rhs));
         this.op = op;
         this.rhs = rhs;
     }
 
     // This is for displaying the AST (for debugging or the --ast flag)
     @Override
-    public void displaySubtree(int indentAmt) {
-        printIndented("UnaryOp(" + op + ")", indentAmt);
-        rhs.displaySubtree(indentAmt + 1);
+    public void displaySubtree(int indentAmt, Diagnostics out) {
+        printIndented("UnaryOp(" + op + ")", indentAmt, out);
+        rhs.displaySubtree(indentAmt + 1, out);
     }
 
     // This is where the actual evaluation happens
     @Override
     public Object evaluate(Environment env) throws EvaluationException {
+        // This is taking the primitive path when the type pass knows our type
+        if (getType() != null)
+            return evaluateTyped(env);
+
         Object value = rhs.evaluate(env);
+        return apply(value);
+    }
 
+    // This is the unboxed int path (negating an int); negating the smallest int
+    // throws ArithmeticException, and evaluateTyped falls back to the boxed path
+    @Override
+    public int evaluateInt(Environment env) throws EvaluationException {
+        return Math.negateExact(rhs.evaluateInt(env));
+    }
+
+    // This is the unboxed real path (negating a real)
+    @Override
+    public double evaluateDouble(Environment env) throws EvaluationException {
+        return -rhs.evaluateDouble(env);
+    }
+
+    // This is the unboxed boolean path (negating a boolean)
+    @Override
+    public boolean evaluateBoolean(Environment env) throws EvaluationException {
+        return !rhs.evaluateBoolean(env);
+    }
+
+    // This is evaluating the operation with let-bound names in a frame
+    @Override
+    public Object evaluate(Environment env, Object[] frame) throws EvaluationException {
+        return apply(rhs.evaluate(env, frame));
+    }
+
+    // This is applying the operator to an operand value that is already evaluated
+    public Object apply(Object value) throws EvaluationException {
+        // This is the fast path for the one operand type the node has seen so far
+        switch (state) {
+            case INT_NEG:
+                if (value instanceof Integer)
+                    return Integers.negate((Integer) value);
+                break;
+            case REAL_NEG:
+                if (value instanceof Double)
+                    return -(Double) value;
+                break;
+            case BOOL_NOT:
+                if (value instanceof Boolean)
+                    return !(Boolean) value;
+                break;
+            default:
+                break;
+        }
+
+        // This is the generic path, taken when the node is new or a guard failed
+        Object result = applyGeneric(value);
+        if (state == UNINITIALIZED)
+            state = Integers.isInteger(value) ? INT_NEG : value instanceof Double ? REAL_NEG : BOOL_NOT;
+        else
+            state = GENERIC;
+        return result;
+    }
+
+    // This is a helper to get the name of the node's current specialization (e.g., "IntNegate")
+    public String getSpecialization() {
+        return STATES[state];
+    }
+
+    // This is the full operator semantics, including every type check and error; it
+    // leaves the node's state alone, so code shared between threads can call it
+    public Object applyGeneric(Object value) throws EvaluationException {
         switch (op) {
             // This is the "not" operator, which flips a boolean value
             case "not":
                 if (!(value instanceof Boolean)) {
-                    logError("This is an invalid 'not' operation on a non-boolean value.");
-                    throw new EvaluationException("This is an invalid 'not' operation on a non-boolean value.");
+                    throw error(ErrorKind.TYPE, "This is an invalid 'not' operation on a non-boolean value.");
                 }
                 return !((Boolean) value);
 
             // This is the unary "-" operator, which negates numbers
             case "-":
                 if (value instanceof Integer) {
-                    return -((Integer) value);
+                    return Integers.negate((Integer) value);
+                } else if (value instanceof BigInteger) {
+                    // This is narrowing the result, since -2147483648 fits in an int again
+                    return Integers.valueOf(((BigInteger) value).negate());
                 } else if (value instanceof Double) {
                     return -((Double) value);
                 } else {
-                    logError("This is an invalid '-' operation on a non-numeric value.");
-                    throw new EvaluationException("This is an invalid '-' operation on a non-numeric value.");
+                    throw error(ErrorKind.TYPE, "This is an invalid '-' operation on a non-numeric value.");
                 }
 
             // This is a catch-all for unexpected operators
             default:
-                logError("This is an unknown unary operator: " + op);
-                throw new EvaluationException("This is an unknown unary operator: " + op);
+                throw error(ErrorKind.INVALID, "This is an unknown unary operator: " + op);
         }
     }
+
+    // This is a helper to get the operator
+    public String getOp() {
+        return op;
+    }
+
+    // This is a helper to get the operand expression
+    public SyntaxNode getOperand() {
+        return rhs;
+    }
 }
@@ -8,6 +8,7 @@
 package ast.nodes;
 
 import ast.EvaluationException;
+import diagnostics.Diagnostics;
 import environment.Environment;
 import lexer.Token;
 
@@ -21,16 +22,16 @@ public final class ValNode extends SyntaxNode {
 
     // This is the constructor that sets the id, expression, and line number
     public ValNode(Token id, SyntaxNode expr, long line) {
-        super(line);
+        super(line, heightOver(expr));
         this.id = id;
         this.expr = expr;
     }
 
     // This is for AST visualization (used with the --ast flag)
     @Override
-    public void displaySubtree(int indentAmt) {
-        printIndented("Val(" + id.getValue() + " := )", indentAmt);
-        expr.displaySubtree(indentAmt + 1);
+    public void displaySubtree(int indentAmt, Diagnostics out) {
+        printIndented("Val(" + id.getValue() + " := )", indentAmt, out);
+        expr.displaySubtree(indentAmt + 1, out);
     }
 
     // This is the evaluate method
@@ -0,0 +1,41 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ast.nodes;
+
+/**
+ * The types of MFL values. A node annotated with a type (see
+ * {@link SyntaxNode#getType()}) is known to produce a value of that type
+ * without a type error, so it can be evaluated on the matching primitive
+ * path.
+ */
+public enum ValueType
+{
+    /**
+     * An int, evaluated by {@link SyntaxNode#evaluateInt}.
+     */
+    INT,
+
+    /**
+     * A real, evaluated by {@link SyntaxNode#evaluateDouble}.
+     */
+    REAL,
+
+    /**
+     * A boolean, evaluated by {@link SyntaxNode#evaluateBoolean}.
+     */
+    BOOL
+}
@@ -0,0 +1,259 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package closure;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ast.EvaluationException;
+import ast.nodes.ValueType;
+import environment.Environment;
+
+/**
+ * One evaluation of a {@link CompiledProgram} over a batch of columns. The
+ * rows are split into ranges evaluated in parallel on a fork-join pool,
+ * and each range a block of rows at a time by code from the
+ * {@link ColumnCompiler}, into an output column of the program's type. A
+ * block the compiled code fails on is evaluated row by row instead. If a
+ * row's value does not fit in the output column, an int promoted to a
+ * {@link java.math.BigInteger}, the whole batch is evaluated again row by
+ * row into an {@code Object[]}, as is a program that could not be
+ * compiled.
+ *
+ * @author Zach Kissel
+ */
+final class Batch
+{
+    private static final int BLOCK = 1024;    // The rows in a block.
+    private static final int GRAIN = 65536;   // The most rows a task evaluates
+                                              // without splitting.
+
+    private final CompiledProgram program;     // The program.
+    private final int[] symbols;               // The symbol id of each column.
+    private final Object[] columns;            // The input columns.
+    private final int rows;                    // The number of rows.
+    private final ColumnCompiler.Typed code;   // The compiled program, or null
+                                               // to evaluate row by row.
+    private final int frameSize;               // The frame size of the code.
+    private final Object output;               // The output column.
+
+    /**
+     * Constructs a batch.
+     *
+     * @param program the program.
+     * @param symbols the symbol id of each column.
+     * @param columns the input columns.
+     * @param rows the number of rows.
+     * @param code the program compiled for the columns, or null to
+     *        evaluate it row by row.
+     * @param frameSize the frame size of the code.
+     */
+    Batch(CompiledProgram program, int[] symbols, Object[] columns, int rows,
+        ColumnCompiler.Typed code, int frameSize)
+    {
+        this.program = program;
+        this.symbols = symbols;
+        this.columns = columns;
+        this.rows = rows;
+        this.code = code;
+        this.frameSize = frameSize;
+
+        if (code == null)
+            output = new Object[rows];
+        else if (code.type == ValueType.INT)
+            output = new int[rows];
+        else if (code.type == ValueType.REAL)
+            output = new double[rows];
+        else
+            output = new boolean[rows];
+    }
+
+    /**
+     * Evaluates the batch. Small batches are evaluated on the calling
+     * thread.
+     *
+     * @param pool the pool to evaluate large batches on.
+     * @return the output column.
+     * @throws EvaluationException if a row fails; the first row to fail is
+     *         reported.
+     */
+    Object evaluate(ForkJoinPool pool) throws EvaluationException
+    {
+        Task task = new Task(0, rows);
+        if (rows <= GRAIN)
+            task.compute();
+        else
+            pool.invoke(task);
+
+        if (task.unfit)
+            return new Batch(program, symbols, columns, rows, null, 0).evaluate(pool);
+        if (task.error != null)
+            throw task.error;
+        return output;
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Evaluates a range of rows, splitting it while it is large.
+     */
+    private final class Task extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;          // The first row of the range.
+        private final int to;            // The row after the range.
+        private EvaluationException error;  // The error of the first row to
+                                            // fail, if one did.
+        private boolean unfit;           // Whether a value did not fit the output.
+
+        /**
+         * Constructs a task for a range of rows.
+         *
+         * @param from the first row of the range.
+         * @param to the row after the range.
+         */
+        Task(int from, int to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Evaluates the range.
+         */
+        @Override
+        protected void compute()
+        {
+            if (to - from > GRAIN)
+            {
+                int middle = from + (to - from) / 2 / BLOCK * BLOCK;
+                Task left = new Task(from, middle);
+                Task right = new Task(middle, to);
+                invokeAll(left, right);
+                error = left.error != null ? left.error : right.error;
+                unfit = left.unfit || right.unfit;
+                return;
+            }
+
+            try
+            {
+                if (code == null)
+                    unfit = !evaluateRows(from, to);
+                else
+                    evaluateBlocks();
+            }
+            catch (EvaluationException ex)
+            {
+                error = ex;
+            }
+        }
+
+        /**
+         * Evaluates the range a block at a time with the compiled code.
+         *
+         * @throws EvaluationException if a row of a block evaluated row by
+         *         row fails.
+         */
+        private void evaluateBlocks() throws EvaluationException
+        {
+            ColumnCompiler.Block block = new ColumnCompiler.Block(columns, frameSize);
+            for (int start = from; start < to; start += BLOCK)
+            {
+                int size = Math.min(BLOCK, to - start);
+                block.moveTo(start, size);
+                Object values;
+                try
+                {
+                    values = code.code.apply(block);
+                }
+                catch (ArithmeticException ex)
+                {
+                    if (!evaluateRows(start, start + size))
+                    {
+                        unfit = true;
+                        return;
+                    }
+                    continue;
+                }
+                System.arraycopy(values, 0, output, start, size);
+            }
+        }
+    }
+
+    /**
+     * Evaluates rows one at a time, each in its own environment.
+     *
+     * @param from the first row.
+     * @param to the row after the last.
+     * @return false if a value did not fit the output column, in which
+     *         case the remaining rows are not evaluated.
+     * @throws EvaluationException if a row fails.
+     */
+    private boolean evaluateRows(int from, int to) throws EvaluationException
+    {
+        for (int row = from; row < to; row++)
+        {
+            Environment env = new Environment();
+            for (int i = 0; i < columns.length; i++)
+                env.updateEnvironment(symbols[i], valueOf(columns[i], row));
+            if (!store(row, program.evaluate(env)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the value of a row of a column.
+     *
+     * @param column the column.
+     * @param row the row.
+     * @return the boxed value.
+     */
+    private static Object valueOf(Object column, int row)
+    {
+        if (column instanceof int[])
+            return ((int[]) column)[row];
+        if (column instanceof double[])
+            return ((double[]) column)[row];
+        return ((boolean[]) column)[row];
+    }
+
+    /**
+     * Stores the value of a row in the output column.
+     *
+     * @param row the row.
+     * @param value the value.
+     * @return false if the value does not fit the output column.
+     */
+    private boolean store(int row, Object value)
+    {
+        if (output instanceof Object[])
+            ((Object[]) output)[row] = value;
+        else if (output instanceof int[] && value instanceof Integer)
+            ((int[]) output)[row] = (Integer) value;
+        else if (output instanceof double[] && value instanceof Double)
+            ((double[]) output)[row] = (Double) value;
+        else if (output instanceof boolean[] && value instanceof Boolean)
+            ((boolean[]) output)[row] = (Boolean) value;
+        else
+            return false;
+        return true;
+    }
+}
@@ -0,0 +1,691 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package closure;
+
+import java.util.List;
+
+import ast.EvaluationException;
+import ast.nodes.BinOpNode;
+import ast.nodes.Integers;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import ast.nodes.ValueType;
+import environment.Environment;
+import lexer.Token;
+import lexer.TokenType;
+
+/**
+ * Compiles a syntax tree into a tree of {@link CompiledExpression}s. All of
+ * the work that does not depend on the values being computed is done once,
+ * here: operators are chosen by name, literals are decoded, and names are
+ * resolved to a frame slot or a symbol. A node with a static type is
+ * compiled to code on unboxed ints, doubles, or booleans; if an int on
+ * that code overflows, the node is compiled again to boxed code, which
+ * promotes the int to a {@link java.math.BigInteger}. Any other
+ * operator handles int, real, and boolean operands inline and passes
+ * everything else to the generic path of its syntax node, so results and
+ * errors are identical to {@link ast.RecursiveEvaluator}. The generic path
+ * does not specialize the node, so evaluating compiled code changes no
+ * syntax node, and the only state it writes is the boxed code of a
+ * {@link Guarded} expression.
+ * <p>
+ * The tree must already have been resolved by the {@link ast.Resolver}, and
+ * typed by the {@link ast.TypeAnnotator} for the unboxed code to be used.
+ * Both compiling and evaluating recurse over the tree.
+ *
+ * @author Zach Kissel
+ */
+public final class ClosureCompiler
+{
+    /**
+     * Compiled code for an expression of type {@link ValueType#INT}.
+     */
+    @FunctionalInterface
+    private interface IntExpression
+    {
+        int apply(Environment env, Object[] frame) throws EvaluationException;
+    }
+
+    /**
+     * Compiled code for an expression of type {@link ValueType#REAL}.
+     */
+    @FunctionalInterface
+    private interface RealExpression
+    {
+        double apply(Environment env, Object[] frame) throws EvaluationException;
+    }
+
+    /**
+     * Compiled code for an expression of type {@link ValueType#BOOL}.
+     */
+    @FunctionalInterface
+    private interface BoolExpression
+    {
+        boolean apply(Environment env, Object[] frame) throws EvaluationException;
+    }
+
+    /**
+     * Compiled code for an expression of type {@link ValueType#INT} or
+     * {@link ValueType#BOOL} whose ints may overflow. Once one does, the
+     * expression is compiled again to boxed code, which promotes it, and
+     * runs as that from then on. The boxed code is immutable and published
+     * through a volatile field; threads that overflow at once each compile
+     * it, and any of their copies may be kept.
+     */
+    private static final class Guarded implements CompiledExpression
+    {
+        private final SyntaxNode node;             // The expression.
+        private final CompiledExpression typed;    // Its unboxed code.
+        private volatile CompiledExpression boxed; // Its boxed code, once needed.
+
+        /**
+         * Constructs the code for an expression.
+         *
+         * @param node the expression.
+         * @param typed its unboxed code.
+         */
+        Guarded(SyntaxNode node, CompiledExpression typed)
+        {
+            this.node = node;
+            this.typed = typed;
+        }
+
+        /**
+         * Evaluates the expression.
+         *
+         * @param env the environment holding the free names.
+         * @param frame the values of the let-bound names.
+         * @return the value of the expression.
+         * @throws EvaluationException if the evaluation fails.
+         */
+        @Override
+        public Object apply(Environment env, Object[] frame) throws EvaluationException
+        {
+            CompiledExpression code = boxed;
+            if (code == null)
+            {
+                try
+                {
+                    return typed.apply(env, frame);
+                }
+                catch (ArithmeticException ex)
+                {
+                    code = untyped(node);
+                    boxed = code;
+                }
+            }
+            return code.apply(env, frame);
+        }
+    }
+
+    /**
+     * Compiles the tree rooted at {@code root}.
+     *
+     * @param root the root of a resolved tree.
+     * @return the compiled tree.
+     */
+    public static CompiledExpression compile(SyntaxNode root)
+    {
+        if (!(root instanceof ProgNode))
+            return expression(root);
+
+        // Statements run in order; a val binds its value globally.
+        List<SyntaxNode> stmts = ((ProgNode) root).getStatements();
+        CompiledExpression[] code = new CompiledExpression[stmts.size()];
+        for (int i = 0; i < code.length; i++)
+            code[i] = statement(stmts.get(i));
+        return (env, frame) -> {
+            Object last = null;
+            for (CompiledExpression stmt : code)
+                last = stmt.apply(env, frame);
+            return last;
+        };
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Compiles a statement of a program.
+     *
+     * @param stmt the statement.
+     * @return the compiled statement.
+     */
+    private static CompiledExpression statement(SyntaxNode stmt)
+    {
+        if (!(stmt instanceof ValNode))
+            return expression(stmt);
+
+        // A val evaluates to its name.
+        ValNode val = (ValNode) stmt;
+        CompiledExpression expr = expression(val.getExpr());
+        Token id = val.getIdToken();
+        String name = val.getName();
+        return (env, frame) -> {
+            env.updateEnvironment(id, expr.apply(env, frame));
+            return name;
+        };
+    }
+
+    /**
+     * Compiles an expression to code producing a boxed value.
+     *
+     * @param node the expression.
+     * @return the compiled expression.
+     */
+    private static CompiledExpression expression(SyntaxNode node)
+    {
+        ValueType type = node.getType();
+        if (type == ValueType.INT && !(node instanceof TokenNode || node instanceof LetNode))
+        {
+            IntExpression code = ints(node);
+            return new Guarded(node, (env, frame) -> code.apply(env, frame));
+        }
+        if (type == ValueType.REAL && !(node instanceof TokenNode || node instanceof LetNode))
+        {
+            RealExpression code = reals(node);
+            return (env, frame) -> code.apply(env, frame);
+        }
+        if (type == ValueType.BOOL && !(node instanceof TokenNode || node instanceof LetNode))
+        {
+            BoolExpression code = bools(node);
+            return new Guarded(node, (env, frame) -> code.apply(env, frame));
+        }
+        return untyped(node);
+    }
+
+    /**
+     * Compiles an expression to code on boxed values, whatever its type.
+     *
+     * @param node the expression.
+     * @return the compiled expression.
+     */
+    private static CompiledExpression untyped(SyntaxNode node)
+    {
+        if (node instanceof BinOpNode)
+            return binary((BinOpNode) node);
+        if (node instanceof RelOpNode)
+            return relation((RelOpNode) node);
+        if (node instanceof UnaryOpNode)
+            return unary((UnaryOpNode) node);
+        return boxed(node);
+    }
+
+    /**
+     * Compiles a literal or a name.
+     *
+     * @param leaf the token node.
+     * @return the compiled token.
+     */
+    private static CompiledExpression token(TokenNode leaf)
+    {
+        Object literal = leaf.getLiteral();
+        int slot = leaf.getSlot();
+        if (literal != null)
+            return (env, frame) -> literal;
+        if (slot >= 0)
+            return (env, frame) -> frame[slot];
+        if (leaf.getToken().getType() != TokenType.ID)
+            return (env, frame) -> leaf.evaluate(env);
+
+        // The node reports an unbound name.
+        int symbol = leaf.getToken().getSymbol();
+        return (env, frame) -> {
+            Object value = env.lookup(symbol);
+            return value != null ? value : leaf.evaluate(env);
+        };
+    }
+
+    /**
+     * Compiles a binary operator on values of unknown type.
+     *
+     * @param node the operator.
+     * @return the compiled operator.
+     */
+    private static CompiledExpression binary(BinOpNode node)
+    {
+        CompiledExpression left = expression(node.getLeft());
+        CompiledExpression right = expression(node.getRight());
+        switch (node.getOp())
+        {
+        case "+":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                Object rv = right.apply(env, frame);
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return Integers.add((Integer) lv, (Integer) rv);
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv + (Double) rv;
+                return node.applyGeneric(lv, rv);
+            };
+        case "-":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                Object rv = right.apply(env, frame);
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return Integers.subtract((Integer) lv, (Integer) rv);
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv - (Double) rv;
+                return node.applyGeneric(lv, rv);
+            };
+        case "*":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                Object rv = right.apply(env, frame);
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return Integers.multiply((Integer) lv, (Integer) rv);
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv * (Double) rv;
+                return node.applyGeneric(lv, rv);
+            };
+        case "/":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                Object rv = right.apply(env, frame);
+                if (lv instanceof Integer && rv instanceof Integer && (Integer) rv != 0)
+                    return Integers.divide((Integer) lv, (Integer) rv);
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv / (Double) rv;
+                return node.applyGeneric(lv, rv);
+            };
+        case "mod":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                Object rv = right.apply(env, frame);
+                if (lv instanceof Integer && rv instanceof Integer && (Integer) rv != 0)
+                    return (Integer) lv % (Integer) rv;
+                return node.applyGeneric(lv, rv);
+            };
+        case "and":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                if (!Boolean.TRUE.equals(lv))
+                    return node.shortCircuit(lv);
+                Object rv = right.apply(env, frame);
+                if (rv instanceof Boolean)
+                    return rv;
+                return node.applyGeneric(lv, rv);
+            };
+        case "or":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                if (!Boolean.FALSE.equals(lv))
+                    return node.shortCircuit(lv);
+                Object rv = right.apply(env, frame);
+                if (rv instanceof Boolean)
+                    return rv;
+                return node.applyGeneric(lv, rv);
+            };
+        default:
+            return (env, frame) -> node.applyGeneric(left.apply(env, frame), right.apply(env, frame));
+        }
+    }
+
+    /**
+     * Compiles a comparison of values of unknown type.
+     *
+     * @param node the comparison.
+     * @return the compiled comparison.
+     */
+    private static CompiledExpression relation(RelOpNode node)
+    {
+        CompiledExpression left = expression(node.getLeft());
+        CompiledExpression right = expression(node.getRight());
+        switch (node.getOp())
+        {
+        case "<":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                Object rv = right.apply(env, frame);
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return (Integer) lv < (Integer) rv;
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv < (Double) rv;
+                return node.applyGeneric(lv, rv);
+            };
+        case ">":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                Object rv = right.apply(env, frame);
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return (Integer) lv > (Integer) rv;
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv > (Double) rv;
+                return node.applyGeneric(lv, rv);
+            };
+        case "<=":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                Object rv = right.apply(env, frame);
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return (Integer) lv <= (Integer) rv;
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv <= (Double) rv;
+                return node.applyGeneric(lv, rv);
+            };
+        case ">=":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                Object rv = right.apply(env, frame);
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return (Integer) lv >= (Integer) rv;
+                if (lv instanceof Double && rv instanceof Double)
+                    return (Double) lv >= (Double) rv;
+                return node.applyGeneric(lv, rv);
+            };
+        case "=":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                Object rv = right.apply(env, frame);
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return ((Integer) lv).intValue() == (Integer) rv;
+                if (lv instanceof Double && rv instanceof Double)
+                    return ((Double) lv).doubleValue() == (Double) rv;
+                return node.applyGeneric(lv, rv);
+            };
+        case "!=":
+            return (env, frame) -> {
+                Object lv = left.apply(env, frame);
+                Object rv = right.apply(env, frame);
+                if (lv instanceof Integer && rv instanceof Integer)
+                    return ((Integer) lv).intValue() != (Integer) rv;
+                if (lv instanceof Double && rv instanceof Double)
+                    return ((Double) lv).doubleValue() != (Double) rv;
+                return node.applyGeneric(lv, rv);
+            };
+        default:
+            return (env, frame) -> node.applyGeneric(left.apply(env, frame), right.apply(env, frame));
+        }
+    }
+
+    /**
+     * Compiles a unary operator on a value of unknown type.
+     *
+     * @param node the operator.
+     * @return the compiled operator.
+     */
+    private static CompiledExpression unary(UnaryOpNode node)
+    {
+        CompiledExpression operand = expression(node.getOperand());
+        switch (node.getOp())
+        {
+        case "-":
+            return (env, frame) -> {
+                Object v = operand.apply(env, frame);
+                if (v instanceof Integer)
+                    return Integers.negate((Integer) v);
+                if (v instanceof Double)
+                    return -(Double) v;
+                return node.applyGeneric(v);
+            };
+        case "not":
+            return (env, frame) -> {
+                Object v = operand.apply(env, frame);
+                if (v instanceof Boolean)
+                    return !(Boolean) v;
+                return node.applyGeneric(v);
+            };
+        default:
+            return (env, frame) -> node.applyGeneric(operand.apply(env, frame));
+        }
+    }
+
+    /**
+     * Compiles an expression of type {@link ValueType#INT} to unboxed code.
+     *
+     * @param node the expression.
+     * @return the compiled expression.
+     */
+    private static IntExpression ints(SyntaxNode node)
+    {
+        if (node instanceof BinOpNode)
+        {
+            BinOpNode bin = (BinOpNode) node;
+            IntExpression left = ints(bin.getLeft());
+            IntExpression right = ints(bin.getRight());
+            switch (bin.getOp())
+            {
+            case "+":
+                return (env, frame) ->
+                    Math.addExact(left.apply(env, frame), right.apply(env, frame));
+            case "-":
+                return (env, frame) ->
+                    Math.subtractExact(left.apply(env, frame), right.apply(env, frame));
+            case "*":
+                return (env, frame) ->
+                    Math.multiplyExact(left.apply(env, frame), right.apply(env, frame));
+            case "/":
+                return (env, frame) -> {
+                    int L = left.apply(env, frame);
+                    int R = right.apply(env, frame);
+                    return R != 0 ? Integers.divideExact(L, R) : (Integer) bin.apply(L, R);
+                };
+            default:
+                return (env, frame) -> {
+                    int L = left.apply(env, frame);
+                    int R = right.apply(env, frame);
+                    return R != 0 ? L % R : (Integer) bin.apply(L, R);
+                };
+            }
+        }
+        if (node instanceof UnaryOpNode)
+        {
+            IntExpression operand = ints(((UnaryOpNode) node).getOperand());
+            return (env, frame) -> Math.negateExact(operand.apply(env, frame));
+        }
+
+        if (node instanceof LetNode)
+        {
+            LetNode let = (LetNode) node;
+            int slot = let.getSlot();
+            CompiledExpression bound = expression(let.getBoundExpr());
+            IntExpression body = ints(let.getBody());
+            return (env, frame) -> {
+                frame[slot] = bound.apply(env, frame);
+                return body.apply(env, frame);
+            };
+        }
+
+        // Leaves are boxed in the frame or environment anyway.
+        CompiledExpression boxed = boxed(node);
+        return (env, frame) -> Integers.intValue(boxed.apply(env, frame));
+    }
+
+    /**
+     * Compiles an expression of type {@link ValueType#REAL} to unboxed code.
+     *
+     * @param node the expression.
+     * @return the compiled expression.
+     */
+    private static RealExpression reals(SyntaxNode node)
+    {
+        if (node instanceof BinOpNode)
+        {
+            BinOpNode bin = (BinOpNode) node;
+            RealExpression left = reals(bin.getLeft());
+            RealExpression right = reals(bin.getRight());
+            switch (bin.getOp())
+            {
+            case "+":
+                return (env, frame) -> left.apply(env, frame) + right.apply(env, frame);
+            case "-":
+                return (env, frame) -> left.apply(env, frame) - right.apply(env, frame);
+            case "*":
+                return (env, frame) -> left.apply(env, frame) * right.apply(env, frame);
+            default:
+                return (env, frame) -> left.apply(env, frame) / right.apply(env, frame);
+            }
+        }
+        if (node instanceof UnaryOpNode)
+        {
+            RealExpression operand = reals(((UnaryOpNode) node).getOperand());
+            return (env, frame) -> -operand.apply(env, frame);
+        }
+
+        if (node instanceof LetNode)
+        {
+            LetNode let = (LetNode) node;
+            int slot = let.getSlot();
+            CompiledExpression bound = expression(let.getBoundExpr());
+            RealExpression body = reals(let.getBody());
+            return (env, frame) -> {
+                frame[slot] = bound.apply(env, frame);
+                return body.apply(env, frame);
+            };
+        }
+
+        // Leaves are boxed in the frame or environment anyway.
+        CompiledExpression boxed = boxed(node);
+        return (env, frame) -> (Double) boxed.apply(env, frame);
+    }
+
+    /**
+     * Compiles an expression of type {@link ValueType#BOOL} to unboxed code.
+     *
+     * @param node the expression.
+     * @return the compiled expression.
+     */
+    private static BoolExpression bools(SyntaxNode node)
+    {
+        if (node instanceof BinOpNode)
+        {
+            BinOpNode bin = (BinOpNode) node;
+            BoolExpression left = bools(bin.getLeft());
+            BoolExpression right = bools(bin.getRight());
+            if (bin.getOp().equals("and"))
+                return (env, frame) -> left.apply(env, frame) && right.apply(env, frame);
+            return (env, frame) -> left.apply(env, frame) || right.apply(env, frame);
+        }
+        if (node instanceof RelOpNode)
+            return compare((RelOpNode) node);
+        if (node instanceof UnaryOpNode)
+        {
+            BoolExpression operand = bools(((UnaryOpNode) node).getOperand());
+            return (env, frame) -> !operand.apply(env, frame);
+        }
+
+        if (node instanceof LetNode)
+        {
+            LetNode let = (LetNode) node;
+            int slot = let.getSlot();
+            CompiledExpression bound = expression(let.getBoundExpr());
+            BoolExpression body = bools(let.getBody());
+            return (env, frame) -> {
+                frame[slot] = bound.apply(env, frame);
+                return body.apply(env, frame);
+            };
+        }
+
+        // Leaves are boxed in the frame or environment anyway.
+        CompiledExpression boxed = boxed(node);
+        return (env, frame) -> (Boolean) boxed.apply(env, frame);
+    }
+
+    /**
+     * Compiles a comparison whose operands have a static type to unboxed
+     * code.
+     *
+     * @param node the comparison.
+     * @return the compiled comparison.
+     */
+    private static BoolExpression compare(RelOpNode node)
+    {
+        String op = node.getOp();
+        switch (node.getLeft().getType())
+        {
+        case INT:
+        {
+            IntExpression left = ints(node.getLeft());
+            IntExpression right = ints(node.getRight());
+            switch (op)
+            {
+            case "<":
+                return (env, frame) -> left.apply(env, frame) < right.apply(env, frame);
+            case ">":
+                return (env, frame) -> left.apply(env, frame) > right.apply(env, frame);
+            case "<=":
+                return (env, frame) -> left.apply(env, frame) <= right.apply(env, frame);
+            case ">=":
+                return (env, frame) -> left.apply(env, frame) >= right.apply(env, frame);
+            case "=":
+                return (env, frame) -> left.apply(env, frame) == right.apply(env, frame);
+            default:
+                return (env, frame) -> left.apply(env, frame) != right.apply(env, frame);
+            }
+        }
+        case REAL:
+        {
+            RealExpression left = reals(node.getLeft());
+            RealExpression right = reals(node.getRight());
+            switch (op)
+            {
+            case "<":
+                return (env, frame) -> left.apply(env, frame) < right.apply(env, frame);
+            case ">":
+                return (env, frame) -> left.apply(env, frame) > right.apply(env, frame);
+            case "<=":
+                return (env, frame) -> left.apply(env, frame) <= right.apply(env, frame);
+            case ">=":
+                return (env, frame) -> left.apply(env, frame) >= right.apply(env, frame);
+            case "=":
+                return (env, frame) -> left.apply(env, frame) == right.apply(env, frame);
+            default:
+                return (env, frame) -> left.apply(env, frame) != right.apply(env, frame);
+            }
+        }
+        default:
+        {
+            BoolExpression left = bools(node.getLeft());
+            BoolExpression right = bools(node.getRight());
+            if (op.equals("="))
+                return (env, frame) -> left.apply(env, frame) == right.apply(env, frame);
+            return (env, frame) -> left.apply(env, frame) != right.apply(env, frame);
+        }
+        }
+    }
+
+    /**
+     * Compiles a leaf, a let, or a node no other method handles to code
+     * producing a boxed value.
+     *
+     * @param node the node.
+     * @return the compiled node.
+     */
+    private static CompiledExpression boxed(SyntaxNode node)
+    {
+        if (node instanceof TokenNode)
+            return token((TokenNode) node);
+        if (node instanceof LetNode)
+        {
+            LetNode let = (LetNode) node;
+            int slot = let.getSlot();
+            CompiledExpression bound = expression(let.getBoundExpr());
+            CompiledExpression body = expression(let.getBody());
+            return (env, frame) -> {
+                frame[slot] = bound.apply(env, frame);
+                return body.apply(env, frame);
+            };
+        }
+        return (env, frame) -> node.evaluate(env, frame);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package closure;
+
+import ast.EvaluationException;
+import ast.Evaluator;
+import ast.Resolver;
+import ast.StackEvaluator;
+import ast.TypeAnnotator;
+import ast.nodes.SyntaxNode;
+import environment.Environment;
+
+/**
+ * Evaluates a syntax tree by compiling it once with the
+ * {@link ClosureCompiler} and applying the compiled tree to a fresh frame
+ * each time. Compiling is much cheaper than generating a class, and the
+ * compiled tree does none of the per-node decoding and operator dispatch
+ * the nodes repeat on every evaluation. Trees taller than
+ * {@link StackEvaluator#DEPTH_LIMIT} are evaluated by a
+ * {@link StackEvaluator} instead, since compiled trees recurse.
+ * <p>
+ * The last tree compiled is cached, so an instance must not be shared
+ * between threads.
+ *
+ * @author Zach Kissel
+ */
+public class ClosureEvaluator implements Evaluator
+{
+    private final StackEvaluator deep = new StackEvaluator();  // For tall trees.
+
+    private SyntaxNode compiled;        // The root of the last tree compiled.
+    private CompiledExpression code;    // The compiled form of that tree.
+    private int frameSize;              // The frame size of that tree.
+
+    /**
+     * Evaluates the tree rooted at {@code root}.
+     *
+     * @param root the root of the tree to evaluate.
+     * @param env the environment to evaluate the tree in.
+     * @return the value of the tree.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    @Override
+    public Object evaluate(SyntaxNode root, Environment env) throws EvaluationException
+    {
+        if (root.getHeight() > StackEvaluator.DEPTH_LIMIT)
+            return deep.evaluate(root, env);
+
+        if (root != compiled)
+        {
+            frameSize = Resolver.resolve(root);
+            TypeAnnotator.annotate(root);
+            code = ClosureCompiler.compile(root);
+            compiled = root;
+        }
+        return code.apply(env, new Object[frameSize]);
+    }
+}
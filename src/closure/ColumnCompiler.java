@@ -0,0 +1,826 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package closure;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import ast.TypeAnnotator;
+import ast.nodes.BinOpNode;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import ast.nodes.ValueType;
+import lexer.TokenType;
+
+/**
+ * Compiles a resolved syntax tree to code that evaluates it a block of
+ * rows at a time. The free names of the tree are columns of ints, reals or
+ * booleans, and each node of the compiled tree computes its value for
+ * every row of a block in one loop over primitive arrays, with no boxing
+ * and no dispatch per row. Only trees whose every node has a static type,
+ * given the types of the columns, are compiled; the types follow the
+ * rules of the {@link TypeAnnotator}, but the tree itself is not
+ * annotated, so it can be compiled while other threads evaluate it.
+ * <p>
+ * Every operator is applied to every row of a block, so an and or an or
+ * only skips its right operand when its left one decides every row. An
+ * int that overflows or a division by zero in any row fails the whole
+ * block with an {@link ArithmeticException}, and the block must then be
+ * evaluated row by row, which gives each row its own value or error.
+ *
+ * @author Zach Kissel
+ */
+final class ColumnCompiler
+{
+    /**
+     * The rows compiled code is applied to, and the columns of the names
+     * it binds for them.
+     */
+    static final class Block
+    {
+        private final Object[] columns;  // The input columns.
+        private final Object[] frame;    // The columns of the bound names.
+        private int from;                // The first row of the block.
+        private int size;                // The number of rows in the block.
+
+        /**
+         * Constructs a block over a batch of columns.
+         *
+         * @param columns the input columns.
+         * @param frameSize the frame size of the compiled tree.
+         */
+        Block(Object[] columns, int frameSize)
+        {
+            this.columns = columns;
+            this.frame = new Object[frameSize];
+        }
+
+        /**
+         * Moves the block to other rows.
+         *
+         * @param from the first row of the block.
+         * @param size the number of rows in the block.
+         */
+        void moveTo(int from, int size)
+        {
+            this.from = from;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Compiled code for an expression over a block of rows. Each
+     * application returns a new array of the values of the rows, which the
+     * caller owns: an {@code int[]}, {@code double[]} or {@code boolean[]}
+     * for a type of {@link ValueType#INT}, {@link ValueType#REAL} or
+     * {@link ValueType#BOOL}.
+     */
+    @FunctionalInterface
+    interface ColumnExpression
+    {
+        Object apply(Block block);
+    }
+
+    /**
+     * Compiled code and the type of the values it produces.
+     */
+    static final class Typed
+    {
+        final ValueType type;          // The type of the values.
+        final ColumnExpression code;   // The compiled code.
+
+        /**
+         * Pairs compiled code with its type.
+         *
+         * @param type the type of the values.
+         * @param code the compiled code.
+         */
+        Typed(ValueType type, ColumnExpression code)
+        {
+            this.type = type;
+            this.code = code;
+        }
+    }
+
+    private final int[] symbols;        // The symbol id of each column.
+    private final ValueType[] columns;  // The type of each column.
+    private final ValueType[] slots;    // The type of each frame slot in scope.
+    private final HashMap<Integer, Integer> vals = new HashMap<>();  // The frame
+                                        // slot of each val-bound name, keyed on symbol id.
+    private int nextVal;                // The frame slot of the next val.
+
+    /**
+     * Constructs a compiler for a batch of columns.
+     *
+     * @param symbols the symbol id of each column.
+     * @param columns the type of each column.
+     * @param letSlots the number of slots the resolver gave the tree.
+     * @param frameSize the frame size of the tree.
+     */
+    private ColumnCompiler(int[] symbols, ValueType[] columns, int letSlots, int frameSize)
+    {
+        this.symbols = symbols;
+        this.columns = columns;
+        this.slots = new ValueType[frameSize];
+        this.nextVal = letSlots;
+    }
+
+    /**
+     * Gets the frame size a block needs for a tree: a slot for each slot
+     * the resolver gave the tree, and one for each statement, which may be
+     * a val.
+     *
+     * @param root the root of the tree.
+     * @param letSlots the number of slots the resolver gave the tree.
+     * @return the frame size.
+     */
+    static int frameSize(SyntaxNode root, int letSlots)
+    {
+        if (root instanceof ProgNode)
+            return letSlots + ((ProgNode) root).getStatements().size();
+        return letSlots;
+    }
+
+    /**
+     * Compiles the tree rooted at {@code root}, whose free names are the
+     * columns with the given symbol ids.
+     *
+     * @param root the root of a resolved tree.
+     * @param letSlots the number of slots the resolver gave the tree.
+     * @param symbols the symbol id of each column.
+     * @param columns the type of each column.
+     * @return the compiled tree, or null if a node of the tree has no
+     *         static type.
+     */
+    static Typed compile(SyntaxNode root, int letSlots, int[] symbols, ValueType[] columns)
+    {
+        ColumnCompiler compiler = new ColumnCompiler(symbols, columns, letSlots,
+            frameSize(root, letSlots));
+        if (!(root instanceof ProgNode))
+            return compiler.expression(root);
+
+        // A program's value is its last statement's, and a val evaluates
+        // to its name, which is not a column.
+        List<SyntaxNode> stmts = ((ProgNode) root).getStatements();
+        if (stmts.isEmpty() || stmts.get(stmts.size() - 1) instanceof ValNode)
+            return null;
+
+        ColumnExpression[] code = new ColumnExpression[stmts.size()];
+        Typed last = null;
+        for (int i = 0; i < code.length; i++)
+        {
+            last = compiler.statement(stmts.get(i));
+            if (last == null)
+                return null;
+            code[i] = last.code;
+        }
+        return new Typed(last.type, block -> {
+            Object values = null;
+            for (ColumnExpression stmt : code)
+                values = stmt.apply(block);
+            return values;
+        });
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Compiles a statement of a program.
+     *
+     * @param stmt the statement.
+     * @return the compiled statement, or null if it has no static type.
+     */
+    private Typed statement(SyntaxNode stmt)
+    {
+        if (!(stmt instanceof ValNode))
+            return expression(stmt);
+
+        // The val's name is bound from the next statement on.
+        ValNode val = (ValNode) stmt;
+        Typed expr = expression(val.getExpr());
+        if (expr == null)
+            return null;
+        int slot = nextVal++;
+        slots[slot] = expr.type;
+        vals.put(val.getIdToken().getSymbol(), slot);
+        ColumnExpression code = expr.code;
+        return new Typed(expr.type, block -> {
+            block.frame[slot] = code.apply(block);
+            return null;
+        });
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @param node the expression.
+     * @return the compiled expression, or null if it has no static type.
+     */
+    private Typed expression(SyntaxNode node)
+    {
+        if (node instanceof TokenNode)
+            return token((TokenNode) node);
+        if (node instanceof BinOpNode)
+            return binary((BinOpNode) node);
+        if (node instanceof RelOpNode)
+            return relation((RelOpNode) node);
+        if (node instanceof UnaryOpNode)
+            return unary((UnaryOpNode) node);
+        if (node instanceof LetNode)
+            return let((LetNode) node);
+        return null;
+    }
+
+    /**
+     * Compiles a literal or a name.
+     *
+     * @param leaf the token node.
+     * @return the compiled token, or null if it has no static type.
+     */
+    private Typed token(TokenNode leaf)
+    {
+        if (leaf.getToken().getType() != TokenType.ID)
+            return literal(leaf.getLiteral());
+
+        int slot = leaf.getSlot();
+        if (slot < 0)
+            slot = vals.getOrDefault(leaf.getToken().getSymbol(), -1);
+        if (slot >= 0)
+            return bound(slot, slots[slot]);
+
+        int symbol = leaf.getToken().getSymbol();
+        for (int i = 0; i < symbols.length; i++)
+            if (symbols[i] == symbol)
+                return column(i, columns[i]);
+        return null;
+    }
+
+    /**
+     * Compiles a literal.
+     *
+     * @param value the value of the literal.
+     * @return the compiled literal, or null if the value is not an int,
+     *         real or boolean.
+     */
+    private static Typed literal(Object value)
+    {
+        if (value instanceof Integer)
+        {
+            int v = (Integer) value;
+            return new Typed(ValueType.INT, block -> {
+                int[] values = new int[block.size];
+                Arrays.fill(values, v);
+                return values;
+            });
+        }
+        if (value instanceof Double)
+        {
+            double v = (Double) value;
+            return new Typed(ValueType.REAL, block -> {
+                double[] values = new double[block.size];
+                Arrays.fill(values, v);
+                return values;
+            });
+        }
+        if (value instanceof Boolean)
+        {
+            boolean v = (Boolean) value;
+            return new Typed(ValueType.BOOL, block -> {
+                boolean[] values = new boolean[block.size];
+                Arrays.fill(values, v);
+                return values;
+            });
+        }
+        return null;
+    }
+
+    /**
+     * Compiles a name bound by a let or a val.
+     *
+     * @param slot the frame slot of the name.
+     * @param type the type of the name.
+     * @return the compiled name.
+     */
+    private static Typed bound(int slot, ValueType type)
+    {
+        switch (type)
+        {
+        case INT:
+            return new Typed(type, block -> ((int[]) block.frame[slot]).clone());
+        case REAL:
+            return new Typed(type, block -> ((double[]) block.frame[slot]).clone());
+        default:
+            return new Typed(type, block -> ((boolean[]) block.frame[slot]).clone());
+        }
+    }
+
+    /**
+     * Compiles a name bound to a column.
+     *
+     * @param index the index of the column.
+     * @param type the type of the column.
+     * @return the compiled name.
+     */
+    private static Typed column(int index, ValueType type)
+    {
+        switch (type)
+        {
+        case INT:
+            return new Typed(type, block -> Arrays.copyOfRange(
+                (int[]) block.columns[index], block.from, block.from + block.size));
+        case REAL:
+            return new Typed(type, block -> Arrays.copyOfRange(
+                (double[]) block.columns[index], block.from, block.from + block.size));
+        default:
+            return new Typed(type, block -> Arrays.copyOfRange(
+                (boolean[]) block.columns[index], block.from, block.from + block.size));
+        }
+    }
+
+    /**
+     * Compiles a let. The bound expression is outside the scope of its
+     * own name.
+     *
+     * @param let the let.
+     * @return the compiled let, or null if it has no static type.
+     */
+    private Typed let(LetNode let)
+    {
+        Typed bound = expression(let.getBoundExpr());
+        if (bound == null)
+            return null;
+
+        int slot = let.getSlot();
+        ValueType hidden = slots[slot];
+        slots[slot] = bound.type;
+        Typed body = expression(let.getBody());
+        slots[slot] = hidden;
+        if (body == null)
+            return null;
+
+        ColumnExpression value = bound.code;
+        ColumnExpression code = body.code;
+        return new Typed(body.type, block -> {
+            block.frame[slot] = value.apply(block);
+            return code.apply(block);
+        });
+    }
+
+    /**
+     * Compiles a binary operator.
+     *
+     * @param node the operator.
+     * @return the compiled operator, or null if it has no static type.
+     */
+    private Typed binary(BinOpNode node)
+    {
+        Typed left = expression(node.getLeft());
+        Typed right = expression(node.getRight());
+        if (left == null || right == null)
+            return null;
+        ValueType type = TypeAnnotator.binaryType(node.getOp(), left.type, right.type);
+        if (type == null)
+            return null;
+
+        switch (type)
+        {
+        case INT:
+            return new Typed(type, ints(node.getOp(), left.code, right.code));
+        case REAL:
+            return new Typed(type, reals(node.getOp(), left.code, right.code));
+        default:
+            return new Typed(type, logic(node.getOp(), left.code, right.code));
+        }
+    }
+
+    /**
+     * Compiles an arithmetic operator on ints. Each loop notes whether any
+     * row overflowed, rather than branching on every row.
+     *
+     * @param op the operator.
+     * @param left the left operand.
+     * @param right the right operand.
+     * @return the compiled operator.
+     */
+    private static ColumnExpression ints(String op, ColumnExpression left,
+        ColumnExpression right)
+    {
+        switch (op)
+        {
+        case "+":
+            return block -> {
+                int[] l = (int[]) left.apply(block);
+                int[] r = (int[]) right.apply(block);
+                int overflow = 0;
+                for (int i = 0; i < l.length; i++)
+                {
+                    int sum = l[i] + r[i];
+                    overflow |= (l[i] ^ sum) & (r[i] ^ sum);
+                    l[i] = sum;
+                }
+                return checked(l, overflow < 0);
+            };
+        case "-":
+            return block -> {
+                int[] l = (int[]) left.apply(block);
+                int[] r = (int[]) right.apply(block);
+                int overflow = 0;
+                for (int i = 0; i < l.length; i++)
+                {
+                    int difference = l[i] - r[i];
+                    overflow |= (l[i] ^ r[i]) & (l[i] ^ difference);
+                    l[i] = difference;
+                }
+                return checked(l, overflow < 0);
+            };
+        case "*":
+            return block -> {
+                int[] l = (int[]) left.apply(block);
+                int[] r = (int[]) right.apply(block);
+                long overflow = 0;
+                for (int i = 0; i < l.length; i++)
+                {
+                    long product = (long) l[i] * r[i];
+                    overflow |= (product >> 31) ^ (product >> 63);
+                    l[i] = (int) product;
+                }
+                return checked(l, overflow != 0);
+            };
+        case "/":
+            return block -> {
+                int[] l = (int[]) left.apply(block);
+                int[] r = (int[]) right.apply(block);
+                for (int i = 0; i < l.length; i++)
+                {
+                    if (r[i] == 0 || r[i] == -1 && l[i] == Integer.MIN_VALUE)
+                        throw new ArithmeticException("division by zero or overflow");
+                    l[i] /= r[i];
+                }
+                return l;
+            };
+        default:
+            return block -> {
+                int[] l = (int[]) left.apply(block);
+                int[] r = (int[]) right.apply(block);
+                for (int i = 0; i < l.length; i++)
+                {
+                    if (r[i] == 0)
+                        throw new ArithmeticException("division by zero");
+                    l[i] %= r[i];
+                }
+                return l;
+            };
+        }
+    }
+
+    /**
+     * Compiles an arithmetic operator on reals.
+     *
+     * @param op the operator.
+     * @param left the left operand.
+     * @param right the right operand.
+     * @return the compiled operator.
+     */
+    private static ColumnExpression reals(String op, ColumnExpression left,
+        ColumnExpression right)
+    {
+        switch (op)
+        {
+        case "+":
+            return block -> {
+                double[] l = (double[]) left.apply(block);
+                double[] r = (double[]) right.apply(block);
+                for (int i = 0; i < l.length; i++)
+                    l[i] += r[i];
+                return l;
+            };
+        case "-":
+            return block -> {
+                double[] l = (double[]) left.apply(block);
+                double[] r = (double[]) right.apply(block);
+                for (int i = 0; i < l.length; i++)
+                    l[i] -= r[i];
+                return l;
+            };
+        case "*":
+            return block -> {
+                double[] l = (double[]) left.apply(block);
+                double[] r = (double[]) right.apply(block);
+                for (int i = 0; i < l.length; i++)
+                    l[i] *= r[i];
+                return l;
+            };
+        default:
+            return block -> {
+                double[] l = (double[]) left.apply(block);
+                double[] r = (double[]) right.apply(block);
+                for (int i = 0; i < l.length; i++)
+                    l[i] /= r[i];
+                return l;
+            };
+        }
+    }
+
+    /**
+     * Compiles an and or an or. The right operand is skipped when the left
+     * one decides every row, as it would be on each row alone.
+     *
+     * @param op the operator.
+     * @param left the left operand.
+     * @param right the right operand.
+     * @return the compiled operator.
+     */
+    private static ColumnExpression logic(String op, ColumnExpression left,
+        ColumnExpression right)
+    {
+        boolean decides = !op.equals("and");  // The value that decides a row.
+        return block -> {
+            boolean[] l = (boolean[]) left.apply(block);
+            boolean open = false;
+            for (int i = 0; i < l.length; i++)
+                open |= l[i] != decides;
+            if (!open)
+                return l;
+
+            boolean[] r = (boolean[]) right.apply(block);
+            if (decides)
+                for (int i = 0; i < l.length; i++)
+                    l[i] |= r[i];
+            else
+                for (int i = 0; i < l.length; i++)
+                    l[i] &= r[i];
+            return l;
+        };
+    }
+
+    /**
+     * Compiles a relational operator.
+     *
+     * @param node the operator.
+     * @return the compiled operator, or null if it has no static type.
+     */
+    private Typed relation(RelOpNode node)
+    {
+        Typed left = expression(node.getLeft());
+        Typed right = expression(node.getRight());
+        if (left == null || right == null)
+            return null;
+        ValueType type = TypeAnnotator.relationType(node.getOp(), left.type, right.type);
+        if (type == null)
+            return null;
+
+        switch (left.type)
+        {
+        case INT:
+            return new Typed(type, compareInts(node.getOp(), left.code, right.code));
+        case REAL:
+            return new Typed(type, compareReals(node.getOp(), left.code, right.code));
+        default:
+            return new Typed(type, compareBools(node.getOp(), left.code, right.code));
+        }
+    }
+
+    /**
+     * Compiles a comparison of ints.
+     *
+     * @param op the operator.
+     * @param left the left operand.
+     * @param right the right operand.
+     * @return the compiled comparison.
+     */
+    private static ColumnExpression compareInts(String op, ColumnExpression left,
+        ColumnExpression right)
+    {
+        switch (op)
+        {
+        case "<":
+            return block -> {
+                int[] l = (int[]) left.apply(block);
+                int[] r = (int[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] < r[i];
+                return values;
+            };
+        case ">":
+            return block -> {
+                int[] l = (int[]) left.apply(block);
+                int[] r = (int[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] > r[i];
+                return values;
+            };
+        case "<=":
+            return block -> {
+                int[] l = (int[]) left.apply(block);
+                int[] r = (int[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] <= r[i];
+                return values;
+            };
+        case ">=":
+            return block -> {
+                int[] l = (int[]) left.apply(block);
+                int[] r = (int[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] >= r[i];
+                return values;
+            };
+        case "=":
+            return block -> {
+                int[] l = (int[]) left.apply(block);
+                int[] r = (int[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] == r[i];
+                return values;
+            };
+        default:
+            return block -> {
+                int[] l = (int[]) left.apply(block);
+                int[] r = (int[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] != r[i];
+                return values;
+            };
+        }
+    }
+
+    /**
+     * Compiles a comparison of reals.
+     *
+     * @param op the operator.
+     * @param left the left operand.
+     * @param right the right operand.
+     * @return the compiled comparison.
+     */
+    private static ColumnExpression compareReals(String op, ColumnExpression left,
+        ColumnExpression right)
+    {
+        switch (op)
+        {
+        case "<":
+            return block -> {
+                double[] l = (double[]) left.apply(block);
+                double[] r = (double[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] < r[i];
+                return values;
+            };
+        case ">":
+            return block -> {
+                double[] l = (double[]) left.apply(block);
+                double[] r = (double[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] > r[i];
+                return values;
+            };
+        case "<=":
+            return block -> {
+                double[] l = (double[]) left.apply(block);
+                double[] r = (double[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] <= r[i];
+                return values;
+            };
+        case ">=":
+            return block -> {
+                double[] l = (double[]) left.apply(block);
+                double[] r = (double[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] >= r[i];
+                return values;
+            };
+        case "=":
+            return block -> {
+                double[] l = (double[]) left.apply(block);
+                double[] r = (double[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] == r[i];
+                return values;
+            };
+        default:
+            return block -> {
+                double[] l = (double[]) left.apply(block);
+                double[] r = (double[]) right.apply(block);
+                boolean[] values = new boolean[l.length];
+                for (int i = 0; i < l.length; i++)
+                    values[i] = l[i] != r[i];
+                return values;
+            };
+        }
+    }
+
+    /**
+     * Compiles a comparison of booleans, which is either = or !=.
+     *
+     * @param op the operator.
+     * @param left the left operand.
+     * @param right the right operand.
+     * @return the compiled comparison.
+     */
+    private static ColumnExpression compareBools(String op, ColumnExpression left,
+        ColumnExpression right)
+    {
+        boolean equal = op.equals("=");
+        return block -> {
+            boolean[] l = (boolean[]) left.apply(block);
+            boolean[] r = (boolean[]) right.apply(block);
+            for (int i = 0; i < l.length; i++)
+                l[i] = (l[i] == r[i]) == equal;
+            return l;
+        };
+    }
+
+    /**
+     * Compiles a unary operator.
+     *
+     * @param node the operator.
+     * @return the compiled operator, or null if it has no static type.
+     */
+    private Typed unary(UnaryOpNode node)
+    {
+        Typed operand = expression(node.getOperand());
+        if (operand == null)
+            return null;
+        ValueType type = TypeAnnotator.unaryType(node.getOp(), operand.type);
+        if (type == null)
+            return null;
+
+        ColumnExpression code = operand.code;
+        switch (type)
+        {
+        case INT:
+            return new Typed(type, block -> {
+                int[] values = (int[]) code.apply(block);
+                int overflow = 0;
+                for (int i = 0; i < values.length; i++)
+                {
+                    overflow |= values[i] & -values[i];
+                    values[i] = -values[i];
+                }
+                return checked(values, overflow < 0);
+            });
+        case REAL:
+            return new Typed(type, block -> {
+                double[] values = (double[]) code.apply(block);
+                for (int i = 0; i < values.length; i++)
+                    values[i] = -values[i];
+                return values;
+            });
+        default:
+            return new Typed(type, block -> {
+                boolean[] values = (boolean[]) code.apply(block);
+                for (int i = 0; i < values.length; i++)
+                    values[i] = !values[i];
+                return values;
+            });
+        }
+    }
+
+    /**
+     * Fails a block in which an int overflowed.
+     *
+     * @param values the values of the block.
+     * @param overflowed whether an int overflowed.
+     * @return {@code values}.
+     * @throws ArithmeticException if an int overflowed.
+     */
+    private static int[] checked(int[] values, boolean overflowed)
+    {
+        if (overflowed)
+            throw new ArithmeticException("integer overflow");
+        return values;
+    }
+}
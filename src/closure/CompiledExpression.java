@@ -0,0 +1,46 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package closure;
+
+import ast.EvaluationException;
+import environment.Environment;
+
+/**
+ * A syntax tree compiled by the {@link ClosureCompiler}. Each node of the
+ * tree becomes one compiled expression specialized to its operator, with
+ * its children's compiled expressions captured as final fields, so
+ * evaluating one is a chain of calls HotSpot can inline. Compiled
+ * expressions are immutable, except that unboxed code replaces itself with
+ * boxed code once an int in it overflows; everything that changes from one
+ * evaluation to the next is in the arguments.
+ *
+ * @author Zach Kissel
+ */
+@FunctionalInterface
+public interface CompiledExpression
+{
+    /**
+     * Evaluates the expression.
+     *
+     * @param env the environment holding the free names.
+     * @param frame the values of the let-bound names, indexed by the slots
+     *        the {@link ast.Resolver} assigned.
+     * @return the value of the expression.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    Object apply(Environment env, Object[] frame) throws EvaluationException;
+}
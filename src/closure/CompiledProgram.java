@@ -0,0 +1,284 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package closure;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import ast.EvaluationException;
+import ast.Resolver;
+import ast.StackEvaluator;
+import ast.TypeAnnotator;
+import ast.nodes.Integers;
+import ast.nodes.SyntaxNode;
+import ast.nodes.ValueType;
+import environment.Environment;
+import lexer.SymbolTable;
+
+/**
+ * A program compiled once and evaluated any number of times, by any number
+ * of threads at once. Each evaluation gets its own environment, built from
+ * the bindings it is given, and its own frame, so evaluations of compiled
+ * code share nothing but the code and take no locks. Values bound by {@code val} are
+ * local to the evaluation that binds them.
+ * <p>
+ * Types and slots are fixed on the tree before it is compiled and the
+ * compiled code only reads them: it applies operators through their
+ * generic paths, which leave the nodes unspecialized, and evaluates no
+ * operator node itself. The one thing an evaluation writes that others see is the
+ * boxed code of an expression whose ints overflow, which is immutable and
+ * published through a volatile field (see {@link ClosureCompiler}). A tree
+ * too tall to compile is evaluated node by node, which specializes its
+ * operators and may drop their types, so such evaluations take turns.
+ *
+ * @author Zach Kissel
+ */
+public final class CompiledProgram
+{
+    private final SyntaxNode root;          // The root of the program.
+    private final CompiledExpression code;  // The compiled program, or null
+                                            // if it is too tall to compile.
+    private final int frameSize;            // The frame size of the program.
+
+    /**
+     * Compiles the program rooted at {@code root}. The program takes over
+     * the tree, which must not be evaluated or changed anywhere else.
+     * Trees taller than {@link StackEvaluator#DEPTH_LIMIT} are not compiled
+     * and are evaluated by a fresh {@link StackEvaluator} each time, one
+     * evaluation at a time.
+     *
+     * @param root the root of the program.
+     */
+    public CompiledProgram(SyntaxNode root)
+    {
+        this.root = root;
+        if (root.getHeight() > StackEvaluator.DEPTH_LIMIT)
+        {
+            this.code = null;
+            this.frameSize = 0;
+        }
+        else
+        {
+            this.frameSize = Resolver.resolve(root);
+            TypeAnnotator.annotate(root);
+            this.code = ClosureCompiler.compile(root);
+        }
+    }
+
+    /**
+     * Evaluates the program with the names in {@code bindings} bound to
+     * their values. The values must be {@link Integer}, {@link Long},
+     * {@link BigInteger}, {@link Double} or {@link Boolean}.
+     *
+     * @param bindings the values of the free names of the program.
+     * @return the value of the program.
+     * @throws EvaluationException if the evaluation fails.
+     * @throws IllegalArgumentException if a binding is not an MFL value.
+     */
+    public Object evaluate(Map<String, ?> bindings) throws EvaluationException
+    {
+        Environment env = new Environment();
+        for (Map.Entry<String, ?> binding : bindings.entrySet())
+            env.updateEnvironment(binding.getKey(), value(binding));
+        return evaluate(env);
+    }
+
+    /**
+     * Evaluates the program on the common fork-join pool.
+     *
+     * @param bindings the values of the free names of the program.
+     * @return a future for the value of the program, which completes
+     *         exceptionally with the {@link EvaluationException} if the
+     *         evaluation fails.
+     * @see #evaluate(Map)
+     */
+    public CompletableFuture<Object> evaluateAsync(Map<String, ?> bindings)
+    {
+        return CompletableFuture.supplyAsync(() -> join(bindings));
+    }
+
+    /**
+     * Evaluates the program on {@code executor}, which may run its tasks on
+     * platform or virtual threads.
+     *
+     * @param bindings the values of the free names of the program.
+     * @param executor where to evaluate the program.
+     * @return a future for the value of the program, which completes
+     *         exceptionally with the {@link EvaluationException} if the
+     *         evaluation fails.
+     * @see #evaluate(Map)
+     */
+    public CompletableFuture<Object> evaluateAsync(Map<String, ?> bindings,
+        Executor executor)
+    {
+        return CompletableFuture.supplyAsync(() -> join(bindings), executor);
+    }
+
+    /**
+     * Evaluates the program once for each row of a batch of columns, on
+     * the common fork-join pool.
+     *
+     * @param columns the columns of the free names of the program.
+     * @return the column of values of the program.
+     * @throws EvaluationException if a row fails; the first row to fail
+     *         is reported.
+     * @throws IllegalArgumentException if the columns are not valid.
+     * @see #evaluateBatch(Map, ForkJoinPool)
+     */
+    public Object evaluateBatch(Map<String, ?> columns) throws EvaluationException
+    {
+        return evaluateBatch(columns, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Evaluates the program once for each row of a batch of columns, each
+     * row binding the names of the columns to its values in them. Rather
+     * than evaluating each row alone, the program is compiled for the types
+     * of the columns and evaluated a block of rows at a time, each operator
+     * in one loop over the block, with large batches split across
+     * {@code pool}. The values of the program are returned as a column: an
+     * {@code int[]}, {@code double[]} or {@code boolean[]} if the program
+     * has a static type, and an {@code Object[]} if it does not, or if a
+     * value does not fit the type, like an int promoted to a
+     * {@link BigInteger}. Each value is the value {@link #evaluate(Map)}
+     * gives for the row.
+     *
+     * @param columns the columns of the free names of the program.
+     * @param pool the pool to evaluate large batches on.
+     * @return the column of values of the program.
+     * @throws EvaluationException if a row fails; the first row to fail
+     *         is reported.
+     * @throws IllegalArgumentException if there are no columns, the columns
+     *         are not all of the same length, or one is not an
+     *         {@code int[]}, {@code double[]} or {@code boolean[]}.
+     */
+    public Object evaluateBatch(Map<String, ?> columns, ForkJoinPool pool)
+        throws EvaluationException
+    {
+        int[] symbols = new int[columns.size()];
+        Object[] arrays = new Object[symbols.length];
+        ValueType[] types = new ValueType[symbols.length];
+        int rows = -1;
+        int i = 0;
+        for (Map.Entry<String, ?> column : columns.entrySet())
+        {
+            Object array = column.getValue();
+            int length;
+            if (array instanceof int[])
+            {
+                types[i] = ValueType.INT;
+                length = ((int[]) array).length;
+            }
+            else if (array instanceof double[])
+            {
+                types[i] = ValueType.REAL;
+                length = ((double[]) array).length;
+            }
+            else if (array instanceof boolean[])
+            {
+                types[i] = ValueType.BOOL;
+                length = ((boolean[]) array).length;
+            }
+            else
+                throw new IllegalArgumentException("column " + column.getKey()
+                    + " is not an int[], double[] or boolean[]");
+            if (rows >= 0 && length != rows)
+                throw new IllegalArgumentException("column " + column.getKey()
+                    + " has " + length + " rows, not " + rows);
+
+            rows = length;
+            symbols[i] = SymbolTable.intern(column.getKey());
+            arrays[i++] = array;
+        }
+        if (rows < 0)
+            throw new IllegalArgumentException("a batch needs at least one column");
+
+        // Trees too tall to compile are evaluated row by row.
+        ColumnCompiler.Typed batch = code == null ? null
+            : ColumnCompiler.compile(root, frameSize, symbols, types);
+        return new Batch(this, symbols, arrays, rows, batch,
+            ColumnCompiler.frameSize(root, frameSize)).evaluate(pool);
+    }
+
+    /**
+     * Evaluates the program in an environment of its own.
+     *
+     * @param env the environment holding the free names.
+     * @return the value of the program.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    Object evaluate(Environment env) throws EvaluationException
+    {
+        if (code == null)
+        {
+            synchronized (root)
+            {
+                return new StackEvaluator().evaluate(root, env);
+            }
+        }
+        return code.apply(env, new Object[frameSize]);
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Evaluates the program for a future.
+     *
+     * @param bindings the values of the free names of the program.
+     * @return the value of the program.
+     * @throws CompletionException wrapping the error if the evaluation fails.
+     */
+    private Object join(Map<String, ?> bindings)
+    {
+        try
+        {
+            return evaluate(bindings);
+        }
+        catch (EvaluationException ex)
+        {
+            throw new CompletionException(ex);
+        }
+    }
+
+    /**
+     * Converts a binding to the value the evaluators expect. Integers are
+     * held as an {@link Integer} whenever they fit in one.
+     *
+     * @param binding the binding.
+     * @return the value of the binding.
+     * @throws IllegalArgumentException if the value is not an MFL value.
+     */
+    private static Object value(Map.Entry<String, ?> binding)
+    {
+        Object value = binding.getValue();
+        if (value instanceof Integer || value instanceof Double
+            || value instanceof Boolean)
+            return value;
+        if (value instanceof Long)
+            return Integers.valueOf((Long) value);
+        if (value instanceof BigInteger)
+            return Integers.valueOf((BigInteger) value);
+        throw new IllegalArgumentException("binding of " + binding.getKey()
+            + " is not an MFL value: " + value);
+    }
+}
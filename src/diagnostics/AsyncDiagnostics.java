@@ -0,0 +1,292 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package diagnostics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Diagnostics written by a background thread. A line is put in a ring
+ * buffer, which takes no I/O, and the thread drains the buffer in batches
+ * to a buffered writer. If the buffer fills, writers wait for room, so no
+ * line is lost. Any number of threads may write at once.
+ *
+ * @author Zach Kissel
+ */
+public final class AsyncDiagnostics implements Diagnostics
+{
+    /**
+     * The default number of lines the buffer holds.
+     */
+    public static final int CAPACITY = 8192;
+
+    private final String[] ring;    // The lines waiting; the length is a power of two.
+    private final int mask;         // The length of the ring less one.
+    private long head;              // The number of lines taken by the drainer.
+    private long tail;              // The number of lines put in the ring.
+    private long done;              // The number of lines written out.
+    private boolean closed;         // True once close has been called.
+    private IOException error;      // The first write that failed, if any.
+
+    private final Writer out;       // Where the lines go.
+    private final boolean owned;    // True if the writer is closed on close.
+    private final Thread drainer;   // Writes the lines out.
+
+    /**
+     * Constructs diagnostics written to a stream, such as
+     * {@code System.out}. The stream is flushed but not closed by
+     * {@link #close()}.
+     *
+     * @param out the stream.
+     */
+    public AsyncDiagnostics(OutputStream out)
+    {
+        this(new OutputStreamWriter(out), CAPACITY, false);
+    }
+
+    /**
+     * Constructs diagnostics written to a file, which is replaced.
+     *
+     * @param file the file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public AsyncDiagnostics(File file) throws IOException
+    {
+        this(Files.newBufferedWriter(file.toPath()), CAPACITY, true);
+    }
+
+    /**
+     * Constructs diagnostics written to a writer, which is closed by
+     * {@link #close()}.
+     *
+     * @param out the writer.
+     * @param capacity the least number of lines the buffer holds.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public AsyncDiagnostics(Writer out, int capacity)
+    {
+        this(out, capacity, true);
+    }
+
+    /**
+     * Constructs diagnostics and starts the background thread.
+     *
+     * @param out the writer.
+     * @param capacity the least number of lines the buffer holds.
+     * @param owned true if the writer is closed on close.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    private AsyncDiagnostics(Writer out, int capacity, boolean owned)
+    {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Bad capacity: " + capacity);
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.ring = new String[size];
+        this.mask = size - 1;
+        this.out = new BufferedWriter(out, 1 << 16);
+        this.owned = owned;
+        this.drainer = new Thread(this::drain, "mfl-diagnostics");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Writes a line, waiting if the buffer is full. A line written after
+     * {@link #close()} is discarded.
+     *
+     * @param line the line.
+     */
+    @Override
+    public synchronized void println(String line)
+    {
+        try
+        {
+            while (tail - head == ring.length && !closed)
+                wait();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (closed)
+            return;
+
+        ring[(int) tail++ & mask] = line;
+        if (tail - head == 1)
+            notifyAll();  // The drainer may be waiting for a line.
+    }
+
+    /**
+     * Waits until every line written so far has been written out.
+     */
+    @Override
+    public synchronized void flush()
+    {
+        long target = tail;
+        try
+        {
+            while (done < target)
+                wait();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes out every line written so far, stops the background thread,
+     * and closes the writer if this owns it.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this)
+        {
+            if (closed)
+                return;
+            closed = true;
+            notifyAll();
+        }
+
+        try
+        {
+            drainer.join();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        try
+        {
+            if (owned)
+                out.close();
+            else
+                out.flush();
+        }
+        catch (IOException ex)
+        {
+            fail(ex);
+        }
+    }
+
+    /**
+     * Determines whether writing a line out has failed. Lines are discarded
+     * after a failure.
+     *
+     * @return true if a write failed; otherwise, false.
+     */
+    public synchronized boolean checkError()
+    {
+        return error != null;
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Takes lines from the ring in batches and writes them out, until
+     * closed and empty.
+     */
+    private void drain()
+    {
+        String[] batch = new String[ring.length];
+        while (true)
+        {
+            int count;
+            synchronized (this)
+            {
+                try
+                {
+                    while (head == tail && !closed)
+                        wait();
+                }
+                catch (InterruptedException ex)
+                {
+                    return;
+                }
+                if (head == tail)
+                    return;
+
+                count = (int) (tail - head);
+                for (int i = 0; i < count; i++)
+                {
+                    int at = (int) head++ & mask;
+                    batch[i] = ring[at];
+                    ring[at] = null;
+                }
+                notifyAll();  // Writers may be waiting for room.
+            }
+
+            write(batch, count);
+
+            synchronized (this)
+            {
+                done += count;
+                notifyAll();  // Flushes may be waiting for the lines.
+            }
+        }
+    }
+
+    /**
+     * Writes a batch of lines out and flushes them, unless a write has
+     * already failed.
+     *
+     * @param batch the lines.
+     * @param count the number of lines.
+     */
+    private void write(String[] batch, int count)
+    {
+        try
+        {
+            if (!checkError())
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    out.write(batch[i]);
+                    out.write(System.lineSeparator());
+                }
+                out.flush();
+            }
+        }
+        catch (IOException ex)
+        {
+            fail(ex);
+        }
+        Arrays.fill(batch, 0, count, null);
+    }
+
+    /**
+     * Records a failed write.
+     *
+     * @param ex the failure.
+     */
+    private synchronized void fail(IOException ex)
+    {
+        if (error == null)
+            error = ex;
+    }
+}
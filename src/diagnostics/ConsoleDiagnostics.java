@@ -0,0 +1,37 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package diagnostics;
+
+/**
+ * Diagnostics written straight to the console. The stream is looked up on
+ * each line, so output follows {@code System.setOut}.
+ *
+ * @author Zach Kissel
+ */
+final class ConsoleDiagnostics implements Diagnostics
+{
+    /**
+     * Prints a line to {@code System.out}.
+     *
+     * @param line the line.
+     */
+    @Override
+    public void println(String line)
+    {
+        System.out.println(line);
+    }
+}
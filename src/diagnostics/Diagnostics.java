@@ -0,0 +1,76 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package diagnostics;
+
+/**
+ * Where the interpreter writes its diagnostic output: parser traces, syntax
+ * trees, and error reports. Output goes a line at a time, and a line need
+ * not reach its destination until {@link #flush()} or {@link #close()}.
+ * <p>
+ * Callers that build a line only to write it should check
+ * {@link #isEnabled()} first, so that with {@link #NONE} nothing is built.
+ * A call site that only ever sees {@code NONE} is inlined by the JIT to
+ * nothing.
+ *
+ * @author Zach Kissel
+ */
+public interface Diagnostics extends AutoCloseable
+{
+    /**
+     * Discards everything.
+     */
+    Diagnostics NONE = new NullDiagnostics();
+
+    /**
+     * Writes each line to {@code System.out} as it comes, which is the
+     * default.
+     */
+    Diagnostics CONSOLE = new ConsoleDiagnostics();
+
+    /**
+     * Writes a line.
+     *
+     * @param line the line, without its line separator.
+     */
+    void println(String line);
+
+    /**
+     * Determines whether lines are written anywhere.
+     *
+     * @return false if lines are discarded; otherwise, true.
+     */
+    default boolean isEnabled()
+    {
+        return true;
+    }
+
+    /**
+     * Waits until every line written so far has reached its destination.
+     */
+    default void flush()
+    {
+    }
+
+    /**
+     * Flushes the lines written and releases any resources held. Lines
+     * written afterwards are discarded.
+     */
+    @Override
+    default void close()
+    {
+    }
+}
@@ -1,24 +1,54 @@
 package environment;
 
-import java.util.HashMap;
-
+import lexer.SymbolTable;
 import lexer.Token;
 
 /**
- * A simple representation of an executional environment.
+ * A simple representation of an executional environment. Bindings are keyed
+ * on the symbol id of the name (see {@link SymbolTable}) and stored in a
+ * persistent trie: a 32-way tree indexed by successive 5-bit groups of the
+ * id, so a lookup is one array load per level, and ids below 32768 need at
+ * most three levels.
+ * <p>
+ * Copies share the whole trie, so {@link #copy()} takes constant time no
+ * matter how many names are bound. An update copies only the nodes on the
+ * path to the binding it changes, and only if they are shared: each node
+ * records the environment that created it, and an environment changes its
+ * own nodes in place until it is copied.
  * 
  * @author Zach Kissel
  */
 public class Environment
 {
-    private final HashMap<String, Object> env;
+    private static final int BITS = 5;                // Bits of the id per level.
+    private static final int WIDTH = 1 << BITS;       // Children per node.
+    private static final int MASK = WIDTH - 1;        // Selects a child index.
+
+    private Object[] root;  // The root of the trie.
+    private int shift;      // The id bits below the root's child index.
+    private Object owner;   // Marks the nodes this environment may change.
 
     /**
      * Sets up the initial environment.
      */
     public Environment()
     {
-        env = new HashMap<>();
+        this.owner = new Object();
+        this.root = node();
+        this.shift = 0;
+    }
+
+    /**
+     * Sets up an environment sharing an existing trie of bindings.
+     *
+     * @param root the root of the trie.
+     * @param shift the id bits below the root's child index.
+     */
+    private Environment(Object[] root, int shift)
+    {
+        this.owner = new Object();
+        this.root = root;
+        this.shift = shift;
     }
 
     /**
@@ -29,7 +59,28 @@ public class Environment
      */
     public Object lookup(Token tok)
     {
-        return env.get(tok.getValue());
+        return lookup(tok.getSymbol());
+    }
+
+    /**
+     * Returns the environment value associated with a symbol.
+     *
+     * @param symbol the symbol id of the name to look up.
+     * @return the value of the name in the environment, or null if not present.
+     */
+    public Object lookup(int symbol)
+    {
+        if (symbol < 0 || (symbol >>> shift) >= WIDTH)
+            return null;
+
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS)
+        {
+            node = (Object[]) node[(symbol >>> level) & MASK];
+            if (node == null)
+                return null;
+        }
+        return node[symbol & MASK];
     }
 
     /**
@@ -40,12 +91,7 @@ public class Environment
      */
     public void updateEnvironment(Token tok, Object val)
     {
-        String key = tok.getValue();
-        if (env.containsKey(key)) {
-            env.replace(key, val);
-        } else {
-            env.put(key, val);
-        }
+        updateEnvironment(tok.getSymbol(), val);
     }
 
     /**
@@ -56,22 +102,85 @@ public class Environment
      */
     public void updateEnvironment(String name, Object value)
     {
-        if (env.containsKey(name)) {
-            env.replace(name, value);
-        } else {
-            env.put(name, value);
+        updateEnvironment(SymbolTable.intern(name), value);
+    }
+
+    /**
+     * Update the environment such that the name with symbol id 
+     * {@code symbol} has the given value {@code value}. Copies of this
+     * environment are not affected.
+     *
+     * @param symbol the symbol id of the name.
+     * @param value the value to associate with the name.
+     * @throws IllegalArgumentException if {@code symbol} is negative.
+     */
+    public void updateEnvironment(int symbol, Object value)
+    {
+        if (symbol < 0)
+            throw new IllegalArgumentException("invalid symbol id " + symbol);
+
+        // Add levels above the root until the id fits.
+        while ((symbol >>> shift) >= WIDTH)
+        {
+            Object[] top = node();
+            top[0] = root;
+            root = top;
+            shift += BITS;
         }
+
+        Object[] node = root = editable(root);
+        for (int level = shift; level > 0; level -= BITS)
+        {
+            int i = (symbol >>> level) & MASK;
+            Object[] child = (Object[]) node[i];
+            child = child == null ? node() : editable(child);
+            node[i] = child;
+            node = child;
+        }
+        node[symbol & MASK] = value;
     }
 
     /**
-     * Makes a copy of the current environment.
+     * Makes a copy of the current environment. The copy shares every node
+     * with this environment, and neither changes them afterwards.
      *
      * @return a copy of the environment.
      */
     public Environment copy()
     {
-        Environment newEnv = new Environment();
-        newEnv.env.putAll(this.env);
-        return newEnv;
+        owner = new Object();
+        return new Environment(root, shift);
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Makes an empty node owned by this environment. The owner is kept in
+     * the slot after the last child.
+     *
+     * @return the new node.
+     */
+    private Object[] node()
+    {
+        Object[] node = new Object[WIDTH + 1];
+        node[WIDTH] = owner;
+        return node;
+    }
+
+    /**
+     * Gets a version of a node this environment may change.
+     *
+     * @param node the node.
+     * @return {@code node} if this environment owns it, otherwise a copy.
+     */
+    private Object[] editable(Object[] node)
+    {
+        if (node[WIDTH] == owner)
+            return node;
+        Object[] mine = node.clone();
+        mine[WIDTH] = owner;
+        return mine;
     }
 }
@@ -0,0 +1,419 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package jit;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+
+/**
+ * The code of one method, written an instruction at a time. The writer
+ * keeps track of the operand stack depth and the local variables used, so
+ * the method's limits come out right. Only the instructions the
+ * {@link CodeGenerator} needs are provided.
+ *
+ * @author Zach Kissel
+ */
+final class Bytecode
+{
+    // Opcodes, named as in the JVM specification.
+    static final int ACONST_NULL = 0x01;
+    static final int IALOAD = 0x2e;
+    static final int AALOAD = 0x32;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int POP2 = 0x58;
+    static final int IADD = 0x60;
+    static final int DADD = 0x63;
+    static final int ISUB = 0x64;
+    static final int DSUB = 0x67;
+    static final int IMUL = 0x68;
+    static final int DMUL = 0x6b;
+    static final int DDIV = 0x6f;
+    static final int INEG = 0x74;
+    static final int DNEG = 0x77;
+    static final int IAND = 0x7e;
+    static final int IOR = 0x80;
+    static final int IXOR = 0x82;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int ARETURN = 0xb0;
+    static final int RETURN = 0xb1;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ILOAD = 0x15;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD = 0x19;
+    private static final int ISTORE = 0x36;
+    private static final int DSTORE = 0x39;
+    private static final int ASTORE = 0x3a;
+    private static final int GETFIELD = 0xb4;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int CHECKCAST = 0xc0;
+    private static final int WIDE = 0xc4;
+
+    private final ClassFile cls;   // The class whose pool the code uses.
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private int depth;             // The current operand stack depth, in slots.
+    private int maxStack;          // The deepest the stack has been.
+    private int maxLocals;         // The local variable slots used.
+    private final ArrayList<int[]> jumps = new ArrayList<>();  // {at, target}
+
+    /**
+     * Constructs the code of a method.
+     *
+     * @param cls the class the method belongs to.
+     * @param params the local variable slots taken by {@code this} and the
+     *        parameters.
+     */
+    Bytecode(ClassFile cls, int params)
+    {
+        this.cls = cls;
+        this.maxLocals = params;
+    }
+
+    /**
+     * Emits an instruction with no operands.
+     *
+     * @param opcode the opcode.
+     * @param effect the change in stack depth, in slots.
+     */
+    void op(int opcode, int effect)
+    {
+        code.write(opcode);
+        adjust(effect);
+    }
+
+    /**
+     * Pushes an int constant.
+     *
+     * @param value the constant.
+     */
+    void pushInt(int value)
+    {
+        if (value >= -1 && value <= 5)
+            code.write(ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+        {
+            code.write(BIPUSH);
+            code.write(value);
+        }
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+        {
+            code.write(SIPUSH);
+            u2(value);
+        }
+        else
+        {
+            code.write(LDC_W);
+            u2(cls.integer(value));
+        }
+        adjust(1);
+    }
+
+    /**
+     * Pushes a class constant.
+     *
+     * @param name the internal name of the class.
+     */
+    void pushClass(String name)
+    {
+        code.write(LDC_W);
+        u2(cls.classRef(name));
+        adjust(1);
+    }
+
+    /**
+     * Pushes a double constant.
+     *
+     * @param value the constant.
+     */
+    void pushDouble(double value)
+    {
+        code.write(LDC2_W);
+        u2(cls.real(value));
+        adjust(2);
+    }
+
+    /**
+     * Loads a local variable.
+     *
+     * @param kind the kind of the variable: 'I', 'D', or 'A'.
+     * @param index the slot of the variable.
+     */
+    void load(char kind, int index)
+    {
+        local(kind == 'I' ? ILOAD : kind == 'D' ? DLOAD : ALOAD, index);
+        adjust(kind == 'D' ? 2 : 1);
+    }
+
+    /**
+     * Stores into a local variable.
+     *
+     * @param kind the kind of the variable: 'I', 'D', or 'A'.
+     * @param index the slot of the variable.
+     */
+    void store(char kind, int index)
+    {
+        local(kind == 'I' ? ISTORE : kind == 'D' ? DSTORE : ASTORE, index);
+        adjust(kind == 'D' ? -2 : -1);
+    }
+
+    /**
+     * Allocates a local variable.
+     *
+     * @param kind the kind of the variable: 'I', 'D', or 'A'.
+     * @return the slot of the variable.
+     */
+    int newLocal(char kind)
+    {
+        int index = maxLocals;
+        maxLocals += kind == 'D' ? 2 : 1;
+        if (maxLocals > 0xFFFF)
+            throw new IllegalStateException("Too many locals");
+        return index;
+    }
+
+    /**
+     * Reads an instance field.
+     *
+     * @param owner the internal name of the declaring class.
+     * @param name the name of the field.
+     * @param desc the descriptor of the field.
+     */
+    void getField(String owner, String name, String desc)
+    {
+        code.write(GETFIELD);
+        u2(cls.field(owner, name, desc));
+        adjust(slots(desc) - 1);
+    }
+
+    /**
+     * Calls a static method.
+     *
+     * @param owner the internal name of the declaring class.
+     * @param name the name of the method.
+     * @param desc the descriptor of the method.
+     */
+    void invokeStatic(String owner, String name, String desc)
+    {
+        invoke(INVOKESTATIC, owner, name, desc, 0);
+    }
+
+    /**
+     * Calls a virtual method.
+     *
+     * @param owner the internal name of the declaring class.
+     * @param name the name of the method.
+     * @param desc the descriptor of the method.
+     */
+    void invokeVirtual(String owner, String name, String desc)
+    {
+        invoke(INVOKEVIRTUAL, owner, name, desc, 1);
+    }
+
+    /**
+     * Calls a constructor or superclass method.
+     *
+     * @param owner the internal name of the declaring class.
+     * @param name the name of the method.
+     * @param desc the descriptor of the method.
+     */
+    void invokeSpecial(String owner, String name, String desc)
+    {
+        invoke(INVOKESPECIAL, owner, name, desc, 1);
+    }
+
+    /**
+     * Casts the reference on top of the stack.
+     *
+     * @param type the internal name of the class to cast to.
+     */
+    void checkCast(String type)
+    {
+        code.write(CHECKCAST);
+        u2(cls.classRef(type));
+    }
+
+    /**
+     * Emits a conditional jump that pops an int and branches forward if
+     * the test holds. The target is set later with {@link #land(int)}, and
+     * the stack must be equally deep on both paths.
+     *
+     * @param opcode {@link #IFEQ} or {@link #IFNE}.
+     * @return the jump, to pass to {@link #land(int)}.
+     */
+    int jump(int opcode)
+    {
+        int at = code.size();
+        code.write(opcode);
+        u2(0);
+        adjust(-1);
+        jumps.add(new int[] { at, -1 });
+        return jumps.size() - 1;
+    }
+
+    /**
+     * Makes a jump land at the next instruction.
+     *
+     * @param jump a jump from {@link #jump(int)}.
+     */
+    void land(int jump)
+    {
+        jumps.get(jump)[1] = code.size();
+    }
+
+    /**
+     * Gets the code.
+     *
+     * @return the bytes of the code.
+     * @throws IllegalStateException if the code is too large.
+     */
+    byte[] toByteArray()
+    {
+        if (code.size() > 0xFFFF)
+            throw new IllegalStateException("Method too large");
+        byte[] bytes = code.toByteArray();
+        for (int[] jump : jumps)
+        {
+            int offset = jump[1] - jump[0];
+            if (offset > Short.MAX_VALUE)
+                throw new IllegalStateException("Jump too far");
+            bytes[jump[0] + 1] = (byte) (offset >> 8);
+            bytes[jump[0] + 2] = (byte) offset;
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the deepest the operand stack gets.
+     *
+     * @return the stack size, in slots.
+     */
+    int getMaxStack()
+    {
+        return maxStack;
+    }
+
+    /**
+     * Gets the number of local variable slots used.
+     *
+     * @return the number of slots.
+     */
+    int getMaxLocals()
+    {
+        return maxLocals;
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Emits a load or store.
+     *
+     * @param opcode the opcode.
+     * @param index the slot of the variable.
+     */
+    private void local(int opcode, int index)
+    {
+        if (index > 0xFF)
+        {
+            code.write(WIDE);
+            code.write(opcode);
+            u2(index);
+        }
+        else
+        {
+            code.write(opcode);
+            code.write(index);
+        }
+    }
+
+    /**
+     * Emits a call.
+     *
+     * @param opcode the call instruction.
+     * @param owner the internal name of the declaring class.
+     * @param name the name of the method.
+     * @param desc the descriptor of the method.
+     * @param receiver the stack slots taken by the receiver.
+     */
+    private void invoke(int opcode, String owner, String name, String desc, int receiver)
+    {
+        code.write(opcode);
+        u2(cls.method(owner, name, desc));
+
+        int params = 0;
+        int i = 1;
+        while (desc.charAt(i) != ')')
+        {
+            char c = desc.charAt(i);
+            params += c == 'D' || c == 'J' ? 2 : 1;
+            if (c == 'L')
+                i = desc.indexOf(';', i);
+            else if (c == '[')
+            {
+                while (desc.charAt(i) == '[')
+                    i++;
+                if (desc.charAt(i) == 'L')
+                    i = desc.indexOf(';', i);
+            }
+            i++;
+        }
+        adjust(slots(desc.substring(i + 1)) - params - receiver);
+    }
+
+    /**
+     * Gets the stack slots a value of a type takes.
+     *
+     * @param desc the descriptor of the type.
+     * @return the number of slots.
+     */
+    private static int slots(String desc)
+    {
+        char c = desc.charAt(0);
+        return c == 'V' ? 0 : c == 'D' || c == 'J' ? 2 : 1;
+    }
+
+    /**
+     * Writes a two byte operand.
+     *
+     * @param value the operand.
+     */
+    private void u2(int value)
+    {
+        code.write(value >>> 8);
+        code.write(value);
+    }
+
+    /**
+     * Tracks the operand stack depth.
+     *
+     * @param effect the change in depth.
+     */
+    private void adjust(int effect)
+    {
+        depth += effect;
+        maxStack = Math.max(maxStack, depth);
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Writes a JVM class file: a constant pool, and public methods whose code
+ * has only forward branches and no exception handlers. The class version
+ * is one the JVM verifies by type inference, so the code needs no stack
+ * map frames, which keeps the writer small enough to have no
+ * dependencies.
+ *
+ * @author Zach Kissel
+ */
+final class ClassFile
+{
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int VERSION = 49;         // Java 5.
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final HashMap<String, Integer> entries = new HashMap<>();
+    private int poolCount = 1;   // The next constant pool index.
+
+    private final int thisClass;   // The pool index of this class.
+    private final int superClass;  // The pool index of the superclass.
+    private final int code;        // The pool index of the name "Code".
+    private final List<byte[]> methods = new ArrayList<>();
+
+    /**
+     * Constructs a public final class.
+     *
+     * @param name the internal name of the class, such as {@code jit/Foo}.
+     * @param superName the internal name of the superclass.
+     */
+    ClassFile(String name, String superName)
+    {
+        thisClass = classRef(name);
+        superClass = classRef(superName);
+        code = utf8("Code");
+    }
+
+    /**
+     * Gets the pool index of a string in modified UTF-8, adding it if needed.
+     *
+     * @param s the string.
+     * @return its index.
+     */
+    int utf8(String s)
+    {
+        Integer index = entries.get("U" + s);
+        if (index != null)
+            return index;
+        try
+        {
+            poolOut.writeByte(1);
+            poolOut.writeUTF(s);
+        }
+        catch (IOException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+        return add("U" + s, 1);
+    }
+
+    /**
+     * Gets the pool index of a class.
+     *
+     * @param name the internal name of the class.
+     * @return its index.
+     */
+    int classRef(String name)
+    {
+        return entry("C" + name, 7, utf8(name), -1);
+    }
+
+    /**
+     * Gets the pool index of an int constant.
+     *
+     * @param value the constant.
+     * @return its index.
+     */
+    int integer(int value)
+    {
+        Integer index = entries.get("I" + value);
+        if (index != null)
+            return index;
+        write(3, value);
+        return add("I" + value, 1);
+    }
+
+    /**
+     * Gets the pool index of a double constant, which takes two entries.
+     *
+     * @param value the constant.
+     * @return its index.
+     */
+    int real(double value)
+    {
+        long bits = Double.doubleToRawLongBits(value);
+        Integer index = entries.get("D" + bits);
+        if (index != null)
+            return index;
+        write(6, (int) (bits >>> 32));
+        try
+        {
+            poolOut.writeInt((int) bits);
+        }
+        catch (IOException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+        return add("D" + bits, 2);
+    }
+
+    /**
+     * Gets the pool index of a field.
+     *
+     * @param owner the internal name of the class declaring the field.
+     * @param name the name of the field.
+     * @param desc the descriptor of the field.
+     * @return its index.
+     */
+    int field(String owner, String name, String desc)
+    {
+        return member(9, owner, name, desc);
+    }
+
+    /**
+     * Gets the pool index of a method of a class.
+     *
+     * @param owner the internal name of the class declaring the method.
+     * @param name the name of the method.
+     * @param desc the descriptor of the method.
+     * @return its index.
+     */
+    int method(String owner, String name, String desc)
+    {
+        return member(10, owner, name, desc);
+    }
+
+    /**
+     * Adds a public method.
+     *
+     * @param name the name of the method.
+     * @param desc the descriptor of the method.
+     * @param body the method's code.
+     */
+    void addMethod(String name, String desc, Bytecode body)
+    {
+        addMethod(name, desc, body, false);
+    }
+
+    /**
+     * Adds a public method, which may be static.
+     *
+     * @param name the name of the method.
+     * @param desc the descriptor of the method.
+     * @param body the method's code.
+     * @param isStatic true if the method is static.
+     */
+    void addMethod(String name, String desc, Bytecode body, boolean isStatic)
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buf);
+        byte[] bytes = body.toByteArray();
+        try
+        {
+            out.writeShort(isStatic ? ACC_PUBLIC | ACC_STATIC : ACC_PUBLIC);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(desc));
+            out.writeShort(1);                  // One attribute: the code.
+            out.writeShort(code);
+            out.writeInt(12 + bytes.length);
+            out.writeShort(body.getMaxStack());
+            out.writeShort(body.getMaxLocals());
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeShort(0);                  // No exception handlers.
+            out.writeShort(0);                  // No attributes.
+        }
+        catch (IOException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+        methods.add(buf.toByteArray());
+    }
+
+    /**
+     * Gets the bytes of the class file.
+     *
+     * @return the class file.
+     */
+    byte[] toByteArray()
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buf);
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);                  // No interfaces.
+            out.writeShort(0);                  // No fields.
+            out.writeShort(methods.size());
+            for (byte[] m : methods)
+                out.write(m);
+            out.writeShort(0);                  // No attributes.
+        }
+        catch (IOException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+        return buf.toByteArray();
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Gets the pool index of a field or method reference.
+     *
+     * @param tag the tag of the entry.
+     * @param owner the internal name of the declaring class.
+     * @param name the name of the member.
+     * @param desc the descriptor of the member.
+     * @return its index.
+     */
+    private int member(int tag, String owner, String name, String desc)
+    {
+        int nameAndType = entry("N" + name + ":" + desc, 12, utf8(name), utf8(desc));
+        return entry(tag + owner + "." + name + ":" + desc, tag, classRef(owner), nameAndType);
+    }
+
+    /**
+     * Gets the pool index of an entry made of one or two other indices.
+     *
+     * @param key the key the entry is remembered by.
+     * @param tag the tag of the entry.
+     * @param first the first index.
+     * @param second the second index, or -1 if there is none.
+     * @return its index.
+     */
+    private int entry(String key, int tag, int first, int second)
+    {
+        Integer index = entries.get(key);
+        if (index != null)
+            return index;
+        try
+        {
+            poolOut.writeByte(tag);
+            poolOut.writeShort(first);
+            if (second >= 0)
+                poolOut.writeShort(second);
+        }
+        catch (IOException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+        return add(key, 1);
+    }
+
+    /**
+     * Writes a tag followed by a four byte value.
+     *
+     * @param tag the tag.
+     * @param value the value.
+     */
+    private void write(int tag, int value)
+    {
+        try
+        {
+            poolOut.writeByte(tag);
+            poolOut.writeInt(value);
+        }
+        catch (IOException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Records a new entry.
+     *
+     * @param key the key the entry is remembered by.
+     * @param slots the number of pool slots the entry takes.
+     * @return the index of the entry.
+     */
+    private int add(String key, int slots)
+    {
+        int index = poolCount;
+        poolCount += slots;
+        if (poolCount > 0xFFFF)
+            throw new IllegalStateException("Constant pool too large");
+        entries.put(key, index);
+        return index;
+    }
+}
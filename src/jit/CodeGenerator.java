@@ -0,0 +1,708 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package jit;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import ast.StackEvaluator;
+import ast.TypeAnnotator;
+import ast.nodes.BinOpNode;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import ast.nodes.ValueType;
+import lexer.TokenType;
+
+/**
+ * Compiles a syntax tree to a JVM class, loaded as a hidden class, that
+ * HotSpot then compiles like any other code. The tree is typed by the
+ * {@link TypeAnnotator} first. Typed subtrees become primitive arithmetic
+ * on ints, doubles, and booleans, and a let whose bound expression is typed
+ * keeps its value in a primitive local variable, so typed code boxes
+ * nothing but its result. Untyped subtrees work on boxed values through
+ * {@link Operations}, which hands anything unexpected to the tree's own
+ * nodes, so results and errors are identical to evaluating the tree.
+ * Primitive int arithmetic throws an {@link ArithmeticException} rather
+ * than overflow, and the {@link GeneratedProgram} then evaluates the tree
+ * instead.
+ * <p>
+ * The generator recurses over the tree, so trees taller than
+ * {@link StackEvaluator#DEPTH_LIMIT} are not compiled.
+ *
+ * @author Zach Kissel
+ */
+public final class CodeGenerator
+{
+    private static final String BASE = "jit/GeneratedProgram";
+    private static final String OPS = "jit/Operations";
+    private static final String ENV = "environment/Environment";
+    private static final String OBJECT = "Ljava/lang/Object;";
+    private static final String BIN = "Last/nodes/BinOpNode;";
+    private static final String REL = "Last/nodes/RelOpNode;";
+    private static final String UNARY = "Last/nodes/UnaryOpNode;";
+
+    private final String name;   // The internal name of the class.
+    private final ClassFile cls;
+    private final Bytecode code;
+    private final int constantsLocal;
+    private final int symbolsLocal;
+
+    private final List<Object> constants = new ArrayList<>();
+    private final HashMap<Object, Integer> literals = new HashMap<>();
+    private final IdentityHashMap<Object, Integer> nodes = new IdentityHashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final HashMap<String, Integer> nameIndex = new HashMap<>();
+
+    // The local variable of each let-bound name in scope, and its type
+    // (null if its value is boxed), keyed on symbol id.
+    private final HashMap<Integer, Integer> locals = new HashMap<>();
+    private final HashMap<Integer, ValueType> localTypes = new HashMap<>();
+
+    /**
+     * Compiles the tree rooted at {@code root}. The tree is annotated with
+     * types as a side effect.
+     *
+     * @param root the root of the tree to compile.
+     * @return the compiled program, or null if the tree is too tall or
+     *         too large to compile.
+     */
+    public static GeneratedProgram compile(SyntaxNode root)
+    {
+        if (root.getHeight() > StackEvaluator.DEPTH_LIMIT)
+            return null;
+        TypeAnnotator.annotate(root);
+
+        byte[] bytes;
+        CodeGenerator gen = new CodeGenerator("jit/Program");
+        try
+        {
+            bytes = gen.generate(root, null);
+        }
+        catch (IllegalStateException ex)
+        {
+            // The class would exceed a class file limit.
+            return null;
+        }
+
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            Object[] k = gen.constants.toArray();
+            String[] free = gen.names.toArray(new String[0]);
+            return (GeneratedProgram) lookup.findConstructor(lookup.lookupClass(),
+                MethodType.methodType(void.class, Object[].class, String[].class)).invoke(k, free);
+        }
+        catch (Throwable ex)
+        {
+            throw new IllegalStateException("Generated code failed to load", ex);
+        }
+    }
+
+    /**
+     * Generates a class file for the tree rooted at {@code root}, to be
+     * loaded by other means. The class extends {@link GeneratedProgram}, and
+     * must be constructed with the elements of {@code constants} and
+     * {@code names}. The tree is annotated with types as a side effect.
+     * <p>
+     * If {@code launcher} is not null, the class also has a {@code main}
+     * method, which calls the static method
+     * {@code launch(String[], Class)} of {@code launcher} with its
+     * arguments and the class itself.
+     *
+     * @param root the root of the tree to compile.
+     * @param name the internal name of the class.
+     * @param launcher the internal name of the class that runs the program,
+     *        or null for no {@code main} method.
+     * @param constants the list to add the program's constants to.
+     * @param names the list to add the free names the program looks up to.
+     * @return the class file.
+     * @throws IllegalStateException if the tree is too tall or too large to
+     *         compile.
+     */
+    public static byte[] generate(SyntaxNode root, String name, String launcher,
+        List<Object> constants, List<String> names)
+    {
+        if (root.getHeight() > StackEvaluator.DEPTH_LIMIT)
+            throw new IllegalStateException("Program is too deeply nested to compile");
+        TypeAnnotator.annotate(root);
+
+        CodeGenerator gen = new CodeGenerator(name);
+        byte[] bytes = gen.generate(root, launcher);
+        constants.addAll(gen.constants);
+        names.addAll(gen.names);
+        return bytes;
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Constructs a generator for a class.
+     *
+     * @param name the internal name of the class.
+     */
+    private CodeGenerator(String name)
+    {
+        this.name = name;
+        cls = new ClassFile(name, BASE);
+        code = new Bytecode(cls, 2);   // this and env.
+        constantsLocal = code.newLocal('A');
+        symbolsLocal = code.newLocal('A');
+    }
+
+    /**
+     * Generates the class for a tree.
+     *
+     * @param root the root of the tree.
+     * @param launcher the internal name of the class that runs the program,
+     *        or null for no {@code main} method.
+     * @return the class file.
+     */
+    private byte[] generate(SyntaxNode root, String launcher)
+    {
+        // The program falls back to the tree if an int overflows.
+        constants.add(root);
+        nodes.put(root, 0);
+
+        if (launcher != null)
+        {
+            Bytecode main = new Bytecode(cls, 1);
+            main.load('A', 0);
+            main.pushClass(name);
+            main.invokeStatic(launcher, "launch", "([Ljava/lang/String;Ljava/lang/Class;)V");
+            main.op(Bytecode.RETURN, 0);
+            cls.addMethod("main", "([Ljava/lang/String;)V", main, true);
+        }
+
+        Bytecode init = new Bytecode(cls, 3);
+        init.load('A', 0);
+        init.load('A', 1);
+        init.load('A', 2);
+        init.invokeSpecial(BASE, "<init>", "([Ljava/lang/Object;[Ljava/lang/String;)V");
+        init.op(Bytecode.RETURN, 0);
+        cls.addMethod("<init>", "([Ljava/lang/Object;[Ljava/lang/String;)V", init);
+
+        code.load('A', 0);
+        code.getField(BASE, "constants", "[Ljava/lang/Object;");
+        code.store('A', constantsLocal);
+        code.load('A', 0);
+        code.getField(BASE, "symbols", "[I");
+        code.store('A', symbolsLocal);
+        if (root instanceof ProgNode)
+            program((ProgNode) root);
+        else
+            value(root);
+        code.op(Bytecode.ARETURN, -1);
+        cls.addMethod("execute", "(L" + ENV + ";)" + OBJECT, code);
+        return cls.toByteArray();
+    }
+
+    /**
+     * Generates the statements of a program, leaving the value of the last.
+     *
+     * @param prog the program.
+     */
+    private void program(ProgNode prog)
+    {
+        List<SyntaxNode> stmts = prog.getStatements();
+        if (stmts.isEmpty())
+            code.op(Bytecode.ACONST_NULL, 1);
+        for (int i = 0; i < stmts.size(); i++)
+        {
+            SyntaxNode stmt = stmts.get(i);
+            boolean last = i == stmts.size() - 1;
+            if (stmt instanceof ValNode)
+            {
+                // A val binds its value globally and evaluates to its name.
+                ValNode val = (ValNode) stmt;
+                code.load('A', 1);
+                value(val.getExpr());
+                constant(val, "ast/nodes/ValNode");
+                code.invokeStatic(OPS, "define", "(L" + ENV + ";" + OBJECT
+                    + "Last/nodes/ValNode;)V");
+                if (last)
+                    constant(val.getName(), null);
+            }
+            else if (last)
+                value(stmt);
+            else if (stmt.getType() != null)
+            {
+                primitive(stmt, stmt.getType());
+                code.op(stmt.getType() == ValueType.REAL ? Bytecode.POP2 : Bytecode.POP,
+                    stmt.getType() == ValueType.REAL ? -2 : -1);
+            }
+            else
+            {
+                value(stmt);
+                code.op(Bytecode.POP, -1);
+            }
+        }
+    }
+
+    /**
+     * Generates an expression, leaving its boxed value on the stack.
+     *
+     * @param node the expression.
+     */
+    private void value(SyntaxNode node)
+    {
+        ValueType type = node.getType();
+        if (type != null)
+        {
+            primitive(node, type);
+            box(type);
+        }
+        else if (node instanceof TokenNode)
+            token((TokenNode) node);
+        else if (node instanceof BinOpNode && ((BinOpNode) node).isShortCircuit())
+            shortCircuit((BinOpNode) node, null);
+        else if (node instanceof BinOpNode)
+        {
+            BinOpNode bin = (BinOpNode) node;
+            value(bin.getLeft());
+            value(bin.getRight());
+            constant(bin, "ast/nodes/BinOpNode");
+            String op = switch (bin.getOp())
+            {
+            case "+" -> "add";
+            case "-" -> "subtract";
+            case "*" -> "multiply";
+            case "/" -> "divide";
+            case "mod" -> "remainder";
+            default -> "binary";
+            };
+            code.invokeStatic(OPS, op, "(" + OBJECT + OBJECT + BIN + ")" + OBJECT);
+        }
+        else if (node instanceof RelOpNode)
+        {
+            RelOpNode rel = (RelOpNode) node;
+            value(rel.getLeft());
+            value(rel.getRight());
+            int op = relation(rel.getOp());
+            if (op < 0)
+            {
+                constant(rel, "ast/nodes/RelOpNode");
+                code.invokeStatic(OPS, "relation", "(" + OBJECT + OBJECT + REL + ")" + OBJECT);
+            }
+            else
+            {
+                code.pushInt(op);
+                constant(rel, "ast/nodes/RelOpNode");
+                code.invokeStatic(OPS, "compare", "(" + OBJECT + OBJECT + "I" + REL + ")" + OBJECT);
+            }
+        }
+        else if (node instanceof UnaryOpNode)
+        {
+            UnaryOpNode un = (UnaryOpNode) node;
+            value(un.getOperand());
+            constant(un, "ast/nodes/UnaryOpNode");
+            String op = switch (un.getOp())
+            {
+            case "-" -> "negate";
+            case "not" -> "not";
+            default -> "unary";
+            };
+            code.invokeStatic(OPS, op, "(" + OBJECT + UNARY + ")" + OBJECT);
+        }
+        else if (node instanceof LetNode)
+            let((LetNode) node, null);
+        else
+        {
+            constant(node, "ast/nodes/SyntaxNode");
+            code.load('A', 1);
+            code.invokeStatic(OPS, "evaluate", "(Last/nodes/SyntaxNode;L" + ENV + ";)" + OBJECT);
+        }
+    }
+
+    /**
+     * Generates a typed expression, leaving its unboxed value on the stack:
+     * an int for {@link ValueType#INT} and {@link ValueType#BOOL}, a double
+     * for {@link ValueType#REAL}.
+     *
+     * @param node the expression.
+     * @param type the type of the expression.
+     */
+    private void primitive(SyntaxNode node, ValueType type)
+    {
+        if (node instanceof TokenNode)
+        {
+            TokenNode leaf = (TokenNode) node;
+            Object literal = leaf.getLiteral();
+            Integer symbol = leaf.getToken().getSymbol();
+            if (literal instanceof Integer)
+                code.pushInt((Integer) literal);
+            else if (literal instanceof Double)
+                code.pushDouble((Double) literal);
+            else if (literal instanceof Boolean)
+                code.pushInt((Boolean) literal ? 1 : 0);
+            else if (literal != null)
+            {
+                // An int too big for an int, which fails the unboxing.
+                constant(literal, null);
+                unbox(type);
+            }
+            else if (locals.containsKey(symbol) && localTypes.get(symbol) != null)
+                code.load(kind(type), locals.get(symbol));
+            else
+            {
+                // A boxed let-bound name, or a val.
+                if (locals.containsKey(symbol))
+                    code.load('A', locals.get(symbol));
+                else
+                {
+                    code.load('A', 1);
+                    symbol(leaf);
+                    code.invokeVirtual(ENV, "lookup", "(I)" + OBJECT);
+                }
+                unbox(type);
+            }
+        }
+        else if (node instanceof BinOpNode && ((BinOpNode) node).isShortCircuit())
+            shortCircuit((BinOpNode) node, type);
+        else if (node instanceof BinOpNode)
+        {
+            BinOpNode bin = (BinOpNode) node;
+            boolean real = type == ValueType.REAL;
+            primitive(bin.getLeft(), type);
+            primitive(bin.getRight(), type);
+            switch (bin.getOp())
+            {
+            case "+":
+                if (real)
+                    code.op(Bytecode.DADD, -2);
+                else
+                    code.invokeStatic("java/lang/Math", "addExact", "(II)I");
+                break;
+            case "-":
+                if (real)
+                    code.op(Bytecode.DSUB, -2);
+                else
+                    code.invokeStatic("java/lang/Math", "subtractExact", "(II)I");
+                break;
+            case "*":
+                if (real)
+                    code.op(Bytecode.DMUL, -2);
+                else
+                    code.invokeStatic("java/lang/Math", "multiplyExact", "(II)I");
+                break;
+            case "/":
+                if (real)
+                    code.op(Bytecode.DDIV, -2);
+                else
+                {
+                    constant(bin, "ast/nodes/BinOpNode");
+                    code.invokeStatic(OPS, "divide", "(II" + BIN + ")I");
+                }
+                break;
+            default:
+                constant(bin, "ast/nodes/BinOpNode");
+                code.invokeStatic(OPS, "remainder", "(II" + BIN + ")I");
+                break;
+            }
+        }
+        else if (node instanceof RelOpNode)
+        {
+            RelOpNode rel = (RelOpNode) node;
+            ValueType operands = rel.getLeft().getType();
+            int op = relation(rel.getOp());
+            primitive(rel.getLeft(), operands);
+            primitive(rel.getRight(), operands);
+            if (operands == ValueType.BOOL)
+            {
+                // Booleans are 0 or 1, so they differ exactly when their xor is 1.
+                code.op(Bytecode.IXOR, -1);
+                if (rel.getOp().equals("="))
+                {
+                    code.pushInt(1);
+                    code.op(Bytecode.IXOR, -1);
+                }
+            }
+            else
+            {
+                code.pushInt(op);
+                code.invokeStatic(OPS, "compare", operands == ValueType.INT ? "(III)Z" : "(DDI)Z");
+            }
+        }
+        else if (node instanceof UnaryOpNode)
+        {
+            UnaryOpNode un = (UnaryOpNode) node;
+            primitive(un.getOperand(), type);
+            if (type == ValueType.BOOL)
+            {
+                code.pushInt(1);
+                code.op(Bytecode.IXOR, -1);
+            }
+            else if (type == ValueType.REAL)
+                code.op(Bytecode.DNEG, 0);
+            else
+                code.invokeStatic("java/lang/Math", "negateExact", "(I)I");
+        }
+        else if (node instanceof LetNode)
+            let((LetNode) node, type);
+        else
+        {
+            constant(node, "ast/nodes/SyntaxNode");
+            code.load('A', 1);
+            code.invokeStatic(OPS, "evaluate", "(Last/nodes/SyntaxNode;L" + ENV + ";)" + OBJECT);
+            unbox(type);
+        }
+    }
+
+    /**
+     * Generates a literal or name that has no type.
+     *
+     * @param leaf the token node.
+     */
+    private void token(TokenNode leaf)
+    {
+        Integer symbol = leaf.getToken().getSymbol();
+        if (leaf.getLiteral() != null)
+            constant(leaf.getLiteral(), null);
+        else if (leaf.getToken().getType() == TokenType.ID && locals.containsKey(symbol))
+        {
+            ValueType type = localTypes.get(symbol);
+            code.load(type == null ? 'A' : kind(type), locals.get(symbol));
+            if (type != null)
+                box(type);
+        }
+        else if (leaf.getToken().getType() == TokenType.ID)
+        {
+            code.load('A', 1);
+            symbol(leaf);
+            constant(leaf, "ast/nodes/TokenNode");
+            code.invokeStatic(OPS, "global", "(L" + ENV + ";ILast/nodes/TokenNode;)" + OBJECT);
+        }
+        else
+        {
+            constant(leaf, "ast/nodes/SyntaxNode");
+            code.load('A', 1);
+            code.invokeStatic(OPS, "evaluate", "(Last/nodes/SyntaxNode;L" + ENV + ";)" + OBJECT);
+        }
+    }
+
+    /**
+     * Generates an and or an or, which skips its right operand when the
+     * left one decides the result. The left value stays on the stack as
+     * the result until it is known not to decide it.
+     *
+     * @param bin the operator.
+     * @param type the type of the operator, or null to leave its value
+     *        boxed.
+     */
+    private void shortCircuit(BinOpNode bin, ValueType type)
+    {
+        boolean and = bin.getOp().equals("and");
+        int skip;
+        if (type != null)
+        {
+            primitive(bin.getLeft(), type);
+            code.op(Bytecode.DUP, 1);
+            skip = code.jump(and ? Bytecode.IFEQ : Bytecode.IFNE);
+            code.op(Bytecode.POP, -1);
+            primitive(bin.getRight(), type);
+        }
+        else
+        {
+            value(bin.getLeft());
+            code.op(Bytecode.DUP, 1);
+            constant(bin, "ast/nodes/BinOpNode");
+            code.invokeStatic(OPS, "decides", "(" + OBJECT + BIN + ")Z");
+            skip = code.jump(Bytecode.IFNE);
+            code.op(Bytecode.POP, -1);
+            value(bin.getRight());
+            constant(bin, "ast/nodes/BinOpNode");
+            code.invokeStatic(OPS, "decide", "(" + OBJECT + BIN + ")" + OBJECT);
+        }
+        code.land(skip);
+    }
+
+    /**
+     * Generates a let. Its bound expression goes into a new local variable,
+     * which its name refers to in the body.
+     *
+     * @param let the let.
+     * @param type the type of the let, or null to leave its value boxed.
+     */
+    private void let(LetNode let, ValueType type)
+    {
+        Integer symbol = let.getIdToken().getSymbol();
+        boolean shadows = locals.containsKey(symbol);
+        Integer hiddenLocal = locals.get(symbol);
+        ValueType hiddenType = localTypes.get(symbol);
+
+        ValueType bound = let.getBoundExpr().getType();
+        if (bound != null)
+            primitive(let.getBoundExpr(), bound);
+        else
+            value(let.getBoundExpr());
+        char kind = bound == null ? 'A' : kind(bound);
+        int local = code.newLocal(kind);
+        code.store(kind, local);
+        locals.put(symbol, local);
+        localTypes.put(symbol, bound);
+
+        if (type != null)
+            primitive(let.getBody(), type);
+        else
+            value(let.getBody());
+
+        if (shadows)
+        {
+            locals.put(symbol, hiddenLocal);
+            localTypes.put(symbol, hiddenType);
+        }
+        else
+        {
+            locals.remove(symbol);
+            localTypes.remove(symbol);
+        }
+    }
+
+    /**
+     * Boxes the primitive value on top of the stack.
+     *
+     * @param type the type of the value.
+     */
+    private void box(ValueType type)
+    {
+        switch (type)
+        {
+        case INT:
+            code.invokeStatic("java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;");
+            break;
+        case REAL:
+            code.invokeStatic("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;");
+            break;
+        default:
+            code.invokeStatic("java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;");
+            break;
+        }
+    }
+
+    /**
+     * Unboxes the value on top of the stack.
+     *
+     * @param type the type of the value.
+     */
+    private void unbox(ValueType type)
+    {
+        switch (type)
+        {
+        case INT:
+            code.invokeStatic("ast/nodes/Integers", "intValue", "(" + OBJECT + ")I");
+            break;
+        case REAL:
+            code.checkCast("java/lang/Double");
+            code.invokeVirtual("java/lang/Double", "doubleValue", "()D");
+            break;
+        default:
+            code.checkCast("java/lang/Boolean");
+            code.invokeVirtual("java/lang/Boolean", "booleanValue", "()Z");
+            break;
+        }
+    }
+
+    /**
+     * Pushes an entry of the constants array, adding it if needed.
+     *
+     * @param value a literal value or a syntax node.
+     * @param type the internal name of the class to cast the entry to, or
+     *        null to leave it an object.
+     */
+    private void constant(Object value, String type)
+    {
+        HashMap<Object, Integer> index = value instanceof SyntaxNode ? null : literals;
+        Integer i = index != null ? index.get(value) : nodes.get(value);
+        if (i == null)
+        {
+            i = constants.size();
+            constants.add(value);
+            if (index != null)
+                index.put(value, i);
+            else
+                nodes.put(value, i);
+        }
+        code.load('A', constantsLocal);
+        code.pushInt(i);
+        code.op(Bytecode.AALOAD, -1);
+        if (type != null)
+            code.checkCast(type);
+    }
+
+    /**
+     * Pushes the symbol id of a free name, adding the name to the names the
+     * program looks up if needed.
+     *
+     * @param leaf the name.
+     */
+    private void symbol(TokenNode leaf)
+    {
+        String id = leaf.getToken().getValue();
+        Integer i = nameIndex.get(id);
+        if (i == null)
+        {
+            i = names.size();
+            names.add(id);
+            nameIndex.put(id, i);
+        }
+        code.load('A', symbolsLocal);
+        code.pushInt(i);
+        code.op(Bytecode.IALOAD, -1);
+    }
+
+    /**
+     * Gets the local variable kind that holds a typed value.
+     *
+     * @param type the type.
+     * @return 'D' for reals, and 'I' for ints and booleans.
+     */
+    private static char kind(ValueType type)
+    {
+        return type == ValueType.REAL ? 'D' : 'I';
+    }
+
+    /**
+     * Gets the code {@link Operations#compare(int, int, int)} uses for a
+     * relational operator.
+     *
+     * @param op the operator.
+     * @return the code, or -1 for an unknown operator.
+     */
+    private static int relation(String op)
+    {
+        return switch (op)
+        {
+        case "<" -> 0;
+        case ">" -> 1;
+        case "<=" -> 2;
+        case ">=" -> 3;
+        case "=" -> 4;
+        case "!=" -> 5;
+        default -> -1;
+        };
+    }
+}
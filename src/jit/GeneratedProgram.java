@@ -0,0 +1,100 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package jit;
+
+import ast.EvaluationException;
+import ast.nodes.SyntaxNode;
+import environment.Environment;
+import lexer.SymbolTable;
+
+/**
+ * A program compiled to a JVM class by the {@link CodeGenerator}. The
+ * generated class extends this one and implements {@link #execute}.
+ * <p>
+ * Compiled int arithmetic throws an {@link ArithmeticException} when a
+ * result does not fit in an int. The program is then run again on its
+ * tree, which promotes the int to a {@link java.math.BigInteger}, and it
+ * stays on the tree from then on. Programs have no side effects beyond
+ * binding vals, which the tree binds again to the same values, so running
+ * again is safe.
+ *
+ * @author Zach Kissel
+ */
+public abstract class GeneratedProgram
+{
+    /**
+     * The values and syntax nodes the generated code refers to, by index.
+     * The first is the root of the tree the program was compiled from.
+     */
+    protected final Object[] constants;
+
+    /**
+     * The symbol ids of the free names the generated code looks up, by
+     * index. Ids are assigned as names are first seen, so they are found
+     * when the program is constructed rather than when it is generated.
+     */
+    protected final int[] symbols;
+
+    private boolean overflowed;   // True once an int has overflowed.
+
+    /**
+     * Constructs a program.
+     *
+     * @param constants the values and nodes the program refers to.
+     * @param names the free names the program looks up.
+     */
+    protected GeneratedProgram(Object[] constants, String[] names)
+    {
+        this.constants = constants;
+        this.symbols = new int[names.length];
+        for (int i = 0; i < names.length; i++)
+            symbols[i] = SymbolTable.intern(names[i]);
+    }
+
+    /**
+     * Runs the program.
+     *
+     * @param env the environment holding its free names.
+     * @return the value of the program.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    public Object run(Environment env) throws EvaluationException
+    {
+        if (!overflowed)
+        {
+            try
+            {
+                return execute(env);
+            }
+            catch (ArithmeticException ex)
+            {
+                overflowed = true;
+            }
+        }
+        return ((SyntaxNode) constants[0]).evaluate(env);
+    }
+
+    /**
+     * Runs the compiled code of the program.
+     *
+     * @param env the environment holding its free names.
+     * @return the value of the program.
+     * @throws EvaluationException if the evaluation fails.
+     * @throws ArithmeticException if an int overflows.
+     */
+    protected abstract Object execute(Environment env) throws EvaluationException;
+}
@@ -0,0 +1,372 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package jit;
+
+import ast.EvaluationException;
+import ast.nodes.BinOpNode;
+import ast.nodes.Integers;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import environment.Environment;
+
+/**
+ * The operations generated code calls. Keeping every branch here leaves the
+ * generated code straight-line; HotSpot inlines these small methods into
+ * it. The boxed operations handle int, real, and boolean operands inline
+ * and pass anything else to the node they were compiled from, so errors
+ * are reported exactly as the tree reports them.
+ *
+ * @author Zach Kissel
+ */
+public final class Operations
+{
+    private Operations()
+    {
+    }
+
+    /**
+     * Looks up a free name.
+     *
+     * @param env the environment.
+     * @param symbol the symbol id of the name.
+     * @param node the node naming it.
+     * @return the value of the name.
+     * @throws EvaluationException if the name is unbound.
+     */
+    public static Object global(Environment env, int symbol, TokenNode node)
+        throws EvaluationException
+    {
+        Object value = env.lookup(symbol);
+        return value != null ? value : node.evaluate(env);
+    }
+
+    /**
+     * Binds a val's value in the environment.
+     *
+     * @param env the environment.
+     * @param value the value.
+     * @param node the val.
+     */
+    public static void define(Environment env, Object value, ValNode node)
+    {
+        env.updateEnvironment(node.getIdToken(), value);
+    }
+
+    /**
+     * Evaluates a node the generator has no code for.
+     *
+     * @param node the node.
+     * @param env the environment.
+     * @return the value of the node.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    public static Object evaluate(SyntaxNode node, Environment env) throws EvaluationException
+    {
+        return node.evaluate(env);
+    }
+
+    /**
+     * Adds two values.
+     *
+     * @param lv the left operand.
+     * @param rv the right operand.
+     * @param node the operator node.
+     * @return the sum.
+     * @throws EvaluationException if the operands can't be added.
+     */
+    public static Object add(Object lv, Object rv, BinOpNode node) throws EvaluationException
+    {
+        if (lv instanceof Integer && rv instanceof Integer)
+            return Integers.add((Integer) lv, (Integer) rv);
+        if (lv instanceof Double && rv instanceof Double)
+            return (Double) lv + (Double) rv;
+        return node.apply(lv, rv);
+    }
+
+    /**
+     * Subtracts two values.
+     *
+     * @param lv the left operand.
+     * @param rv the right operand.
+     * @param node the operator node.
+     * @return the difference.
+     * @throws EvaluationException if the operands can't be subtracted.
+     */
+    public static Object subtract(Object lv, Object rv, BinOpNode node) throws EvaluationException
+    {
+        if (lv instanceof Integer && rv instanceof Integer)
+            return Integers.subtract((Integer) lv, (Integer) rv);
+        if (lv instanceof Double && rv instanceof Double)
+            return (Double) lv - (Double) rv;
+        return node.apply(lv, rv);
+    }
+
+    /**
+     * Multiplies two values.
+     *
+     * @param lv the left operand.
+     * @param rv the right operand.
+     * @param node the operator node.
+     * @return the product.
+     * @throws EvaluationException if the operands can't be multiplied.
+     */
+    public static Object multiply(Object lv, Object rv, BinOpNode node) throws EvaluationException
+    {
+        if (lv instanceof Integer && rv instanceof Integer)
+            return Integers.multiply((Integer) lv, (Integer) rv);
+        if (lv instanceof Double && rv instanceof Double)
+            return (Double) lv * (Double) rv;
+        return node.apply(lv, rv);
+    }
+
+    /**
+     * Divides two values. Division by zero is left to the node, which
+     * reports it.
+     *
+     * @param lv the left operand.
+     * @param rv the right operand.
+     * @param node the operator node.
+     * @return the quotient.
+     * @throws EvaluationException if the operands can't be divided.
+     */
+    public static Object divide(Object lv, Object rv, BinOpNode node) throws EvaluationException
+    {
+        if (lv instanceof Integer && rv instanceof Integer && (Integer) rv != 0)
+            return Integers.divide((Integer) lv, (Integer) rv);
+        if (lv instanceof Double && rv instanceof Double)
+            return (Double) lv / (Double) rv;
+        return node.apply(lv, rv);
+    }
+
+    /**
+     * Takes the remainder of two values.
+     *
+     * @param lv the left operand.
+     * @param rv the right operand.
+     * @param node the operator node.
+     * @return the remainder.
+     * @throws EvaluationException if the operands can't be divided.
+     */
+    public static Object remainder(Object lv, Object rv, BinOpNode node) throws EvaluationException
+    {
+        if (lv instanceof Integer && rv instanceof Integer && (Integer) rv != 0)
+            return (Integer) lv % (Integer) rv;
+        return node.apply(lv, rv);
+    }
+
+    /**
+     * Divides two ints.
+     *
+     * @param l the left operand.
+     * @param r the right operand.
+     * @param node the operator node.
+     * @return the quotient.
+     * @throws EvaluationException if {@code r} is zero.
+     * @throws ArithmeticException if the quotient does not fit in an int.
+     */
+    public static int divide(int l, int r, BinOpNode node) throws EvaluationException
+    {
+        if (r == 0)
+            node.apply(l, r);
+        return Integers.divideExact(l, r);
+    }
+
+    /**
+     * Takes the remainder of two ints.
+     *
+     * @param l the left operand.
+     * @param r the right operand.
+     * @param node the operator node.
+     * @return the remainder.
+     * @throws EvaluationException if {@code r} is zero.
+     */
+    public static int remainder(int l, int r, BinOpNode node) throws EvaluationException
+    {
+        if (r == 0)
+            node.apply(l, r);
+        return l % r;
+    }
+
+    /**
+     * Tests whether the left operand of an and or an or decides its result,
+     * so the right operand is skipped.
+     *
+     * @param lv the left operand.
+     * @param node the operator node.
+     * @return true if the result is the left operand.
+     * @throws EvaluationException if the left operand is not a boolean.
+     */
+    public static boolean decides(Object lv, BinOpNode node) throws EvaluationException
+    {
+        return node.shortCircuit(lv) != null;
+    }
+
+    /**
+     * Finishes an and or an or whose left operand did not decide it, so
+     * the result is the right operand.
+     *
+     * @param rv the right operand.
+     * @param node the operator node.
+     * @return the result.
+     * @throws EvaluationException if the right operand is not a boolean.
+     */
+    public static Object decide(Object rv, BinOpNode node) throws EvaluationException
+    {
+        if (rv instanceof Boolean)
+            return rv;
+        return node.apply(node.getOp().equals("and"), rv);
+    }
+
+    /**
+     * Applies an operator the generator has no code for.
+     *
+     * @param lv the left operand.
+     * @param rv the right operand.
+     * @param node the operator node.
+     * @return the result.
+     * @throws EvaluationException if the operator fails.
+     */
+    public static Object binary(Object lv, Object rv, BinOpNode node) throws EvaluationException
+    {
+        return node.apply(lv, rv);
+    }
+
+    /**
+     * Compares two values.
+     *
+     * @param lv the left operand.
+     * @param rv the right operand.
+     * @param op the comparison, as for {@link #compare(int, int, int)}.
+     * @param node the comparison node.
+     * @return the result.
+     * @throws EvaluationException if the operands can't be compared.
+     */
+    public static Object compare(Object lv, Object rv, int op, RelOpNode node)
+        throws EvaluationException
+    {
+        if (lv instanceof Integer && rv instanceof Integer)
+            return compare((int) (Integer) lv, (int) (Integer) rv, op);
+        if (lv instanceof Double && rv instanceof Double)
+            return compare((double) (Double) lv, (double) (Double) rv, op);
+        return node.apply(lv, rv);
+    }
+
+    /**
+     * Applies a comparison the generator has no code for.
+     *
+     * @param lv the left operand.
+     * @param rv the right operand.
+     * @param node the comparison node.
+     * @return the result.
+     * @throws EvaluationException if the comparison fails.
+     */
+    public static Object relation(Object lv, Object rv, RelOpNode node) throws EvaluationException
+    {
+        return node.apply(lv, rv);
+    }
+
+    /**
+     * Negates a value.
+     *
+     * @param value the operand.
+     * @param node the operator node.
+     * @return the negation.
+     * @throws EvaluationException if the operand is not a number.
+     */
+    public static Object negate(Object value, UnaryOpNode node) throws EvaluationException
+    {
+        if (value instanceof Integer)
+            return Integers.negate((Integer) value);
+        if (value instanceof Double)
+            return -(Double) value;
+        return node.apply(value);
+    }
+
+    /**
+     * Negates a boolean value.
+     *
+     * @param value the operand.
+     * @param node the operator node.
+     * @return the negation.
+     * @throws EvaluationException if the operand is not a boolean.
+     */
+    public static Object not(Object value, UnaryOpNode node) throws EvaluationException
+    {
+        if (value instanceof Boolean)
+            return !(Boolean) value;
+        return node.apply(value);
+    }
+
+    /**
+     * Applies a unary operator the generator has no code for.
+     *
+     * @param value the operand.
+     * @param node the operator node.
+     * @return the result.
+     * @throws EvaluationException if the operator fails.
+     */
+    public static Object unary(Object value, UnaryOpNode node) throws EvaluationException
+    {
+        return node.apply(value);
+    }
+
+    /**
+     * Compares two ints.
+     *
+     * @param l the left operand.
+     * @param r the right operand.
+     * @param op the comparison: 0 to 5 for {@code <}, {@code >}, {@code <=},
+     *        {@code >=}, {@code =}, and {@code !=}.
+     * @return the result.
+     */
+    public static boolean compare(int l, int r, int op)
+    {
+        switch (op)
+        {
+        case 0: return l < r;
+        case 1: return l > r;
+        case 2: return l <= r;
+        case 3: return l >= r;
+        case 4: return l == r;
+        default: return l != r;
+        }
+    }
+
+    /**
+     * Compares two doubles.
+     *
+     * @param l the left operand.
+     * @param r the right operand.
+     * @param op the comparison, as for {@link #compare(int, int, int)}.
+     * @return the result.
+     */
+    public static boolean compare(double l, double r, int op)
+    {
+        switch (op)
+        {
+        case 0: return l < r;
+        case 1: return l > r;
+        case 2: return l <= r;
+        case 3: return l >= r;
+        case 4: return l == r;
+        default: return l != r;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package jit;
+
+import ast.EvaluationException;
+import ast.Evaluator;
+import ast.RecursiveEvaluator;
+import ast.nodes.SyntaxNode;
+import environment.Environment;
+
+/**
+ * Evaluates a syntax tree with another evaluator until the tree has been
+ * evaluated a number of times, then compiles it to a JVM class with the
+ * {@link CodeGenerator} and runs that instead. A tree that is evaluated
+ * only a few times never pays for compiling it, and one that is evaluated
+ * millions of times runs as code HotSpot has compiled. A tree that cannot
+ * be compiled stays with the other evaluator.
+ * <p>
+ * Counts are kept for the last tree evaluated only, so an instance must not
+ * be shared between threads.
+ *
+ * @author Zach Kissel
+ */
+public class TieredEvaluator implements Evaluator
+{
+    /**
+     * The default number of evaluations of a tree before it is compiled.
+     */
+    public static final int THRESHOLD = 1000;
+
+    private final int threshold;    // The evaluations before compiling.
+    private final Evaluator base;   // Evaluates trees not yet compiled.
+
+    private SyntaxNode root;            // The last tree evaluated.
+    private int count;                  // Its evaluations so far.
+    private GeneratedProgram program;   // Its compiled form, if any.
+
+    /**
+     * Constructs an evaluator that compiles a tree after {@link #THRESHOLD}
+     * evaluations, evaluating it recursively until then.
+     */
+    public TieredEvaluator()
+    {
+        this(THRESHOLD, new RecursiveEvaluator());
+    }
+
+    /**
+     * Constructs an evaluator that compiles a tree after {@code threshold}
+     * evaluations, evaluating it with {@code base} until then.
+     *
+     * @param threshold the evaluations of a tree before it is compiled; 0
+     *        compiles it the first time it is evaluated.
+     * @param base the evaluator to use until then.
+     */
+    public TieredEvaluator(int threshold, Evaluator base)
+    {
+        this.threshold = threshold;
+        this.base = base;
+    }
+
+    /**
+     * Evaluates the tree rooted at {@code root}.
+     *
+     * @param root the root of the tree to evaluate.
+     * @param env the environment to evaluate the tree in.
+     * @return the value of the tree.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    @Override
+    public Object evaluate(SyntaxNode root, Environment env) throws EvaluationException
+    {
+        if (root != this.root)
+        {
+            this.root = root;
+            count = 0;
+            program = null;
+        }
+
+        if (program != null)
+            return program.run(env);
+        if (count == threshold)
+        {
+            program = CodeGenerator.compile(root);
+            if (program != null)
+                return program.run(env);
+        }
+        if (count <= threshold)
+            count++;
+        return base.evaluate(root, env);
+    }
+
+    /**
+     * Determines if the last tree evaluated is running as compiled code.
+     *
+     * @return true if it has been compiled.
+     */
+    public boolean isCompiled()
+    {
+        return program != null;
+    }
+}
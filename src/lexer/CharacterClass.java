@@ -18,7 +18,9 @@
 package lexer;
 
 /**
- * A class that represents the possible types of characters recognized by the lexer
+ * A class that represents the possible types of characters recognized by the lexer.
+ * The classes of the 128 ASCII characters are precomputed in a table so the 
+ * common case is a single array load.
  */
 public enum CharacterClass
 {
@@ -45,5 +47,56 @@ public enum CharacterClass
     /**
      * End of stream.
      */
-    END
+    END;
+
+    // The class of every ASCII character, indexed by character.
+    private static final CharacterClass[] ASCII = new CharacterClass[128];
+
+    static
+    {
+        for (char ch = 0; ch < ASCII.length; ch++)
+            ASCII[ch] = classify(ch);
+    }
+
+    /**
+     * Determines the class of a character.
+     * 
+     * @param ch the character to classify.
+     * @return the class of {@code ch}.
+     */
+    public static CharacterClass of(char ch)
+    {
+        if (ch < ASCII.length)
+            return ASCII[ch];
+        return classify(ch);
+    }
+
+    /**
+     * Determines the class of an ASCII character.
+     * 
+     * @param b the character, which must be in the range 0 to 127.
+     * @return the class of {@code b}.
+     */
+    public static CharacterClass ofAscii(int b)
+    {
+        return ASCII[b];
+    }
+
+    /**
+     * Classifies a character from its Unicode properties.
+     * 
+     * @param ch the character to classify.
+     * @return the class of {@code ch}.
+     */
+    private static CharacterClass classify(char ch)
+    {
+        if (Character.isLetter(ch))
+            return LETTER;
+        else if (Character.isDigit(ch))
+            return DIGIT;
+        else if (Character.isWhitespace(ch))
+            return WHITE_SPACE;
+        else
+            return OTHER;
+    }
 }
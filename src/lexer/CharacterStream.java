@@ -16,12 +16,15 @@
  */
 package lexer;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 
 /**
  * 
@@ -47,28 +50,84 @@ import java.io.StringReader;
  *   <li> The character at the head of the stream {@code getCurrentChar} </li>
  *   <li> The class of the character at the head of the stream {@code getCurrentClass} </li>
  * </ol>
+ * Every stream is backed by a buffer of UTF-8 bytes: file input is 
+ * memory-mapped and string input is encoded once up front. ASCII bytes are 
+ * classified directly from the buffer and only non-ASCII sequences go through
+ * the UTF-8 decoder. The byte offset of the head ({@code getOffset}) lets 
+ * tokens refer to their lexeme in the shared buffer instead of copying it.
+ * <p>
+ * A file is mapped a window of at most 2 GB at a time. Every window but the
+ * last ends just after an ASCII blank, so no token is split between windows,
+ * and offsets are counted from the start of the window holding them.
  */
 public class CharacterStream {
 
-    private BufferedReader input; // The input to the lexer.
+    private ByteBuffer bytes; // The UTF-8 input to the lexer, or the
+                              // window of it mapped.
+    private File file; // The mapped file, or null.
+    private int window; // The most bytes of the file mapped at once.
+    private long next; // The file offset of the next window.
+    private boolean more; // Whether there is a next window.
+    private int pos; // The offset of the next byte to read.
+    private int offset; // The offset of the character at the head.
+    private char pendingLow; // The low surrogate still to be delivered.
     private char nextChar; // The next character read.
     private boolean skipRead; // Whether or not to skip the next char
                               // read.
     private long currentLineNumber; // The current line number being processed.
+    private int lineStart; // The offset of the first byte of the current line.
     CharacterClass nextClass;
 
     /**
      * Constructs a new character stream whose source input is a file.
      * 
      * @param file the file to open for lexical analysis.
-     * @throws FileNotFoundException if the file can not be opened.
+     * @throws FileNotFoundException if the file can not be opened or mapped.
      */
     public CharacterStream(File file) throws FileNotFoundException
     {
-        input = new BufferedReader(new FileReader(file));
+        this(file, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a new character stream whose source input is a file,
+     * mapped at most {@code window} bytes at a time.
+     * 
+     * @param file the file to open for lexical analysis.
+     * @param window the most bytes to map at once.
+     * @throws FileNotFoundException if the file can not be opened or mapped,
+     * or its first window holds no blank to end at.
+     */
+    public CharacterStream(File file, int window) throws FileNotFoundException
+    {
+        this.file = file;
+        this.window = window;
+        try
+        {
+            bytes = map(0);
+        }
+        catch (IOException ioe)
+        {
+            FileNotFoundException fnf = new FileNotFoundException(
+                    file + " (" + ioe.getMessage() + ")");
+            fnf.initCause(ioe);
+            throw fnf;
+        }
         currentLineNumber = 1;
     }
 
+    /**
+     * Constructs a new character stream whose source is the contents of a 
+     * reader. The reader is read to the end when the stream is constructed.
+     * 
+     * @param input the reader to lexically analyze.
+     * @throws IOException if the reader fails before its end.
+     */
+    public CharacterStream(Reader input) throws IOException
+    {
+        this(readAll(input));
+    }
+
     /**
      * Constructs a new character whose source is a string.
      * 
@@ -76,7 +135,7 @@ public class CharacterStream {
      */
     public CharacterStream(String input)
     {
-        this.input = new BufferedReader(new StringReader(input));
+        bytes = ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
         currentLineNumber = 1;
     }
 
@@ -108,13 +167,69 @@ public class CharacterStream {
         return nextClass;
     }
 
-     /**
-     * Advances the stream one character.
+    /**
+     * Get the byte offset of the character at the head of the stream. At the
+     * end of the stream this is the length of the input, or of its last
+     * window.
+     * 
+     * @return the offset of the current character in the source buffer.
      */
-    public void advance()
+    public int getOffset()
+    {
+        return offset;
+    }
+
+    /**
+     * Get the column of the character at the head of the stream, counted in
+     * bytes from the start of its line.
+     * 
+     * @return the 1-based column of the current character.
+     */
+    public int getColumn()
+    {
+        return offset - lineStart + 1;
+    }
+
+    /**
+     * Get the buffer holding the UTF-8 source of the stream, or the window
+     * of it at the head. Tokens slice their lexemes out of this buffer; it
+     * must not be modified.
+     * 
+     * @return the source buffer.
+     */
+    ByteBuffer getSource()
     {
-        int c = -1;
+        return bytes;
+    }
 
+    /**
+     * Maps the next window of the file, which becomes the source buffer.
+     * 
+     * @return false if there is no next window.
+     * @throws UncheckedIOException if the window can not be mapped.
+     */
+    boolean nextWindow()
+    {
+        if (!more)
+            return false;
+
+        try
+        {
+            bytes = map(next);
+        }
+        catch (IOException ioe)
+        {
+            throw new UncheckedIOException(ioe);
+        }
+        return true;
+    }
+
+    /**
+     * Advances the stream one character. ASCII bytes are handled in place;
+     * anything else is decoded as a UTF-8 sequence.
+     */
+    public void advance()
+    {
         // Handle the unread operation.
         if (skipRead)
         {
@@ -122,38 +237,61 @@ public class CharacterStream {
             return;
         }
 
-        try
+        // Deliver the second half of a surrogate pair.
+        if (pendingLow != 0)
         {
-            c = input.read();
+            nextChar = pendingLow;
+            nextClass = CharacterClass.of(nextChar);
+            pendingLow = 0;
+            offset = pos;
+            return;
         }
-        catch (IOException ioe)
+
+        offset = pos;
+        if (pos >= bytes.limit())
         {
-            System.err.println("Internal error (getChar()): " + ioe);
-            nextChar = '\0';
-            nextClass = CharacterClass.END;
+            int length = bytes.limit();
+            if (!nextWindow())
+            {
+                nextChar = '\0';
+                nextClass = CharacterClass.END;
+                return;
+            }
+            lineStart -= length;
+            pos = 0;
+            offset = 0;
         }
 
-        if (c == -1) // If there is no character to read, we've reached the end.
+        int b = bytes.get(pos++);
+        if (b >= 0)
         {
-            nextChar = '\0';
-            nextClass = CharacterClass.END;
+            nextChar = (char) b;
+            nextClass = CharacterClass.ofAscii(b);
+
+            // Update the line counter for error checking.
+            if (b == '\n')
+            {
+                currentLineNumber++;
+                lineStart = pos;
+            }
             return;
         }
 
-        // Set the character and determine it's class.
-        nextChar = (char) c;
-        if (Character.isLetter(nextChar))
-            nextClass = CharacterClass.LETTER;
-        else if (Character.isDigit(nextChar))
-            nextClass = CharacterClass.DIGIT;
-        else if (Character.isWhitespace(nextChar))
-            nextClass = CharacterClass.WHITE_SPACE;
+        // Malformed sequences decode to U+FFFD and consume only the lead byte.
+        int cp = decode(bytes, pos - 1);
+        if (cp < 0)
+            cp = 0xFFFD;
         else
-            nextClass = CharacterClass.OTHER;
+            pos += encodedLength(cp) - 1;
 
-        // Update the line counter for error checking.
-        if (nextChar == '\n')
-            currentLineNumber++;
+        if (Character.isBmpCodePoint(cp))
+            nextChar = (char) cp;
+        else
+        {
+            nextChar = Character.highSurrogate(cp);
+            pendingLow = Character.lowSurrogate(cp);
+        }
+        nextClass = CharacterClass.of(nextChar);
     }
 
     /**
@@ -174,4 +312,143 @@ public class CharacterStream {
     public void skipNextAdvance() {
         skipRead = true;
     }    
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Maps the window of the file starting at {@code start}. Unless it runs
+     * to the end of the file, the window is cut back to just after its last
+     * ASCII blank.
+     * 
+     * @param start the file offset of the window.
+     * @return the window.
+     * @throws IOException if the file can not be mapped, or the window holds
+     * no blank to end at.
+     */
+    private ByteBuffer map(long start) throws IOException
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel())
+        {
+            long size = channel.size();
+            int length = (int) Math.min(window, size - start);
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+
+            if (start + length < size)
+            {
+                int end = length;
+                while (end > 0 && !isBlank(map.get(end - 1)))
+                    end--;
+                if (end == 0)
+                    throw new IOException("no blank in the " + length 
+                            + " bytes at offset " + start);
+                map.limit(end);
+            }
+            next = start + map.limit();
+            more = next < size;
+            return map;
+        }
+    }
+
+    /**
+     * Determines whether a byte is an ASCII blank, which never occurs
+     * inside a token or a multi-byte sequence.
+     * 
+     * @param b the byte.
+     * @return true if the byte is a blank.
+     */
+    private static boolean isBlank(byte b)
+    {
+        return b >= 0 && CharacterClass.ofAscii(b) == CharacterClass.WHITE_SPACE;
+    }
+
+    /**
+     * Reads a reader to the end.
+     * 
+     * @param input the reader to read.
+     * @return everything the reader produced.
+     * @throws IOException if the reader fails before its end.
+     */
+    private static String readAll(Reader input) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[8192];
+        int n;
+
+        while ((n = input.read(buf)) != -1)
+            sb.append(buf, 0, n);
+        return sb.toString();
+    }
+
+    /**
+     * Decodes the multi-byte UTF-8 sequence whose lead byte is at 
+     * {@code at}.
+     * 
+     * @param bytes the buffer holding the sequence.
+     * @param at the offset of the lead byte.
+     * @return the decoded code point, or -1 if the sequence is malformed.
+     */
+    static int decode(ByteBuffer bytes, int at)
+    {
+        int lead = bytes.get(at);
+        int len;
+        int cp;
+        int min;
+
+        if ((lead & 0xE0) == 0xC0)
+        {
+            len = 1;
+            cp = lead & 0x1F;
+            min = 0x80;
+        }
+        else if ((lead & 0xF0) == 0xE0)
+        {
+            len = 2;
+            cp = lead & 0x0F;
+            min = 0x800;
+        }
+        else if ((lead & 0xF8) == 0xF0)
+        {
+            len = 3;
+            cp = lead & 0x07;
+            min = 0x10000;
+        }
+        else
+            return -1;
+
+        if (at + 1 + len > bytes.limit())
+            return -1;
+
+        for (int i = 1; i <= len; i++)
+        {
+            int cont = bytes.get(at + i);
+            if ((cont & 0xC0) != 0x80)
+                return -1;
+            cp = (cp << 6) | (cont & 0x3F);
+        }
+
+        if (cp < min || cp > Character.MAX_CODE_POINT 
+                || (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE))
+            return -1;
+        return cp;
+    }
+
+    /**
+     * Get the number of bytes the UTF-8 encoding of a code point occupies.
+     * 
+     * @param cp the code point.
+     * @return the length of its encoding in bytes.
+     */
+    static int encodedLength(int cp)
+    {
+        if (cp < 0x80)
+            return 1;
+        else if (cp < 0x800)
+            return 2;
+        else if (cp < 0x10000)
+            return 3;
+        return 4;
+    }
 }
@@ -18,7 +18,9 @@ package lexer;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+
+import diagnostics.Diagnostics;
 
 /**
  * This file implements a basic lexical analyzer.
@@ -27,11 +29,10 @@ import java.util.HashMap;
  */
 public class Lexer
 {
-    // The dictionary of language keywords
-    private HashMap<String, TokenType> keywords;
- 
     // Stream of characters to generate token stream from.
     private CharacterStream stream;
+    private Diagnostics diagnostics;    // Where lexical errors are printed.
+    private boolean logErrors;          // True if lexical errors are printed.
 
     /**
      * Constructs a new lexical analyzer whose source input is a file.
@@ -41,8 +42,7 @@ public class Lexer
      */
     public Lexer(File file) throws FileNotFoundException
     {
-        stream = new CharacterStream(file);
-        loadKeywords();
+        this(new CharacterStream(file));
     }
 
     /**
@@ -52,8 +52,41 @@ public class Lexer
      */
     public Lexer(String input)
     {
-        stream = new CharacterStream(input);
-        loadKeywords();
+        this(new CharacterStream(input));
+    }
+
+    /**
+     * Constructs a new lexical analyzer over a character stream.
+     * 
+     * @param stream the stream to lexically analyze.
+     */
+    protected Lexer(CharacterStream stream)
+    {
+        this.stream = stream;
+        this.diagnostics = Diagnostics.CONSOLE;
+        this.logErrors = true;
+    }
+
+    /**
+     * Sets where lexical errors are printed, which is
+     * {@link Diagnostics#CONSOLE} by default.
+     * 
+     * @param diagnostics where to print.
+     */
+    public void setDiagnostics(Diagnostics diagnostics)
+    {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Turns the printing of lexical errors on or off. A literal in error
+     * is still returned as an unknown token.
+     * 
+     * @param logErrors true to print errors, which is the default.
+     */
+    public void setErrorLogging(boolean logErrors)
+    {
+        this.logErrors = logErrors;
     }
 
     /**
@@ -63,60 +96,52 @@ public class Lexer
      */
     public Token nextToken()
     {
-        String value = ""; // The value to be associated with the token.
+        int start;  // The offset of the token's lexeme in the source.
+        long line;  // The line the token starts on.
+        int column; // The column the token starts in.
 
         stream.advanceToNonBlank();
+        start = stream.getOffset();
+        line = stream.getLineNumber();
+        column = stream.getColumn();
         switch (stream.getCurrentClass())
         {
 
             // The state where we are recognizing identifiers.
             // Regex: [A-Za-Z][0-9a-zA-z]*
             case LETTER:
-                value += stream.getCurrentChar();
                 stream.advance();      // advance the stream.
 
                 // Read the rest of the identifier.
                 while (stream.getCurrentClass() == CharacterClass.DIGIT
                         || stream.getCurrentClass() == CharacterClass.LETTER)
-                {
-                    value += stream.getCurrentChar();
                     stream.advance();
-                }
                 stream.skipNextAdvance(); // The symbol just read is part of the next token.
 
-                // This could be an identifier or a token, if it's not in
-                // the keyword dictionary, it is an indentifier.
-                if (keywords.containsKey(value))
-                    return new Token(keywords.get(value), value);
-                return new Token(TokenType.ID, value);
+                // This could be an identifier or a token, if it's not a
+                // keyword symbol, it is an indentifier.
+                return word(stream.getSource(), start, 
+                        stream.getOffset() - start, line);
 
             // The state where we are recognizing digits.
             // Regex: [0-9]+
             case DIGIT:
-                value += stream.getCurrentChar();
                 stream.advance();
 
                 while (stream.getCurrentClass() == CharacterClass.DIGIT)
-                {
-                    value += stream.getCurrentChar();
                     stream.advance();
-                }
 
                 if (stream.getCurrentChar() == '.') // Decimal point.
                 {
-                    value += stream.getCurrentChar();
                     stream.advance();
                     while (stream.getCurrentClass() == CharacterClass.DIGIT)
-                    {
-                        value += stream.getCurrentChar();
                         stream.advance();
-                    }
                     stream.skipNextAdvance();
-                    return new Token(TokenType.REAL, value);
+                    return literal(TokenType.REAL, start, line, column);
                 }
                 stream.skipNextAdvance(); // The symbol just read is part of the next token.
 
-                return new Token(TokenType.INT, value);
+                return literal(TokenType.INT, start, line, column);
 
             // Handles all special character symbols.
             case OTHER:
@@ -124,7 +149,7 @@ public class Lexer
 
             // We reached the end of our input.
             case END:
-                return new Token(TokenType.EOF, "");
+                return Token.of(TokenType.EOF);
 
             // This should never be reached.
             default:
@@ -152,25 +177,23 @@ public class Lexer
      */
     private Token lookup()
     {
-        String value = "";
+        int start = stream.getOffset();
+        long line = stream.getLineNumber();
+        int column = stream.getColumn();
 
         switch (stream.getCurrentChar())
         {
         case '.': // A double with just a leading dot.
-            value += ".";
             stream.advance();
            
             while (stream.getCurrentClass() == CharacterClass.DIGIT)
-            {
-                value += stream.getCurrentChar();
                 stream.advance();
-            }
             stream.skipNextAdvance();
-            return new Token(TokenType.REAL, value);
+            return literal(TokenType.REAL, start, line, column);
         case ':': // A Pascal style assignment.
             stream.advance();
             if (stream.getCurrentChar() == '=')
-                return new Token(TokenType.ASSIGN, "");
+                return Token.of(TokenType.ASSIGN);
             else
             {
                 stream.skipNextAdvance(); // In case the character is part of a different token.
@@ -180,15 +203,15 @@ public class Lexer
 
         // Semi colon.
         case ';':
-            return new Token(TokenType.SEMI, ";");
+            return Token.of(TokenType.SEMI);
         case '+':
-            return new Token(TokenType.ADD, "+");
+            return Token.of(TokenType.ADD);
         case '-':
-            return new Token(TokenType.SUB, "-");
+            return Token.of(TokenType.SUB);
         case '*':
-            return new Token(TokenType.MULT, "*");
+            return Token.of(TokenType.MULT);
         case '/':
-            return new Token(TokenType.DIV, "/");
+            return Token.of(TokenType.DIV);
         case '(':
             // This could be the start of a block comment.
             stream.advance();
@@ -197,16 +220,16 @@ public class Lexer
             else
             {
                 stream.skipNextAdvance();
-                return new Token(TokenType.LPAREN, "(");
+                return Token.of(TokenType.LPAREN);
             }
         case ')':
-            return new Token(TokenType.RPAREN, ")");    
+            return Token.of(TokenType.RPAREN);    
         case '=':
-            return new Token(TokenType.EQ, "=");
+            return Token.of(TokenType.EQ);
         case '!':
             stream.advance();
             if (stream.getCurrentChar() == '=')
-                return new Token(TokenType.NEQ, "!=");
+                return Token.of(TokenType.NEQ);
             else
             {
                 stream.skipNextAdvance();
@@ -215,20 +238,20 @@ public class Lexer
         case '>':
             stream.advance();
             if (stream.getCurrentChar() == '=')
-                return new Token(TokenType.GTE, ">=");
+                return Token.of(TokenType.GTE);
             else
             {
                 stream.skipNextAdvance();
-                return new Token(TokenType.GT, ">");
+                return Token.of(TokenType.GT);
             }
         case '<':
             stream.advance();
             if (stream.getCurrentChar() == '=')
-                return new Token(TokenType.LTE, "<=");
+                return Token.of(TokenType.LTE);
             else
             {
                 stream.skipNextAdvance();
-                return new Token(TokenType.LT, "<");
+                return Token.of(TokenType.LT);
             }
         default:
             return new Token(TokenType.UNKNOWN, String.valueOf(stream.getCurrentChar()));
@@ -236,20 +259,93 @@ public class Lexer
     }
 
     /**
-     * Sets up the dictionary with all of the keywords.
+     * Builds a numeric literal token whose lexeme runs from {@code start} up
+     * to the character at the head of the stream.
+     * 
+     * @param type the type of the literal, either INT or REAL.
+     * @param start the offset of the lexeme in the source.
+     * @param line the line the lexeme starts on.
+     * @param column the column the lexeme starts in.
+     * @return the new token.
+     */
+    private Token literal(TokenType type, int start, long line, int column)
+    {
+        return number(type, stream.getSource(), start, 
+                stream.getOffset() - start, line, column);
+    }
+
+    /**
+     * Builds the token for a numeric literal, decoding its value from the
+     * source. An integer too big for an int is left undecoded, and becomes a
+     * {@link java.math.BigInteger} when the parser decodes it. A literal
+     * that can not be represented is reported as a lexical error and
+     * returned as an unknown token.
+     * 
+     * @param type the type of the literal, either INT or REAL.
+     * @param src the buffer holding the lexeme.
+     * @param start the offset of the lexeme.
+     * @param length the length of the lexeme in bytes.
+     * @param line the line the lexeme starts on.
+     * @param column the column the lexeme starts in.
+     * @return the literal token, or an unknown token holding the lexeme.
+     */
+    Token number(TokenType type, ByteBuffer src, int start, int length,
+            long line, int column)
+    {
+        try
+        {
+            long bits;
+            if (type == TokenType.INT)
+            {
+                bits = NumberParser.parseInt(src, start, length);
+                if (bits < 0)
+                    return new Token(type, src, start, length, line);
+            }
+            else
+                bits = Double.doubleToRawLongBits(
+                        NumberParser.parseReal(src, start, length));
+            return new Token(type, src, start, length, line, bits);
+        }
+        catch (NumberFormatException nfe)
+        {
+            logError(line, column, nfe.getMessage());
+            return new Token(TokenType.UNKNOWN, src, start, length, line);
+        }
+    }
+
+    /**
+     * Reports a lexical error to the diagnostics, unless error logging is
+     * off.
+     * 
+     * @param line the line the error occurred on.
+     * @param column the column the error occurred in.
+     * @param msg the error message.
+     */
+    private void logError(long line, int column, String msg)
+    {
+        if (logErrors)
+            diagnostics.println("Lexical Error (line " + line + ", column " 
+                    + column + "): " + msg);
+    }
+
+    /**
+     * Builds the token for an identifier or keyword. The spelling is 
+     * interned in place, so no string is built for identifiers already in
+     * the symbol table.
+     * 
+     * @param src the buffer holding the spelling.
+     * @param start the offset of the spelling.
+     * @param length the length of the spelling in bytes.
+     * @param line the line the spelling starts on.
+     * @return the keyword token or a new identifier token.
      */
-    private void loadKeywords()
+    static Token word(ByteBuffer src, int start, int length, long line)
     {
-        keywords = new HashMap<String, TokenType>();
-        keywords.put("and", TokenType.AND);
-        keywords.put("or", TokenType.OR);
-        keywords.put("not", TokenType.NOT);
-        keywords.put("val", TokenType.VAL);
-        keywords.put("true", TokenType.TRUE);
-        keywords.put("false", TokenType.FALSE);
-        keywords.put("mod", TokenType.MOD);
-         keywords.put("let", TokenType.LET);
-        keywords.put("in",  TokenType.IN);
+        int symbol = SymbolTable.intern(src, start, length);
+        TokenType keyword = SymbolTable.keyword(symbol);
+        if (keyword != null)
+            return Token.of(keyword);
+        return new Token(symbol, src, start, length, line);
     }
 
      /**
@@ -272,6 +368,6 @@ public class Lexer
             if (stream.getCurrentClass() == CharacterClass.END)
                 return new Token(TokenType.EOF, "Unfinished comment.");
         }
-        return new Token(TokenType.COMMENT, "");
+        return Token.of(TokenType.COMMENT);
     }
 }
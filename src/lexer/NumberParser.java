@@ -0,0 +1,298 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package lexer;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes numeric lexemes directly from the UTF-8 source buffer.
+ * <p>
+ * Integers are accumulated digit by digit. Reals are first reduced to a
+ * decimal significand {@code w} and power of ten {@code q}. When both are
+ * small the result is computed exactly with one double operation (Clinger's
+ * fast path); otherwise the Eisel-Lemire algorithm computes the correctly
+ * rounded double from a 128-bit product with a table of powers of five. The
+ * rare cases neither can decide (subnormals, or significands longer than 19
+ * digits that round ambiguously) fall back to {@link Double#parseDouble}.
+ */
+final class NumberParser
+{
+    private static final int MAX_DIGITS = 19;     // Digits that fit in a long.
+    private static final int SMALLEST_POWER = -342;
+    private static final int LARGEST_POWER = 308;
+
+    // Powers of ten that are exact as doubles.
+    private static final double[] EXACT_POWERS = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /**
+     * This class is not meant to be instantiated.
+     */
+    private NumberParser()
+    {
+    }
+
+    /**
+     * Decodes an integer lexeme.
+     *
+     * @param src the buffer holding the lexeme.
+     * @param start the offset of the lexeme.
+     * @param length the length of the lexeme in bytes.
+     * @return the value of the lexeme, or -1 if it does not fit in an int.
+     * @throws NumberFormatException if the lexeme is not an integer.
+     */
+    static long parseInt(ByteBuffer src, int start, int length)
+    {
+        long value = 0;
+
+        for (int i = 0; i < length; i++)
+        {
+            int d = src.get(start + i) - '0';
+            if (d < 0 || d > 9)
+                return Integer.parseInt(text(src, start, length));
+
+            value = value * 10 + d;
+            if (value > Integer.MAX_VALUE)
+                return -1;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes a real lexeme of the form {@code digits.digits}, where either
+     * run of digits may be empty.
+     *
+     * @param src the buffer holding the lexeme.
+     * @param start the offset of the lexeme.
+     * @param length the length of the lexeme in bytes.
+     * @return the double nearest the value of the lexeme.
+     * @throws NumberFormatException if the lexeme has no digits or a digit
+     * that is not ASCII.
+     */
+    static double parseReal(ByteBuffer src, int start, int length)
+    {
+        long w = 0;           // The first MAX_DIGITS significant digits,
+                              // as an unsigned value.
+        int q = 0;            // The power of ten to scale w by.
+        int significant = 0;  // The number of significant digits seen.
+        boolean seenDigit = false;
+        boolean fraction = false;
+
+        for (int i = 0; i < length; i++)
+        {
+            int c = src.get(start + i);
+            if (c == '.' && !fraction)
+            {
+                fraction = true;
+                continue;
+            }
+
+            int d = c - '0';
+            if (d < 0 || d > 9)
+                throw new NumberFormatException("invalid real literal "
+                        + text(src, start, length) + ".");
+            seenDigit = true;
+
+            if (d == 0 && significant == 0)
+            {
+                // Leading zeros only move the decimal point.
+                if (fraction)
+                    q--;
+                continue;
+            }
+
+            if (significant < MAX_DIGITS)
+            {
+                w = w * 10 + d;
+                if (fraction)
+                    q--;
+            }
+            else if (!fraction)
+                q++;
+            significant++;
+        }
+
+        if (!seenDigit)
+            throw new NumberFormatException("invalid real literal "
+                    + text(src, start, length) + ".");
+        if (w == 0)
+            return 0.0;
+
+        boolean truncated = significant > MAX_DIGITS;
+
+        // Clinger's fast path: w and 10^|q| are both exact doubles. Nineteen
+        // digits can overflow a signed long, so w is compared unsigned.
+        if (!truncated && Long.compareUnsigned(w, 1L << 53) <= 0
+                && q >= -22 && q <= 22)
+            return q < 0 ? w / EXACT_POWERS[-q] : w * EXACT_POWERS[q];
+
+        double d = eiselLemire(w, q);
+        if (truncated && !Double.isNaN(d) && d != eiselLemire(w + 1, q))
+            d = Double.NaN;
+        if (Double.isNaN(d))
+            return Double.parseDouble(text(src, start, length));
+        return d;
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Computes the double nearest {@code w * 10^q} using the Eisel-Lemire
+     * algorithm.
+     *
+     * @param w the decimal significand, which must be non-zero.
+     * @param q the power of ten.
+     * @return the correctly rounded double, or NaN if the result is
+     * subnormal and must be computed another way.
+     */
+    private static double eiselLemire(long w, int q)
+    {
+        if (q < SMALLEST_POWER)
+            return 0.0;
+        if (q > LARGEST_POWER)
+            return Double.POSITIVE_INFINITY;
+
+        int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+
+        // The 128-bit product of w and the truncated power of five.
+        int index = 2 * (q - SMALLEST_POWER);
+        long[] powers = Powers.FIVE;
+        long high = unsignedMultiplyHigh(w, powers[index]);
+        long low = w * powers[index];
+
+        long precisionMask = -1L >>> 55;
+        if ((high & precisionMask) == precisionMask)
+        {
+            long secondHigh = unsignedMultiplyHigh(w, powers[index + 1]);
+            long newLow = low + secondHigh;
+            if (Long.compareUnsigned(secondHigh, newLow) > 0)
+                high++;
+            low = newLow;
+        }
+
+        int upperbit = (int) (high >>> 63);
+        long mantissa = high >>> (upperbit + 9);
+        int power2 = ((217706 * q) >> 16) + 63 + upperbit - lz + 1023;
+
+        if (power2 <= 0)
+            return Double.NaN;
+
+        // Exactly halfway between two doubles: round to even.
+        if (Long.compareUnsigned(low, 1) <= 0 && q >= -4 && q <= 23
+                && (mantissa & 3) == 1
+                && (mantissa << (upperbit + 9)) == high)
+            mantissa &= ~1L;
+
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= (2L << 52))
+        {
+            mantissa = 1L << 52;
+            power2++;
+        }
+        mantissa &= ~(1L << 52);
+
+        if (power2 >= 0x7FF)
+            return Double.POSITIVE_INFINITY;
+        return Double.longBitsToDouble(mantissa | ((long) power2 << 52));
+    }
+
+    /**
+     * Computes the high 64 bits of the unsigned 128-bit product of two longs.
+     *
+     * @param a the first factor.
+     * @param b the second factor.
+     * @return the high half of {@code a * b}, treating both as unsigned.
+     */
+    private static long unsignedMultiplyHigh(long a, long b)
+    {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    /**
+     * Get the text of a lexeme.
+     *
+     * @param src the buffer holding the lexeme.
+     * @param start the offset of the lexeme.
+     * @param length the length of the lexeme in bytes.
+     * @return the lexeme as a string.
+     */
+    private static String text(ByteBuffer src, int start, int length)
+    {
+        byte[] bytes = new byte[length];
+        src.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The table of 128-bit powers of five used by Eisel-Lemire, built on
+     * first use. Entry {@code 2 * (q + 342)} holds the high 64 bits and the
+     * next entry the low 64 bits of 5^q, normalized so the top bit is set.
+     */
+    private static final class Powers
+    {
+        static final long[] FIVE = build();
+
+        /**
+         * Computes the table.
+         *
+         * @return the table of powers of five.
+         */
+        private static long[] build()
+        {
+            long[] table = new long[2 * (LARGEST_POWER - SMALLEST_POWER + 1)];
+            BigInteger five = BigInteger.valueOf(5);
+            BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+            BigInteger two127 = BigInteger.ONE.shiftLeft(127);
+
+            for (int q = SMALLEST_POWER; q <= LARGEST_POWER; q++)
+            {
+                BigInteger c;
+                if (q < 0)
+                {
+                    // The reciprocal, rounded up.
+                    BigInteger power5 = five.pow(-q);
+                    int z = power5.bitLength();
+                    int b = q >= -27 ? z + 127 : 2 * z + 128;
+                    c = BigInteger.ONE.shiftLeft(b).divide(power5).add(BigInteger.ONE);
+                    while (c.compareTo(two128) >= 0)
+                        c = c.shiftRight(1);
+                }
+                else
+                {
+                    // The power itself, truncated.
+                    c = five.pow(q);
+                    while (c.compareTo(two127) < 0)
+                        c = c.shiftLeft(1);
+                    while (c.compareTo(two128) >= 0)
+                        c = c.shiftRight(1);
+                }
+
+                int i = 2 * (q - SMALLEST_POWER);
+                table[i] = c.shiftRight(64).longValue();
+                table[i + 1] = c.longValue();
+            }
+            return table;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The process-wide table of symbols. Every distinct identifier spelling is
+ * given a small, dense integer id the first time it is seen, and keeps that
+ * id for the life of the process. The language keywords are interned first
+ * so that a lexer can recognize them by id.
+ * <p>
+ * Interning is synchronized; looking up the name of an id is not.
+ */
+public final class SymbolTable
+{
+    // The keywords, in id order, and the token types they produce.
+    private static final String[] KEYWORDS = {
+        "and", "or", "not", "val", "true", "false", "mod", "let", "in" };
+    private static final TokenType[] KEYWORD_TYPES = {
+        TokenType.AND, TokenType.OR, TokenType.NOT, TokenType.VAL,
+        TokenType.TRUE, TokenType.FALSE, TokenType.MOD, TokenType.LET,
+        TokenType.IN };
+
+    // Names looked up as strings, to avoid encoding them again.
+    private static final ConcurrentHashMap<String, Integer> byName =
+        new ConcurrentHashMap<>();
+
+    private static volatile String[] names = new String[64]; // Name of each id.
+    private static byte[][] spellings = new byte[64][];     // UTF-8 of each id.
+    private static int[] hashes = new int[64];              // Hash of each id.
+    private static int[] table = new int[128];  // Open addressing, id + 1 or 0.
+    private static int count;                   // The number of symbols.
+
+    static
+    {
+        for (String kw : KEYWORDS)
+            intern(kw);
+    }
+
+    /**
+     * This class is not meant to be instantiated.
+     */
+    private SymbolTable()
+    {
+    }
+
+    /**
+     * Get the id of a name, assigning a new one if the name has not been
+     * seen before.
+     *
+     * @param name the name to intern.
+     * @return the id of {@code name}.
+     */
+    public static int intern(String name)
+    {
+        Integer id = byName.get(name);
+        if (id != null)
+            return id;
+
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        int sym = intern(ByteBuffer.wrap(utf8), 0, utf8.length);
+        byName.put(name, sym);
+        return sym;
+    }
+
+    /**
+     * Get the id of the UTF-8 spelling {@code length} bytes long at
+     * {@code start} in {@code src}, assigning a new one if the spelling has
+     * not been seen before. No string is built unless the spelling is new.
+     *
+     * @param src the buffer holding the spelling.
+     * @param start the offset of the spelling.
+     * @param length the length of the spelling in bytes.
+     * @return the id of the spelling.
+     */
+    static synchronized int intern(ByteBuffer src, int start, int length)
+    {
+        int hash = hash(src, start, length);
+        int mask = table.length - 1;
+        int i = hash & mask;
+
+        while (table[i] != 0)
+        {
+            int id = table[i] - 1;
+            if (hashes[id] == hash && matches(spellings[id], src, start, length))
+                return id;
+            i = (i + 1) & mask;
+        }
+
+        byte[] spelling = new byte[length];
+        src.get(start, spelling);
+        return add(spelling, hash, i);
+    }
+
+    /**
+     * Get the name of a symbol.
+     *
+     * @param id the id of the symbol.
+     * @return the name the id was assigned to.
+     */
+    public static String name(int id)
+    {
+        return names[id];
+    }
+
+    /**
+     * Get the keyword a symbol spells, if any.
+     *
+     * @param id the id of the symbol.
+     * @return the token type of the keyword, or null if the symbol is an
+     * ordinary identifier.
+     */
+    public static TokenType keyword(int id)
+    {
+        return id < KEYWORD_TYPES.length ? KEYWORD_TYPES[id] : null;
+    }
+
+    /**
+     * Get the number of symbols interned so far. Every id is less than this.
+     *
+     * @return the number of symbols.
+     */
+    public static synchronized int size()
+    {
+        return count;
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Adds a new symbol.
+     *
+     * @param spelling the UTF-8 spelling of the symbol.
+     * @param hash the hash of the spelling.
+     * @param slot the empty table slot to record the symbol in.
+     * @return the id of the new symbol.
+     */
+    private static int add(byte[] spelling, int hash, int slot)
+    {
+        int id = count;
+        if (id == spellings.length)
+        {
+            spellings = Arrays.copyOf(spellings, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+
+        spellings[id] = spelling;
+        hashes[id] = hash;
+        table[slot] = id + 1;
+        count++;
+
+        String[] n = names;
+        if (id == n.length)
+            n = Arrays.copyOf(n, id * 2);
+        n[id] = new String(spelling, StandardCharsets.UTF_8);
+        names = n;
+
+        // Keep the table at most half full.
+        if (count * 2 > table.length)
+            rehash();
+        return id;
+    }
+
+    /**
+     * Doubles the size of the open addressing table.
+     */
+    private static void rehash()
+    {
+        int[] bigger = new int[table.length * 2];
+        int mask = bigger.length - 1;
+
+        for (int id = 0; id < count; id++)
+        {
+            int i = hashes[id] & mask;
+            while (bigger[i] != 0)
+                i = (i + 1) & mask;
+            bigger[i] = id + 1;
+        }
+        table = bigger;
+    }
+
+    /**
+     * Hashes a UTF-8 spelling.
+     *
+     * @param src the buffer holding the spelling.
+     * @param start the offset of the spelling.
+     * @param length the length of the spelling in bytes.
+     * @return the hash of the spelling.
+     */
+    private static int hash(ByteBuffer src, int start, int length)
+    {
+        int h = length;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + src.get(start + i);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Determines if a stored spelling matches a spelling in a buffer.
+     *
+     * @param spelling the stored spelling.
+     * @param src the buffer holding the other spelling.
+     * @param start the offset of the other spelling.
+     * @param length the length of the other spelling in bytes.
+     * @return true if they are the same bytes; otherwise, false.
+     */
+    private static boolean matches(byte[] spelling, ByteBuffer src, int start, int length)
+    {
+        if (spelling.length != length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (spelling[i] != src.get(start + i))
+                return false;
+        return true;
+    }
+}
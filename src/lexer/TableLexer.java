@@ -0,0 +1,454 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package lexer;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A table-driven lexical analyzer. It produces the same tokens as
+ * {@link Lexer} but scans the UTF-8 source buffer directly instead of
+ * pulling one character at a time from a {@link CharacterStream}.
+ * Identifiers and numbers are recognized with the ASCII table in
+ * {@link CharacterClass}; the punctuation and multi-character operators are
+ * recognized by a state-transition table generated from their spellings.
+ * <p>
+ * Line numbers follow the same convention as {@link Lexer}: a newline that
+ * immediately follows a token counts as soon as the token has been read.
+ */
+public class TableLexer extends Lexer
+{
+    // The spellings of the fixed tokens and their types.
+    private static final String[] SPELLINGS = {
+        ";", "+", "-", "*", "/", "(", ")", "=", "<", ">",
+        "<=", ">=", "!=", ":=", "(*" };
+    private static final TokenType[] TYPES = {
+        TokenType.SEMI, TokenType.ADD, TokenType.SUB, TokenType.MULT,
+        TokenType.DIV, TokenType.LPAREN, TokenType.RPAREN, TokenType.EQ,
+        TokenType.LT, TokenType.GT, TokenType.LTE, TokenType.GTE,
+        TokenType.NEQ, TokenType.ASSIGN, TokenType.COMMENT };
+
+    private static final int ALPHABET = 128; // Transitions exist for ASCII only.
+
+    private static final int[] NEXT;           // The transition table, 0 for none.
+    private static final Token[] ACCEPT;       // The token accepted in a state.
+    private static final boolean[] EXTENDS;    // True if a state has transitions.
+
+    static
+    {
+        List<int[]> rows = new ArrayList<>();
+        List<Integer> accepts = new ArrayList<>();
+
+        rows.add(new int[ALPHABET]);
+        accepts.add(-1);
+        for (int i = 0; i < SPELLINGS.length; i++)
+        {
+            int state = 0;
+            for (char ch : SPELLINGS[i].toCharArray())
+            {
+                int[] row = rows.get(state);
+                if (row[ch] == 0)
+                {
+                    row[ch] = rows.size();
+                    rows.add(new int[ALPHABET]);
+                    accepts.add(-1);
+                }
+                state = row[ch];
+            }
+            accepts.set(state, i);
+        }
+
+        NEXT = new int[rows.size() * ALPHABET];
+        ACCEPT = new Token[rows.size()];
+        EXTENDS = new boolean[rows.size()];
+        for (int state = 0; state < rows.size(); state++)
+        {
+            int[] row = rows.get(state);
+            System.arraycopy(row, 0, NEXT, state * ALPHABET, ALPHABET);
+            for (int next : row)
+                EXTENDS[state] |= next != 0;
+
+            int op = accepts.get(state);
+            if (op >= 0)
+                ACCEPT[state] = Token.of(TYPES[op]);
+        }
+    }
+
+    private final CharacterStream stream; // The stream holding the source.
+    private ByteBuffer src;         // The UTF-8 source, or its mapped window.
+    private int limit;              // The length of the source.
+    private int pos;                // The offset of the next unread byte.
+    private long line;              // The line of the next unread byte.
+    private int lineStart;          // The offset of the start of that line.
+    private boolean peekedNewline;  // True if the byte after the last token
+                                    // is a newline.
+    private int width;              // The width of the last decoded character.
+
+    /**
+     * Constructs a new table-driven lexical analyzer whose source input is a
+     * file.
+     *
+     * @param file the file to open for lexical analysis.
+     * @throws FileNotFoundException if the file can not be opened.
+     */
+    public TableLexer(File file) throws FileNotFoundException
+    {
+        this(new CharacterStream(file));
+    }
+
+    /**
+     * Constructs a new table-driven lexical analyzer whose source is a
+     * string.
+     *
+     * @param input the input to lexically analyze.
+     */
+    public TableLexer(String input)
+    {
+        this(new CharacterStream(input));
+    }
+
+    /**
+     * Constructs a new table-driven lexical analyzer over the buffer of a
+     * character stream, moving through its windows as it goes.
+     *
+     * @param stream the stream whose buffer should be analyzed.
+     */
+    public TableLexer(CharacterStream stream)
+    {
+        super(stream);
+        this.stream = stream;
+        src = stream.getSource();
+        limit = src.limit();
+        line = 1;
+    }
+
+    /**
+     * Gets the next token from the source.
+     *
+     * @return the next token.
+     */
+    @Override
+    public Token nextToken()
+    {
+        ByteBuffer src = this.src;
+        int limit = this.limit;
+        int p = pos;
+        long ln = line;
+        int lnStart = lineStart;
+        int b;
+
+        // Skip white space, counting lines as we go.
+        while (true)
+        {
+            if (p >= limit)
+            {
+                if (nextWindow())
+                {
+                    lnStart -= limit;
+                    src = this.src;
+                    limit = this.limit;
+                    p = 0;
+                    continue;
+                }
+                pos = p;
+                line = ln;
+                lineStart = lnStart;
+                peekedNewline = false;
+                return Token.of(TokenType.EOF);
+            }
+
+            b = src.get(p);
+            if (b >= 0)
+            {
+                if (CharacterClass.ofAscii(b) != CharacterClass.WHITE_SPACE)
+                    break;
+                if (b == '\n')
+                {
+                    ln++;
+                    lnStart = p + 1;
+                }
+                p++;
+            }
+            else if (classAt(p) == CharacterClass.WHITE_SPACE)
+                p += width;
+            else
+                break;
+        }
+
+        final int start = p;
+        line = ln;
+        lineStart = lnStart;
+        CharacterClass cls = b >= 0 ? CharacterClass.ofAscii(b) : classAt(p);
+
+        // Identifiers and keywords.
+        if (cls == CharacterClass.LETTER)
+        {
+            p = scanWord(p + (b >= 0 ? 1 : width));
+            finish(p);
+            return word(src, start, p - start, ln);
+        }
+
+        // Integers and reals.
+        if (cls == CharacterClass.DIGIT || b == '.')
+        {
+            TokenType type = TokenType.INT;
+            if (b != '.')
+                p = scanDigits(p + (b >= 0 ? 1 : width));
+            if (p < limit && src.get(p) == '.')
+            {
+                type = TokenType.REAL;
+                p = scanDigits(p + 1);
+            }
+            finish(p);
+            return number(type, src, start, p - start, ln, start - lnStart + 1);
+        }
+
+        // Punctuation and operators, longest match first.
+        int state = 0;
+        int accepted = -1;
+        int end = p;
+        while (p < limit)
+        {
+            int c = src.get(p);
+            if (c < 0)
+                break;
+            int next = NEXT[state * ALPHABET + c];
+            if (next == 0)
+                break;
+            state = next;
+            p++;
+            if (ACCEPT[state] != null)
+            {
+                accepted = state;
+                end = p;
+            }
+        }
+
+        if (accepted >= 0)
+        {
+            if (ACCEPT[accepted].getType() == TokenType.COMMENT)
+                return consumeComment(end, ln);
+
+            pos = end;
+            peekedNewline = EXTENDS[accepted] && end < limit && src.get(end) == '\n';
+            return ACCEPT[accepted];
+        }
+
+        // A lone ':' or '!', or a character that starts no token.
+        if (b == ':')
+        {
+            finish(start + 1);
+            return new Token(TokenType.UNKNOWN, ":" + charAt(start + 1));
+        }
+        else if (b == '!')
+        {
+            finish(start + 1);
+            return new Token(TokenType.UNKNOWN, "");
+        }
+
+        String value = charAt(start);
+        pos = start + (b >= 0 ? 1 : width);
+        peekedNewline = false;
+        return new Token(TokenType.UNKNOWN, value);
+    }
+
+    /**
+     * Get the current line number being processed.
+     *
+     * @return the current line number being processed.
+     */
+    @Override
+    public long getLineNumber()
+    {
+        return peekedNewline ? line + 1 : line;
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Scans the rest of an identifier.
+     *
+     * @param p the offset just past the first letter.
+     * @return the offset just past the identifier.
+     */
+    private int scanWord(int p)
+    {
+        while (p < limit)
+        {
+            int c = src.get(p);
+            if (c >= 0)
+            {
+                CharacterClass cls = CharacterClass.ofAscii(c);
+                if (cls != CharacterClass.LETTER && cls != CharacterClass.DIGIT)
+                    break;
+                p++;
+            }
+            else
+            {
+                CharacterClass cls = classAt(p);
+                if (cls != CharacterClass.LETTER && cls != CharacterClass.DIGIT)
+                    break;
+                p += width;
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Scans a run of digits.
+     *
+     * @param p the offset to start at.
+     * @return the offset just past the digits.
+     */
+    private int scanDigits(int p)
+    {
+        while (p < limit)
+        {
+            int c = src.get(p);
+            if (c >= 0)
+            {
+                if (CharacterClass.ofAscii(c) != CharacterClass.DIGIT)
+                    break;
+                p++;
+            }
+            else if (classAt(p) == CharacterClass.DIGIT)
+                p += width;
+            else
+                break;
+        }
+        return p;
+    }
+
+    /**
+     * Skips the body of a block comment.
+     *
+     * @param p the offset just past the opening "(*".
+     * @param ln the line the comment starts on.
+     * @return a comment token, or an end of file token if the comment is
+     * never closed.
+     */
+    private Token consumeComment(int p, long ln)
+    {
+        while (true)
+        {
+            if (p >= limit)
+            {
+                int length = limit;
+                if (!nextWindow())
+                    break;
+                lineStart -= length;
+                p = 0;
+            }
+
+            int c = src.get(p++);
+            if (c == '\n')
+            {
+                ln++;
+                lineStart = p;
+            }
+            else if (c == '*' && p < limit && src.get(p) == ')')
+            {
+                pos = p + 1;
+                line = ln;
+                peekedNewline = false;
+                return Token.of(TokenType.COMMENT);
+            }
+        }
+
+        pos = limit;
+        line = ln;
+        peekedNewline = false;
+        return new Token(TokenType.EOF, "Unfinished comment.");
+    }
+
+    /**
+     * Moves on to the next window of the source, if it has one.
+     *
+     * @return false if the source has no next window.
+     */
+    private boolean nextWindow()
+    {
+        if (!stream.nextWindow())
+            return false;
+        src = stream.getSource();
+        limit = src.limit();
+        return true;
+    }
+
+    /**
+     * Records the end of a token whose next character was examined.
+     *
+     * @param p the offset just past the token.
+     */
+    private void finish(int p)
+    {
+        pos = p;
+        peekedNewline = p < limit && src.get(p) == '\n';
+    }
+
+    /**
+     * Classifies the non-ASCII character at {@code p} and records its width
+     * in bytes. Characters outside the basic multilingual plane and
+     * malformed sequences are classified as {@code OTHER}.
+     *
+     * @param p the offset of the character's lead byte.
+     * @return the class of the character.
+     */
+    private CharacterClass classAt(int p)
+    {
+        int cp = CharacterStream.decode(src, p);
+        if (cp < 0)
+        {
+            width = 1;
+            return CharacterClass.OTHER;
+        }
+
+        width = CharacterStream.encodedLength(cp);
+        if (!Character.isBmpCodePoint(cp))
+            return CharacterClass.OTHER;
+        return CharacterClass.of((char) cp);
+    }
+
+    /**
+     * Get the character at {@code p} as a string, recording its width in
+     * bytes.
+     *
+     * @param p the offset of the character.
+     * @return the character, or "\0" at the end of the source.
+     */
+    private String charAt(int p)
+    {
+        width = 1;
+        if (p >= limit)
+            return "\0";
+
+        int c = src.get(p);
+        if (c >= 0)
+            return String.valueOf((char) c);
+
+        int cp = CharacterStream.decode(src, p);
+        if (cp < 0)
+            return "\uFFFD";
+        width = CharacterStream.encodedLength(cp);
+        return new String(Character.toChars(cp));
+    }
+}
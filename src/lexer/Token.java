@@ -16,15 +16,58 @@
  */
 package lexer;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+
 /**
- * Implements a basic token class.
+ * Implements a basic token class. A token produced by the lexer records
+ * where its lexeme lives in the shared source buffer (start, length, and
+ * line) and only builds the lexeme's {@code String} when 
+ * {@link #getValue()} is first called. Identifier tokens also carry the id
+ * of their name in the {@link SymbolTable}.
+ * <p>
+ * Numeric literals produced by the lexer carry their decoded value, so it
+ * is parsed from the source only once.
+ * <p>
+ * Punctuation and keywords are represented by shared, immutable tokens
+ * obtained from {@link #of(TokenType)}.
  *
  * @author Zach Kissel
  */
 public class Token
 {
-    private String val; // The value of the token.
+    private String val; // The value of the token, null until materialized.
     private TokenType type; // The type of token represented.
+    private ByteBuffer source; // The buffer holding the lexeme, if any.
+    private int start; // The offset of the lexeme in the source.
+    private int length; // The length of the lexeme in bytes.
+    private long line; // The line the token starts on.
+    private int symbol = -1; // The symbol id of an identifier, otherwise -1.
+    private long bits; // The decoded value of a numeric literal.
+    private boolean decoded; // True if bits holds the literal's value.
+    private final boolean shared; // True if this is a shared fixed token.
+
+    // The shared tokens for punctuation and keywords.
+    private static final EnumMap<TokenType, Token> FIXED = new EnumMap<>(TokenType.class);
+
+    static
+    {
+        String[][] spellings = {
+            { "SEMI", ";" }, { "ADD", "+" }, { "SUB", "-" }, { "MULT", "*" },
+            { "DIV", "/" }, { "LPAREN", "(" }, { "RPAREN", ")" }, { "EQ", "=" },
+            { "NEQ", "!=" }, { "LT", "<" }, { "GT", ">" }, { "LTE", "<=" },
+            { "GTE", ">=" }, { "ASSIGN", "" }, { "COMMENT", "" }, { "EOF", "" },
+            { "AND", "and" }, { "OR", "or" }, { "NOT", "not" }, { "VAL", "val" },
+            { "TRUE", "true" }, { "FALSE", "false" }, { "MOD", "mod" },
+            { "LET", "let" }, { "IN", "in" } };
+
+        for (String[] sp : spellings)
+        {
+            TokenType type = TokenType.valueOf(sp[0]);
+            FIXED.put(type, new Token(type, sp[1], true));
+        }
+    }
 
     /**
      * This is the default constructor.
@@ -33,7 +76,7 @@ public class Token
     {
         val = "";
         type = TokenType.UNKNOWN;
-
+        shared = false;
     }
 
     /**
@@ -43,9 +86,95 @@ public class Token
      * @param val  the value stored in the token.
      */
     public Token(TokenType type, String val)
+    {
+        this(type, val, false);
+    }
+
+    /**
+     * Constructs a token with the given value and type.
+     *
+     * @param type   the type of the token.
+     * @param val    the value stored in the token.
+     * @param shared true if the token is a shared fixed token.
+     */
+    private Token(TokenType type, String val, boolean shared)
     {
         this.type = type;
         this.val = val;
+        this.shared = shared;
+    }
+
+    /**
+     * Constructs a token whose value is the lexeme {@code length} bytes long
+     * starting at {@code start} in the UTF-8 buffer {@code source}.
+     *
+     * @param type   the type of the token.
+     * @param source the buffer holding the lexeme.
+     * @param start  the offset of the lexeme in {@code source}.
+     * @param length the length of the lexeme in bytes.
+     * @param line   the line the token starts on.
+     */
+    public Token(TokenType type, ByteBuffer source, int start, int length, long line)
+    {
+        this.type = type;
+        this.source = source;
+        this.start = start;
+        this.length = length;
+        this.line = line;
+        this.shared = false;
+    }
+
+    /**
+     * Constructs an identifier token for the symbol {@code symbol} whose
+     * lexeme is {@code length} bytes long starting at {@code start} in the
+     * UTF-8 buffer {@code source}.
+     *
+     * @param symbol the id of the identifier in the {@link SymbolTable}.
+     * @param source the buffer holding the lexeme.
+     * @param start  the offset of the lexeme in {@code source}.
+     * @param length the length of the lexeme in bytes.
+     * @param line   the line the token starts on.
+     */
+    public Token(int symbol, ByteBuffer source, int start, int length, long line)
+    {
+        this(TokenType.ID, source, start, length, line);
+        this.symbol = symbol;
+    }
+
+    /**
+     * Constructs a numeric literal token whose lexeme is {@code length} bytes
+     * long starting at {@code start} in the UTF-8 buffer {@code source}, and
+     * whose value has already been decoded.
+     *
+     * @param type   the type of the token, either INT or REAL.
+     * @param source the buffer holding the lexeme.
+     * @param start  the offset of the lexeme in {@code source}.
+     * @param length the length of the lexeme in bytes.
+     * @param line   the line the token starts on.
+     * @param bits   the int value, or the raw bits of the double value.
+     */
+    Token(TokenType type, ByteBuffer source, int start, int length, long line, long bits)
+    {
+        this(type, source, start, length, line);
+        this.bits = bits;
+        this.decoded = true;
+    }
+
+    /**
+     * Get the shared token for a punctuation symbol or keyword. The token
+     * is immutable.
+     *
+     * @param type the type of the token.
+     * @return the shared token of type {@code type}.
+     * @throws IllegalArgumentException if tokens of type {@code type} carry 
+     * a value of their own.
+     */
+    public static Token of(TokenType type)
+    {
+        Token tok = FIXED.get(type);
+        if (tok == null)
+            throw new IllegalArgumentException("No fixed token for " + type);
+        return tok;
     }
 
     /**
@@ -55,9 +184,91 @@ public class Token
      */
     public String getValue()
     {
+        if (val == null && symbol >= 0)
+            val = SymbolTable.name(symbol);
+        else if (val == null && source != null)
+        {
+            byte[] lexeme = new byte[length];
+            source.get(start, lexeme);
+            val = new String(lexeme, StandardCharsets.UTF_8);
+        }
         return val;
     }
 
+    /**
+     * Get the value of an integer literal. Tokens produced by a lexer were
+     * decoded when they were lexed, unless they are too big for an int;
+     * others are parsed from their value.
+     *
+     * @return the value of the literal.
+     * @throws NumberFormatException if the value is not a valid int.
+     */
+    public int getIntValue()
+    {
+        if (decoded)
+            return (int) bits;
+        return Integer.parseInt(getValue());
+    }
+
+    /**
+     * Get the value of a real literal. Tokens produced by a lexer were
+     * decoded when they were lexed; others are parsed from their value.
+     *
+     * @return the value of the literal.
+     * @throws NumberFormatException if the value is not a valid double.
+     */
+    public double getRealValue()
+    {
+        if (decoded)
+            return Double.longBitsToDouble(bits);
+        return Double.parseDouble(getValue());
+    }
+
+    /**
+     * Get the offset of the lexeme in the source buffer.
+     *
+     * @return the offset of the lexeme, or 0 if the token has no source.
+     */
+    public int getStart()
+    {
+        return start;
+    }
+
+    /**
+     * Get the length of the lexeme in the source buffer.
+     *
+     * @return the length of the lexeme in bytes, or 0 if the token has no
+     * source.
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Get the symbol id of an identifier token. Identifier tokens that were
+     * not produced by a lexer are interned on first use.
+     *
+     * @return the id of the identifier in the {@link SymbolTable}, or -1 if
+     * the token is not an identifier.
+     */
+    public int getSymbol()
+    {
+        if (symbol < 0 && type == TokenType.ID && !shared)
+            symbol = SymbolTable.intern(getValue());
+        return symbol;
+    }
+
+    /**
+     * Get the line the token starts on.
+     *
+     * @return the line number, or 0 if it is not known.
+     */
+    public long getLine()
+    {
+        return line;
+    }
+
     /**
      * Get the current type associated with the token.
      *
@@ -72,20 +283,39 @@ public class Token
      * Set the value associated with the token.
      *
      * @param val the value of the token.
+     * @throws UnsupportedOperationException if the token is a shared token.
      */
     public void setValue(String val)
     {
+        checkMutable();
         this.val = val;
+        this.symbol = -1;
+        this.decoded = false;
     }
 
     /**
      * Sets the type of token.
      *
      * @param type the type of token.
+     * @throws UnsupportedOperationException if the token is a shared token.
      */
     public void setType(TokenType type)
     {
+        checkMutable();
         this.type = type;
+        this.symbol = -1;
+        this.decoded = false;
+    }
+
+    /**
+     * Ensures the token is not a shared fixed token.
+     *
+     * @throws UnsupportedOperationException if the token is shared.
+     */
+    private void checkMutable()
+    {
+        if (shared)
+            throw new UnsupportedOperationException("Shared tokens are immutable.");
     }
 
     /**
@@ -106,7 +336,7 @@ public class Token
             return false;
 
         Token tok = (Token) obj;
-        return this.val.equals(tok.val);
+        return this.getValue().equals(tok.getValue());
     }
 
     /**
@@ -120,11 +350,11 @@ public class Token
         switch (type)
         {
         case UNKNOWN:
-            return "UNKNOWN(" + val + ")";
+            return "UNKNOWN(" + getValue() + ")";
         case INT:
-            return "INT(" + val + ")";
+            return "INT(" + getValue() + ")";
         case REAL:
-            return "REAL(" + val + ")";
+            return "REAL(" + getValue() + ")";
         case ADD:
             return "ADD";
         case SUB:
@@ -138,7 +368,7 @@ public class Token
         case RPAREN:
             return "RPAREN";
         case ID:
-            return "ID(" + val + ")";
+            return "ID(" + getValue() + ")";
         case AND:
             return "AND";
         case OR:
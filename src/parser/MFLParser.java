@@ -18,6 +18,7 @@ package parser;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayDeque;
 import java.util.LinkedList;
 
 import ast.SyntaxTree;
@@ -29,6 +30,7 @@ import ast.nodes.SyntaxNode;
 import ast.nodes.TokenNode;
 import ast.nodes.UnaryOpNode;
 import ast.nodes.ValNode;
+import closure.CompiledProgram;
 import lexer.Lexer;
 import lexer.TokenType;
 import lexer.Token;
@@ -38,6 +40,33 @@ import lexer.Token;
  */
 public class MFLParser extends Parser {
 
+  // Binding levels for precedence climbing; 0 means not an infix operator.
+  private static final int LOGIC = 1;   // and or
+  private static final int REL = 2;     // < <= > >= = !=
+  private static final int ADD = 3;     // + -
+  private static final int MULT = 4;    // * / mod
+  private static final int UNARY = 5;   // The operand of a unary minus.
+
+  private static final int[] LEVEL = new int[TokenType.values().length];
+
+  static {
+    LEVEL[TokenType.AND.ordinal()] = LOGIC;
+    LEVEL[TokenType.OR.ordinal()] = LOGIC;
+    LEVEL[TokenType.LT.ordinal()] = REL;
+    LEVEL[TokenType.LTE.ordinal()] = REL;
+    LEVEL[TokenType.GT.ordinal()] = REL;
+    LEVEL[TokenType.GTE.ordinal()] = REL;
+    LEVEL[TokenType.EQ.ordinal()] = REL;
+    LEVEL[TokenType.NEQ.ordinal()] = REL;
+    LEVEL[TokenType.ADD.ordinal()] = ADD;
+    LEVEL[TokenType.SUB.ordinal()] = ADD;
+    LEVEL[TokenType.MULT.ordinal()] = MULT;
+    LEVEL[TokenType.DIV.ordinal()] = MULT;
+    LEVEL[TokenType.MOD.ordinal()] = MULT;
+  }
+
+  private ParseMode mode = ParseMode.PRATT; // How expressions are parsed.
+
   public MFLParser(File src) throws FileNotFoundException {
     super(new Lexer(src));
   }
@@ -46,6 +75,25 @@ public class MFLParser extends Parser {
     super(new Lexer(str));
   }
 
+  /**
+   * Constructs a parser over the tokens produced by {@code lex}, for
+   * example a {@link lexer.TableLexer}.
+   *
+   * @param lex the lexer to read tokens from.
+   */
+  public MFLParser(Lexer lex) {
+    super(lex);
+  }
+
+  /**
+   * Selects how expressions are parsed. Every mode builds the same tree.
+   *
+   * @param mode the parsing mode to use.
+   */
+  public void setParseMode(ParseMode mode) {
+    this.mode = mode;
+  }
+
   public SyntaxTree parse() throws ParseException {
     SyntaxTree ast;
     nextToken();                 // Get the first token.
@@ -54,6 +102,22 @@ public class MFLParser extends Parser {
     return ast;
   }
 
+  /**
+   * Parses the program and compiles it for evaluation by any number of
+   * threads at once. An empty program evaluates to null.
+   *
+   * @return the compiled program.
+   * @throws ParseException if the program is malformed.
+   */
+  public CompiledProgram compile() throws ParseException {
+    nextToken();                 // Get the first token.
+    SyntaxNode root = evalProg();
+    match(TokenType.EOF, "EOF");
+    if (root == null)
+      root = new ProgNode(new LinkedList<>(), getCurrLine());
+    return new CompiledProgram(root);
+  }
+
   /************
    * Non-terminals
    ***********/
@@ -83,7 +147,21 @@ public class MFLParser extends Parser {
     if (checkMatch(TokenType.VAL))
       return getGoodParse(handleValues());
     else
-      return getGoodParse(evalExpr());
+      return getGoodParse(expr());
+  }
+
+  /**
+   * Parses an expression using the selected parsing mode.
+   *
+   * @return the expression's syntax tree.
+   * @throws ParseException if the expression is malformed.
+   */
+  private SyntaxNode expr() throws ParseException {
+    if (mode == ParseMode.PRATT)
+      return climb(LOGIC);
+    else if (mode == ParseMode.ITERATIVE)
+      return climbIteratively();
+    return evalExpr();
   }
 
   /**
@@ -222,6 +300,279 @@ public class MFLParser extends Parser {
     return fact;
   }
 
+  /***********
+   * Precedence climbing
+   ***********/
+  /**
+   * Parses an expression whose operators all bind at least as tightly as
+   * {@code min}. Calling it with LOGIC, REL, ADD, MULT, or UNARY accepts
+   * the same input as <expr>, <rexpr>, <mexpr>, <term>, and <factor>.
+   * Relational operators do not associate, so one is only accepted when the
+   * left operand is not already a comparison or logical expression.
+   *
+   * @param min the loosest binding level to accept.
+   * @return the expression's syntax tree.
+   * @throws ParseException if the expression is malformed.
+   */
+  private SyntaxNode climb(int min) throws ParseException {
+    Token tok = getCurrToken();
+    SyntaxNode lhs;
+    int lhsLevel = UNARY; // The level of the operator at the root of lhs.
+
+    trace("Enter <expr>");
+    switch (tok.getType()) {
+      case LET:
+        if (min > LOGIC)
+          return getGoodParse(null);
+        nextToken();
+        return letBody(getCurrLine());
+
+      case NOT:
+        if (min > MULT)
+          return getGoodParse(null);
+        nextToken();
+        SyntaxNode operand = climb(REL);
+        lhs = new UnaryOpNode("not", operand, getCurrLine());
+        break;
+
+      case SUB:
+        nextToken();
+        SyntaxNode negated = climb(UNARY);
+        lhs = new UnaryOpNode("-", negated, getCurrLine());
+        break;
+
+      case LPAREN:
+        nextToken();
+        lhs = climb(LOGIC);
+        match(TokenType.RPAREN, ")");
+        break;
+
+      case INT:
+      case REAL:
+      case TRUE:
+      case FALSE:
+        lhs = new TokenNode(tok, getCurrLine());
+        nextToken();
+        break;
+
+      case ID:
+        nextToken();
+        lhs = new TokenNode(tok, getCurrLine());
+        break;
+
+      default:
+        return getGoodParse(null);
+    }
+
+    while (true) {
+      TokenType op = getCurrToken().getType();
+      int level = LEVEL[op.ordinal()];
+      if (level < min || level == 0 || (level == REL && lhsLevel <= REL))
+        break;
+
+      nextToken();
+      SyntaxNode rhs = climb(level + 1);
+      if (level == REL)
+        lhs = new RelOpNode(relOpToString(op), lhs, rhs, getCurrLine());
+      else
+        lhs = new BinOpNode(binOpToString(op), lhs, rhs, getCurrLine());
+      lhsLevel = level;
+    }
+
+    trace("Exit <expr>");
+    return lhs;
+  }
+
+  /**
+   * Parses the rest of a let expression once the let keyword has been
+   * consumed: <id> := <expr> in <expr>
+   *
+   * @param line the line the let expression is reported on.
+   * @return the let expression's syntax tree.
+   * @throws ParseException if the expression is malformed.
+   */
+  private SyntaxNode letBody(long line) throws ParseException {
+    Token name = getCurrToken();
+    match(TokenType.ID, "identifier");
+    match(TokenType.ASSIGN, ":=");
+
+    SyntaxNode valueExpr = climb(LOGIC);
+    match(TokenType.IN, "in");
+    SyntaxNode bodyExpr = climb(LOGIC);
+
+    trace("Exit <expr> (let)");
+    return new LetNode(name, valueExpr, bodyExpr, line);
+  }
+
+  /***********
+   * Iterative precedence climbing
+   ***********/
+  /**
+   * An operator or bracket whose operand is still being parsed. Each one
+   * stands in for a call to {@code climb} that has not yet returned.
+   */
+  private static final class Pending {
+    static final int BINARY = 0;    // lhs op <operand>
+    static final int NOT = 1;       // not <operand>
+    static final int NEGATE = 2;    // - <operand>
+    static final int PAREN = 3;     // ( <operand> )
+    static final int LET_BOUND = 4; // let id := <operand> in <expr>
+    static final int LET_BODY = 5;  // let id := expr in <operand>
+
+    final int kind;       // What is waiting on the operand.
+    final int min;        // The min level of the interrupted climb.
+    SyntaxNode lhs;       // The left operand, or a let's bound expression.
+    TokenType op;         // The binary operator.
+    int level;            // The binary operator's level.
+    Token name;           // The name a let binds.
+    long line;            // The line a let is reported on.
+
+    Pending(int kind, int min) {
+      this.kind = kind;
+      this.min = min;
+    }
+  }
+
+  /**
+   * Parses an expression exactly as {@code climb(LOGIC)} does, but keeps
+   * the operators and brackets whose operands are still being parsed on an
+   * explicit stack rather than the Java call stack.
+   *
+   * @return the expression's syntax tree.
+   * @throws ParseException if the expression is malformed.
+   */
+  private SyntaxNode climbIteratively() throws ParseException {
+    ArrayDeque<Pending> stack = new ArrayDeque<>();
+    int min = LOGIC;       // The min level of the current climb.
+    SyntaxNode lhs;        // The left operand of the current climb.
+    int lhsLevel;          // The level of the operator at the root of lhs.
+
+    while (true) {
+      // Parse the prefix of an operand, pushing anything that wraps it.
+      Token tok = getCurrToken();
+      trace("Enter <expr>");
+      switch (tok.getType()) {
+        case LET:
+          if (min > LOGIC)
+            return getGoodParse(null);
+          nextToken();
+          Pending let = new Pending(Pending.LET_BOUND, min);
+          let.line = getCurrLine();
+          let.name = getCurrToken();
+          match(TokenType.ID, "identifier");
+          match(TokenType.ASSIGN, ":=");
+          stack.push(let);
+          min = LOGIC;
+          continue;
+
+        case NOT:
+          if (min > MULT)
+            return getGoodParse(null);
+          nextToken();
+          stack.push(new Pending(Pending.NOT, min));
+          min = REL;
+          continue;
+
+        case SUB:
+          nextToken();
+          stack.push(new Pending(Pending.NEGATE, min));
+          min = UNARY;
+          continue;
+
+        case LPAREN:
+          nextToken();
+          stack.push(new Pending(Pending.PAREN, min));
+          min = LOGIC;
+          continue;
+
+        case INT:
+        case REAL:
+        case TRUE:
+        case FALSE:
+          lhs = new TokenNode(tok, getCurrLine());
+          nextToken();
+          break;
+
+        case ID:
+          nextToken();
+          lhs = new TokenNode(tok, getCurrLine());
+          break;
+
+        default:
+          return getGoodParse(null);
+      }
+      lhsLevel = UNARY;
+
+      // Extend the operand with infix operators, completing pending
+      // operators whenever the current climb ends.
+      boolean needOperand = false;
+      while (!needOperand) {
+        TokenType op = getCurrToken().getType();
+        int level = LEVEL[op.ordinal()];
+        if (level >= min && level != 0 && (level != REL || lhsLevel > REL)) {
+          nextToken();
+          Pending bin = new Pending(Pending.BINARY, min);
+          bin.lhs = lhs;
+          bin.op = op;
+          bin.level = level;
+          stack.push(bin);
+          min = level + 1;
+          needOperand = true;
+          continue;
+        }
+
+        // The current climb is over; hand its result to what is pending.
+        trace("Exit <expr>");
+        if (stack.isEmpty())
+          return lhs;
+
+        Pending top = stack.pop();
+        min = top.min;
+        lhsLevel = UNARY;
+        switch (top.kind) {
+          case Pending.BINARY:
+            if (top.level == REL)
+              lhs = new RelOpNode(relOpToString(top.op), top.lhs, lhs, getCurrLine());
+            else
+              lhs = new BinOpNode(binOpToString(top.op), top.lhs, lhs, getCurrLine());
+            lhsLevel = top.level;
+            break;
+
+          case Pending.NOT:
+            lhs = new UnaryOpNode("not", lhs, getCurrLine());
+            break;
+
+          case Pending.NEGATE:
+            lhs = new UnaryOpNode("-", lhs, getCurrLine());
+            break;
+
+          case Pending.PAREN:
+            match(TokenType.RPAREN, ")");
+            break;
+
+          case Pending.LET_BOUND:
+            match(TokenType.IN, "in");
+            Pending body = new Pending(Pending.LET_BODY, top.min);
+            body.name = top.name;
+            body.line = top.line;
+            body.lhs = lhs;
+            stack.push(body);
+            min = LOGIC;
+            needOperand = true;
+            break;
+
+          case Pending.LET_BODY:
+            // A let ends the climb it started in. Its body took every
+            // operator but a second comparison, and level 0 refuses that.
+            trace("Exit <expr> (let)");
+            lhs = new LetNode(top.name, top.lhs, lhs, top.line);
+            lhsLevel = 0;
+            break;
+        }
+      }
+    }
+  }
+
   /***********
    * Helpers for rules / utilities
    ***********/
@@ -230,7 +581,7 @@ public class MFLParser extends Parser {
     Token id = getCurrToken();
     match(TokenType.ID, "identifier");
     match(TokenType.ASSIGN, ":=");
-    SyntaxNode expr = evalExpr();
+    SyntaxNode expr = expr();
     return new ValNode(id, expr, getCurrLine());
   }
 
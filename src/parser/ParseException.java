@@ -1,5 +1,7 @@
 package parser;
 
+import ast.ErrorKind;
+
 /*
  *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
  *
@@ -21,6 +23,8 @@ package parser;
   * A simple parsing exception class.
   */
 public class ParseException extends Exception {
+    private final long line;      // The line of the error, or -1 if unknown.
+    private final String reason;  // What was wrong, or null if unknown.
 
     /**
      * The constructor for an parsing exception that 
@@ -29,6 +33,8 @@ public class ParseException extends Exception {
     public ParseException()
     {
         super("Parsing failed.");
+        this.line = -1;
+        this.reason = null;
     }
 
     /**
@@ -39,5 +45,48 @@ public class ParseException extends Exception {
     public ParseException(String reason)
     {
         super("Parsing failed. " + reason);
+        this.line = -1;
+        this.reason = reason;
+    }
+
+    /**
+     * Constructs a parsing exception for a syntax error at a known line.
+     * The message is the same as {@link #ParseException()}'s, and no stack
+     * trace is filled in, since it is never read.
+     * @param line the line of the error.
+     * @param reason the reason parsing failed.
+     */
+    public ParseException(long line, String reason)
+    {
+        super("Parsing failed.", null, false, false);
+        this.line = line;
+        this.reason = reason;
+    }
+
+    /**
+     * Gets the kind of error.
+     * @return {@link ErrorKind#SYNTAX}.
+     */
+    public ErrorKind getKind()
+    {
+        return ErrorKind.SYNTAX;
+    }
+
+    /**
+     * Gets the line of the error.
+     * @return the line, or -1 if it is not known.
+     */
+    public long getLine()
+    {
+        return line;
+    }
+
+    /**
+     * Gets the reason parsing failed.
+     * @return the reason, or null if it is not known.
+     */
+    public String getReason()
+    {
+        return reason;
     }
 }
@@ -0,0 +1,43 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package parser;
+
+/**
+ * The ways {@link MFLParser} can parse expressions. Every mode builds the
+ * same syntax tree and reports the same errors.
+ */
+public enum ParseMode
+{
+    /**
+     * One method per grammar rule, descending through every precedence
+     * level for each operand.
+     */
+    RECURSIVE,
+
+    /**
+     * Precedence climbing driven by a table of operator binding levels. An
+     * operand costs one call no matter how many levels it skips.
+     */
+    PRATT,
+
+    /**
+     * The same precedence climbing, driven by an explicit stack of pending
+     * operators instead of Java recursion. Nesting depth is bounded only by
+     * the heap.
+     */
+    ITERATIVE
+}
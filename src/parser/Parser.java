@@ -18,6 +18,7 @@ package parser;
 
 import ast.SyntaxTree;
 import ast.nodes.SyntaxNode;
+import diagnostics.Diagnostics;
 import lexer.Lexer;
 import lexer.Token;
 import lexer.TokenType;
@@ -30,6 +31,8 @@ public abstract class Parser {
     private Lexer lex; // The lexer for the parser.
     private boolean errorFound; // True if ther was a parser error.
     private boolean doTracing; // True if we should run parser tracing.
+    private boolean logErrors; // True if syntax errors are printed.
+    private Diagnostics diagnostics; // Where tracing and errors are printed.
     private Token nextTok; // The current token being analyzed.
 
     /**
@@ -41,6 +44,8 @@ public abstract class Parser {
         this.lex = lex;
         this.errorFound = false;
         this.doTracing = false;
+        this.logErrors = true;
+        this.diagnostics = Diagnostics.CONSOLE;
         this.nextTok = null;
     }
 
@@ -61,24 +66,60 @@ public abstract class Parser {
     }
 
     /**
-     * Logs an error to the console.
+     * Sets where tracing, lexical errors and syntax errors are printed,
+     * which is {@link Diagnostics#CONSOLE} by default.
+     * 
+     * @param diagnostics where to print.
+     */
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        lex.setDiagnostics(diagnostics);
+    }
+
+    /**
+     * Turns the printing of lexical and syntax errors on or off. The
+     * syntax errors are still available from the {@link ParseException}
+     * thrown.
+     * 
+     * @param logErrors true to print errors, which is the default.
+     */
+    public void setErrorLogging(boolean logErrors) {
+        this.logErrors = logErrors;
+        lex.setErrorLogging(logErrors);
+    }
+
+    /**
+     * Logs an error to the diagnostics, unless error logging is off.
      * 
      * @param msg the error message to dispaly.
      */
     public void logError(String msg) {
-        System.err.println(
-                "Syntax Error (line " + lex.getLineNumber() + "): " + msg);
+        if (logErrors)
+            diagnostics.println(
+                    "Syntax Error (line " + lex.getLineNumber() + "): " + msg);
         errorFound = true;
     }
 
     /**
-     * This prints a message to the screen on if {@code doTracing} is true.
+     * Logs an error and makes the exception to throw for it.
+     * 
+     * @param msg the error message.
+     * @return the exception, which carries the line and the message.
+     */
+    public ParseException error(String msg) {
+        logError(msg);
+        return new ParseException(lex.getLineNumber(), msg);
+    }
+
+    /**
+     * This prints a message to the diagnostics on if {@code doTracing} is
+     * true.
      * 
-     * @param msg the message to display to the screen.
+     * @param msg the message to display.
      */
     public void trace(String msg) {
         if (doTracing)
-            System.out.println(msg);
+            diagnostics.println(msg);
     }
 
     /**
@@ -90,8 +131,8 @@ public abstract class Parser {
             nextTok = lex.nextToken();
         } while (nextTok.getType() == TokenType.COMMENT);
 
-        if (doTracing)
-            System.out.println("nextToken: " + nextTok);
+        if (doTracing && diagnostics.isEnabled())
+            diagnostics.println("nextToken: " + nextTok);
 
     }
 
@@ -109,8 +150,7 @@ public abstract class Parser {
             nextToken();
             return true;
         } else {
-            logError("expected " + sym + ", saw " + nextTok.getValue() + ".");
-            throw new ParseException();
+            throw error("expected " + sym + ", saw " + nextTok.getValue() + ".");
         }
     }
 
@@ -149,8 +189,7 @@ public abstract class Parser {
      */
     public SyntaxNode getGoodParse(SyntaxNode node) throws ParseException {
         if (node == null) {
-            logError("Missing value.");
-            throw new ParseException();
+            throw error("Missing value.");
         }
         return node;
     }
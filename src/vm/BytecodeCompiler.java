@@ -0,0 +1,397 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.Resolver;
+import ast.nodes.BinOpNode;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import lexer.TokenType;
+
+/**
+ * Compiles a syntax tree into a {@link Chunk} for the
+ * {@link VirtualMachine}. Let-bound names are given registers by the
+ * {@link Resolver}, and every literal has a register of its own, so an
+ * operator reads names and literals in place: {@code x + 1} is one
+ * instruction, with no loads. A let's bound expression is computed straight
+ * into its name's register. A comparison that is the right operand of
+ * {@code and} or {@code or} is fused with it into one instruction.
+ * <p>
+ * The compiler recurses over the tree, so the depth of the tree is limited
+ * by the size of the Java stack.
+ *
+ * @author Zach Kissel
+ */
+public final class BytecodeCompiler
+{
+    private int[] code = new int[64];   // The instructions emitted so far.
+    private int size;                   // The number of words emitted.
+    private final int frameSize;        // The registers used by let-bound names.
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> literals = new HashMap<>();
+    private final List<Object> nodes = new ArrayList<>();
+    private final Map<Object, Integer> nodeIndex = new IdentityHashMap<>();
+    private int temps;                  // The temporaries in use.
+    private int maxTemps;               // The most temporaries ever in use.
+
+    /**
+     * Constructs a compiler for a tree with the given frame size.
+     *
+     * @param frameSize the number of registers for let-bound names.
+     */
+    private BytecodeCompiler(int frameSize)
+    {
+        this.frameSize = frameSize;
+    }
+
+    /**
+     * Compiles the tree rooted at {@code root}. The tree's let-bound names
+     * are resolved to frame slots as a side effect.
+     *
+     * @param root the root of the tree to compile.
+     * @return the compiled program.
+     */
+    public static Chunk compile(SyntaxNode root)
+    {
+        BytecodeCompiler c = new BytecodeCompiler(Resolver.resolve(root));
+
+        if (root instanceof ProgNode)
+        {
+            // Statements run in order; only the last value is kept.
+            List<SyntaxNode> stmts = ((ProgNode) root).getStatements();
+            int result = -1;
+            for (SyntaxNode stmt : stmts)
+            {
+                c.temps = 0;
+                result = c.statement(stmt);
+            }
+            if (stmts.isEmpty())
+                result = c.constant(null);
+            c.emit(Opcode.RETURN, result);
+        }
+        else
+            c.emit(Opcode.RETURN, c.operand(root));
+
+        c.relocate();
+        return new Chunk(Arrays.copyOf(c.code, c.size), c.constants.toArray(),
+            c.nodes.toArray(), c.frameSize, c.maxTemps);
+    }
+
+    /************
+     * Private Methods
+     ************/
+
+    /**
+     * Compiles a top-level statement.
+     *
+     * @param stmt the statement.
+     * @return the register holding the value of the statement.
+     */
+    private int statement(SyntaxNode stmt)
+    {
+        if (stmt instanceof ValNode)
+        {
+            // A val binds its value globally and evaluates to its name.
+            ValNode val = (ValNode) stmt;
+            emit(Opcode.DEFINE, operand(val.getExpr()), node(val));
+            return constant(val.getName());
+        }
+        return operand(stmt);
+    }
+
+    /**
+     * Compiles an expression into whatever register is cheapest: a literal
+     * or let-bound name is used where it is, and anything else is computed
+     * into a new temporary.
+     *
+     * @param node the expression.
+     * @return the register holding the value of the expression.
+     */
+    private int operand(SyntaxNode node)
+    {
+        if (node instanceof TokenNode)
+        {
+            TokenNode leaf = (TokenNode) node;
+            if (leaf.getLiteral() != null)
+                return constant(leaf.getLiteral());
+            if (leaf.getSlot() >= 0)
+                return leaf.getSlot();
+        }
+
+        // A let's value always goes to a temporary, since its name's
+        // register may be reused by a later let.
+        int dst = temp();
+        into(node, dst);
+        return dst;
+    }
+
+    /**
+     * Compiles an expression so that its value ends up in a given register.
+     *
+     * @param node the expression.
+     * @param dst the register.
+     */
+    private void into(SyntaxNode node, int dst)
+    {
+        int mark = temps;
+        if (node instanceof TokenNode)
+        {
+            TokenNode leaf = (TokenNode) node;
+            if (leaf.getLiteral() != null || leaf.getSlot() >= 0)
+                emit(Opcode.MOVE, dst, operand(leaf));
+            else if (leaf.getToken().getType() == TokenType.ID)
+                emit(Opcode.GLOBAL, dst, leaf.getToken().getSymbol(), node(leaf));
+            else
+                emit(Opcode.EVAL, dst, node(leaf));
+        }
+        else if (node instanceof BinOpNode)
+            binary((BinOpNode) node, dst);
+        else if (node instanceof RelOpNode && relation(((RelOpNode) node).getOp()) >= 0)
+        {
+            RelOpNode rel = (RelOpNode) node;
+            int left = operand(rel.getLeft());
+            int right = operand(rel.getRight());
+            emit(relation(rel.getOp()), dst, left, right, node(rel));
+        }
+        else if (node instanceof UnaryOpNode && unary(((UnaryOpNode) node).getOp()) >= 0)
+        {
+            UnaryOpNode un = (UnaryOpNode) node;
+            emit(unary(un.getOp()), dst, operand(un.getOperand()), node(un));
+        }
+        else if (node instanceof LetNode)
+        {
+            LetNode let = (LetNode) node;
+            into(let.getBoundExpr(), let.getSlot());
+            into(let.getBody(), dst);
+        }
+        else
+            emit(Opcode.EVAL, dst, node(node));
+        temps = mark;
+    }
+
+    /**
+     * Compiles an arithmetic or logical operator. A logical operator first
+     * tests its left operand, jumping past its right operand if the left
+     * one decides the result, and is fused with a comparison on its right
+     * where it can.
+     *
+     * @param bin the operator node.
+     * @param dst the register for its value.
+     */
+    private void binary(BinOpNode bin, int dst)
+    {
+        int op = arithmetic(bin.getOp());
+        if (op < 0)
+        {
+            emit(Opcode.EVAL, dst, node(bin));
+            return;
+        }
+
+        int left = operand(bin.getLeft());
+        if (op != Opcode.AND && op != Opcode.OR)
+        {
+            int right = operand(bin.getRight());
+            emit(op, dst, left, right, node(bin));
+            return;
+        }
+
+        // The right operand is skipped when the left one decides the result.
+        int skip = size;
+        emit(op == Opcode.AND ? Opcode.SKIP_AND : Opcode.SKIP_OR, dst, left, 0, node(bin));
+        RelOpNode rel = bin.getRight() instanceof RelOpNode ? (RelOpNode) bin.getRight() : null;
+        if (rel != null && relation(rel.getOp()) >= 0)
+        {
+            int a = operand(rel.getLeft());
+            int b = operand(rel.getRight());
+            emit(op == Opcode.AND ? Opcode.CMP_AND : Opcode.CMP_OR, relation(rel.getOp()),
+                dst, left, a, b, node(rel), node(bin));
+        }
+        else
+        {
+            int right = operand(bin.getRight());
+            emit(op, dst, left, right, node(bin));
+        }
+        code[skip + 3] = size;
+    }
+
+    /**
+     * Gets the opcode of an arithmetic or logical operator.
+     *
+     * @param op the operator.
+     * @return the opcode, or -1 if there is none.
+     */
+    private static int arithmetic(String op)
+    {
+        return switch (op)
+        {
+        case "+" -> Opcode.ADD;
+        case "-" -> Opcode.SUB;
+        case "*" -> Opcode.MUL;
+        case "/" -> Opcode.DIV;
+        case "mod" -> Opcode.MOD;
+        case "and" -> Opcode.AND;
+        case "or" -> Opcode.OR;
+        default -> -1;
+        };
+    }
+
+    /**
+     * Gets the opcode of a relational operator.
+     *
+     * @param op the operator.
+     * @return the opcode, or -1 if there is none.
+     */
+    private static int relation(String op)
+    {
+        return switch (op)
+        {
+        case "<" -> Opcode.LT;
+        case ">" -> Opcode.GT;
+        case "<=" -> Opcode.LE;
+        case ">=" -> Opcode.GE;
+        case "=" -> Opcode.EQ;
+        case "!=" -> Opcode.NE;
+        default -> -1;
+        };
+    }
+
+    /**
+     * Gets the opcode of a unary operator.
+     *
+     * @param op the operator.
+     * @return the opcode, or -1 if there is none.
+     */
+    private static int unary(String op)
+    {
+        return switch (op)
+        {
+        case "-" -> Opcode.NEG;
+        case "not" -> Opcode.NOT;
+        default -> -1;
+        };
+    }
+
+    /**
+     * Emits an instruction.
+     *
+     * @param words the opcode followed by its operands.
+     */
+    private void emit(int... words)
+    {
+        if (size + words.length > code.length)
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + words.length));
+        System.arraycopy(words, 0, code, size, words.length);
+        size += words.length;
+    }
+
+    /**
+     * Allocates a temporary. Until the constant pool is complete, a
+     * temporary's register is written as a negative number.
+     *
+     * @return the register of the temporary.
+     */
+    private int temp()
+    {
+        temps++;
+        maxTemps = Math.max(maxTemps, temps);
+        return -temps;
+    }
+
+    /**
+     * Moves the temporaries above the constants, now that the size of the
+     * pool is known.
+     */
+    private void relocate()
+    {
+        int base = frameSize + constants.size() - 1;
+        int pc = 0;
+        while (pc < size)
+        {
+            int op = code[pc];
+            int first = 1;
+            int last;
+            switch (op)
+            {
+            case Opcode.MOVE:
+                last = 2;
+                break;
+            case Opcode.GLOBAL:
+            case Opcode.DEFINE:
+            case Opcode.EVAL:
+            case Opcode.RETURN:
+                last = 1;
+                break;
+            case Opcode.SKIP_AND:
+            case Opcode.SKIP_OR:
+                last = 2;
+                break;
+            case Opcode.CMP_AND:
+            case Opcode.CMP_OR:
+                first = 2;
+                last = 5;
+                break;
+            default:
+                last = Opcode.operands(op) - 1;
+                break;
+            }
+            for (int i = first; i <= last; i++)
+                if (code[pc + i] < 0)
+                    code[pc + i] = base - code[pc + i];
+            pc += 1 + Opcode.operands(op);
+        }
+    }
+
+    /**
+     * Gets the register of a constant, adding it to the pool once.
+     *
+     * @param value the value.
+     * @return the register holding the constant.
+     */
+    private int constant(Object value)
+    {
+        return literals.computeIfAbsent(value, v -> {
+            constants.add(v);
+            return frameSize + constants.size() - 1;
+        });
+    }
+
+    /**
+     * Gets the index of a syntax node, adding it once.
+     *
+     * @param node the node.
+     * @return the index of the node.
+     */
+    private int node(SyntaxNode node)
+    {
+        return nodeIndex.computeIfAbsent(node, n -> {
+            nodes.add(n);
+            return nodes.size() - 1;
+        });
+    }
+}
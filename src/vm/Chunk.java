@@ -0,0 +1,171 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package vm;
+
+/**
+ * A program compiled for the {@link VirtualMachine}: its bytecode, its
+ * constant pool, the syntax nodes its instructions were compiled from, and
+ * the layout of the register file it runs in. The let-bound names come
+ * first, in the slots the {@link ast.Resolver} gave them, then one register
+ * per constant, then the temporaries. A chunk is never modified once
+ * compiled.
+ *
+ * @author Zach Kissel
+ */
+public final class Chunk
+{
+    private final int[] code;           // The instructions.
+    private final Object[] constants;   // The values of the constant registers.
+    private final Object[] nodes;       // The nodes instructions were compiled from.
+    private final int frameSize;        // The registers used by let-bound names.
+    private final int temps;            // The registers used for intermediate values.
+
+    /**
+     * Constructs a chunk.
+     *
+     * @param code the instructions.
+     * @param constants the constant pool.
+     * @param nodes the syntax nodes named by instructions.
+     * @param frameSize the number of registers for let-bound names.
+     * @param temps the number of registers for intermediate values.
+     */
+    Chunk(int[] code, Object[] constants, Object[] nodes, int frameSize, int temps)
+    {
+        this.code = code;
+        this.constants = constants;
+        this.nodes = nodes;
+        this.frameSize = frameSize;
+        this.temps = temps;
+    }
+
+    /**
+     * Gets the instructions.
+     *
+     * @return the bytecode.
+     */
+    int[] getCode()
+    {
+        return code;
+    }
+
+    /**
+     * Gets the constant pool, in register order.
+     *
+     * @return the constants.
+     */
+    Object[] getConstants()
+    {
+        return constants;
+    }
+
+    /**
+     * Gets the syntax nodes instructions were compiled from.
+     *
+     * @return the nodes.
+     */
+    Object[] getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Gets the number of registers for let-bound names, which are the first
+     * registers in the file.
+     *
+     * @return the frame size.
+     */
+    public int getFrameSize()
+    {
+        return frameSize;
+    }
+
+    /**
+     * Gets the number of registers a run of the chunk needs.
+     *
+     * @return the size of the register file.
+     */
+    public int getRegisterCount()
+    {
+        return frameSize + constants.length + temps;
+    }
+
+    /**
+     * Lists the instructions, one per line, with their offsets and operands.
+     * Registers holding let-bound names are shown as {@code s0}, {@code s1},
+     * ..., temporaries as {@code t0}, {@code t1}, ..., and constants by
+     * value. Syntax node operands are left out.
+     *
+     * @return the listing.
+     */
+    public String disassemble()
+    {
+        StringBuilder sb = new StringBuilder();
+        int pc = 0;
+        while (pc < code.length)
+        {
+            int op = code[pc];
+            sb.append(pc).append(": ").append(Opcode.name(op));
+            switch (op)
+            {
+            case Opcode.GLOBAL:
+                sb.append(' ').append(register(code[pc + 1])).append(' ')
+                    .append(code[pc + 2]);
+                break;
+            case Opcode.DEFINE:
+            case Opcode.EVAL:
+            case Opcode.RETURN:
+                sb.append(' ').append(register(code[pc + 1]));
+                break;
+            case Opcode.SKIP_AND:
+            case Opcode.SKIP_OR:
+                sb.append(' ').append(register(code[pc + 1])).append(' ')
+                    .append(register(code[pc + 2])).append(' ').append(code[pc + 3]);
+                break;
+            case Opcode.CMP_AND:
+            case Opcode.CMP_OR:
+                sb.append(' ').append(Opcode.name(code[pc + 1]));
+                for (int i = 2; i <= 5; i++)
+                    sb.append(' ').append(register(code[pc + i]));
+                break;
+            default:
+                // The operands are registers, then the node.
+                int regs = op == Opcode.MOVE ? 2 : Opcode.operands(op) - 1;
+                for (int i = 1; i <= regs; i++)
+                    sb.append(' ').append(register(code[pc + i]));
+                break;
+            }
+            sb.append('\n');
+            pc += 1 + Opcode.operands(op);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Names a register for the listing.
+     *
+     * @param reg the register.
+     * @return its name, or the value of a constant.
+     */
+    private String register(int reg)
+    {
+        if (reg < frameSize)
+            return "s" + reg;
+        if (reg < frameSize + constants.length)
+            return String.valueOf(constants[reg - frameSize]);
+        return "t" + (reg - frameSize - constants.length);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package vm;
+
+/**
+ * The instructions of the MFL virtual machine. An instruction is an opcode
+ * word followed by its operand words. Most operands are registers; the
+ * machine keeps let-bound names, the constant pool, and temporaries in one
+ * register file, so an operator reads a name or a literal as directly as an
+ * intermediate result. Every operator instruction also names the syntax
+ * node it was compiled from. The machine hands operands of unexpected types
+ * to that node, so errors are reported exactly as the tree reports them.
+ *
+ * @author Zach Kissel
+ */
+public final class Opcode
+{
+    /** Copy a register: {@code MOVE dst src}. */
+    public static final int MOVE = 0;
+
+    /** Load a free name from the environment: {@code GLOBAL dst symbol node}. */
+    public static final int GLOBAL = 1;
+
+    /** Bind a val's value in the environment: {@code DEFINE src node}. */
+    public static final int DEFINE = 2;
+
+    /** Evaluate a node the machine has no instruction for: {@code EVAL dst node}. */
+    public static final int EVAL = 3;
+
+    /** Stop with the value of a register: {@code RETURN src}. */
+    public static final int RETURN = 4;
+
+    /** Arithmetic and logic: {@code ADD dst left right node} and so on. */
+    public static final int ADD = 5;
+    public static final int SUB = 6;
+    public static final int MUL = 7;
+    public static final int DIV = 8;
+    public static final int MOD = 9;
+    public static final int AND = 10;
+    public static final int OR = 11;
+
+    /** Comparisons: {@code LT dst left right node} and so on. */
+    public static final int LT = 12;
+    public static final int GT = 13;
+    public static final int LE = 14;
+    public static final int GE = 15;
+    public static final int EQ = 16;
+    public static final int NE = 17;
+
+    /** Negation: {@code NEG dst src node} and {@code NOT dst src node}. */
+    public static final int NEG = 18;
+    public static final int NOT = 19;
+
+    /**
+     * Combine a value with a comparison in one step:
+     * {@code CMP_AND relop dst lhs left right rel node} sets {@code dst} to
+     * {@code lhs and (left relop right)}, where {@code relop} is one of
+     * {@link #LT} to {@link #NE}. {@code CMP_OR} is the same with {@code or}.
+     */
+    public static final int CMP_AND = 20;
+    public static final int CMP_OR = 21;
+
+    /**
+     * Short-circuit {@code and}: {@code SKIP_AND dst src target node} copies
+     * {@code src} to {@code dst} and jumps to offset {@code target} if
+     * {@code src} is false, and falls through to the code computing the
+     * right operand if it is true. {@code SKIP_OR} is the same with
+     * {@code or}, skipping when {@code src} is true.
+     */
+    public static final int SKIP_AND = 22;
+    public static final int SKIP_OR = 23;
+
+    // The name of each opcode, indexed by opcode.
+    private static final String[] NAMES = { "MOVE", "GLOBAL", "DEFINE", "EVAL",
+        "RETURN", "ADD", "SUB", "MUL", "DIV", "MOD", "AND", "OR", "LT", "GT",
+        "LE", "GE", "EQ", "NE", "NEG", "NOT", "CMP_AND", "CMP_OR", "SKIP_AND",
+        "SKIP_OR" };
+
+    // The number of operand words of each opcode, indexed by opcode.
+    private static final int[] OPERANDS = { 2, 3, 2, 2, 1, 4, 4, 4, 4, 4, 4,
+        4, 4, 4, 4, 4, 4, 4, 3, 3, 7, 7, 4, 4 };
+
+    private Opcode()
+    {
+    }
+
+    /**
+     * Gets the name of an opcode.
+     *
+     * @param op the opcode.
+     * @return the name of the opcode.
+     */
+    public static String name(int op)
+    {
+        return NAMES[op];
+    }
+
+    /**
+     * Gets the number of operand words that follow an opcode.
+     *
+     * @param op the opcode.
+     * @return the number of operands.
+     */
+    public static int operands(int op)
+    {
+        return OPERANDS[op];
+    }
+}
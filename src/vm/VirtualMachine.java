@@ -0,0 +1,343 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package vm;
+
+import ast.EvaluationException;
+import ast.Evaluator;
+import ast.nodes.BinOpNode;
+import ast.nodes.Integers;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValNode;
+import environment.Environment;
+
+/**
+ * Evaluates a syntax tree by compiling it to bytecode and running the
+ * bytecode in a single dispatch loop over one register file. Let-bound
+ * names, literals, and intermediate values all live in registers, so an
+ * operator is one instruction however its operands were bound, and
+ * evaluation makes no virtual calls.
+ * <p>
+ * Operators handle int, real, and boolean operands inline. Anything else is
+ * passed to the syntax node the instruction was compiled from, so results
+ * and errors are identical to {@link ast.RecursiveEvaluator}. A tree is
+ * compiled the first time it is evaluated, so an instance must not be
+ * shared between threads.
+ *
+ * @author Zach Kissel
+ */
+public class VirtualMachine implements Evaluator
+{
+    private SyntaxNode compiled;  // The root of the last tree compiled.
+    private Chunk chunk;          // The compiled form of that tree.
+
+    /**
+     * Evaluates the tree rooted at {@code root}.
+     *
+     * @param root the root of the tree to evaluate.
+     * @param env the environment to evaluate the tree in.
+     * @return the value of the tree.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    @Override
+    public Object evaluate(SyntaxNode root, Environment env) throws EvaluationException
+    {
+        if (root != compiled)
+        {
+            chunk = BytecodeCompiler.compile(root);
+            compiled = root;
+        }
+        return run(chunk, env);
+    }
+
+    /**
+     * Runs a compiled program.
+     *
+     * @param chunk the program.
+     * @param env the environment holding its free names.
+     * @return the value of the program.
+     * @throws EvaluationException if the evaluation fails.
+     */
+    public static Object run(Chunk chunk, Environment env) throws EvaluationException
+    {
+        final int[] code = chunk.getCode();
+        final Object[] nodes = chunk.getNodes();
+        final Object[] constants = chunk.getConstants();
+        final Object[] r = new Object[chunk.getRegisterCount()];
+        System.arraycopy(constants, 0, r, chunk.getFrameSize(), constants.length);
+        int pc = 0;
+
+        while (true)
+        {
+            switch (code[pc])
+            {
+            case Opcode.MOVE:
+                r[code[pc + 1]] = r[code[pc + 2]];
+                pc += 3;
+                break;
+
+            case Opcode.GLOBAL:
+            {
+                Object v = env.lookup(code[pc + 2]);
+                if (v == null)
+                    v = ((TokenNode) nodes[code[pc + 3]]).evaluate(env);
+                r[code[pc + 1]] = v;
+                pc += 4;
+                break;
+            }
+
+            case Opcode.DEFINE:
+                env.updateEnvironment(((ValNode) nodes[code[pc + 2]]).getIdToken(),
+                    r[code[pc + 1]]);
+                pc += 3;
+                break;
+
+            case Opcode.EVAL:
+                r[code[pc + 1]] = ((SyntaxNode) nodes[code[pc + 2]]).evaluate(env, r);
+                pc += 3;
+                break;
+
+            case Opcode.RETURN:
+                return r[code[pc + 1]];
+
+            case Opcode.ADD:
+            {
+                Object lv = r[code[pc + 2]];
+                Object rv = r[code[pc + 3]];
+                if (lv instanceof Integer && rv instanceof Integer)
+                    r[code[pc + 1]] = Integers.add((Integer) lv, (Integer) rv);
+                else if (lv instanceof Double && rv instanceof Double)
+                    r[code[pc + 1]] = (Double) lv + (Double) rv;
+                else
+                    r[code[pc + 1]] = ((BinOpNode) nodes[code[pc + 4]]).apply(lv, rv);
+                pc += 5;
+                break;
+            }
+
+            case Opcode.SUB:
+            {
+                Object lv = r[code[pc + 2]];
+                Object rv = r[code[pc + 3]];
+                if (lv instanceof Integer && rv instanceof Integer)
+                    r[code[pc + 1]] = Integers.subtract((Integer) lv, (Integer) rv);
+                else if (lv instanceof Double && rv instanceof Double)
+                    r[code[pc + 1]] = (Double) lv - (Double) rv;
+                else
+                    r[code[pc + 1]] = ((BinOpNode) nodes[code[pc + 4]]).apply(lv, rv);
+                pc += 5;
+                break;
+            }
+
+            case Opcode.MUL:
+            {
+                Object lv = r[code[pc + 2]];
+                Object rv = r[code[pc + 3]];
+                if (lv instanceof Integer && rv instanceof Integer)
+                    r[code[pc + 1]] = Integers.multiply((Integer) lv, (Integer) rv);
+                else if (lv instanceof Double && rv instanceof Double)
+                    r[code[pc + 1]] = (Double) lv * (Double) rv;
+                else
+                    r[code[pc + 1]] = ((BinOpNode) nodes[code[pc + 4]]).apply(lv, rv);
+                pc += 5;
+                break;
+            }
+
+            case Opcode.DIV:
+            {
+                // Division by zero is left to the node, which reports it.
+                Object lv = r[code[pc + 2]];
+                Object rv = r[code[pc + 3]];
+                if (lv instanceof Integer && rv instanceof Integer && (Integer) rv != 0)
+                    r[code[pc + 1]] = Integers.divide((Integer) lv, (Integer) rv);
+                else if (lv instanceof Double && rv instanceof Double)
+                    r[code[pc + 1]] = (Double) lv / (Double) rv;
+                else
+                    r[code[pc + 1]] = ((BinOpNode) nodes[code[pc + 4]]).apply(lv, rv);
+                pc += 5;
+                break;
+            }
+
+            case Opcode.MOD:
+            {
+                Object lv = r[code[pc + 2]];
+                Object rv = r[code[pc + 3]];
+                if (lv instanceof Integer && rv instanceof Integer && (Integer) rv != 0)
+                    r[code[pc + 1]] = (Integer) lv % (Integer) rv;
+                else
+                    r[code[pc + 1]] = ((BinOpNode) nodes[code[pc + 4]]).apply(lv, rv);
+                pc += 5;
+                break;
+            }
+
+            case Opcode.AND:
+            {
+                Object lv = r[code[pc + 2]];
+                Object rv = r[code[pc + 3]];
+                if (lv instanceof Boolean && rv instanceof Boolean)
+                    r[code[pc + 1]] = (Boolean) lv && (Boolean) rv;
+                else
+                    r[code[pc + 1]] = ((BinOpNode) nodes[code[pc + 4]]).apply(lv, rv);
+                pc += 5;
+                break;
+            }
+
+            case Opcode.OR:
+            {
+                Object lv = r[code[pc + 2]];
+                Object rv = r[code[pc + 3]];
+                if (lv instanceof Boolean && rv instanceof Boolean)
+                    r[code[pc + 1]] = (Boolean) lv || (Boolean) rv;
+                else
+                    r[code[pc + 1]] = ((BinOpNode) nodes[code[pc + 4]]).apply(lv, rv);
+                pc += 5;
+                break;
+            }
+
+            case Opcode.LT:
+            case Opcode.GT:
+            case Opcode.LE:
+            case Opcode.GE:
+            case Opcode.EQ:
+            case Opcode.NE:
+                r[code[pc + 1]] = compare(code[pc], r[code[pc + 2]], r[code[pc + 3]],
+                    (RelOpNode) nodes[code[pc + 4]]);
+                pc += 5;
+                break;
+
+            case Opcode.NEG:
+            {
+                Object v = r[code[pc + 2]];
+                if (v instanceof Integer)
+                    r[code[pc + 1]] = Integers.negate((Integer) v);
+                else if (v instanceof Double)
+                    r[code[pc + 1]] = -(Double) v;
+                else
+                    r[code[pc + 1]] = ((UnaryOpNode) nodes[code[pc + 3]]).apply(v);
+                pc += 4;
+                break;
+            }
+
+            case Opcode.NOT:
+            {
+                Object v = r[code[pc + 2]];
+                if (v instanceof Boolean)
+                    r[code[pc + 1]] = !(Boolean) v;
+                else
+                    r[code[pc + 1]] = ((UnaryOpNode) nodes[code[pc + 3]]).apply(v);
+                pc += 4;
+                break;
+            }
+
+            case Opcode.CMP_AND:
+            case Opcode.CMP_OR:
+            {
+                Object lv = r[code[pc + 3]];
+                Boolean cmp = compare(code[pc + 1], r[code[pc + 4]], r[code[pc + 5]],
+                    (RelOpNode) nodes[code[pc + 6]]);
+                if (!(lv instanceof Boolean))
+                    r[code[pc + 2]] = ((BinOpNode) nodes[code[pc + 7]]).apply(lv, cmp);
+                else if (code[pc] == Opcode.CMP_AND)
+                    r[code[pc + 2]] = (Boolean) lv && cmp;
+                else
+                    r[code[pc + 2]] = (Boolean) lv || cmp;
+                pc += 8;
+                break;
+            }
+
+            case Opcode.SKIP_AND:
+            case Opcode.SKIP_OR:
+            {
+                Object lv = r[code[pc + 2]];
+                if (!(lv instanceof Boolean))
+                    throw badOperand(lv, (BinOpNode) nodes[code[pc + 4]]);
+                if ((Boolean) lv == (code[pc] == Opcode.SKIP_OR))
+                {
+                    r[code[pc + 1]] = lv;
+                    pc = code[pc + 3];
+                }
+                else
+                    pc += 5;
+                break;
+            }
+
+            default:
+                throw new IllegalStateException("Bad opcode " + code[pc] + " at " + pc);
+            }
+        }
+    }
+
+    /**
+     * Reports a non-boolean left operand of {@code and} or {@code or}.
+     *
+     * @param lv the left operand.
+     * @param node the node the operator was compiled from.
+     * @return never; the node throws the error it reports.
+     * @throws EvaluationException always.
+     */
+    private static EvaluationException badOperand(Object lv, BinOpNode node)
+        throws EvaluationException
+    {
+        node.shortCircuit(lv);
+        throw new IllegalStateException("Not a bad operand: " + lv);
+    }
+
+    /**
+     * Compares two values.
+     *
+     * @param op the comparison, one of {@link Opcode#LT} to {@link Opcode#NE}.
+     * @param lv the left operand.
+     * @param rv the right operand.
+     * @param node the node the comparison was compiled from.
+     * @return the result of the comparison.
+     * @throws EvaluationException if the operands can't be compared.
+     */
+    private static Boolean compare(int op, Object lv, Object rv, RelOpNode node)
+        throws EvaluationException
+    {
+        if (lv instanceof Integer && rv instanceof Integer)
+        {
+            int L = (Integer) lv;
+            int R = (Integer) rv;
+            switch (op)
+            {
+            case Opcode.LT: return L < R;
+            case Opcode.GT: return L > R;
+            case Opcode.LE: return L <= R;
+            case Opcode.GE: return L >= R;
+            case Opcode.EQ: return L == R;
+            default: return L != R;
+            }
+        }
+        if (lv instanceof Double && rv instanceof Double)
+        {
+            double L = (Double) lv;
+            double R = (Double) rv;
+            switch (op)
+            {
+            case Opcode.LT: return L < R;
+            case Opcode.GT: return L > R;
+            case Opcode.LE: return L <= R;
+            case Opcode.GE: return L >= R;
+            case Opcode.EQ: return L == R;
+            default: return L != R;
+            }
+        }
+        return (Boolean) node.apply(lv, rv);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.jar.JarFile;
+
+import org.junit.Test;
+
+import aot.AheadOfTimeCompiler;
+import aot.Launcher;
+import parser.MFLParser;
+
+public class AheadOfTimeTests
+{
+    /**
+     * Compiled programs print the same results and errors as the interpreter.
+     */
+    @Test
+    public void compiledMatchesInterpreter() throws Exception
+    {
+        String[] progs = {
+            "1 + 2 * 3 - 4;",
+            "val a := 3;\nval b := 4;\n(a * b + 7) mod 5 < 3 and not (a = b);",
+            "let r := 0.0725 in let p := 1200.5 in r * p >= 86.5 or p / r < 2.0;",
+            "val x := 2;\nval y := x;",
+            "let x := true in x + 1;",
+            "7 / (3 - 3);",
+            "2.5 mod 2.0;",
+            "q + 1;",
+            "let x := 2147483647 in x * x - 99999999999;"
+        };
+        File dir = Files.createTempDirectory("aot").toFile();
+        for (int i = 0; i < progs.length; i++)
+            assertEquals("compiledMatchesInterpreter: " + progs[i],
+                TestPrograms.interpret(progs[i]),
+                TestPrograms.compiled(progs[i], "Prog" + i, dir));
+    }
+
+    /**
+     * A compiled jar holds no lexer or parser, and runs on its own.
+     */
+    @Test
+    public void jarRunsWithoutParser() throws Exception
+    {
+        String prog = "val g := 3;\nval h := 1.5;\nlet a := g * g in a + 1 > 9 and h / 2.0 < 1.0;";
+        File jar = new File(Files.createTempDirectory("aot").toFile(), "prog.jar");
+        new AheadOfTimeCompiler(new MFLParser(prog).parse().getRootNode(), "Standalone")
+            .writeJar(jar);
+
+        try (JarFile jf = new JarFile(jar))
+        {
+            assertNotNull("jarRunsWithoutParser: runtime", jf.getEntry("aot/Launcher.class"));
+            assertFalse("jarRunsWithoutParser: no parser",
+                jf.stream().anyMatch(e -> e.getName().startsWith("parser/")));
+            assertEquals("jarRunsWithoutParser: no lexer", null,
+                jf.getEntry("lexer/Lexer.class"));
+        }
+
+        // Load nothing from the interpreter's own classes.
+        PrintStream out = System.out;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buf, true));
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { jar.toURI().toURL() },
+            ClassLoader.getPlatformClassLoader()))
+        {
+            loader.loadClass("Standalone").getMethod("main", String[].class)
+                .invoke(null, (Object) new String[0]);
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        assertEquals("jarRunsWithoutParser: result", "true" + System.lineSeparator(),
+            buf.toString());
+    }
+
+    /**
+     * A compiled jar reports a failing program's error with its line.
+     */
+    @Test
+    public void jarReportsErrors() throws Exception
+    {
+        File jar = new File(Files.createTempDirectory("aot").toFile(), "fails.jar");
+        new AheadOfTimeCompiler(new MFLParser("val g := 3;\ng + true;").parse().getRootNode(),
+            "Fails").writeJar(jar);
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buf, true));
+        Object status;
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { jar.toURI().toURL() },
+            ClassLoader.getPlatformClassLoader()))
+        {
+            status = loader.loadClass("aot.Launcher").getMethod("run", Class.class)
+                .invoke(null, loader.loadClass("Fails"));
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        assertEquals("jarReportsErrors: status", 1, status);
+        String msg = "This is an arithmetic operator used with non-numeric operands.";
+        assertEquals("jarReportsErrors: output", "Error (line 2): " + msg
+            + System.lineSeparator() + msg + System.lineSeparator(), buf.toString());
+    }
+
+    /**
+     * Class names are made from file names.
+     */
+    @Test
+    public void namesClasses()
+    {
+        assertEquals("namesClasses: plain", "Hello", AheadOfTimeCompiler.classNameOf("hello.mfl"));
+        assertEquals("namesClasses: path", "Job_1", AheadOfTimeCompiler.classNameOf("jobs/job-1.mfl"));
+        assertEquals("namesClasses: digit", "_2fast", AheadOfTimeCompiler.classNameOf("2fast.mfl"));
+    }
+}
@@ -23,6 +23,7 @@ import parser.MFLParser;
 import parser.ParseException;
 import ast.EvaluationException;
 import ast.SyntaxTree;
+import ast.TypeAnnotator;
 
 public class ArithmeticTests
 {
@@ -71,6 +72,40 @@ public class ArithmeticTests
         runEvalTest("assocMultDivTest", "3.0 / 2.0 * 4.0;", "6.0");
     }
 
+    /**
+     * Integer results that do not fit in an int are promoted rather than
+     * wrapped, and narrowed again when they fit.
+     */
+    @Test
+    public void intOverflowPromotes()
+    {
+        runEvalTest("intOverflowPromotes", "2147483647 + 1;", "2147483648");
+        runEvalTest("intOverflowPromotes", "0 - 2147483647 - 2;", "-2147483649");
+        runEvalTest("intOverflowPromotes", "65536 * 65536;", "4294967296");
+        runEvalTest("intOverflowPromotes", "(0 - 2147483647 - 1) / (0 - 1);", "2147483648");
+        runEvalTest("intOverflowPromotes", "-(0 - 2147483647 - 1);", "2147483648");
+        runEvalTest("intOverflowPromotes", "99999999999 - 99999999998 + 2147483647;", "2147483648");
+        runEvalTest("intOverflowPromotes", "99999999999 * 99999999999;",
+            "9999999999800000000001");
+        runEvalTest("intOverflowPromotes", "99999999999 mod 7;", "4");
+        runEvalTest("intOverflowPromotes", "-2147483648 = 0 - 2147483647 - 1;", "true");
+        runEvalTest("intOverflowPromotes", "2147483648 > 2147483647 and 99999999999 != 1;", "true");
+    }
+
+    /**
+     * The unboxed path of a typed tree gives way to the boxed path when an
+     * int overflows, every time it is evaluated.
+     */
+    @Test
+    public void typedIntOverflowPromotes() throws ParseException, EvaluationException
+    {
+        SyntaxTree ast = new MFLParser(
+            "let x := 2147483647 in let y := x * 2 in y - x = x and y + 2 = 4294967296;").parse();
+        TypeAnnotator.annotate(ast);
+        for (int i = 0; i < 3; i++)
+            assertEquals("typedIntOverflowPromotes:", true, ast.evaluate());
+    }
+
     /**
      * Evaluate the expression and return the result as a string or throw and exception 
      * if it does not succeed.
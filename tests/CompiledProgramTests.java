@@ -0,0 +1,354 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import ast.EvaluationException;
+import ast.SyntaxTree;
+import ast.nodes.BinOpNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.UnaryOpNode;
+import closure.CompiledProgram;
+import parser.MFLParser;
+import parser.ParseException;
+
+public class CompiledProgramTests
+{
+    /**
+     * A compiled program gives the values the tree gives, with the bindings
+     * in its environment.
+     */
+    @Test
+    public void matchesTree() throws Exception
+    {
+        String[] progs = {
+            "x + y * 2;",
+            "let z := x * x in z - y > 0 or x = 0;",
+            "val a := x;\nval b := a * 2;\nb - y;",
+            "x / y;",
+            "x * y + 2147483647;"
+        };
+        Object[][] bindings = { { 3, 4 }, { 2.5, 1.5 }, { 2, 1.5 }, { 2147483647, 2 },
+            { new BigInteger("99999999999"), 7 } };
+        for (String prog : progs)
+        {
+            CompiledProgram program = new MFLParser(prog).compile();
+            for (Object[] binding : bindings)
+            {
+                SyntaxTree ast = new MFLParser(prog).parse();
+                ast.setErrorLogging(false);
+                ast.getEnvironment().updateEnvironment("x", binding[0]);
+                ast.getEnvironment().updateEnvironment("y", binding[1]);
+                Map<String, Object> bound = Map.of("x", binding[0], "y", binding[1]);
+                assertEquals("matchesTree: " + prog, outcome(() -> ast.evaluate()),
+                    outcome(() -> program.evaluate(bound)));
+            }
+        }
+    }
+
+    /**
+     * Run an evaluation.
+     * @param evaluation the evaluation to run.
+     * @return the value of the evaluation, or its error message.
+     */
+    private Object outcome(Callable<Object> evaluation) throws Exception
+    {
+        try
+        {
+            return evaluation.call();
+        }
+        catch (EvaluationException ex)
+        {
+            return ex.getMessage();
+        }
+    }
+
+    /**
+     * Bindings and vals belong to one evaluation and are not seen by the
+     * next.
+     */
+    @Test
+    public void evaluationsAreIndependent() throws ParseException, EvaluationException
+    {
+        CompiledProgram program = new MFLParser("val a := x + 1;\na * 2;").compile();
+        assertEquals("evaluationsAreIndependent: first", 8, program.evaluate(Map.of("x", 3)));
+        assertEquals("evaluationsAreIndependent: second", 2, program.evaluate(Map.of("x", 0)));
+        try
+        {
+            program.evaluate(Map.of());
+            fail("evaluationsAreIndependent: x is unbound");
+        }
+        catch (EvaluationException ex)
+        {
+            // The binding of the first evaluation is gone.
+        }
+    }
+
+    /**
+     * Bindings are held the way the evaluators hold values.
+     */
+    @Test
+    public void convertsBindings() throws ParseException, EvaluationException
+    {
+        CompiledProgram program = new MFLParser("x;").compile();
+        assertEquals("convertsBindings: long", 5, program.evaluate(Map.of("x", 5L)));
+        assertEquals("convertsBindings: big", 6,
+            program.evaluate(Map.of("x", BigInteger.valueOf(6))));
+        assertEquals("convertsBindings: big long", new BigInteger("99999999999"),
+            program.evaluate(Map.of("x", 99999999999L)));
+        try
+        {
+            program.evaluate(Map.of("x", "five"));
+            fail("convertsBindings: a string is not a value");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // Strings are not MFL values.
+        }
+        assertNull("convertsBindings: empty", new MFLParser("").compile().evaluate(Map.of()));
+    }
+
+    /**
+     * Evaluating compiled code leaves the operator nodes of the tree as
+     * they were, so evaluations on other threads have nothing to race on.
+     */
+    @Test
+    public void evaluationsLeaveNodes() throws ParseException, EvaluationException
+    {
+        SyntaxTree ast = new MFLParser("-x * x < x;").parse();
+        RelOpNode less = (RelOpNode) ((ProgNode) ast.getRootNode()).getStatements().get(0);
+        BinOpNode times = (BinOpNode) less.getLeft();
+        UnaryOpNode negate = (UnaryOpNode) times.getLeft();
+        CompiledProgram program = new CompiledProgram(ast.getRootNode());
+        assertEquals("evaluationsLeaveNodes: int", true, program.evaluate(Map.of("x", 3)));
+        assertEquals("evaluationsLeaveNodes: real", true, program.evaluate(Map.of("x", 2.5)));
+        assertEquals("evaluationsLeaveNodes:", "Uninitialized", less.getSpecialization());
+        assertEquals("evaluationsLeaveNodes:", "Uninitialized", times.getSpecialization());
+        assertEquals("evaluationsLeaveNodes:", "Uninitialized", negate.getSpecialization());
+    }
+
+    /**
+     * Many threads evaluating one program at once each get their own value,
+     * including while the program drops to boxed code on overflow.
+     */
+    @Test
+    public void concurrentEvaluations() throws Exception
+    {
+        CompiledProgram program = new MFLParser(
+            "val a := x * x;\nlet b := a + x in b - 1 > a and b mod 2 = 0;\na + x;").compile();
+        CompiledProgram tall = new MFLParser("x" + " + 1".repeat(2000) + ";").compile();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<CompletableFuture<Object>> values = new ArrayList<>();
+            List<CompletableFuture<Object>> sums = new ArrayList<>();
+            for (int i = 0; i < 4000; i++)
+            {
+                int x = i % 2 == 0 ? i : 2147483647 - i;
+                values.add(program.evaluateAsync(Map.of("x", x), pool));
+                sums.add(tall.evaluateAsync(Map.of("x", i), pool));
+            }
+            for (int i = 0; i < 4000; i++)
+            {
+                long x = i % 2 == 0 ? i : 2147483647 - i;
+                BigInteger big = BigInteger.valueOf(x);
+                Object expected = big.multiply(big).add(big);
+                if (i % 2 == 0)
+                    expected = ((BigInteger) expected).intValueExact();
+                assertEquals("concurrentEvaluations: " + x, expected, values.get(i).get());
+                assertEquals("concurrentEvaluations: tall " + i, i + 2000, sums.get(i).get());
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A failed evaluation completes its future with the evaluation error.
+     */
+    @Test
+    public void asyncErrors() throws Exception
+    {
+        CompiledProgram program = new MFLParser("10 / x;").compile();
+        assertEquals("asyncErrors: value", 5, program.evaluateAsync(Map.of("x", 2)).get());
+        try
+        {
+            program.evaluateAsync(Map.of("x", 0)).get();
+            fail("asyncErrors: division by zero");
+        }
+        catch (ExecutionException ex)
+        {
+            assertTrue("asyncErrors: cause", ex.getCause() instanceof EvaluationException);
+        }
+    }
+
+    /**
+     * A batch gives each row the value or error evaluating the row alone
+     * gives, whether its blocks are compiled or evaluated row by row.
+     */
+    @Test
+    public void batchMatchesRows() throws ParseException
+    {
+        String[] progs = {
+            "x * 3 + 1;",
+            "let a := x - y in a * a mod 7 = 0 or a > x;",
+            "r * 2.5 - r / 3.0 > r and p;",
+            "val a := x + 1;\na * a - y;",
+            "x = 0 or 10 / x > 1;",
+            "(not p) = (x < y) and -r <= 0.0;",
+            "-x;",
+            "10 / x;",
+            "x + r;",
+            "val a := x;",
+            "q + 1;"
+        };
+        Random rand = new Random(3120);
+        int[] special = { 0, 1, -1, 46341, Integer.MIN_VALUE, Integer.MAX_VALUE };
+        for (int rows : new int[] { 0, 1, 3000 })
+        {
+            int[] x = new int[rows];
+            int[] y = new int[rows];
+            int[] small = new int[rows];
+            double[] r = new double[rows];
+            boolean[] p = new boolean[rows];
+            for (int i = 0; i < rows; i++)
+            {
+                x[i] = rand.nextInt(50) == 0 ? special[rand.nextInt(special.length)]
+                    : rand.nextInt(2001) - 1000;
+                y[i] = rand.nextInt(2001) - 1000;
+                small[i] = rand.nextInt(1000) + 1;
+                r[i] = rand.nextDouble() * 10 - 5;
+                p[i] = rand.nextBoolean();
+            }
+            for (String prog : progs)
+            {
+                CompiledProgram program = new MFLParser(prog).compile();
+                checkBatch(prog, program, Map.of("x", x, "y", y, "r", r, "p", p));
+                checkBatch(prog, program, Map.of("x", small, "y", y, "r", r, "p", p));
+            }
+        }
+    }
+
+    /**
+     * Programs with a static type give primitive columns, and large batches
+     * are split across the pool.
+     */
+    @Test
+    public void batchColumns() throws ParseException, EvaluationException
+    {
+        int rows = 300000;
+        int[] x = new int[rows];
+        double[] r = new double[rows];
+        for (int i = 0; i < rows; i++)
+        {
+            x[i] = i;
+            r[i] = i / 2.0;
+        }
+
+        Object ints = new MFLParser("let a := x mod 1000 in a * a - x;").compile()
+            .evaluateBatch(Map.of("x", x));
+        assertTrue("batchColumns: int[]", ints instanceof int[]);
+        assertEquals("batchColumns: int", 999 * 999 - 299999, ((int[]) ints)[rows - 1]);
+
+        Object reals = new MFLParser("r * 2.0 + 0.5;").compile().evaluateBatch(Map.of("r", r));
+        assertTrue("batchColumns: double[]", reals instanceof double[]);
+        assertEquals("batchColumns: real", 299999.5, ((double[]) reals)[rows - 1], 0.0);
+
+        Object bools = new MFLParser("x mod 3 = 0 and r < 10.0;").compile()
+            .evaluateBatch(Map.of("x", x, "r", r), new ForkJoinPool(4));
+        assertTrue("batchColumns: boolean[]", bools instanceof boolean[]);
+        assertTrue("batchColumns: bool", ((boolean[]) bools)[18]);
+
+        // One overflowing row boxes the whole column.
+        Object promoted = new MFLParser("x * x;").compile().evaluateBatch(Map.of("x", x));
+        assertTrue("batchColumns: Object[]", promoted instanceof Object[]);
+        assertEquals("batchColumns: small", 4, ((Object[]) promoted)[2]);
+        assertEquals("batchColumns: big", new BigInteger("89999400001"),
+            ((Object[]) promoted)[rows - 1]);
+
+        try
+        {
+            new MFLParser("x;").compile().evaluateBatch(Map.of("x", x, "r", new double[1]));
+            fail("batchColumns: columns of different lengths");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // Every column must have a value for every row.
+        }
+    }
+
+    /**
+     * Check a batch against evaluating each of its rows alone.
+     * @param prog the program text.
+     * @param program the compiled program.
+     * @param columns the columns of the batch.
+     */
+    private void checkBatch(String prog, CompiledProgram program, Map<String, Object> columns)
+    {
+        int rows = Array.getLength(columns.values().iterator().next());
+        Object[] expected = new Object[rows];
+        String error = null;
+        for (int i = 0; i < rows && error == null; i++)
+        {
+            Map<String, Object> bindings = new HashMap<>();
+            for (Map.Entry<String, Object> column : columns.entrySet())
+                bindings.put(column.getKey(), Array.get(column.getValue(), i));
+            try
+            {
+                expected[i] = program.evaluate(bindings);
+            }
+            catch (EvaluationException ex)
+            {
+                error = ex.getMessage();
+            }
+        }
+
+        try
+        {
+            Object values = program.evaluateBatch(columns);
+            assertNull("checkBatch: expected " + error + ": " + prog, error);
+            for (int i = 0; i < rows; i++)
+                assertEquals("checkBatch: " + prog + " row " + i, expected[i],
+                    Array.get(values, i));
+        }
+        catch (EvaluationException ex)
+        {
+            assertEquals("checkBatch: " + prog, error, ex.getMessage());
+        }
+    }
+}
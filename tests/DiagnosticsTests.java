@@ -0,0 +1,198 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import ast.EvaluationException;
+import ast.SyntaxTree;
+import ast.TypeChecker;
+import diagnostics.AsyncDiagnostics;
+import diagnostics.Diagnostics;
+import lexer.TableLexer;
+import parser.MFLParser;
+import parser.ParseException;
+
+public class DiagnosticsTests
+{
+    /**
+     * Lines come out in order and none are lost, even when the buffer
+     * fills.
+     */
+    @Test
+    public void keepsOrderWhenFull()
+    {
+        StringWriter out = new StringWriter();
+        StringBuilder expected = new StringBuilder();
+        try (AsyncDiagnostics diag = new AsyncDiagnostics(out, 4))
+        {
+            for (int i = 0; i < 10000; i++)
+            {
+                diag.println("line " + i);
+                expected.append("line ").append(i).append(System.lineSeparator());
+            }
+        }
+        assertEquals("keepsOrderWhenFull:", expected.toString(), out.toString());
+    }
+
+    /**
+     * Lines written from several threads all come out, each thread's in
+     * order.
+     */
+    @Test
+    public void acceptsManyWriters() throws InterruptedException
+    {
+        StringWriter out = new StringWriter();
+        try (AsyncDiagnostics diag = new AsyncDiagnostics(out, 16))
+        {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++)
+            {
+                String name = "t" + t;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 2000; i++)
+                        diag.println(name + " " + i);
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+        }
+
+        int[] next = new int[4];
+        for (String line : out.toString().split(System.lineSeparator()))
+        {
+            String[] parts = line.split(" ");
+            int t = Integer.parseInt(parts[0].substring(1));
+            assertEquals("acceptsManyWriters: " + line, next[t]++, Integer.parseInt(parts[1]));
+        }
+        for (int t = 0; t < 4; t++)
+            assertEquals("acceptsManyWriters: count", 2000, next[t]);
+    }
+
+    /**
+     * A flush waits for the lines written so far, and lines written after
+     * a close are discarded.
+     */
+    @Test
+    public void flushesAndCloses()
+    {
+        StringWriter out = new StringWriter();
+        AsyncDiagnostics diag = new AsyncDiagnostics(out, 8);
+        diag.println("one");
+        diag.flush();
+        assertEquals("flushesAndCloses: flush", "one" + System.lineSeparator(), out.toString());
+        diag.close();
+        diag.println("two");
+        diag.close();
+        assertEquals("flushesAndCloses: close", "one" + System.lineSeparator(), out.toString());
+        assertFalse("flushesAndCloses: error", diag.checkError());
+    }
+
+    /**
+     * Parser tracing and trees go to the diagnostics they are given.
+     */
+    @Test
+    public void routesTracingAndTrees() throws ParseException
+    {
+        StringWriter out = new StringWriter();
+        try (AsyncDiagnostics diag = new AsyncDiagnostics(out, 64))
+        {
+            MFLParser parser = new MFLParser("1 + 2;");
+            parser.setDiagnostics(diag);
+            parser.toggleTracing();
+            SyntaxTree ast = parser.parse();
+            ast.setDiagnostics(diag);
+            ast.printTree();
+        }
+        String text = out.toString();
+        assertTrue("routesTracingAndTrees: trace", text.contains("Enter <prog>"));
+        assertTrue("routesTracingAndTrees: tree", text.contains(System.lineSeparator() + " BinOp(+)"));
+
+        MFLParser parser = new MFLParser("1 + 2;");
+        parser.setDiagnostics(Diagnostics.NONE);
+        parser.toggleTracing();
+        SyntaxTree ast = parser.parse();
+        ast.setDiagnostics(Diagnostics.NONE);
+        ast.printTree();
+        assertFalse("routesTracingAndTrees: none", Diagnostics.NONE.isEnabled());
+    }
+
+    /**
+     * Lexical, syntax, type and evaluation errors go to the diagnostics in
+     * the order they happen, unless error logging is off.
+     */
+    @Test
+    public void routesErrors() throws ParseException
+    {
+        StringWriter out = new StringWriter();
+        try (AsyncDiagnostics diag = new AsyncDiagnostics(out, 64))
+        {
+            MFLParser parser = new MFLParser("1 + .;");
+            parser.setDiagnostics(diag);
+            try
+            {
+                parser.parse();
+            }
+            catch (ParseException ex)
+            {
+                // Reported to the diagnostics.
+            }
+
+            SyntaxTree ast = new MFLParser("1 + 2.0;").parse();
+            ast.setDiagnostics(diag);
+            assertFalse("routesErrors: check", TypeChecker.check(ast));
+            try
+            {
+                ast.evaluate();
+            }
+            catch (EvaluationException ex)
+            {
+                // Reported to the diagnostics.
+            }
+
+            parser = new MFLParser(new TableLexer("1 + .;"));
+            parser.setDiagnostics(diag);
+            parser.setErrorLogging(false);
+            try
+            {
+                parser.parse();
+            }
+            catch (ParseException ex)
+            {
+                // Not reported.
+            }
+            ast.setErrorLogging(false);
+            TypeChecker.check(ast);
+        }
+
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertEquals("routesErrors: count", 4, lines.length);
+        assertTrue("routesErrors: lexical",
+            lines[0].startsWith("Lexical Error (line 1, column 5)"));
+        assertTrue("routesErrors: syntax", lines[1].startsWith("Syntax Error (line 1)"));
+        assertTrue("routesErrors: type", lines[2].startsWith("Type Error (line 1)"));
+        assertTrue("routesErrors: evaluation", lines[3].startsWith("Error (line 1)"));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import environment.Environment;
+import lexer.SymbolTable;
+
+public class EnvironmentTests
+{
+    /**
+     * Names bound by name are found by name and by symbol id.
+     */
+    @Test
+    public void lookupByNameAndSymbol()
+    {
+        Environment env = new Environment();
+        env.updateEnvironment("envTestA", 1);
+        env.updateEnvironment("envTestB", 2.5);
+        assertEquals("lookupByNameAndSymbol: a", 1,
+            env.lookup(SymbolTable.intern("envTestA")));
+        assertEquals("lookupByNameAndSymbol: b", 2.5,
+            env.lookup(SymbolTable.intern("envTestB")));
+        assertNull("lookupByNameAndSymbol: unbound",
+            env.lookup(SymbolTable.intern("envTestUnbound")));
+        assertNull("lookupByNameAndSymbol: out of range", env.lookup(1 << 30));
+        assertNull("lookupByNameAndSymbol: negative", env.lookup(-1));
+    }
+
+    /**
+     * Updates to a copy and to the original after copying are invisible to
+     * each other, at every level of the trie.
+     */
+    @Test
+    public void copiesAreIndependent()
+    {
+        Environment env = new Environment();
+        env.updateEnvironment(3, "a");
+        env.updateEnvironment(40000, "b");
+
+        Environment copy = env.copy();
+        copy.updateEnvironment(3, "c");
+        copy.updateEnvironment(40001, "d");
+        env.updateEnvironment(40000, "e");
+        env.updateEnvironment(5000000, "f");
+
+        assertEquals("copiesAreIndependent: env 3", "a", env.lookup(3));
+        assertEquals("copiesAreIndependent: env 40000", "e", env.lookup(40000));
+        assertNull("copiesAreIndependent: env 40001", env.lookup(40001));
+        assertEquals("copiesAreIndependent: env 5000000", "f", env.lookup(5000000));
+        assertEquals("copiesAreIndependent: copy 3", "c", copy.lookup(3));
+        assertEquals("copiesAreIndependent: copy 40000", "b", copy.lookup(40000));
+        assertEquals("copiesAreIndependent: copy 40001", "d", copy.lookup(40001));
+        assertNull("copiesAreIndependent: copy 5000000", copy.lookup(5000000));
+    }
+
+    /**
+     * Random updates to a family of copies agree with copied hash maps.
+     */
+    @Test
+    public void copiesMatchMaps()
+    {
+        Random rand = new Random(3120);
+        List<Environment> envs = new ArrayList<>(List.of(new Environment()));
+        List<Map<Integer, Object>> maps = new ArrayList<>(List.of(new HashMap<>()));
+
+        for (int i = 0; i < 20000; i++)
+        {
+            int which = rand.nextInt(envs.size());
+            int symbol = rand.nextInt(rand.nextBoolean() ? 64 : 100000);
+            if (rand.nextInt(8) == 0 && envs.size() < 16)
+            {
+                envs.add(envs.get(which).copy());
+                maps.add(new HashMap<>(maps.get(which)));
+            }
+            else
+            {
+                envs.get(which).updateEnvironment(symbol, i);
+                maps.get(which).put(symbol, i);
+            }
+            int probe = rand.nextInt(envs.size());
+            assertEquals("copiesMatchMaps: " + i, maps.get(probe).get(symbol),
+                envs.get(probe).lookup(symbol));
+        }
+
+        for (int e = 0; e < envs.size(); e++)
+            for (Map.Entry<Integer, Object> binding : maps.get(e).entrySet())
+                assertEquals("copiesMatchMaps: final", binding.getValue(),
+                    envs.get(e).lookup(binding.getKey()));
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ *   Copyright (C) 2022 -- 2023  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+import ast.ErrorKind;
+import ast.EvaluationException;
+import ast.FrameEvaluator;
+import ast.RecursiveEvaluator;
+import ast.Resolver;
+import ast.StackEvaluator;
+import ast.SyntaxTree;
+import ast.nodes.BinOpNode;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.TokenNode;
+import ast.nodes.UnaryOpNode;
+import environment.Environment;
+import parser.MFLParser;
+import parser.ParseException;
+import parser.ParseMode;
+
+public class EvaluatorTests
+{
+    /**
+     * The stack evaluator produces the same results and errors as the
+     * recursive one, even when every node goes through the explicit stacks.
+     */
+    @Test
+    public void stackMatchesRecursive()
+    {
+        String[] progs = {
+            "1 + 2 * 3 - 4 / 5 mod 6;",
+            "2.5 * 2.0 >= 5.0 and not false;",
+            "val x := 3;\nval y := x * 2;\nlet x := y in x + y;",
+            "let x := 5 in (let x := 3 in x * 2) + x;",
+            "1 / 0;",
+            "1 + 2.0;",
+            "true + 1;",
+            "not 3;",
+            "-true;",
+            "q + 1;",
+            "1 < true;",
+            "true < false;",
+            "2.5 mod 2.0;",
+            "val x := 1;\nx;\nunbound;\nx;"
+        };
+        for (String prog : progs)
+            assertEquals("stackMatchesRecursive: " + prog,
+                TestPrograms.run(prog, new RecursiveEvaluator()),
+                TestPrograms.run(prog, new StackEvaluator(0)));
+    }
+
+    /**
+     * The frame evaluator produces the same results and errors as the
+     * recursive one, including where lets shadow vals and each other.
+     */
+    @Test
+    public void frameMatchesRecursive()
+    {
+        String[] progs = {
+            "1 + 2 * 3 - 4 / 5 mod 6;",
+            "val x := 3;\nval y := x * 2;\nlet x := y in x + y;",
+            "let x := 5 in (let x := 3 in x * 2) + x;",
+            "let x := 1 in let x := x + 1 in let y := x * 10 in x + y;",
+            "let x := 1 in let y := 2 in (let x := y in x) + x;",
+            "val x := 1;\nlet x := 2 in x;\nx;",
+            "let x := q in x;",
+            "let x := 1 / 0 in 2;",
+            "let x := 1 in y;",
+            "val x := 1;\nx;\nunbound;\nx;"
+        };
+        for (String prog : progs)
+            assertEquals("frameMatchesRecursive: " + prog,
+                TestPrograms.run(prog, new RecursiveEvaluator()),
+                TestPrograms.run(prog, new FrameEvaluator()));
+    }
+
+    /**
+     * Each let gets the slot of its nesting depth, names resolve to the
+     * nearest binding, and free names are left to the environment.
+     */
+    @Test
+    public void resolverAssignsSlots() throws ParseException
+    {
+        SyntaxTree ast = new MFLParser(
+            "let x := 1 in let y := x in let x := y in x + z;").parse();
+        assertEquals("resolverAssignsSlots: frame", 3,
+            Resolver.resolve(ast.getRootNode()));
+
+        LetNode outer = (LetNode) ((ProgNode) ast.getRootNode()).getStatements().get(0);
+        LetNode middle = (LetNode) outer.getBody();
+        LetNode inner = (LetNode) middle.getBody();
+        BinOpNode sum = (BinOpNode) inner.getBody();
+        assertEquals("resolverAssignsSlots: outer", 0, outer.getSlot());
+        assertEquals("resolverAssignsSlots: middle", 1, middle.getSlot());
+        assertEquals("resolverAssignsSlots: inner", 2, inner.getSlot());
+        assertEquals("resolverAssignsSlots: x in y", 0,
+            ((TokenNode) middle.getBoundExpr()).getSlot());
+        assertEquals("resolverAssignsSlots: y in x", 1,
+            ((TokenNode) inner.getBoundExpr()).getSlot());
+        assertEquals("resolverAssignsSlots: x", 2,
+            ((TokenNode) sum.getLeft()).getSlot());
+        assertEquals("resolverAssignsSlots: z", -1,
+            ((TokenNode) sum.getRight()).getSlot());
+        assertFalse("resolverAssignsSlots: literal",
+            ((TokenNode) outer.getBoundExpr()).getSlot() >= 0);
+    }
+
+    /**
+     * Operator nodes specialize to the operand types they see, and become
+     * generic once they see a second type.
+     */
+    @Test
+    public void nodesSpecialize() throws ParseException, EvaluationException
+    {
+        SyntaxTree ast = new MFLParser("not (-x * x < x);").parse();
+        UnaryOpNode not = (UnaryOpNode) ((ProgNode) ast.getRootNode()).getStatements().get(0);
+        RelOpNode less = (RelOpNode) not.getOperand();
+        BinOpNode times = (BinOpNode) less.getLeft();
+        UnaryOpNode negate = (UnaryOpNode) times.getLeft();
+        assertEquals("nodesSpecialize: new", "Uninitialized", times.getSpecialization());
+
+        assertEquals("nodesSpecialize: int", false, evaluate(ast, 3));
+        assertEquals("nodesSpecialize: int", "BoolNot", not.getSpecialization());
+        assertEquals("nodesSpecialize: int", "IntLessThan", less.getSpecialization());
+        assertEquals("nodesSpecialize: int", "IntMul", times.getSpecialization());
+        assertEquals("nodesSpecialize: int", "IntNegate", negate.getSpecialization());
+        assertEquals("nodesSpecialize: int again", true, evaluate(ast, 0));
+
+        assertEquals("nodesSpecialize: real", false, evaluate(ast, 2.5));
+        assertEquals("nodesSpecialize: real", "BoolNot", not.getSpecialization());
+        assertEquals("nodesSpecialize: real", "Generic", less.getSpecialization());
+        assertEquals("nodesSpecialize: real", "Generic", times.getSpecialization());
+        assertEquals("nodesSpecialize: real", "Generic", negate.getSpecialization());
+        assertEquals("nodesSpecialize: int after real", false, evaluate(ast, 3));
+    }
+
+    /**
+     * The stack evaluator handles a let chain a million deep.
+     */
+    @Test
+    public void deepLetChain()
+    {
+        String prog = "let x := 1 in ".repeat(1000000) + "x + 1;";
+        assertEquals("deepLetChain:", "=> 2\n",
+            TestPrograms.run(iterative(prog), ast -> ast.setEvaluator(new StackEvaluator())));
+    }
+
+    /**
+     * The stack evaluator handles an operator chain a million deep.
+     */
+    @Test
+    public void deepOperatorChain()
+    {
+        String prog = "1" + " + 1".repeat(999999) + " - (".repeat(1000) + "0"
+            + ")".repeat(1000) + ";";
+        assertEquals("deepOperatorChain:", "=> 1000000\n",
+            TestPrograms.run(iterative(prog), ast -> ast.setEvaluator(new StackEvaluator())));
+    }
+
+    /**
+     * With error logging off, failures print nothing and are described by
+     * the kind, line, and message of their exceptions.
+     */
+    @Test
+    public void reportsStructuredErrors() throws ParseException
+    {
+        String[] progs = { "val a := 1;\nlet x := a in\nx + true;",
+            "7 mod (3 - 3);", "\n\nq;", "1.0 mod 2.0;" };
+        ErrorKind[] kinds = { ErrorKind.TYPE, ErrorKind.ARITHMETIC,
+            ErrorKind.UNBOUND, ErrorKind.TYPE };
+        long[] lines = { 3, 1, 3, 1 };
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buf, true));
+        try
+        {
+            for (int i = 0; i < progs.length; i++)
+            {
+                SyntaxTree ast = new MFLParser(progs[i]).parse();
+                ast.setErrorLogging(false);
+                try
+                {
+                    ast.evaluate();
+                    assertFalse("reportsStructuredErrors: " + progs[i], true);
+                }
+                catch (EvaluationException ex)
+                {
+                    assertEquals("reportsStructuredErrors: kind", kinds[i], ex.getKind());
+                    assertEquals("reportsStructuredErrors: line", lines[i], ex.getLine());
+                    assertEquals("reportsStructuredErrors: report",
+                        TestPrograms.run(progs[i], new RecursiveEvaluator()),
+                        ex.getReport() + "\n" + ex.getMessage() + "\n");
+                    assertEquals("reportsStructuredErrors: trace", 0,
+                        ex.getStackTrace().length);
+                }
+            }
+
+            MFLParser parser = new MFLParser("let x := 1 in\n(x + ;");
+            parser.setErrorLogging(false);
+            try
+            {
+                parser.parse();
+                assertFalse("reportsStructuredErrors: parse", true);
+            }
+            catch (ParseException ex)
+            {
+                assertEquals("reportsStructuredErrors: parse kind", ErrorKind.SYNTAX, ex.getKind());
+                assertEquals("reportsStructuredErrors: parse line", 2, ex.getLine());
+                assertEquals("reportsStructuredErrors: parse message", "Parsing failed.", ex.getMessage());
+            }
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        assertEquals("reportsStructuredErrors: output", "", buf.toString());
+    }
+
+    /**
+     * Evaluate a tree with {@code x} bound to a value.
+     * @param ast the tree.
+     * @param x the value of {@code x}.
+     * @return the result.
+     */
+    private Object evaluate(SyntaxTree ast, Object x) throws EvaluationException
+    {
+        Environment env = new Environment();
+        env.updateEnvironment("x", x);
+        ast.setEnvironment(env);
+        return ast.evaluate();
+    }
+
+    /**
+     * Make a parser that parses a program iteratively, so it can be
+     * arbitrarily deep.
+     * @param prog the program text.
+     * @return the parser.
+     */
+    private MFLParser iterative(String prog)
+    {
+        MFLParser parser = new MFLParser(prog);
+        parser.setParseMode(ParseMode.ITERATIVE);
+        return parser;
+    }
+}
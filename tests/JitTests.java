@@ -0,0 +1,94 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ast.EvaluationException;
+import ast.RecursiveEvaluator;
+import ast.SyntaxTree;
+import jit.TieredEvaluator;
+import parser.MFLParser;
+import parser.ParseException;
+
+public class JitTests
+{
+    /**
+     * Compiled code produces the same results and errors as the tree.
+     */
+    @Test
+    public void jitMatchesRecursive()
+    {
+        String[] progs = {
+            "1 + 2 * 3 - 4;",
+            "val a := 3;\nval b := 4;\n(a * b + 7) mod 5 < 3 and not (a = b);",
+            "let r := 0.0725 in let p := 1200.5 in r * p >= 86.5 or p / r < 2.0;",
+            "let x := 5 in let x := x + 1 in x * 2;",
+            "let x := 5 in (let x := 1.5 in x * 2.0) > 2.0 and x = 5;",
+            "val x := 2;\nval y := x;",
+            "1 + 1;\n2.0 * 3.0;\ntrue;\n4;",
+            "let x := true in x + 1;",
+            "let x := 1 in x < 2 and 3;",
+            "true = (1 < 2.0);",
+            "true = (1 < 2) and false != not true;",
+            "7 / (3 - 3);",
+            "let x := 4 in x mod 0;",
+            "2.5 mod 2.0;",
+            "-true;",
+            "q + 1;",
+            "let x := q in x;",
+            "99999999999;",
+            "2147483647 + 1;",
+            "let x := 2147483647 in x * x - x;",
+            "-(0 - 2147483647 - 1) = 2147483648 and 65536 * 65536 > 0;",
+            "val b := 2147483647 + 1;\nb - 1;",
+            "(0 - 2147483647 - 1) / (0 - 1) mod 99999999999;"
+        };
+        for (String prog : progs)
+            assertEquals("jitMatchesRecursive: " + prog,
+                TestPrograms.run(prog, new RecursiveEvaluator()),
+                TestPrograms.run(prog, new TieredEvaluator(0, new RecursiveEvaluator())));
+    }
+
+    /**
+     * A tree is compiled once it has been evaluated the threshold number of
+     * times, and compiled code sees changes to the environment.
+     */
+    @Test
+    public void compilesAfterThreshold() throws ParseException, EvaluationException
+    {
+        TieredEvaluator jit = new TieredEvaluator(3, new RecursiveEvaluator());
+        SyntaxTree ast = new MFLParser("let x := g * g in x - x / g;").parse();
+        ast.setEvaluator(jit);
+        ast.getEnvironment().updateEnvironment("g", 4);
+        for (int i = 0; i < 3; i++)
+        {
+            assertEquals("compilesAfterThreshold: tree", 12, ast.evaluate());
+            assertFalse("compilesAfterThreshold: not compiled", jit.isCompiled());
+        }
+        assertEquals("compilesAfterThreshold: compiled", 12, ast.evaluate());
+        assertTrue("compilesAfterThreshold: is compiled", jit.isCompiled());
+        ast.getEnvironment().updateEnvironment("g", 1.5);
+        assertEquals("compilesAfterThreshold: real", 0.75, ast.evaluate());
+
+        ast.setRootNode(new MFLParser("g + 1.0;").parse().getRootNode());
+        assertEquals("compilesAfterThreshold: new tree", 2.5, ast.evaluate());
+        assertFalse("compilesAfterThreshold: new tree not compiled", jit.isCompiled());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ast.LazyEvaluator;
+import ast.RecursiveEvaluator;
+
+public class LazyTests
+{
+    /**
+     * Bindings that are never used are never evaluated, so their errors do
+     * not surface.
+     */
+    @Test
+    public void skipsUnusedBindings()
+    {
+        LazyEvaluator lazy = new LazyEvaluator();
+        assertEquals("skipsUnusedBindings: let", "=> 2\n",
+            TestPrograms.run("let x := 1 / 0 in 2;", lazy));
+        assertEquals("skipsUnusedBindings: val", "=> 3\n",
+            TestPrograms.run("val x := true + 1;\n3;", lazy));
+        assertEquals("skipsUnusedBindings: and", "=> false\n",
+            TestPrograms.run("let x := q in false and x;", lazy));
+    }
+
+    /**
+     * A binding's error surfaces at its first use, with the message eager
+     * evaluation gives.
+     */
+    @Test
+    public void failsAtFirstUse()
+    {
+        String[] progs = {
+            "let x := 1 / 0 in x + 1;",
+            "val x := true + 1;\nx;",
+            "let x := q in true and x;",
+            "let x := 3 in x and true;",
+            "true and 3;"
+        };
+        for (String prog : progs)
+        {
+            String eager = TestPrograms.run(prog, new RecursiveEvaluator());
+            assertTrue("failsAtFirstUse: " + prog, !eager.startsWith("=> "));
+            assertEquals("failsAtFirstUse: " + prog, eager,
+                TestPrograms.run(prog, new LazyEvaluator()));
+        }
+    }
+
+    /**
+     * A val's expression sees the environment as it was at the val, not
+     * later vals of the same names.
+     */
+    @Test
+    public void valsCaptureEnvironment()
+    {
+        assertEquals("valsCaptureEnvironment:", "=> 3\n",
+            TestPrograms.run("val a := 1;\nval b := a + 2;\nval a := 10;\nb;",
+                new LazyEvaluator()));
+    }
+}
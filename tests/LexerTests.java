@@ -0,0 +1,306 @@
+/*
+ *   Copyright (C) 2022 -- 2023  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import lexer.CharacterStream;
+import lexer.Lexer;
+import lexer.SymbolTable;
+import lexer.TableLexer;
+import lexer.Token;
+import lexer.TokenType;
+
+public class LexerTests
+{
+    /**
+     * The mapped file stream produces the same tokens as the string stream.
+     */
+    @Test
+    public void fileMatchesString() throws IOException
+    {
+        String prog = "val x := 3;\n(* note *) let y := .5 in y >= 2.25 and not (x != 4);\n";
+        assertEquals("fileMatchesString:", lexString(prog), lexFile(prog));
+    }
+
+    /**
+     * Non-ASCII letters are decoded from UTF-8 and stay part of identifiers.
+     */
+    @Test
+    public void utf8Identifiers() throws IOException
+    {
+        String prog = "val café := 1; αβ + 𝑥;";
+        assertEquals("utf8Identifiers:", lexString(prog), lexFile(prog));
+    }
+
+    /**
+     * Line numbers are tracked through mapped input.
+     */
+    @Test
+    public void fileLineNumbers() throws IOException
+    {
+        Lexer lex = new Lexer(write("1;\n\n2;\n"));
+        while (lex.nextToken().getType() != TokenType.EOF)
+            ;
+        assertEquals("fileLineNumbers:", 4, lex.getLineNumber());
+    }
+
+    /**
+     * A file mapped in small windows produces the same tokens and line
+     * numbers as the string stream, on both lexers, wherever the window
+     * edges fall.
+     */
+    @Test
+    public void windowsMatchString() throws IOException
+    {
+        String prog = "val x1 := 42;\n(* a\n comment *)\nlet y := .5 in y >= 2.25\n"
+            + "and not (x1 != 4) or x1 <= 3 mod 2;\nval café := 1; αβ + 𝑥;\n(* open";
+        File file = write(prog);
+        for (int window = 8; window <= 24; window++)
+        {
+            assertEquals("windowsMatchString: " + window, lexString(prog),
+                drain(new Lexer(new CharacterStream(file, window)) { }));
+            assertEquals("windowsMatchString: " + window, drain(new TableLexer(prog)),
+                drain(new TableLexer(new CharacterStream(file, window))));
+        }
+    }
+
+    /**
+     * A reader that fails part way through fails the stream rather than
+     * leaving it with part of the program.
+     */
+    @Test(expected = IOException.class)
+    public void readerFailuresPropagate() throws IOException
+    {
+        Reader failing = new FilterReader(new StringReader("val x := 3;\n"))
+        {
+            private boolean started;     // Whether the first read happened.
+
+            @Override
+            public int read(char[] buf, int off, int len) throws IOException
+            {
+                if (started)
+                    throw new IOException("disk gone");
+                started = true;
+                return super.read(buf, off, 4);
+            }
+        };
+        new CharacterStream(failing);
+    }
+
+    /**
+     * Identifier and number tokens are slices of the source.
+     */
+    @Test
+    public void lexemeSlices()
+    {
+        Lexer lex = new Lexer("val\n  counter42 := 3.25;");
+        lex.nextToken();
+        Token id = lex.nextToken();
+        assertEquals("lexemeSlices:", 6, id.getStart());
+        assertEquals("lexemeSlices:", 9, id.getLength());
+        assertEquals("lexemeSlices:", 2, id.getLine());
+        assertEquals("lexemeSlices:", "counter42", id.getValue());
+        lex.nextToken();
+        assertEquals("lexemeSlices:", "3.25", lex.nextToken().getValue());
+    }
+
+    /**
+     * The table-driven lexer produces the same tokens and line numbers as
+     * the character stream lexer.
+     */
+    @Test
+    public void tableMatchesStream()
+    {
+        String prog = "val x1 := 42;\n(* a\n comment *)\nlet y := .5 in y >= 2.25\n"
+            + "and not (x1 != 4) or x1 <= 3 mod 2;\n:x !y @ café := 1.;\n(* open";
+        assertEquals("tableMatchesStream:", drain(new Lexer(prog)), drain(new TableLexer(prog)));
+    }
+
+    /**
+     * Identifiers get the same symbol id from every lexer and punctuation
+     * and keywords are shared tokens.
+     */
+    @Test
+    public void symbolsAreInterned()
+    {
+        Token a = new Lexer("total").nextToken();
+        Token b = new TableLexer("  total;").nextToken();
+        assertEquals("symbolsAreInterned:", a.getSymbol(), b.getSymbol());
+        assertEquals("symbolsAreInterned:", SymbolTable.intern("total"), a.getSymbol());
+        assertSame("symbolsAreInterned:", Token.of(TokenType.LET), new Lexer("let").nextToken());
+        assertSame("symbolsAreInterned:", Token.of(TokenType.LTE), new TableLexer("<=").nextToken());
+    }
+
+    /**
+     * Shared tokens can not be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedTokensAreImmutable()
+    {
+        Token.of(TokenType.SEMI).setValue(",");
+    }
+
+    /**
+     * Numeric literals carry their decoded values from both lexers.
+     */
+    @Test
+    public void numericLiterals()
+    {
+        String prog = "42 3.25 .5 7. 2147483647 0.1";
+        Lexer[] lexers = { new Lexer(prog), new TableLexer(prog) };
+        for (Lexer lex : lexers)
+        {
+            assertEquals("numericLiterals:", 42, lex.nextToken().getIntValue());
+            assertEquals("numericLiterals:", 3.25, lex.nextToken().getRealValue(), 0.0);
+            assertEquals("numericLiterals:", 0.5, lex.nextToken().getRealValue(), 0.0);
+            assertEquals("numericLiterals:", 7.0, lex.nextToken().getRealValue(), 0.0);
+            assertEquals("numericLiterals:", Integer.MAX_VALUE, lex.nextToken().getIntValue());
+            assertEquals("numericLiterals:", 0.1, lex.nextToken().getRealValue(), 0.0);
+        }
+    }
+
+    /**
+     * Reals are decoded to the same double as Double.parseDouble, including
+     * long significands and values that overflow or underflow.
+     */
+    @Test
+    public void realsMatchParseDouble()
+    {
+        Random rand = new Random(3120);
+        String[] fixed = { "9007199254740993.0", "0.30000000000000004",
+            "123456789012345678901234567890.5", "1." + "0".repeat(40) + "1",
+            "0." + "0".repeat(320) + "49", "0." + "0".repeat(400) + "1",
+            "1" + "0".repeat(400) + ".0", "17976931348623157" + "0".repeat(292) + ".0" };
+        for (String lexeme : fixed)
+            checkReal(lexeme);
+
+        for (int i = 0; i < 20000; i++)
+        {
+            StringBuilder sb = new StringBuilder();
+            int whole = rand.nextInt(25);
+            int zeros = rand.nextInt(4) == 0 ? rand.nextInt(330) : 0;
+            int frac = rand.nextInt(25);
+            for (int j = 0; j < whole; j++)
+                sb.append((char) ('0' + rand.nextInt(10)));
+            sb.append('.');
+            sb.append("0".repeat(zeros));
+            for (int j = 0; j < frac; j++)
+                sb.append((char) ('0' + rand.nextInt(10)));
+            if (whole + frac > 0)
+                checkReal(sb.toString());
+        }
+    }
+
+    /**
+     * An integer literal that does not fit in an int is still an integer,
+     * left for the parser to decode.
+     */
+    @Test
+    public void intOverflow()
+    {
+        String prog = "2147483648 + 1";
+        Lexer[] lexers = { new Lexer(prog), new TableLexer(prog) };
+        for (Lexer lex : lexers)
+        {
+            Token tok = lex.nextToken();
+            assertEquals("intOverflow:", TokenType.INT, tok.getType());
+            assertEquals("intOverflow:", "2147483648", tok.getValue());
+            assertEquals("intOverflow:", TokenType.ADD, lex.nextToken().getType());
+        }
+    }
+
+    /**
+     * Check that both lexers decode a real lexeme exactly as
+     * Double.parseDouble does.
+     * @param lexeme the lexeme to decode.
+     */
+    private void checkReal(String lexeme)
+    {
+        long expected = Double.doubleToLongBits(Double.parseDouble(lexeme));
+        assertEquals("realsMatchParseDouble: " + lexeme, expected,
+            Double.doubleToLongBits(new Lexer(lexeme).nextToken().getRealValue()));
+        assertEquals("realsMatchParseDouble: " + lexeme, expected,
+            Double.doubleToLongBits(new TableLexer(lexeme).nextToken().getRealValue()));
+    }
+
+    /**
+     * Lex a string into a printable token list.
+     * @param prog the program text.
+     * @return the tokens, one per line.
+     */
+    private String lexString(String prog)
+    {
+        return drain(new Lexer(prog));
+    }
+
+    /**
+     * Lex a file containing the program into a printable token list.
+     * @param prog the program text.
+     * @return the tokens, one per line.
+     * @throws IOException if the temporary file can not be written.
+     */
+    private String lexFile(String prog) throws IOException
+    {
+        return drain(new Lexer(write(prog)));
+    }
+
+    /**
+     * Read all tokens from a lexer.
+     * @param lex the lexer.
+     * @return the tokens, one per line.
+     */
+    private String drain(Lexer lex)
+    {
+        StringBuilder sb = new StringBuilder();
+        Token tok;
+        do
+        {
+            tok = lex.nextToken();
+            sb.append(tok).append(' ').append(tok.getValue())
+                .append(' ').append(lex.getLineNumber()).append('\n');
+        } while (tok.getType() != TokenType.EOF);
+        return sb.toString();
+    }
+
+    /**
+     * Write a program to a temporary UTF-8 file.
+     * @param prog the program text.
+     * @return the file.
+     * @throws IOException if the file can not be written.
+     */
+    private File write(String prog) throws IOException
+    {
+        File file = File.createTempFile("mfl-lexer", ".mfl");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file))
+        {
+            out.write(prog.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+}
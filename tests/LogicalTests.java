@@ -47,6 +47,27 @@ public class LogicalTests
         runEvalTest("simpleTrueOrLeft", "false or true;", "true");
     }
 
+    /*
+     * Short-circuit evaluation.
+     */
+    @Test
+    public void shortCircuitAnd()
+    {
+        runEvalTest("shortCircuitAnd", "false and 1 / 0 = 1;", "false");
+    }
+
+    @Test
+    public void shortCircuitOr()
+    {
+        runEvalTest("shortCircuitOr", "true or 3;", "true");
+    }
+
+    @Test
+    public void shortCircuitNested()
+    {
+        runEvalTest("shortCircuitNested", "val b := false;\nb and (true or q) or not b;", "true");
+    }
+
     /*
      * Not expressions
      */
@@ -0,0 +1,140 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ast.Optimizer;
+import ast.SyntaxTree;
+import parser.MFLParser;
+
+public class OptimizerTests
+{
+    /**
+     * Constant subtrees are folded to a single literal.
+     */
+    @Test
+    public void foldsConstants()
+    {
+        assertEquals("foldsConstants:", "Prog\n Token(INT(12))\n",
+            tree("(3 * 4) + 0;"));
+        assertEquals("foldsConstants:", tree("false;"), tree("not (2 = 2) or false;"));
+        assertEquals("foldsConstants:", "Prog\n Token(REAL(-0.5))\n",
+            tree("-(1.0 / 2.0);"));
+    }
+
+    /**
+     * Identities reduce to their operand only when its type is known.
+     */
+    @Test
+    public void appliesIdentities()
+    {
+        assertEquals("appliesIdentities:", tree("x + 1;"), tree("(x + 1) * 1 + 0;"));
+        assertEquals("appliesIdentities:", tree("x < 1;"),
+            tree("true and not not (x < 1) or false;"));
+        assertEquals("appliesIdentities:", tree("x * 2.0;"), tree("(x * 2.0) * 1.0 - 0.0;"));
+        assertEquals("appliesIdentities:", tree("x * 1 + 0;"), tree("x * 1 + 0;"));
+        assertEquals("appliesIdentities:", tree("b or false;"), tree("b or false;"));
+    }
+
+    /**
+     * Operators that fail are left in place, and fail as before without
+     * printing anything while the tree is simplified.
+     */
+    @Test
+    public void keepsErrors()
+    {
+        String[] progs = {
+            "1 / 0;", "3 mod 0;", "true + 3;", "2.5 mod 2.0;", "1 + 2.0;",
+            "1 < 2.0;", "true < false;", "not 3;", "-true;", "1 and true;",
+            "(1.0 * 1) + 0;", "not not 3;", "true and 1;", "(x + 1.0) * 1;"
+        };
+        for (String prog : progs)
+            assertEquals("keepsErrors: " + prog, TestPrograms.run(prog, ast -> { }),
+                TestPrograms.run(prog, ast -> Optimizer.optimize(ast)));
+    }
+
+    /**
+     * The values of constant vals are substituted into later statements,
+     * except where a let hides them or a later val rebinds them.
+     */
+    @Test
+    public void propagatesVals()
+    {
+        assertEquals("propagatesVals:",
+            tree("val a := 3;\nval c := 7;\n21;"),
+            tree("val a := 3;\nval c := a + 4;\na * c;"));
+        assertEquals("propagatesVals:", tree("val a := 3;\nlet a := x in a + 0;"),
+            tree("val a := 3;\nlet a := x in a + 0;"));
+        assertEquals("propagatesVals:", "=> 5\n",
+            TestPrograms.run("val a := 3;\nval a := let t := 2 in t + a;\na;",
+                ast -> Optimizer.optimize(ast)));
+    }
+
+    /**
+     * Lets bound to literals are inlined, aliases are collapsed, and unused
+     * bindings that can not fail are dropped.
+     */
+    @Test
+    public void removesLets()
+    {
+        assertEquals("removesLets: inline", tree("7 < y;"),
+            tree("let x := 3 in x + 4 < y;"));
+        assertEquals("removesLets: alias", tree("let y := q in y * y;"),
+            tree("let y := q in let x := y in x * y;"));
+        assertEquals("removesLets: dead", tree("let y := q in y;"),
+            tree("let y := q in let x := y in y;"));
+        assertEquals("removesLets: val", tree("val v := q;\nv + 1;"),
+            tree("val v := q;\nlet x := v in let u := v in x + 1;"));
+    }
+
+    /**
+     * Lets that may fail, or whose removal would let a binding capture a
+     * name, are kept.
+     */
+    @Test
+    public void keepsLets()
+    {
+        String[] progs = {
+            "let x := q in 1;",
+            "let x := 1 / 0 in 1;",
+            "let y := 1 + q in let x := y in let y := 2 in x + y;",
+            "let x := 1 in let x := q in x;"
+        };
+        for (String prog : progs)
+        {
+            assertEquals("keepsLets: " + prog, TestPrograms.run(prog, ast -> { }),
+                TestPrograms.run(prog, ast -> Optimizer.optimize(ast)));
+            assertTrue("keepsLets: " + prog, tree(prog).contains("Let("));
+        }
+    }
+
+    /**
+     * Parse and simplify a program, capturing the printed tree.
+     * @param prog the program text.
+     * @return the printed tree.
+     */
+    private String tree(String prog)
+    {
+        return TestPrograms.capture(() -> {
+            SyntaxTree ast = new MFLParser(prog).parse();
+            Optimizer.optimize(ast);
+            ast.printTree();
+        });
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *   Copyright (C) 2022 -- 2023  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ast.EvaluationException;
+import ast.SyntaxTree;
+import parser.MFLParser;
+import parser.ParseException;
+import parser.ParseMode;
+
+public class ParserTests
+{
+    // Fragments random programs are built from.
+    private static final String[] FRAGMENTS = {
+        "1", "2.5", "x", "y", "true", "false", "+", "-", "*", "/", "mod",
+        "and", "or", "not", "<", "<=", ">", ">=", "=", "!=", "(", ")",
+        "let", "in", ":=", "val", ";", "\n" };
+
+    /**
+     * Precedence, associativity, and the placement rules for unary
+     * operators and let expressions match the recursive parser in every
+     * other mode.
+     */
+    @Test
+    public void modesMatchRecursive()
+    {
+        String[] progs = {
+            "1 + 2 * 3 - 4 / 5 mod 6;",
+            "1 - 2 - 3;",
+            "-1 * --2;",
+            "1 < 2 and 3 >= 4 or not 5 = 6;",
+            "not 1 + 2 < 3 * 4;",
+            "not 1 < 2 < 3;",
+            "1 < 2 < 3;",
+            "1 < not 2 < 3;",
+            "x + not y and z;",
+            "1 * not 2;",
+            "- not 1;",
+            "let x := 1 in let y := x + 1 in x * y < 3 and true;",
+            "1 + let x := 1 in x;",
+            "(let x := 1 in x) + 1;",
+            "val x := 3 * (4 + 5);\nx mod 2;",
+            "1 +;",
+            "(1 + 2;",
+            "let := 3 in 4;"
+        };
+        for (String prog : progs)
+        {
+            String expected = run(prog, ParseMode.RECURSIVE);
+            assertEquals("modesMatchRecursive: " + prog,
+                expected, run(prog, ParseMode.PRATT));
+            assertEquals("modesMatchRecursive: " + prog,
+                expected, run(prog, ParseMode.ITERATIVE));
+        }
+    }
+
+    /**
+     * The iterative parser handles a million nested parentheses.
+     */
+    @Test
+    public void deepParentheses() throws ParseException
+    {
+        int depth = 1000000;
+        String prog = "(".repeat(depth) + "1" + ")".repeat(depth) + ";";
+        MFLParser p = new MFLParser(prog);
+        p.setParseMode(ParseMode.ITERATIVE);
+        SyntaxTree ast = p.parse();
+        assertFalse("deepParentheses:", p.hasError());
+        assertNotNull("deepParentheses:", ast.getRootNode());
+    }
+
+    /**
+     * The iterative parser handles a let chain a million deep.
+     */
+    @Test
+    public void deepLetChain() throws ParseException
+    {
+        int depth = 1000000;
+        String prog = "let x := 1 in ".repeat(depth) + "x + 1;";
+        MFLParser p = new MFLParser(prog);
+        p.setParseMode(ParseMode.ITERATIVE);
+        SyntaxTree ast = p.parse();
+        assertFalse("deepLetChain:", p.hasError());
+        assertNotNull("deepLetChain:", ast.getRootNode());
+    }
+
+    /**
+     * Random token sequences, nearly all malformed, produce the same trees,
+     * errors, and results from every parser.
+     */
+    @Test
+    public void modesMatchRecursiveRandom()
+    {
+        Random rand = new Random(3120);
+        for (int i = 0; i < 5000; i++)
+        {
+            StringBuilder sb = new StringBuilder();
+            int len = 1 + rand.nextInt(12);
+            for (int j = 0; j < len; j++)
+                sb.append(FRAGMENTS[rand.nextInt(FRAGMENTS.length)]).append(' ');
+            sb.append(';');
+
+            String prog = sb.toString();
+            String expected = run(prog, ParseMode.RECURSIVE);
+            assertEquals("modesMatchRecursiveRandom: " + prog,
+                expected, run(prog, ParseMode.PRATT));
+            assertEquals("modesMatchRecursiveRandom: " + prog,
+                expected, run(prog, ParseMode.ITERATIVE));
+        }
+    }
+
+    /**
+     * Parse and evaluate a program, capturing everything it prints.
+     * @param prog the program text.
+     * @param mode the parsing mode to use.
+     * @return the printed tree, the result, and any errors.
+     */
+    private String run(String prog, ParseMode mode)
+    {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream capture = new PrintStream(buf, true);
+        System.setOut(capture);
+        System.setErr(capture);
+
+        try
+        {
+            MFLParser p = new MFLParser(prog);
+            p.setParseMode(mode);
+            SyntaxTree ast = p.parse();
+            ast.printTree();
+            capture.println("=> " + ast.evaluate());
+        }
+        catch (ParseException | EvaluationException ex)
+        {
+            capture.println(ex.getMessage());
+        }
+        finally
+        {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        return buf.toString();
+    }
+}
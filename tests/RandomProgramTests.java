@@ -0,0 +1,208 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ast.FrameEvaluator;
+import ast.LazyEvaluator;
+import ast.Optimizer;
+import ast.RecursiveEvaluator;
+import ast.StackEvaluator;
+import ast.SyntaxTree;
+import ast.TypeAnnotator;
+import ast.TypeChecker;
+import ast.nodes.ProgNode;
+import closure.ClosureEvaluator;
+import environment.Environment;
+import jit.TieredEvaluator;
+import parser.MFLParser;
+import parser.ParseException;
+import vm.VirtualMachine;
+
+public class RandomProgramTests
+{
+    /**
+     * Random programs, many of them ill-typed, produce the same results and
+     * errors on every evaluator as on the recursive one. The lazy evaluator
+     * is held to this only where it evaluates every binding, that is, where
+     * the program has no lets or evaluates eagerly without error.
+     */
+    @Test
+    public void evaluatorsMatchRecursiveRandom()
+    {
+        Random rand = new Random(3120);
+        StackEvaluator stack = new StackEvaluator(0);
+        for (int i = 0; i < 2000; i++)
+        {
+            String prog = TestPrograms.randomProgram(rand);
+            String eager = TestPrograms.run(prog, new RecursiveEvaluator());
+            assertEquals("stack: " + prog, eager, TestPrograms.run(prog, stack));
+            assertEquals("frame: " + prog, eager, TestPrograms.run(prog, new FrameEvaluator()));
+            assertEquals("vm: " + prog, eager, TestPrograms.run(prog, new VirtualMachine()));
+            assertEquals("closure: " + prog, eager,
+                TestPrograms.run(prog, new ClosureEvaluator()));
+            assertEquals("jit: " + prog, eager,
+                TestPrograms.run(prog, new TieredEvaluator(0, new RecursiveEvaluator())));
+            if (eager.startsWith("=> ") || !prog.contains("let"))
+                assertEquals("lazy: " + prog, eager, TestPrograms.run(prog, new LazyEvaluator()));
+        }
+    }
+
+    /**
+     * Random programs produce the same results and errors when simplified,
+     * and when annotated with types, as they do untouched.
+     */
+    @Test
+    public void rewritesMatchUntouchedRandom()
+    {
+        Random rand = new Random(3120);
+        for (int i = 0; i < 2000; i++)
+        {
+            String prog = TestPrograms.randomProgram(rand);
+            assertEquals("optimized: " + prog, TestPrograms.run(prog, ast -> { }),
+                TestPrograms.run(prog, ast -> Optimizer.optimize(ast)));
+            assertEquals("typed: " + prog, TestPrograms.run(prog, ast -> bindG(ast)),
+                TestPrograms.run(prog, ast -> {
+                    bindG(ast);
+                    TypeAnnotator.annotate(ast);
+                }));
+        }
+    }
+
+    /**
+     * For random programs, the checker finds errors exactly when evaluation
+     * fails with a type error or an unbound name, and a program that checks
+     * evaluates to the same result on the primitive paths.
+     */
+    @Test
+    public void checkerAgreesWithEvaluationRandom() throws ParseException
+    {
+        Random rand = new Random(3120);
+        for (int i = 0; i < 2000; i++)
+        {
+            String prog = TestPrograms.randomProgram(rand);
+            String untyped = TestPrograms.run(prog, ast -> bindG(ast));
+
+            SyntaxTree ast = new MFLParser(prog).parse();
+            bindG(ast);
+            TypeChecker checker = new TypeChecker(ast.getEnvironment());
+            checker.check(ast.getRootNode());
+
+            if (checker.hasError())
+            {
+                // Evaluation fails, with one of the errors found unless
+                // something else, like division by zero, fails first. If
+                // an and or an or skips an operand with an error, the
+                // evaluation may go on to succeed or to fail elsewhere.
+                boolean skips = prog.contains(" and ") || prog.contains(" or ");
+                if (untyped.startsWith("=> "))
+                {
+                    assertTrue("checkerAgreesWithEvaluationRandom: " + prog, skips);
+                    continue;
+                }
+                String msg = untyped.substring(
+                    untyped.lastIndexOf('\n', untyped.length() - 2) + 1).trim();
+                assertTrue("checkerAgreesWithEvaluationRandom: " + prog + " " + msg,
+                    msg.contains("by zero") || skips
+                    || checker.getErrors().stream().anyMatch(e -> e.endsWith(msg)));
+            }
+            else
+            {
+                assertNotNull("checkerAgreesWithEvaluationRandom: " + prog,
+                    ((ProgNode) ast.getRootNode()).getStatements().get(3).getType());
+                assertEquals("checkerAgreesWithEvaluationRandom: " + prog,
+                    untyped, TestPrograms.evaluate(ast));
+            }
+        }
+    }
+
+    /**
+     * A random tree evaluated again and again under operands of changing
+     * types gives the same results and errors as a fresh tree every time.
+     */
+    @Test
+    public void specializedMatchesGenericRandom() throws ParseException
+    {
+        Object[] values = { 4, 0, -7, 1.5, 0.0, true, false };
+        Random rand = new Random(3120);
+        for (int i = 0; i < 500; i++)
+        {
+            String prog = TestPrograms.randomExpr(rand, 4) + ";";
+            SyntaxTree reused = new MFLParser(prog).parse();
+            for (int j = 0; j < 20; j++)
+            {
+                Object x = values[rand.nextInt(values.length)];
+                Object y = values[rand.nextInt(values.length)];
+                assertEquals("specializedMatchesGenericRandom: " + prog + " x=" + x + " y=" + y,
+                    evaluate(new MFLParser(prog).parse(), x, y), evaluate(reused, x, y));
+            }
+        }
+    }
+
+    /**
+     * Random compiled programs print the same results and errors as the
+     * interpreter.
+     */
+    @Test
+    public void compiledMatchesInterpreterRandom() throws Exception
+    {
+        Random rand = new Random(3120);
+        File dir = Files.createTempDirectory("aot").toFile();
+        for (int i = 0; i < 100; i++)
+        {
+            String prog = TestPrograms.randomProgram(rand);
+            assertEquals("compiledMatchesInterpreterRandom: " + prog,
+                TestPrograms.interpret(prog), TestPrograms.compiled(prog, "Random" + i, dir));
+        }
+    }
+
+    /**
+     * Bind {@code g}, which random programs leave unbound, in the
+     * environment of a tree.
+     * @param ast the tree.
+     */
+    private static void bindG(SyntaxTree ast)
+    {
+        ast.getEnvironment().updateEnvironment("g", 4);
+    }
+
+    /**
+     * Evaluate a tree with {@code x} and {@code z} bound to one value and
+     * {@code y} and {@code b} to another, capturing everything it prints.
+     * @param ast the tree.
+     * @param x the value of {@code x} and {@code z}.
+     * @param y the value of {@code y} and {@code b}.
+     * @return the result and any errors.
+     */
+    private String evaluate(SyntaxTree ast, Object x, Object y)
+    {
+        Environment env = new Environment();
+        env.updateEnvironment("x", x);
+        env.updateEnvironment("y", y);
+        env.updateEnvironment("z", x);
+        env.updateEnvironment("b", y);
+        ast.setEnvironment(env);
+        return TestPrograms.evaluate(ast);
+    }
+}
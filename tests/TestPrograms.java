@@ -0,0 +1,207 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import aot.AheadOfTimeCompiler;
+import aot.Launcher;
+import ast.EvaluationException;
+import ast.Evaluator;
+import ast.SyntaxTree;
+import parser.MFLParser;
+import parser.ParseException;
+
+/**
+ * Random programs, and ways of running programs that capture everything
+ * they print, shared by the tests.
+ */
+final class TestPrograms
+{
+    // Leaves, let names, and operators random expressions are built from.
+    // The names z and g are unbound outside of lets.
+    private static final String[] LEAVES = { "0", "1", "7", "0.0", "1.0", "2.5",
+        "true", "false", "x", "y", "b", "z", "g" };
+    private static final String[] NAMES = { "x", "y", "z", "b" };
+    private static final String[] BINARY = { "+", "-", "*", "/", "mod", "and",
+        "or", "<", "<=", ">", ">=", "=", "!=" };
+
+    // The vals every random program starts with.
+    private static final String VALS = "val x := 3;\nval y := 1.5;\nval b := true;\n";
+
+    /**
+     * Something to run while what it prints is captured.
+     */
+    interface Action
+    {
+        void run() throws Exception;
+    }
+
+    private TestPrograms()
+    {
+    }
+
+    /**
+     * Build a random program: three vals binding {@code x}, {@code y}, and
+     * {@code b}, then a random expression.
+     * @param rand the source of randomness.
+     * @return the program text.
+     */
+    static String randomProgram(Random rand)
+    {
+        return VALS + randomExpr(rand, 5) + ";";
+    }
+
+    /**
+     * Build a random well-formed expression, which may well be ill-typed.
+     * @param rand the source of randomness.
+     * @param depth the maximum depth of the expression.
+     * @return the expression.
+     */
+    static String randomExpr(Random rand, int depth)
+    {
+        int choice = depth == 0 ? 0 : rand.nextInt(6);
+        switch (choice)
+        {
+        case 0:
+            return LEAVES[rand.nextInt(LEAVES.length)];
+        case 1:
+            return "-(" + randomExpr(rand, depth - 1) + ")";
+        case 2:
+            return "not (" + randomExpr(rand, depth - 1) + ")";
+        case 3:
+            return "let " + NAMES[rand.nextInt(NAMES.length)] + " := "
+                + randomExpr(rand, depth - 1) + " in (" + randomExpr(rand, depth - 1) + ")";
+        default:
+            return "(" + randomExpr(rand, depth - 1) + ") "
+                + BINARY[rand.nextInt(BINARY.length)]
+                + " (" + randomExpr(rand, depth - 1) + ")";
+        }
+    }
+
+    /**
+     * Run an action, capturing everything it prints. A parse or evaluation
+     * error is printed as its message.
+     * @param action the action.
+     * @return the output.
+     */
+    static String capture(Action action)
+    {
+        PrintStream out = System.out;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buf, true));
+
+        try
+        {
+            action.run();
+        }
+        catch (ParseException | EvaluationException ex)
+        {
+            System.out.println(ex.getMessage());
+        }
+        catch (Exception ex)
+        {
+            throw new AssertionError(ex);
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Evaluate a tree, capturing everything it prints.
+     * @param ast the tree.
+     * @return the result and any errors.
+     */
+    static String evaluate(SyntaxTree ast)
+    {
+        return capture(() -> System.out.println("=> " + ast.evaluate()));
+    }
+
+    /**
+     * Parse and evaluate a program, capturing everything it prints.
+     * @param prog the program text.
+     * @param evaluator the evaluator to use.
+     * @return the result and any errors.
+     */
+    static String run(String prog, Evaluator evaluator)
+    {
+        return run(new MFLParser(prog), ast -> ast.setEvaluator(evaluator));
+    }
+
+    /**
+     * Parse and evaluate a program, capturing everything it prints.
+     * @param prog the program text.
+     * @param setup what to do to the tree before it is evaluated.
+     * @return the result and any errors.
+     */
+    static String run(String prog, Consumer<SyntaxTree> setup)
+    {
+        return run(new MFLParser(prog), setup);
+    }
+
+    /**
+     * Parse and evaluate a program, capturing everything it prints.
+     * @param parser the parser of the program.
+     * @param setup what to do to the tree before it is evaluated.
+     * @return the result and any errors.
+     */
+    static String run(MFLParser parser, Consumer<SyntaxTree> setup)
+    {
+        return capture(() -> {
+            SyntaxTree ast = parser.parse();
+            setup.accept(ast);
+            System.out.println("=> " + ast.evaluate());
+        });
+    }
+
+    /**
+     * Interpret a program, capturing what the interpreter prints: the
+     * result, or the errors.
+     * @param prog the program text.
+     * @return the output.
+     */
+    static String interpret(String prog)
+    {
+        return capture(() -> System.out.println(new MFLParser(prog).parse().evaluate()));
+    }
+
+    /**
+     * Compile a program to a directory and run it, capturing what it prints.
+     * @param prog the program text.
+     * @param name the name of the class to compile to.
+     * @param dir the directory to compile to.
+     * @return the output.
+     */
+    static String compiled(String prog, String name, File dir)
+    {
+        return capture(() -> {
+            new AheadOfTimeCompiler(new MFLParser(prog).parse().getRootNode(), name)
+                .writeTo(dir);
+            try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }))
+            {
+                Launcher.run(loader.loadClass(name));
+            }
+        });
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import ast.SyntaxTree;
+import ast.TypeAnnotator;
+import ast.TypeChecker;
+import ast.nodes.BinOpNode;
+import ast.nodes.LetNode;
+import ast.nodes.ProgNode;
+import ast.nodes.RelOpNode;
+import ast.nodes.SyntaxNode;
+import ast.nodes.ValNode;
+import ast.nodes.UnaryOpNode;
+import ast.nodes.ValueType;
+import environment.Environment;
+import parser.MFLParser;
+import parser.ParseException;
+
+public class TypeTests
+{
+    /**
+     * Literals, operators, and names bound by lets and vals get types;
+     * names bound only in the environment do not.
+     */
+    @Test
+    public void annotatesTypes() throws ParseException
+    {
+        SyntaxTree ast = new MFLParser(
+            "val r := 2.5;\nlet n := 3 in n * 2 < 7 and r / 2.0 > 1.0;\ng + 1;").parse();
+        TypeAnnotator.annotate(ast);
+        List<SyntaxNode> stmts = ((ProgNode) ast.getRootNode()).getStatements();
+
+        ValNode val = (ValNode) stmts.get(0);
+        assertEquals("annotatesTypes: val", ValueType.REAL, val.getExpr().getType());
+        LetNode let = (LetNode) stmts.get(1);
+        assertEquals("annotatesTypes: let", ValueType.BOOL, let.getType());
+        BinOpNode and = (BinOpNode) let.getBody();
+        assertEquals("annotatesTypes: and", ValueType.BOOL, and.getType());
+        BinOpNode times = (BinOpNode) ((RelOpNode) and.getLeft()).getLeft();
+        assertEquals("annotatesTypes: times", ValueType.INT, times.getType());
+        assertEquals("annotatesTypes: name", ValueType.INT, times.getLeft().getType());
+        assertNull("annotatesTypes: global", stmts.get(2).getType());
+    }
+
+    /**
+     * Operators that would fail with a type error are left untyped.
+     */
+    @Test
+    public void leavesTypeErrorsUntyped() throws ParseException
+    {
+        String[] progs = { "1 + 2.0;", "2.5 mod 2.0;", "true + 1;", "1 and true;",
+            "true < false;", "not 1;", "-true;", "let x := 1 in x + 1.0;",
+            "val x := 1;\nlet x := true in x + 1;" };
+        for (String prog : progs)
+        {
+            SyntaxTree ast = new MFLParser(prog).parse();
+            TypeAnnotator.annotate(ast);
+            List<SyntaxNode> stmts = ((ProgNode) ast.getRootNode()).getStatements();
+            assertNull("leavesTypeErrorsUntyped: " + prog,
+                stmts.get(stmts.size() - 1).getType());
+        }
+    }
+
+    /**
+     * Every type error in a program is reported before evaluation, with the
+     * message and line evaluation would fail with.
+     */
+    @Test
+    public void checkerReportsAllErrors() throws ParseException
+    {
+        SyntaxTree ast = new MFLParser("true + 3;\nval x := 2.5;\n"
+            + "let y := x mod 2.0 in y;\n1 < 2.0 or not 4;\nq;\nval x := true;\nx < x;")
+            .parse();
+        TypeChecker checker = new TypeChecker(ast.getEnvironment());
+        checker.check(ast.getRootNode());
+        assertEquals("checkerReportsAllErrors:", List.of(
+            "Type Error (line 1): This is an arithmetic operator used with non-numeric operands.",
+            "Type Error (line 3): This is an invalid use of 'mod' with real numbers.",
+            "Type Error (line 4): This is a mixed numeric type comparison, which is not allowed.",
+            "Type Error (line 4): This is an invalid 'not' operation on a non-boolean value.",
+            "Type Error (line 5): Unbound identifier: q",
+            "Type Error (line 7): This is an invalid boolean comparison; only '=' and '!=' are allowed."),
+            checker.getErrors());
+    }
+
+    /**
+     * A program that checks has every expression typed, including names
+     * bound only in the environment.
+     */
+    @Test
+    public void checkerTypesEverything() throws ParseException
+    {
+        SyntaxTree ast = new MFLParser("val r := 2.5;\nlet n := g in -n * 2 < 7 and r > 1.0;").parse();
+        Environment env = new Environment();
+        env.updateEnvironment("g", 4);
+        ast.setEnvironment(env);
+        assertTrue("checkerTypesEverything:", TypeChecker.check(ast));
+
+        LetNode let = (LetNode) ((ProgNode) ast.getRootNode()).getStatements().get(1);
+        BinOpNode times = (BinOpNode) ((RelOpNode) ((BinOpNode) let.getBody()).getLeft()).getLeft();
+        assertEquals("checkerTypesEverything: g", ValueType.INT, let.getBoundExpr().getType());
+        assertEquals("checkerTypesEverything: -n", ValueType.INT,
+            ((UnaryOpNode) times.getLeft()).getType());
+        assertEquals("checkerTypesEverything: let", ValueType.BOOL, let.getType());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *   Copyright (C) 2022 -- 2025  Zachary A. Kissel
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ast.EvaluationException;
+import ast.RecursiveEvaluator;
+import ast.SyntaxTree;
+import lexer.SymbolTable;
+import parser.MFLParser;
+import parser.ParseException;
+import vm.BytecodeCompiler;
+import vm.VirtualMachine;
+
+public class VirtualMachineTests
+{
+    /**
+     * The virtual machine produces the same results and errors as the tree.
+     */
+    @Test
+    public void vmMatchesRecursive()
+    {
+        String[] progs = {
+            "1 + 2 * 3 - 4;",
+            "val a := 3;\nval b := 4;\n(a * b + 7) mod 5 < 3 and not (a = b);",
+            "let r := 0.0725 in let p := 1200.5 in r * p >= 86.5 or p / r < 2.0;",
+            "let x := 5 in let y := x + 1 in x - 2 < y and y > 0;",
+            "val x := 2;\nval y := x;",
+            "let x := true in x + 1;",
+            "let x := 1 in x < 2 and 3;",
+            "let x := 1 in 2.0 > 1.0 or x;",
+            "true = (1 < 2.0);",
+            "7 / (3 - 3);",
+            "let x := 4 in x mod 0;",
+            "2.5 mod 2.0;",
+            "-true;",
+            "q + 1;",
+            "99999999999;",
+            "2147483647 + 1;",
+            "let x := 2147483647 in x * x - x;",
+            "-(0 - 2147483647 - 1) = 2147483648 and 65536 * 65536 > 0;",
+            "val b := 2147483647 + 1;\nb - 1;",
+            "(0 - 2147483647 - 1) / (0 - 1) mod 99999999999;"
+        };
+        for (String prog : progs)
+            assertEquals("vmMatchesRecursive: " + prog,
+                TestPrograms.run(prog, new RecursiveEvaluator()),
+                TestPrograms.run(prog, new VirtualMachine()));
+    }
+
+    /**
+     * Literals and let-bound names are used in place, a let's value is
+     * computed into its name's register, and a comparison on the right of
+     * {@code and} or {@code or} is fused with it.
+     */
+    @Test
+    public void fusesInstructions() throws ParseException
+    {
+        SyntaxTree ast = new MFLParser(
+            "val g := 2;\nlet x := g in x + 1 > 0 and x - 2 < 5 or g = 2;").parse();
+        int g = SymbolTable.intern("g");
+        assertEquals("fusesInstructions:",
+            "0: DEFINE 2\n"
+            + "3: GLOBAL s0 " + g + "\n"
+            + "7: ADD t3 s0 1\n"
+            + "12: GT t2 t3 0\n"
+            + "17: SKIP_AND t1 t2 35\n"
+            + "22: SUB t3 s0 2\n"
+            + "27: CMP_AND LT t1 t2 t3 5\n"
+            + "35: SKIP_OR t0 t1 52\n"
+            + "40: GLOBAL t2 " + g + "\n"
+            + "44: CMP_OR EQ t0 t1 t2 2\n"
+            + "52: RETURN t0\n",
+            BytecodeCompiler.compile(ast.getRootNode()).disassemble());
+    }
+
+    /**
+     * A compiled tree is reused, and sees changes to the environment.
+     */
+    @Test
+    public void reusesCompiledTree() throws ParseException, EvaluationException
+    {
+        SyntaxTree ast = new MFLParser("let x := g * g in x - x / g;").parse();
+        ast.setEvaluator(new VirtualMachine());
+        ast.getEnvironment().updateEnvironment("g", 4);
+        assertEquals("reusesCompiledTree: int", 12, ast.evaluate());
+        ast.getEnvironment().updateEnvironment("g", 1.5);
+        assertEquals("reusesCompiledTree: real", 0.75, ast.evaluate());
+    }
+}